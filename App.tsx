@@ -944,8 +944,10 @@ const App: React.FC = () => {
 
   const handleClearCache = useCallback(async () => {
     try {
-      await NativeUtilities.clearCache();
-      addLog('[Utilities] clearCache invoked');
+      const result = await NativeUtilities.clearCache();
+      addLog(
+        `[Utilities] clearCache freed ${result?.bytesFreed ?? 0} bytes in ${result?.filesDeleted ?? 0} files`
+      );
     } catch (error) {
       const message = error instanceof Error ? error.message : String(error);
       addLog(`[Utilities] clearCache failed: ${message}`);
@@ -971,6 +973,35 @@ const App: React.FC = () => {
     [addLog]
   );
 
+  // Leftover consumables are consumed by the startup reconciliation, usually before this screen
+  // mounts; the native side retains the event until this listener attaches, so the grant is not lost.
+  useEffect(() => {
+    if (!isNativePlatform) {
+      return;
+    }
+    let cancelled = false;
+    let handle: PluginListenerHandle | null = null;
+    NativePurchases.addListener('purchaseRecovered', (result) => {
+      const orderLabel = result.orderId ? `, orderId=${result.orderId}` : '';
+      addLog(`[Purchases] recovered consumable granted: ${result.productId}, token=${result.purchaseToken}${orderLabel}`);
+    })
+      .then((listener) => {
+        if (cancelled) {
+          void listener.remove();
+        } else {
+          handle = listener;
+        }
+      })
+      .catch((error) => {
+        const message = error instanceof Error ? error.message : String(error);
+        addLog(`[Purchases] purchaseRecovered listener failed: ${message}`);
+      });
+    return () => {
+      cancelled = true;
+      void handle?.remove();
+    };
+  }, [addLog, isNativePlatform]);
+
   const handleBanner = useCallback(
     async (action: 'show' | 'hide' | 'remove') => {
       try {
@@ -1,32 +1,127 @@
 package com.subtit.player;
 
 import android.os.Bundle;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsCompat;
 import androidx.core.view.WindowInsetsControllerCompat;
 
+import com.subtit.player.plugins.DeferredInitializer;
+import com.subtit.player.plugins.MainThreadWatchdog;
+import com.subtit.player.plugins.MemoryPressureManager;
 import com.subtit.player.plugins.NativeTTSPlugin;
 import com.subtit.player.plugins.NativeWebOverlayPlugin;
 import com.subtit.player.plugins.NativeUtilitiesPlugin;
 import com.subtit.player.plugins.NativePurchasesPlugin;
+import com.subtit.player.plugins.NativeBookPlugin;
+import com.subtit.player.plugins.StartupTimeline;
 import com.getcapacitor.community.admob.AdMob;
 import com.getcapacitor.BridgeActivity;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginHandle;
 
 public class MainActivity extends BridgeActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTimeline timeline = StartupTimeline.getInstance();
+        timeline.mark("activityCreate");
+        timeline.begin("registerPlugins");
         registerPlugin(NativeTTSPlugin.class);
         registerPlugin(NativeWebOverlayPlugin.class);
         registerPlugin(NativeUtilitiesPlugin.class);
         registerPlugin(NativePurchasesPlugin.class);
+        registerPlugin(NativeBookPlugin.class);
         registerPlugin(AdMob.class);
+        timeline.end("registerPlugins");
+        timeline.begin("bridgeCreate");
         super.onCreate(savedInstanceState);
+        timeline.end("bridgeCreate");
+        timeline.begin("windowSetup");
         WindowCompat.setDecorFitsSystemWindows(getWindow(), false);
         WindowInsetsControllerCompat controller =
                 new WindowInsetsControllerCompat(getWindow(), getWindow().getDecorView());
         controller.hide(WindowInsetsCompat.Type.systemBars());
         controller.setSystemBarsBehavior(
                 WindowInsetsControllerCompat.BEHAVIOR_SHOW_TRANSIENT_BARS_BY_SWIPE);
+        NativeWebOverlayPlugin overlay = findPlugin("NativeWebOverlay", NativeWebOverlayPlugin.class);
+        if (overlay != null) {
+            overlay.restoreOverlayState(savedInstanceState);
+        }
+        registerMemoryPressureClients();
+        timeline.end("windowSetup");
+        scheduleDeferredInit();
+    }
+
+    // Releases deferred plugin work once the first frame has been drawn.
+    private void scheduleDeferredInit() {
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                decorView.post(() -> {
+                    StartupTimeline.getInstance().mark("firstFrame");
+                    DeferredInitializer.getInstance().onFirstFrame();
+                });
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        MainThreadWatchdog.getInstance().start();
+    }
+
+    @Override
+    public void onPause() {
+        MainThreadWatchdog.getInstance().stop();
+        super.onPause();
+    }
+
+    @Override
+    public void onDestroy() {
+        MemoryPressureManager memoryPressureManager = MemoryPressureManager.getInstance();
+        unregisterComponentCallbacks(memoryPressureManager);
+        memoryPressureManager.clearClients();
+        super.onDestroy();
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        NativeWebOverlayPlugin overlay = findPlugin("NativeWebOverlay", NativeWebOverlayPlugin.class);
+        if (overlay != null) {
+            overlay.saveOverlayState(outState);
+        }
+    }
+
+    private void registerMemoryPressureClients() {
+        MemoryPressureManager memoryPressureManager = MemoryPressureManager.getInstance();
+        memoryPressureManager.clearClients();
+        NativeWebOverlayPlugin overlay = findPlugin("NativeWebOverlay", NativeWebOverlayPlugin.class);
+        if (overlay != null) {
+            memoryPressureManager.addClient(overlay);
+        }
+        NativeTTSPlugin tts = findPlugin("NativeTTS", NativeTTSPlugin.class);
+        if (tts != null) {
+            memoryPressureManager.addClient(tts);
+        }
+        registerComponentCallbacks(memoryPressureManager);
+    }
+
+    @Nullable
+    private <T extends Plugin> T findPlugin(@NonNull String name, @NonNull Class<T> type) {
+        if (getBridge() == null) {
+            return null;
+        }
+        PluginHandle handle = getBridge().getPlugin(name);
+        Plugin instance = handle != null ? handle.getInstance() : null;
+        return type.isInstance(instance) ? type.cast(instance) : null;
     }
 }
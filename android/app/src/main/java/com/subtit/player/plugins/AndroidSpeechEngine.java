@@ -0,0 +1,283 @@
+package com.subtit.player.plugins;
+
+import android.content.Context;
+import android.media.AudioFormat;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.provider.Settings;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.subtit.player.core.PcmStream;
+import com.subtit.player.core.SpeechEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// SpeechEngine backed by the platform TextToSpeech service.
+final class AndroidSpeechEngine implements SpeechEngine {
+    private final Context context;
+    private final TextToSpeech textToSpeech;
+    private final Map<String, PcmStream> streams = new ConcurrentHashMap<>();
+
+    AndroidSpeechEngine(@NonNull Context context, @Nullable String engineId, @NonNull Callback callback) {
+        this.context = context;
+        TextToSpeech.OnInitListener onInit = status -> callback.onInit(status == TextToSpeech.SUCCESS);
+        if (engineId != null && !engineId.isEmpty()) {
+            textToSpeech = new TextToSpeech(context, onInit, engineId);
+        } else {
+            textToSpeech = new TextToSpeech(context, onInit);
+        }
+        textToSpeech.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override
+            public void onStart(String utteranceId) {
+                callback.onStart(utteranceId);
+            }
+
+            @Override
+            public void onDone(String utteranceId) {
+                callback.onDone(utteranceId);
+            }
+
+            @Override
+            public void onError(String utteranceId) {
+                callback.onError(utteranceId, ERROR);
+            }
+
+            @Override
+            public void onError(String utteranceId, int errorCode) {
+                callback.onError(utteranceId, errorCode);
+            }
+
+            // The header written into a pipe can stay a zeroed placeholder, so the format comes from here.
+            @Override
+            public void onBeginSynthesis(String utteranceId, int sampleRateInHz, int audioFormat, int channelCount) {
+                PcmStream stream = streams.get(utteranceId);
+                if (stream != null) {
+                    stream.setFormat(sampleRateInHz, channelCount, bitsPerSample(audioFormat));
+                }
+            }
+
+            @Override
+            public void onStop(String utteranceId, boolean interrupted) {
+                callback.onStop(utteranceId, interrupted);
+            }
+
+            @Override
+            public void onRangeStart(String utteranceId, int start, int end, int frame) {
+                callback.onRangeStart(utteranceId, start, end);
+            }
+        });
+    }
+
+    @Override
+    public int speak(String text, int queueMode, String utteranceId) {
+        return textToSpeech.speak(text, queueMode, null, utteranceId);
+    }
+
+    @Override
+    public int synthesizeToFile(String text, File file, String utteranceId) {
+        Bundle params = new Bundle();
+        params.putString(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId);
+        return textToSpeech.synthesizeToFile(text, params, file, utteranceId);
+    }
+
+    @Override
+    public boolean supportsStreamSynthesis() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+    }
+
+    @Override
+    public int synthesizeToStream(String text, PcmStream sink, String utteranceId) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            return ERROR;
+        }
+        ParcelFileDescriptor[] pipe;
+        try {
+            pipe = ParcelFileDescriptor.createPipe();
+        } catch (IOException ex) {
+            return ERROR;
+        }
+        Bundle params = new Bundle();
+        params.putString(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId);
+        streams.put(utteranceId, sink);
+        int status;
+        try {
+            status = textToSpeech.synthesizeToFile(text, params, pipe[1], utteranceId);
+        } finally {
+            // The service holds its own copy of the write end; ours has to go for the reader to see EOF.
+            closeQuietly(pipe[1]);
+        }
+        if (status != TextToSpeech.SUCCESS) {
+            streams.remove(utteranceId);
+            closeQuietly(pipe[0]);
+            return status;
+        }
+        Thread reader = new Thread(() -> {
+            try (InputStream input = new ParcelFileDescriptor.AutoCloseInputStream(pipe[0])) {
+                sink.pump(input);
+            } catch (IOException ignored) {
+                // pump has already failed the stream
+            } finally {
+                streams.remove(utteranceId);
+            }
+        }, "TtsPipeReader");
+        reader.start();
+        return status;
+    }
+
+    private static int bitsPerSample(int audioFormat) {
+        switch (audioFormat) {
+            case AudioFormat.ENCODING_PCM_8BIT:
+                return 8;
+            case AudioFormat.ENCODING_PCM_FLOAT:
+                return 32;
+            default:
+                return 16;
+        }
+    }
+
+    private static void closeQuietly(ParcelFileDescriptor descriptor) {
+        try {
+            descriptor.close();
+        } catch (IOException ignored) {
+            // nothing to recover
+        }
+    }
+
+    @Override
+    public boolean isSpeaking() {
+        return textToSpeech.isSpeaking();
+    }
+
+    @Override
+    public void stop() {
+        textToSpeech.stop();
+    }
+
+    @Override
+    public void shutdown() {
+        textToSpeech.shutdown();
+    }
+
+    @Override
+    public void setSpeechRate(float rate) {
+        textToSpeech.setSpeechRate(rate);
+    }
+
+    @Override
+    public void setPitch(float pitch) {
+        textToSpeech.setPitch(pitch);
+    }
+
+    @Override
+    public List<SpeechEngine.Voice> getVoices() {
+        List<SpeechEngine.Voice> result = new ArrayList<>();
+        Set<Voice> voices = textToSpeech.getVoices();
+        if (voices == null) {
+            return result;
+        }
+        Locale currentLanguage = textToSpeech.getLanguage();
+        for (Voice voice : voices) {
+            Locale locale = voice.getLocale() != null ? voice.getLocale() : currentLanguage;
+            result.add(new SpeechEngine.Voice(
+                    voice.getName(),
+                    locale != null ? locale.toLanguageTag() : Locale.getDefault().toLanguageTag(),
+                    voice.getQuality(),
+                    voice.getLatency(),
+                    voice.isNetworkConnectionRequired()));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean setVoice(String name) {
+        Set<Voice> voices = textToSpeech.getVoices();
+        if (voices != null) {
+            for (Voice voice : voices) {
+                if (voice.getName().equalsIgnoreCase(name)) {
+                    return textToSpeech.setVoice(voice) == TextToSpeech.SUCCESS;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<EngineInfo> getEngines() {
+        List<EngineInfo> result = new ArrayList<>();
+        List<TextToSpeech.EngineInfo> engines = textToSpeech.getEngines();
+        if (engines != null) {
+            for (TextToSpeech.EngineInfo engine : engines) {
+                result.add(new EngineInfo(engine.name, engine.label != null ? engine.label : engine.name));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String getDefaultEngine() {
+        return textToSpeech.getDefaultEngine();
+    }
+
+    @Override
+    @Nullable
+    public String getCurrentEngine() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
+            try {
+                Method method = TextToSpeech.class.getDeclaredMethod("getCurrentEngine");
+                method.setAccessible(true);
+                Object value = method.invoke(textToSpeech);
+                if (value instanceof String) {
+                    return (String) value;
+                }
+            } catch (Exception ignored) {
+                // fall through to other strategies
+            }
+        }
+        try {
+            return Settings.Secure.getString(context.getContentResolver(), "tts_default_synth");
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+
+    @Override
+    public List<String> getAvailableLanguages() {
+        List<String> result = new ArrayList<>();
+        Set<Locale> available = textToSpeech.getAvailableLanguages();
+        if (available != null) {
+            for (Locale locale : available) {
+                if (locale != null) {
+                    result.add(locale.toLanguageTag());
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @Nullable
+    public String getLanguage() {
+        Locale locale = textToSpeech.getLanguage();
+        return locale != null ? locale.toLanguageTag() : null;
+    }
+
+    @Override
+    public int getMaxSpeechInputLength() {
+        return TextToSpeech.getMaxSpeechInputLength();
+    }
+}
@@ -0,0 +1,144 @@
+package com.subtit.player.plugins;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class DeferredInitializer {
+    private static final DeferredInitializer INSTANCE = new DeferredInitializer();
+
+    private static final class Task {
+        final String name;
+        // Guarded by the task's own lock, like done while it runs.
+        Runnable runnable;
+        volatile boolean done = false;
+
+        Task(String name, Runnable runnable) {
+            this.name = name;
+            this.runnable = runnable;
+        }
+    }
+
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean released = false;
+    private boolean idleHandlerInstalled = false;
+
+    private DeferredInitializer() {
+    }
+
+    @NonNull
+    public static DeferredInitializer getInstance() {
+        return INSTANCE;
+    }
+
+    // Queues work until after the first frame; once that has happened it goes straight to the idle queue.
+    // Registering a name that is still pending replaces its work in place: a plugin recreated with its
+    // activity must not leave the destroyed instance's initializer to run instead of its own.
+    public void defer(@NonNull String name, @NonNull Runnable runnable) {
+        Task previous;
+        synchronized (this) {
+            previous = tasks.get(name);
+        }
+        if (previous != null) {
+            // Waits out a run in progress, after which the task is done and a new one is queued.
+            synchronized (previous) {
+                if (!previous.done) {
+                    previous.runnable = runnable;
+                    return;
+                }
+            }
+        }
+        boolean schedule;
+        synchronized (this) {
+            Task task = new Task(name, runnable);
+            tasks.put(name, task);
+            queue.addLast(task);
+            schedule = released;
+        }
+        if (schedule) {
+            mainHandler.post(this::installIdleHandler);
+        }
+    }
+
+    // Runs the named task on the calling thread if it has not run yet; returns once it has completed.
+    public void ensure(@NonNull String name) {
+        Task task;
+        synchronized (this) {
+            task = tasks.get(name);
+            if (task == null || task.done) {
+                return;
+            }
+        }
+        run(task, "demand");
+    }
+
+    public void onFirstFrame() {
+        synchronized (this) {
+            if (released) {
+                return;
+            }
+            released = true;
+        }
+        StartupTimeline.getInstance().mark("deferredInitReleased");
+        mainHandler.post(this::installIdleHandler);
+    }
+
+    private void installIdleHandler() {
+        synchronized (this) {
+            if (idleHandlerInstalled || queue.isEmpty()) {
+                return;
+            }
+            idleHandlerInstalled = true;
+        }
+        // One task per idle callback keeps each main-thread slice short.
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                Task next;
+                synchronized (DeferredInitializer.this) {
+                    next = queue.pollFirst();
+                    if (next == null) {
+                        idleHandlerInstalled = false;
+                        return false;
+                    }
+                }
+                run(next, "idle");
+                synchronized (DeferredInitializer.this) {
+                    if (queue.isEmpty()) {
+                        idleHandlerInstalled = false;
+                        return false;
+                    }
+                    return true;
+                }
+            }
+        });
+    }
+
+    private void run(@NonNull Task task, @NonNull String trigger) {
+        synchronized (task) {
+            if (task.done) {
+                return;
+            }
+            String phase = "init:" + task.name;
+            StartupTimeline timeline = StartupTimeline.getInstance();
+            timeline.begin(phase);
+            try {
+                task.runnable.run();
+            } finally {
+                task.done = true;
+                timeline.end(phase, trigger);
+            }
+        }
+        synchronized (this) {
+            queue.remove(task);
+        }
+    }
+}
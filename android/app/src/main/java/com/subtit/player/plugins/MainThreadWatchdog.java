@@ -0,0 +1,300 @@
+package com.subtit.player.plugins;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pings the main looper from a background thread. A ping still unanswered after the threshold is a
+// stall: the main thread's stack is sampled until it answers, and the stall is charged to the
+// section that was open (see enter/exit) or else to the app frame seen most often in the samples.
+public final class MainThreadWatchdog {
+    private static final String TAG = "MainThreadWatchdog";
+    private static final MainThreadWatchdog INSTANCE = new MainThreadWatchdog();
+    private static final String APP_PACKAGE = "com.subtit.player.";
+    private static final long DEFAULT_THRESHOLD_MS = 200;
+    private static final long SAMPLE_INTERVAL_MS = 100;
+    private static final int MAX_SAMPLES = 20;
+    private static final int MAX_RECENT = 20;
+    private static final int MAX_STACK_FRAMES = 16;
+    private static final long[] BUCKET_LIMITS_MS = {500, 1000, 2000, 5000};
+    private static final String UNKNOWN_OWNER = "unknown";
+
+    private static final class OwnerMetric {
+        long count;
+        long totalMs;
+        long maxMs;
+    }
+
+    private static final class Stall {
+        final String owner;
+        final long durationMs;
+        final long at;
+        final List<String> stack;
+
+        Stall(String owner, long durationMs, long at, List<String> stack) {
+            this.owner = owner;
+            this.durationMs = durationMs;
+            this.at = at;
+            this.stack = stack;
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+    private Thread watcher;
+    private volatile long thresholdMs = DEFAULT_THRESHOLD_MS;
+    // Written on the main thread only; read by the watcher when it samples.
+    private volatile String section = null;
+    private volatile long pongAt = 0;
+
+    private long stalls = 0;
+    private long totalStallMs = 0;
+    private long maxStallMs = 0;
+    private final long[] buckets = new long[BUCKET_LIMITS_MS.length + 1];
+    private final Map<String, OwnerMetric> owners = new LinkedHashMap<>();
+    private final ArrayDeque<Stall> recent = new ArrayDeque<>();
+    private long pings = 0;
+
+    private MainThreadWatchdog() {
+    }
+
+    @NonNull
+    public static MainThreadWatchdog getInstance() {
+        return INSTANCE;
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (watcher != null) {
+                return;
+            }
+            watcher = new Thread(this::watch, TAG);
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    // Stopped while the activity is in the background so the ping loop costs nothing there.
+    public void stop() {
+        synchronized (lock) {
+            if (watcher == null) {
+                return;
+            }
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    public void setThresholdMs(long value) {
+        thresholdMs = Math.max(50, value);
+    }
+
+    // Marks main-thread work that stalls should be charged to; returns the section to restore in exit.
+    // Calls from other threads are ignored since only main-thread work can stall the looper.
+    @Nullable
+    public String enter(@NonNull String name) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return null;
+        }
+        String previous = section;
+        section = name;
+        return previous;
+    }
+
+    public void exit(@Nullable String previous) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return;
+        }
+        section = previous;
+    }
+
+    public void reset() {
+        synchronized (lock) {
+            stalls = 0;
+            totalStallMs = 0;
+            maxStallMs = 0;
+            pings = 0;
+            Arrays.fill(buckets, 0);
+            owners.clear();
+            recent.clear();
+        }
+    }
+
+    private void watch() {
+        Thread mainThread = Looper.getMainLooper().getThread();
+        Runnable pong = () -> pongAt = SystemClock.uptimeMillis();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long threshold = thresholdMs;
+                long postedAt = SystemClock.uptimeMillis();
+                pongAt = 0;
+                mainHandler.post(pong);
+                Thread.sleep(threshold);
+                if (pongAt == 0) {
+                    observeStall(mainThread, postedAt);
+                }
+                synchronized (lock) {
+                    pings++;
+                }
+            }
+        } catch (InterruptedException ignored) {
+            // stopped
+        } finally {
+            mainHandler.removeCallbacks(pong);
+        }
+    }
+
+    // Samples the main thread until the pending ping runs, then records the stall.
+    private void observeStall(Thread mainThread, long postedAt) throws InterruptedException {
+        List<StackTraceElement[]> samples = new ArrayList<>();
+        String owner = section;
+        while (pongAt == 0) {
+            if (samples.size() < MAX_SAMPLES) {
+                samples.add(mainThread.getStackTrace());
+            }
+            if (owner == null) {
+                owner = section;
+            }
+            Thread.sleep(SAMPLE_INTERVAL_MS);
+        }
+        long durationMs = pongAt - postedAt;
+        if (Debug.isDebuggerConnected()) {
+            // Breakpoints look exactly like stalls.
+            return;
+        }
+        if (owner == null) {
+            owner = attribute(samples);
+        }
+        record(owner, durationMs, samples.isEmpty() ? new StackTraceElement[0] : samples.get(0));
+    }
+
+    private void record(String owner, long durationMs, StackTraceElement[] sample) {
+        List<String> stack = new ArrayList<>();
+        for (int i = 0; i < sample.length && i < MAX_STACK_FRAMES; i++) {
+            stack.add(sample[i].toString());
+        }
+        synchronized (lock) {
+            stalls++;
+            totalStallMs += durationMs;
+            maxStallMs = Math.max(maxStallMs, durationMs);
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS_MS.length && durationMs >= BUCKET_LIMITS_MS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+            OwnerMetric metric = owners.get(owner);
+            if (metric == null) {
+                metric = new OwnerMetric();
+                owners.put(owner, metric);
+            }
+            metric.count++;
+            metric.totalMs += durationMs;
+            metric.maxMs = Math.max(metric.maxMs, durationMs);
+            recent.addLast(new Stall(owner, durationMs, System.currentTimeMillis(), stack));
+            if (recent.size() > MAX_RECENT) {
+                recent.removeFirst();
+            }
+        }
+        Log.w(TAG, "Main thread stalled " + durationMs + "ms in " + owner
+                + (stack.isEmpty() ? "" : " at " + stack.get(0)));
+    }
+
+    // The app frame nearest the top of the stack, voted across samples. Lambdas resolve to the method
+    // that declared them, so a runOnUiThread block in clearCache reads as NativeUtilitiesPlugin.clearCache.
+    @NonNull
+    private static String attribute(List<StackTraceElement[]> samples) {
+        Map<String, Integer> votes = new HashMap<>();
+        String best = UNKNOWN_OWNER;
+        int bestVotes = 0;
+        for (StackTraceElement[] sample : samples) {
+            for (StackTraceElement frame : sample) {
+                if (!frame.getClassName().startsWith(APP_PACKAGE)) {
+                    continue;
+                }
+                String name = describeFrame(frame);
+                int count = votes.containsKey(name) ? votes.get(name) + 1 : 1;
+                votes.put(name, count);
+                if (count > bestVotes) {
+                    best = name;
+                    bestVotes = count;
+                }
+                break;
+            }
+        }
+        return best;
+    }
+
+    @NonNull
+    private static String describeFrame(StackTraceElement frame) {
+        String className = frame.getClassName();
+        className = className.substring(className.lastIndexOf('.') + 1);
+        int nested = className.indexOf('$');
+        if (nested > 0) {
+            className = className.substring(0, nested);
+        }
+        String method = frame.getMethodName();
+        if (method.startsWith("lambda$")) {
+            int end = method.indexOf('$', "lambda$".length());
+            method = end > 0 ? method.substring("lambda$".length(), end) : method;
+        }
+        return className + "." + method;
+    }
+
+    @NonNull
+    public JSObject snapshot() {
+        synchronized (lock) {
+            JSObject bucketCounts = new JSObject();
+            for (int i = 0; i < buckets.length; i++) {
+                String label = i < BUCKET_LIMITS_MS.length
+                        ? "lt" + BUCKET_LIMITS_MS[i]
+                        : "gte" + BUCKET_LIMITS_MS[BUCKET_LIMITS_MS.length - 1];
+                bucketCounts.put(label, buckets[i]);
+            }
+            JSObject ownerMetrics = new JSObject();
+            for (Map.Entry<String, OwnerMetric> entry : owners.entrySet()) {
+                OwnerMetric metric = entry.getValue();
+                JSObject item = new JSObject();
+                item.put("count", metric.count);
+                item.put("totalMs", metric.totalMs);
+                item.put("maxMs", metric.maxMs);
+                ownerMetrics.put(entry.getKey(), item);
+            }
+            JSArray recentStalls = new JSArray();
+            for (Stall stall : recent) {
+                JSObject item = new JSObject();
+                item.put("owner", stall.owner);
+                item.put("durationMs", stall.durationMs);
+                item.put("at", stall.at);
+                item.put("stack", new JSArray(stall.stack));
+                recentStalls.put(item);
+            }
+            JSObject result = new JSObject();
+            result.put("running", watcher != null);
+            result.put("thresholdMs", thresholdMs);
+            result.put("pings", pings);
+            result.put("stalls", stalls);
+            result.put("totalStallMs", totalStallMs);
+            result.put("maxStallMs", maxStallMs);
+            result.put("buckets", bucketCounts);
+            result.put("owners", ownerMetrics);
+            result.put("recent", recentStalls);
+            return result;
+        }
+    }
+}
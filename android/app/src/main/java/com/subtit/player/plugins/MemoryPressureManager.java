@@ -0,0 +1,178 @@
+package com.subtit.player.plugins;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.getcapacitor.JSObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class MemoryPressureManager implements ComponentCallbacks2 {
+    public static final int SEVERITY_NONE = 0;
+    public static final int SEVERITY_MODERATE = 1;
+    public static final int SEVERITY_HIGH = 2;
+    public static final int SEVERITY_CRITICAL = 3;
+
+    private static final String TAG = "MemoryPressure";
+    private static final MemoryPressureManager INSTANCE = new MemoryPressureManager();
+
+    public interface Client {
+        void onMemoryPressure(int severity, @NonNull MemoryPressureManager manager);
+    }
+
+    private static final class ActionMetric {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong amount = new AtomicLong();
+        volatile long lastAt = 0;
+    }
+
+    private final CopyOnWriteArrayList<Client> clients = new CopyOnWriteArrayList<>();
+    private final Map<String, ActionMetric> actions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> signals = new ConcurrentHashMap<>();
+    private volatile int lastSeverity = SEVERITY_NONE;
+    private volatile String lastSignal = null;
+    private volatile long lastSignalAt = 0;
+
+    private MemoryPressureManager() {
+    }
+
+    @NonNull
+    public static MemoryPressureManager getInstance() {
+        return INSTANCE;
+    }
+
+    public void addClient(@NonNull Client client) {
+        clients.addIfAbsent(client);
+    }
+
+    public void removeClient(@NonNull Client client) {
+        clients.remove(client);
+    }
+
+    public void clearClients() {
+        clients.clear();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        dispatch(describeLevel(level), severityForLevel(level));
+    }
+
+    @Override
+    public void onLowMemory() {
+        dispatch("LOW_MEMORY", SEVERITY_CRITICAL);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        // not relevant for memory pressure
+    }
+
+    public void recordAction(@NonNull String action, long amount) {
+        ActionMetric metric = actions.get(action);
+        if (metric == null) {
+            actions.putIfAbsent(action, new ActionMetric());
+            metric = actions.get(action);
+        }
+        metric.count.incrementAndGet();
+        metric.amount.addAndGet(amount);
+        metric.lastAt = System.currentTimeMillis();
+        Log.i(TAG, "action=" + action + " amount=" + amount);
+    }
+
+    @NonNull
+    public JSObject snapshot() {
+        JSObject result = new JSObject();
+        JSObject signalCounts = new JSObject();
+        for (Map.Entry<String, AtomicLong> entry : signals.entrySet()) {
+            signalCounts.put(entry.getKey(), entry.getValue().get());
+        }
+        JSObject actionMetrics = new JSObject();
+        for (Map.Entry<String, ActionMetric> entry : actions.entrySet()) {
+            ActionMetric metric = entry.getValue();
+            JSObject item = new JSObject();
+            item.put("count", metric.count.get());
+            item.put("amount", metric.amount.get());
+            item.put("lastAt", metric.lastAt);
+            actionMetrics.put(entry.getKey(), item);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        result.put("signals", signalCounts);
+        result.put("actions", actionMetrics);
+        result.put("lastSignal", lastSignal);
+        result.put("lastSeverity", lastSeverity);
+        result.put("lastSignalAt", lastSignalAt);
+        result.put("heapUsedBytes", runtime.totalMemory() - runtime.freeMemory());
+        result.put("heapMaxBytes", runtime.maxMemory());
+        return result;
+    }
+
+    private void dispatch(@NonNull String signal, int severity) {
+        AtomicLong counter = signals.get(signal);
+        if (counter == null) {
+            signals.putIfAbsent(signal, new AtomicLong());
+            counter = signals.get(signal);
+        }
+        counter.incrementAndGet();
+        lastSignal = signal;
+        lastSeverity = severity;
+        lastSignalAt = System.currentTimeMillis();
+        Log.i(TAG, "signal=" + signal + " severity=" + severity + " clients=" + clients.size());
+        if (severity == SEVERITY_NONE) {
+            return;
+        }
+        for (Client client : clients) {
+            long start = SystemClock.elapsedRealtime();
+            try {
+                client.onMemoryPressure(severity, this);
+            } catch (Exception ex) {
+                Log.w(TAG, "client " + client.getClass().getSimpleName() + " failed: " + ex.getMessage());
+            }
+            recordAction("dispatch." + client.getClass().getSimpleName() + ".ms", SystemClock.elapsedRealtime() - start);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    static int severityForLevel(int level) {
+        if (level >= TRIM_MEMORY_COMPLETE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            return SEVERITY_CRITICAL;
+        }
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_LOW) {
+            return SEVERITY_HIGH;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            return SEVERITY_MODERATE;
+        }
+        return SEVERITY_NONE;
+    }
+
+    @NonNull
+    @SuppressWarnings("deprecation")
+    static String describeLevel(int level) {
+        switch (level) {
+            case TRIM_MEMORY_RUNNING_MODERATE:
+                return "RUNNING_MODERATE";
+            case TRIM_MEMORY_RUNNING_LOW:
+                return "RUNNING_LOW";
+            case TRIM_MEMORY_RUNNING_CRITICAL:
+                return "RUNNING_CRITICAL";
+            case TRIM_MEMORY_UI_HIDDEN:
+                return "UI_HIDDEN";
+            case TRIM_MEMORY_BACKGROUND:
+                return "BACKGROUND";
+            case TRIM_MEMORY_MODERATE:
+                return "MODERATE";
+            case TRIM_MEMORY_COMPLETE:
+                return "COMPLETE";
+            default:
+                return "LEVEL_" + level;
+        }
+    }
+}
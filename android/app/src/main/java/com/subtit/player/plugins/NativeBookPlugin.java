@@ -0,0 +1,480 @@
+package com.subtit.player.plugins;
+
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginHandle;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import com.getcapacitor.PluginLoadException;
+import com.subtit.player.core.EpubBook;
+import com.subtit.player.core.EpubNarrator;
+import com.subtit.player.core.SearchIndex;
+import com.subtit.player.core.SpeechController;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Reads EPUBs aloud without handing chapter text to the web layer: the book is parsed block by block
+// from the zip and fed to NativeTTS a few utterances ahead of playback.
+@CapacitorPlugin(name = "NativeBook")
+public class NativeBookPlugin extends Plugin {
+    private static final String TAG = "NativeBook";
+    private static final String WEB_ASSET_ROOT = "public/";
+    private static final String BOOK_CACHE_DIR = "books";
+    private static final String SEARCH_INDEX_DIR = "book-index";
+
+    private ExecutorService executor;
+    // Indexing a book takes a while, so it stays off the executor that drives narration.
+    private ExecutorService indexExecutor;
+    private SearchIndex searchIndex;
+    private EpubBook book;
+    private volatile EpubNarrator narrator;
+    private NativeTTSPlugin ttsPlugin;
+    private NativeTTSPlugin.ExternalListener ttsListener;
+    private volatile String voiceId;
+    private volatile Double rate;
+    private volatile Double pitch;
+
+    @Override
+    public void load() {
+        super.load();
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "NativeBook");
+            thread.setDaemon(true);
+            return thread;
+        });
+        indexExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "NativeBookIndex");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        if (executor != null) {
+            executor.execute(this::closeBook);
+            // Queued rather than called so the close tasks closeBook schedules still get to run.
+            executor.execute(executor::shutdown);
+        }
+        if (indexExecutor != null) {
+            indexExecutor.execute(this::closeSearchIndex);
+            indexExecutor.shutdown();
+        }
+    }
+
+    // path is an absolute file path, a file:// URI, or a path inside the bundled web assets.
+    @PluginMethod
+    public void open(PluginCall call) {
+        String path = call.getString("path");
+        if (path == null || path.trim().isEmpty()) {
+            call.reject("path is required");
+            return;
+        }
+        executor.execute(() -> {
+            closeBook();
+            try {
+                book = EpubBook.open(resolveFile(path.trim()));
+            } catch (IOException ex) {
+                call.reject("Failed to open book: " + ex.getMessage());
+                return;
+            }
+            narrator = new EpubNarrator(book, new TtsSpeaker(), executor, new NarratorListener());
+            call.resolve(describeBook(book));
+        });
+    }
+
+    @PluginMethod
+    public void play(PluginCall call) {
+        int chapter = call.getInt("chapter", 0);
+        int block = call.getInt("block", 0);
+        int lookAhead = call.getInt("lookAhead", EpubNarrator.DEFAULT_LOOK_AHEAD);
+        String anchor = call.getString("anchor");
+        String requestedVoice = call.getString("voiceId");
+        Double requestedRate = call.getDouble("rate");
+        Double requestedPitch = call.getDouble("pitch");
+        executor.execute(() -> {
+            if (narrator == null) {
+                call.reject("No book is open");
+                return;
+            }
+            if (chapter < 0 || chapter >= book.chapters().size()) {
+                call.reject("chapter out of range");
+                return;
+            }
+            NativeTTSPlugin tts = getNativeTtsPlugin();
+            if (tts == null) {
+                call.reject("NativeTTS unavailable");
+                return;
+            }
+            attachTts(tts);
+            voiceId = requestedVoice;
+            rate = requestedRate;
+            pitch = requestedPitch;
+            narrator.play(chapter, anchor, block, lookAhead);
+            call.resolve();
+        });
+    }
+
+    @PluginMethod
+    public void stop(PluginCall call) {
+        executor.execute(() -> {
+            if (narrator != null) {
+                narrator.stop();
+            }
+            call.resolve();
+        });
+    }
+
+    @PluginMethod
+    public void getPosition(PluginCall call) {
+        executor.execute(() -> {
+            JSObject result = new JSObject();
+            result.put("state", narrator != null ? narrator.state() : EpubNarrator.STATE_STOPPED);
+            EpubBook.Block position = narrator != null ? narrator.position() : null;
+            if (position != null) {
+                result.put("chapter", position.chapter);
+                result.put("block", position.index);
+                result.put("anchor", position.anchor);
+            }
+            call.resolve(result);
+        });
+    }
+
+    @PluginMethod
+    public void close(PluginCall call) {
+        executor.execute(() -> {
+            closeBook();
+            call.resolve();
+        });
+    }
+
+    // Skips books whose indexed copy matches the file's size and modification time unless force is set.
+    @PluginMethod
+    public void indexBook(PluginCall call) {
+        String path = call.getString("path");
+        if (path == null || path.trim().isEmpty()) {
+            call.reject("path is required");
+            return;
+        }
+        String requestedId = call.getString("bookId");
+        boolean force = Boolean.TRUE.equals(call.getBoolean("force", false));
+        indexExecutor.execute(() -> {
+            try {
+                File file = resolveFile(path.trim());
+                String bookId = requestedId != null && !requestedId.isEmpty() ? requestedId : file.getName();
+                SearchIndex index = searchIndex();
+                JSObject result = new JSObject();
+                result.put("bookId", bookId);
+                if (!force && index.isCurrent(bookId, file.length(), file.lastModified())) {
+                    result.put("indexed", false);
+                    call.resolve(result);
+                    return;
+                }
+                long startedAt = System.currentTimeMillis();
+                int terms;
+                try (EpubBook indexed = EpubBook.open(file)) {
+                    terms = index.addBook(bookId, indexed, file.length(), file.lastModified());
+                }
+                result.put("indexed", true);
+                result.put("terms", terms);
+                result.put("durationMs", System.currentTimeMillis() - startedAt);
+                call.resolve(result);
+            } catch (IOException ex) {
+                call.reject("Failed to index book: " + ex.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void search(PluginCall call) {
+        String query = call.getString("query");
+        int limit = call.getInt("limit", SearchIndex.DEFAULT_LIMIT);
+        // Queries take milliseconds and must not wait behind a book being indexed.
+        executor.execute(() -> {
+            SearchIndex.Result found;
+            try {
+                found = searchIndex().search(query, limit);
+            } catch (IOException ex) {
+                call.reject("Search index unavailable: " + ex.getMessage());
+                return;
+            }
+            JSArray hits = new JSArray();
+            for (SearchIndex.Hit hit : found.hits) {
+                JSObject item = new JSObject();
+                item.put("bookId", hit.bookId);
+                item.put("chapter", hit.chapter);
+                item.put("block", hit.block);
+                item.put("offset", hit.offset);
+                item.put("length", hit.length);
+                hits.put(item);
+            }
+            JSObject result = new JSObject();
+            result.put("total", found.total);
+            result.put("hits", hits);
+            call.resolve(result);
+        });
+    }
+
+    @PluginMethod
+    public void removeFromIndex(PluginCall call) {
+        String bookId = call.getString("bookId");
+        if (bookId == null || bookId.isEmpty()) {
+            call.reject("bookId is required");
+            return;
+        }
+        indexExecutor.execute(() -> {
+            try {
+                JSObject result = new JSObject();
+                result.put("removed", searchIndex().removeBook(bookId));
+                call.resolve(result);
+            } catch (IOException ex) {
+                call.reject("Search index unavailable: " + ex.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void getIndexedBooks(PluginCall call) {
+        indexExecutor.execute(() -> {
+            try {
+                JSObject result = new JSObject();
+                result.put("books", new JSArray(searchIndex().books()));
+                call.resolve(result);
+            } catch (IOException ex) {
+                call.reject("Search index unavailable: " + ex.getMessage());
+            }
+        });
+    }
+
+    @NonNull
+    private synchronized SearchIndex searchIndex() throws IOException {
+        if (searchIndex == null) {
+            searchIndex = new SearchIndex(new File(getContext().getFilesDir(), SEARCH_INDEX_DIR));
+        }
+        return searchIndex;
+    }
+
+    private synchronized void closeSearchIndex() {
+        if (searchIndex != null) {
+            searchIndex.close();
+            searchIndex = null;
+        }
+    }
+
+    private void closeBook() {
+        if (narrator != null) {
+            narrator.close();
+            narrator = null;
+        }
+        // Queued behind the narrator's own close so it can still stop speech and release its stream.
+        final EpubBook closing = book;
+        book = null;
+        executor.execute(() -> {
+            if (closing != null) {
+                try {
+                    closing.close();
+                } catch (IOException ignored) {
+                    // nothing to recover
+                }
+            }
+            if (narrator == null) {
+                detachTts();
+            }
+        });
+    }
+
+    private void attachTts(@NonNull NativeTTSPlugin tts) {
+        if (ttsPlugin == tts && ttsListener != null) {
+            return;
+        }
+        detachTts();
+        ttsListener = (eventName, data) -> {
+            EpubNarrator current = narrator;
+            if (!"ttsState".equals(eventName) || current == null) {
+                return;
+            }
+            String state = data.getString("state");
+            String utteranceId = data.getString("utteranceId");
+            if (SpeechController.STATE_START.equals(state)) {
+                current.onUtteranceStart(utteranceId);
+            } else if (SpeechController.STATE_DONE.equals(state)) {
+                if (utteranceId != null) {
+                    current.onUtteranceDone(utteranceId);
+                } else {
+                    current.onSpeechStopped();
+                }
+            } else if (SpeechController.STATE_ERROR.equals(state)) {
+                current.onUtteranceError(utteranceId);
+            }
+        };
+        ttsPlugin = tts;
+        tts.addExternalListener(ttsListener);
+    }
+
+    private void detachTts() {
+        if (ttsPlugin != null && ttsListener != null) {
+            ttsPlugin.removeExternalListener(ttsListener);
+        }
+        ttsPlugin = null;
+        ttsListener = null;
+    }
+
+    @NonNull
+    private File resolveFile(@NonNull String path) throws IOException {
+        if (path.startsWith("file://")) {
+            String filePath = Uri.parse(path).getPath();
+            if (filePath == null) {
+                throw new IOException("Invalid file URI");
+            }
+            return new File(filePath);
+        }
+        if (path.startsWith("/")) {
+            return new File(path);
+        }
+        return copyWebAsset(path);
+    }
+
+    // ZipFile needs random access, which APK assets do not offer, so bundled books are copied once.
+    @NonNull
+    private File copyWebAsset(@NonNull String path) throws IOException {
+        String assetPath = WEB_ASSET_ROOT + (path.startsWith("./") ? path.substring(2) : path);
+        File directory = new File(getContext().getCacheDir(), BOOK_CACHE_DIR);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File target = new File(directory, Integer.toHexString(assetPath.hashCode()) + ".epub");
+        if (target.isFile() && target.length() > 0) {
+            return target;
+        }
+        File partial = new File(directory, target.getName() + ".part");
+        try (InputStream input = getContext().getAssets().open(assetPath);
+             OutputStream output = new FileOutputStream(partial)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                output.write(buffer, 0, read);
+            }
+        }
+        if (!partial.renameTo(target)) {
+            partial.delete();
+            throw new IOException("Cannot store " + target);
+        }
+        return target;
+    }
+
+    @NonNull
+    private static JSObject describeBook(@NonNull EpubBook book) {
+        JSArray chapters = new JSArray();
+        for (EpubBook.Chapter chapter : book.chapters()) {
+            JSArray sections = new JSArray();
+            for (EpubBook.Section section : chapter.sections) {
+                JSObject item = new JSObject();
+                item.put("title", section.title);
+                item.put("anchor", section.anchor);
+                item.put("depth", section.depth);
+                sections.put(item);
+            }
+            JSObject item = new JSObject();
+            item.put("index", chapter.index);
+            item.put("title", chapter.title);
+            item.put("path", chapter.path);
+            item.put("linear", chapter.linear);
+            item.put("sections", sections);
+            chapters.put(item);
+        }
+        JSObject result = new JSObject();
+        result.put("title", book.title());
+        result.put("language", book.language());
+        result.put("chapters", chapters);
+        return result;
+    }
+
+    @Nullable
+    private NativeTTSPlugin getNativeTtsPlugin() {
+        if (getBridge() == null) {
+            return null;
+        }
+        try {
+            PluginHandle handle = getBridge().getPlugin("NativeTTS");
+            if (handle == null) {
+                return null;
+            }
+            Plugin pluginInstance = handle.getInstance();
+            if (pluginInstance == null) {
+                pluginInstance = handle.load();
+            }
+            if (pluginInstance instanceof NativeTTSPlugin) {
+                return (NativeTTSPlugin) pluginInstance;
+            }
+        } catch (PluginLoadException ex) {
+            Log.w(TAG, "Failed to load NativeTTS plugin: " + ex.getMessage());
+        }
+        return null;
+    }
+
+    private final class TtsSpeaker implements EpubNarrator.Speaker {
+        @Override
+        public String speak(String text, boolean flush) {
+            NativeTTSPlugin tts = ttsPlugin;
+            if (tts == null) {
+                throw new IllegalStateException("NativeTTS unavailable");
+            }
+            // Voice settings apply to the engine, so they are set once with the flushing utterance.
+            return flush
+                    ? tts.queueSpeechSync(text, voiceId, rate, pitch, true)
+                    : tts.queueSpeechSync(text, null, null, null, false);
+        }
+
+        @Override
+        public void stop() {
+            NativeTTSPlugin tts = ttsPlugin;
+            if (tts != null) {
+                tts.stopSync();
+            }
+        }
+    }
+
+    private final class NarratorListener implements EpubNarrator.Listener {
+        @Override
+        public void onBlock(EpubBook.Block block, String utteranceId) {
+            JSObject data = new JSObject();
+            data.put("chapter", block.chapter);
+            data.put("block", block.index);
+            data.put("anchor", block.anchor);
+            data.put("heading", block.heading);
+            data.put("text", block.text);
+            data.put("utteranceId", utteranceId);
+            notifyListeners("bookProgress", data);
+        }
+
+        @Override
+        public void onState(String state, EpubBook.Block position, String message) {
+            JSObject data = new JSObject();
+            data.put("state", state);
+            if (position != null) {
+                data.put("chapter", position.chapter);
+                data.put("block", position.index);
+            }
+            if (message != null) {
+                data.put("message", message);
+            }
+            notifyListeners("bookState", data);
+        }
+    }
+}
@@ -3,301 +3,237 @@ package com.subtit.player.plugins;
 import android.app.Activity;
 import android.os.Handler;
 import android.os.Looper;
-import android.text.TextUtils;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.getcapacitor.JSObject;
-import com.android.billingclient.api.AcknowledgePurchaseParams;
-import com.android.billingclient.api.AcknowledgePurchaseResponseListener;
-import com.android.billingclient.api.BillingClient;
-import com.android.billingclient.api.BillingClientStateListener;
-import com.android.billingclient.api.BillingFlowParams;
-import com.android.billingclient.api.BillingResult;
-import com.android.billingclient.api.ConsumeParams;
-import com.android.billingclient.api.ConsumeResponseListener;
-import com.android.billingclient.api.ProductDetails;
-import com.android.billingclient.api.Purchase;
-import com.android.billingclient.api.PurchasesUpdatedListener;
-import com.android.billingclient.api.QueryProductDetailsParams;
-
-import java.util.Collections;
+import com.subtit.player.core.BillingGateway;
+import com.subtit.player.core.EntitlementStore;
+import com.subtit.player.core.PurchaseController;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.security.Key;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
-@CapacitorPlugin(name = "NativePurchases")
-public class NativePurchasesPlugin extends Plugin implements PurchasesUpdatedListener {
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
 
-    private BillingClient billingClient;
-    private PluginCall pendingPurchaseCall;
-    private String pendingProductId;
-    private boolean pendingConsumable;
+@CapacitorPlugin(name = "NativePurchases")
+public class NativePurchasesPlugin extends Plugin {
+    private static volatile BillingGateway gatewayOverride = null;
+    private PurchaseController controller;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final String INIT_TASK = "NativePurchases";
+    private static final String[] DEFAULT_INAPP_PRODUCTS = {"id_pro", "id_d_1"};
+    private static final String[] DEFAULT_SUBS_PRODUCTS = {"premium_month_1"};
+    private static final String[] DEFAULT_CONSUMABLE_PRODUCTS = {"id_d_1"};
+    private static final String TAG = "NativePurchases";
+    private static final String ENTITLEMENTS_FILE = "entitlements.json";
+    private static final String ENTITLEMENT_KEY_ALIAS = "native_purchases_entitlements";
+    private static final String ANDROID_KEYSTORE = "AndroidKeyStore";
+    // Store writes and connection retries; billing callbacks themselves arrive on the main thread.
+    private ScheduledExecutorService billingExecutor;
+
+    // Lets local performance runs swap Play Billing for BillingSimulator; takes effect on next load.
+    public static void setGateway(@Nullable BillingGateway gateway) {
+        gatewayOverride = gateway;
+    }
 
     @Override
     public void load() {
         super.load();
-        setupBillingClient();
+        // The catalogue can be overridden from capacitor.config under plugins.NativePurchases.
+        PurchaseController.Config config = new PurchaseController.Config();
+        config.inAppProducts = Arrays.asList(getConfig().getArray("inAppProducts", DEFAULT_INAPP_PRODUCTS));
+        config.subsProducts = Arrays.asList(getConfig().getArray("subsProducts", DEFAULT_SUBS_PRODUCTS));
+        config.consumableProducts = Arrays.asList(getConfig().getArray("consumableProducts", DEFAULT_CONSUMABLE_PRODUCTS));
+        billingExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "NativePurchases");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BillingGateway gateway = gatewayOverride;
+        if (gateway == null) {
+            gateway = new PlayBillingGateway(getContext(), this::getActivity);
+        }
+        controller = new PurchaseController(gateway, config, this::createEntitlementStore, billingExecutor,
+                this::runOnUiThread, new PurchaseController.Listener() {
+                    @Override
+                    public void onEvent(String eventName, JSONObject data) {
+                        // A recovered purchase is reported during startup reconciliation, before the page
+                        // has listeners; retained, it is delivered to the first one instead of dropped.
+                        boolean retain = PurchaseController.EVENT_PURCHASE_RECOVERED.equals(eventName);
+                        notifyListeners(eventName, toJSObject(data), retain);
+                    }
+
+                    @Override
+                    public void onLog(String message) {
+                        Log.d(TAG, message);
+                    }
+                });
+        DeferredInitializer.getInstance().defer(INIT_TASK, controller::start);
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        if (controller != null) {
+            controller.onResume();
+        }
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        if (controller != null) {
+            controller.onPause();
+        }
     }
 
     @Override
     protected void handleOnDestroy() {
         super.handleOnDestroy();
-        if (billingClient != null) {
-            billingClient.endConnection();
+        if (controller != null) {
+            controller.close();
+        }
+        if (billingExecutor != null) {
+            billingExecutor.shutdown();
         }
     }
 
     @PluginMethod
-    public synchronized void buyNonConsumable(PluginCall call) {
-        startPurchaseFlow(call, BillingClient.ProductType.INAPP, false);
+    public void buyNonConsumable(PluginCall call) {
+        startPurchaseFlow(call, BillingGateway.TYPE_INAPP, false);
     }
 
     @PluginMethod
-    public synchronized void buyConsumable(PluginCall call) {
-        startPurchaseFlow(call, BillingClient.ProductType.INAPP, true);
+    public void buyConsumable(PluginCall call) {
+        startPurchaseFlow(call, BillingGateway.TYPE_INAPP, true);
     }
 
     @PluginMethod
-    public synchronized void buySubscription(PluginCall call) {
-        startPurchaseFlow(call, BillingClient.ProductType.SUBS, false);
+    public void buySubscription(PluginCall call) {
+        startPurchaseFlow(call, BillingGateway.TYPE_SUBS, false);
     }
 
-    private void setupBillingClient() {
-        if (billingClient != null) {
-            return;
+    @PluginMethod
+    public void getProducts(PluginCall call) {
+        boolean forceRefresh = Boolean.TRUE.equals(call.getBoolean("forceRefresh", false));
+        JSArray requested = call.getArray("productIds");
+        final List<String> productIds = new ArrayList<>();
+        if (requested != null) {
+            for (int i = 0; i < requested.length(); i++) {
+                String productId = requested.optString(i, "");
+                if (!productId.isEmpty()) {
+                    productIds.add(productId);
+                }
+            }
         }
-        billingClient = BillingClient.newBuilder(getContext())
-                .enablePendingPurchases()
-                .setListener(this)
-                .build();
+        controller().getProducts(new CallAdapter(call), productIds, forceRefresh);
     }
 
-    private synchronized void startPurchaseFlow(final PluginCall call, final String productType, final boolean consumable) {
-        String productId = call.getString("productId");
-        if (productId == null || productId.trim().isEmpty()) {
-            call.reject("productId is required");
-            return;
-        }
-        if (pendingPurchaseCall != null) {
-            call.reject("Another purchase is already in progress");
-            return;
-        }
-        final Activity activity = getActivity();
-        if (activity == null) {
-            call.reject("Activity not available");
-            return;
-        }
-        call.setKeepAlive(true);
-        pendingPurchaseCall = call;
-        pendingProductId = productId;
-        pendingConsumable = consumable;
-
-        ensureConnection(call, () -> queryProductDetails(productId, productType));
+    // Answers from the persisted store without touching the billing service; a background
+    // reconciliation follows and reports changes through the entitlementsChanged event.
+    @PluginMethod
+    public void getEntitlements(PluginCall call) {
+        controller().getEntitlements(new CallAdapter(call));
     }
 
-    private void ensureConnection(final PluginCall call, final Runnable onReady) {
-        if (billingClient == null) {
-            setupBillingClient();
-        }
-        if (billingClient == null) {
-            finishWithError(call, "Billing client not available");
-            return;
-        }
-        if (billingClient.isReady()) {
-            runOnUiThread(onReady);
+    private void startPurchaseFlow(final PluginCall call, final String productType, final boolean consumable) {
+        if (getActivity() == null) {
+            call.reject("Activity not available");
             return;
         }
-        billingClient.startConnection(new BillingClientStateListener() {
-            @Override
-            public void onBillingSetupFinished(@NonNull BillingResult billingResult) {
-                if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK) {
-                    runOnUiThread(onReady);
-                } else {
-                    finishWithError(call, "Billing setup failed: " + billingResult.getDebugMessage());
-                }
-            }
-
-            @Override
-            public void onBillingServiceDisconnected() {
-                // Service will reconnect automatically on next request.
-            }
-        });
+        controller().buy(new CallAdapter(call), call.getString("productId"), productType, consumable);
     }
 
-    private void queryProductDetails(final String productId, final String productType) {
-        QueryProductDetailsParams.Product product = QueryProductDetailsParams.Product.newBuilder()
-                .setProductId(productId)
-                .setProductType(productType)
-                .build();
-        QueryProductDetailsParams params = QueryProductDetailsParams.newBuilder()
-                .setProductList(Collections.singletonList(product))
-                .build();
-
-        billingClient.queryProductDetailsAsync(params, (billingResult, productDetailsList) -> {
-            if (billingResult.getResponseCode() != BillingClient.BillingResponseCode.OK) {
-                finishPendingWithError("Query failed: " + billingResult.getDebugMessage());
-                return;
-            }
-            if (productDetailsList == null || productDetailsList.isEmpty()) {
-                finishPendingWithError("Product details not found for " + productId);
-                return;
-            }
-            ProductDetails details = productDetailsList.get(0);
-            launchBillingFlow(details, productType);
-        });
+    @NonNull
+    private PurchaseController controller() {
+        DeferredInitializer.getInstance().ensure(INIT_TASK);
+        return controller;
     }
 
-    private void launchBillingFlow(final ProductDetails productDetails, final String productType) {
-        Activity activity = getActivity();
-        if (activity == null) {
-            finishPendingWithError("Activity not available");
-            return;
+    private EntitlementStore createEntitlementStore() {
+        SecretKey key = entitlementKey();
+        if (key == null) {
+            Log.w(TAG, "Entitlement key unavailable; entitlements are kept in memory only");
         }
-        BillingFlowParams.ProductDetailsParams.Builder paramsBuilder =
-                BillingFlowParams.ProductDetailsParams.newBuilder()
-                        .setProductDetails(productDetails);
+        return new EntitlementStore(new File(getContext().getFilesDir(), ENTITLEMENTS_FILE), key);
+    }
 
-        if (BillingClient.ProductType.SUBS.equals(productType)) {
-            List<ProductDetails.SubscriptionOfferDetails> offers = productDetails.getSubscriptionOfferDetails();
-            if (offers == null || offers.isEmpty()) {
-                finishPendingWithError("Subscription offer details missing for " + productDetails.getProductId());
-                return;
+    @Nullable
+    private static SecretKey entitlementKey() {
+        try {
+            KeyStore keyStore = KeyStore.getInstance(ANDROID_KEYSTORE);
+            keyStore.load(null);
+            Key existing = keyStore.getKey(ENTITLEMENT_KEY_ALIAS, null);
+            if (existing instanceof SecretKey) {
+                return (SecretKey) existing;
             }
-            String offerToken = offers.get(0).getOfferToken();
-            if (TextUtils.isEmpty(offerToken)) {
-                finishPendingWithError("Subscription offer token missing for " + productDetails.getProductId());
-                return;
-            }
-            paramsBuilder.setOfferToken(offerToken);
-        }
-
-        BillingFlowParams flowParams = BillingFlowParams.newBuilder()
-                .setProductDetailsParamsList(Collections.singletonList(paramsBuilder.build()))
-                .build();
-
-        BillingResult result = billingClient.launchBillingFlow(activity, flowParams);
-        if (result.getResponseCode() != BillingClient.BillingResponseCode.OK) {
-            finishPendingWithError("Failed to launch purchase flow: " + result.getDebugMessage());
+            KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_HMAC_SHA256, ANDROID_KEYSTORE);
+            generator.init(new KeyGenParameterSpec.Builder(ENTITLEMENT_KEY_ALIAS, KeyProperties.PURPOSE_SIGN).build());
+            return generator.generateKey();
+        } catch (Exception ex) {
+            Log.w(TAG, "Entitlement key setup failed: " + ex.getMessage());
+            return null;
         }
     }
 
-    @Override
-    public synchronized void onPurchasesUpdated(@NonNull BillingResult billingResult, @Nullable List<Purchase> purchases) {
-        if (pendingPurchaseCall == null) {
-            return;
-        }
-        int code = billingResult.getResponseCode();
-        if (code == BillingClient.BillingResponseCode.OK && purchases != null) {
-            for (Purchase purchase : purchases) {
-                if (purchase.getProducts().contains(pendingProductId)) {
-                    handlePurchase(purchase);
-                    return;
-                }
-            }
-            finishPendingWithError("Purchase completed but product not found in response");
-        } else if (code == BillingClient.BillingResponseCode.USER_CANCELED) {
-            finishPendingWithError("Покупка отменена пользователем");
-        } else {
-            finishPendingWithError("Ошибка покупки: " + billingResult.getDebugMessage());
+    private static JSObject toJSObject(JSONObject data) {
+        try {
+            return JSObject.fromJSONObject(data);
+        } catch (JSONException ex) {
+            Log.w(TAG, "Failed to convert result: " + ex.getMessage());
+            return new JSObject();
         }
     }
 
-    private void handlePurchase(Purchase purchase) {
-        if (pendingConsumable) {
-            ConsumeParams params = ConsumeParams.newBuilder()
-                    .setPurchaseToken(purchase.getPurchaseToken())
-                    .build();
-            billingClient.consumeAsync(params, new ConsumeResponseListener() {
-                @Override
-                public void onConsumeResponse(@NonNull BillingResult billingResult, @NonNull String outToken) {
-                    if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK) {
-                        finishPendingSuccess(purchase);
-                    } else {
-                        finishPendingWithError("Consume failed: " + billingResult.getDebugMessage());
-                    }
-                }
-            });
-        } else if (!purchase.isAcknowledged()) {
-            AcknowledgePurchaseParams params = AcknowledgePurchaseParams.newBuilder()
-                    .setPurchaseToken(purchase.getPurchaseToken())
-                    .build();
-            billingClient.acknowledgePurchase(params, new AcknowledgePurchaseResponseListener() {
-                @Override
-                public void onAcknowledgePurchaseResponse(@NonNull BillingResult billingResult) {
-                    if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK) {
-                        finishPendingSuccess(purchase);
-                    } else {
-                        finishPendingWithError("Acknowledge failed: " + billingResult.getDebugMessage());
-                    }
-                }
-            });
+    private void runOnUiThread(Runnable runnable) {
+        Activity activity = getActivity();
+        if (activity != null) {
+            activity.runOnUiThread(runnable);
         } else {
-            finishPendingSuccess(purchase);
+            mainHandler.post(runnable);
         }
     }
 
-    private synchronized void finishPendingSuccess(Purchase purchase) {
-        if (pendingPurchaseCall == null) {
-            return;
-        }
-        PluginCall call = pendingPurchaseCall;
-        String productId = pendingProductId;
-        String token = purchase.getPurchaseToken();
-        String orderId = purchase.getOrderId();
-        clearPendingState();
-
-        JSObject data = new JSObject();
-        data.put("productId", productId);
-        data.put("purchaseToken", token);
-        data.put("orderId", orderId);
-
-        runOnUiThread(() -> {
-            call.setKeepAlive(false);
-            call.resolve(data);
-        });
-    }
+    private static final class CallAdapter implements PurchaseController.Call {
+        private final PluginCall call;
 
-    private synchronized void finishPendingWithError(String message) {
-        if (pendingPurchaseCall != null) {
-            PluginCall call = pendingPurchaseCall;
-            clearPendingState();
-            runOnUiThread(() -> {
-                call.setKeepAlive(false);
-                call.reject(message);
-            });
+        CallAdapter(PluginCall call) {
+            this.call = call;
         }
-    }
 
-    private synchronized void finishWithError(PluginCall call, String message) {
-        if (call == null) {
-            return;
-        }
-        if (call == pendingPurchaseCall) {
-            clearPendingState();
+        @Override
+        public void setKeepAlive(boolean keepAlive) {
+            call.setKeepAlive(keepAlive);
         }
-        runOnUiThread(() -> {
-            call.setKeepAlive(false);
-            call.reject(message);
-        });
-    }
 
-    private synchronized void clearPendingState() {
-        pendingPurchaseCall = null;
-        pendingProductId = null;
-        pendingConsumable = false;
-    }
+        @Override
+        public void resolve(JSONObject data) {
+            call.resolve(toJSObject(data));
+        }
 
-    private void runOnUiThread(Runnable runnable) {
-        Activity activity = getActivity();
-        if (activity != null) {
-            activity.runOnUiThread(runnable);
-        } else {
-            mainHandler.post(runnable);
+        @Override
+        public void reject(String message) {
+            call.reject(message);
         }
     }
 }
@@ -2,14 +2,8 @@ package com.subtit.player.plugins;
 
 import android.content.Intent;
 import android.net.Uri;
-import android.os.Build;
-import android.os.Bundle;
-import android.speech.tts.TextToSpeech;
+import android.os.SystemClock;
 import android.speech.tts.TextToSpeech.Engine;
-import android.speech.tts.TextToSpeech.EngineInfo;
-import android.speech.tts.UtteranceProgressListener;
-import android.speech.tts.Voice;
-import android.provider.Settings;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -21,31 +15,46 @@ import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
+import com.subtit.player.core.LogRingBuffer;
+import com.subtit.player.core.PcmStream;
+import com.subtit.player.core.SilenceTrimmer;
+import com.subtit.player.core.SpeechController;
+import com.subtit.player.core.SpeechEngine;
+import com.subtit.player.core.TimeStretcher;
+import com.subtit.player.core.WavHeader;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
 import java.util.UUID;
-import java.lang.reflect.Method;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 @CapacitorPlugin(name = "NativeTTS")
-public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListener {
-    private TextToSpeech textToSpeech;
-    private boolean ready = false;
+public class NativeTTSPlugin extends Plugin implements MemoryPressureManager.Client {
+    private static volatile SpeechEngine.Factory engineFactoryOverride = null;
+    private SpeechController speech;
+    private StretchedAudioPlayer audioPlayer;
+    private long lastUsedAt = 0;
     private String activeEngine = null;
-    private final List<String> logs = new ArrayList<>();
-    private float currentPitch = 1f;
-    private float currentRate = 1f;
+    private String selectedEngine = null;
+    private final LogRingBuffer logs = new LogRingBuffer(MAX_LOG_SIZE);
     private static final int MAX_LOG_SIZE = 500;
+    private static final long IDLE_RELEASE_MS = 10_000L;
+    private static final long AUDIO_SYNTHESIS_WAIT_MS = 30_000L;
+    // Engines deliver audio in bursts; a smaller buffer would stall them every few milliseconds.
+    private static final int MIN_STREAM_BUFFER_BYTES = 16 * 1024;
+    private static final String INIT_TASK = "NativeTTS";
     private final CopyOnWriteArrayList<ExternalListener> externalListeners = new CopyOnWriteArrayList<>();
 
     public interface ExternalListener {
         void onEvent(@NonNull String eventName, @NonNull JSObject data);
     }
 
+    // Lets local performance runs swap the platform engine for FakeSpeechEngine; takes effect on next load.
+    public static void setEngineFactory(@Nullable SpeechEngine.Factory factory) {
+        engineFactoryOverride = factory;
+    }
+
     public void addExternalListener(@NonNull ExternalListener listener) {
         externalListeners.add(listener);
     }
@@ -67,93 +76,163 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
     @Override
     public void load() {
         super.load();
-        initializeTextToSpeech(null);
+        SpeechEngine.Factory factory = engineFactoryOverride;
+        if (factory == null) {
+            factory = (engineId, callback) -> new AndroidSpeechEngine(getContext(), engineId, callback);
+        }
+        speech = new SpeechController(factory, new SpeechListener());
+        audioPlayer = new StretchedAudioPlayer(new AudioListener());
+        // Binding the engine is slow; do it after the first frame unless a call needs it sooner.
+        DeferredInitializer.getInstance().defer(INIT_TASK, this::initializeIfNeeded);
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        if (speech.isReleased()) {
+            ensureTextToSpeech();
+        }
+    }
+
+    @Override
+    public void onMemoryPressure(int severity, @NonNull MemoryPressureManager manager) {
+        int keep = severity >= MemoryPressureManager.SEVERITY_HIGH ? MAX_LOG_SIZE / 10 : MAX_LOG_SIZE / 2;
+        int trimmed = trimLogs(keep);
+        if (trimmed > 0) {
+            manager.recordAction("tts.trimLogs", trimmed);
+        }
+        if (severity >= MemoryPressureManager.SEVERITY_HIGH && isIdle()) {
+            log("TTS released (memory pressure)");
+            if (speech.release()) {
+                manager.recordAction("tts.shutdown", 1);
+            }
+        }
+    }
+
+    private boolean isIdle() {
+        if (speech.engine() == null) {
+            return false;
+        }
+        if (SystemClock.elapsedRealtime() - lastUsedAt < IDLE_RELEASE_MS || speech.hasPendingSyntheses()) {
+            return false;
+        }
+        return !speech.isSpeaking();
+    }
+
+    private synchronized void initializeIfNeeded() {
+        if (speech.engine() == null && !speech.isReleased()) {
+            initializeTextToSpeech(selectedEngine);
+        }
+    }
+
+    private void ensureTextToSpeech() {
+        lastUsedAt = SystemClock.elapsedRealtime();
+        DeferredInitializer.getInstance().ensure(INIT_TASK);
+        if (speech.engine() == null && speech.isReleased()) {
+            log("Re-initializing TTS after release");
+            initializeTextToSpeech(selectedEngine);
+        }
+    }
+
+    private int trimLogs(int keep) {
+        return logs.trimTo(keep);
     }
 
     @Override
     protected void handleOnDestroy() {
         super.handleOnDestroy();
-        if (textToSpeech != null) {
+        if (speech.engine() != null) {
             log("TTS shutdown");
-            textToSpeech.stop();
-            textToSpeech.shutdown();
         }
+        speech.shutdown();
+        audioPlayer.stop();
     }
 
     private void initializeTextToSpeech(@Nullable String engineId) {
-        ready = false;
-        if (textToSpeech != null) {
-            try {
-                textToSpeech.stop();
-                textToSpeech.shutdown();
-            } catch (Exception ignored) {
-                // ignore
-            }
-        }
-
-        if (engineId != null && !engineId.isEmpty() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+        lastUsedAt = SystemClock.elapsedRealtime();
+        if (engineId != null && !engineId.isEmpty()) {
             log("Initializing TTS with engine: " + engineId);
-            textToSpeech = new TextToSpeech(getContext(), this, engineId);
             activeEngine = engineId;
         } else {
             log("Initializing TTS with default engine");
-            textToSpeech = new TextToSpeech(getContext(), this);
             activeEngine = null;
         }
+        speech.initialize(engineId);
+    }
 
-        if (textToSpeech != null) {
-            textToSpeech.setPitch(currentPitch);
-            textToSpeech.setSpeechRate(currentRate);
-            textToSpeech.setOnUtteranceProgressListener(new UtteranceProgressListener() {
-                @Override
-                public void onStart(String utteranceId) {
-                    notifyState("start");
-                }
-
-                @Override
-                public void onDone(String utteranceId) {
-                    notifyState("done");
-                }
+    private class SpeechListener implements SpeechController.Listener {
+        @Override
+        public void onReady(boolean success) {
+            log("TTS init status: " + (success ? "SUCCESS" : "ERROR"));
+            SpeechEngine engine = speech.engine();
+            if (success && engine != null) {
+                updateActiveEngine();
+                String language = engine.getLanguage();
+                log("Active engine: " + getCurrentEngine());
+                log("Active locale: " + (language != null ? language : "default"));
+            }
+        }
 
-                @Override
-                public void onError(String utteranceId) {
-                    notifyState("error");
-                }
-            });
+        @Override
+        public void onState(String state, String utteranceId) {
+            notifyState(state, utteranceId);
+        }
+
+        @Override
+        public void onRange(String utteranceId, int start, int end) {
+            JSObject data = new JSObject();
+            data.put("utteranceId", utteranceId);
+            data.put("start", start);
+            data.put("end", end);
+            notifyEvent("ttsRange", data);
+        }
+
+        @Override
+        public void onSynthesized(String utteranceId, String path, SilenceTrimmer.Result trim) {
+            JSObject data = new JSObject();
+            data.put("utteranceId", utteranceId);
+            data.put("path", path);
+            if (trim != null) {
+                JSObject trimData = new JSObject();
+                trimData.put("leadingMs", trim.leadingMs());
+                trimData.put("trailingMs", trim.trailingMs());
+                trimData.put("durationMs", trim.durationMs());
+                trimData.put("originalDurationMs", trim.originalDurationMs());
+                trimData.put("startFrame", trim.startFrame);
+                trimData.put("endFrame", trim.endFrame);
+                trimData.put("sampleRate", trim.sampleRate);
+                data.put("trim", trimData);
+            }
+            notifyEvent("ttsSynthesis", data);
         }
-    }
 
-    @Override
-    public void onInit(int status) {
-        ready = status == TextToSpeech.SUCCESS;
-        log("TTS init status: " + (ready ? "SUCCESS" : "ERROR"));
-        if (ready) {
-            updateActiveEngine();
-            Locale locale = textToSpeech.getLanguage();
-            log("Active engine: " + getCurrentEngine());
-            log("Active locale: " + (locale != null ? locale.toLanguageTag() : "default"));
+        @Override
+        public void onLog(String message) {
+            log(message);
         }
     }
 
-    private void notifyState(@NonNull String state) {
+    private void notifyState(@NonNull String state, @Nullable String utteranceId) {
         JSObject data = new JSObject();
         data.put("state", state);
+        if (utteranceId != null) {
+            data.put("utteranceId", utteranceId);
+        }
+        notifyEvent("ttsState", data);
+        log("State: " + state);
+    }
+
+    private void notifyEvent(@NonNull String eventName, @NonNull JSObject data) {
         if (bridge != null) {
-            bridge.executeOnMainThread(() -> notifyListeners("ttsState", data));
+            bridge.executeOnMainThread(() -> notifyListeners(eventName, data));
         } else {
-            notifyListeners("ttsState", data);
+            notifyListeners(eventName, data);
         }
-        emitExternalEvent("ttsState", data);
-        log("State: " + state);
+        emitExternalEvent(eventName, data);
     }
 
     private void log(String message) {
-        synchronized (logs) {
-            if (logs.size() >= MAX_LOG_SIZE) {
-                logs.remove(0);
-            }
-            logs.add(message);
-        }
+        logs.add(message);
         final JSObject payload = new JSObject();
         payload.put("message", message);
         if (bridge != null) {
@@ -165,25 +244,16 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
     }
 
     private JSObject buildAvailabilityPayload() {
+        ensureTextToSpeech();
         JSObject result = new JSObject();
-        result.put("available", ready);
+        result.put("available", speech.isReady());
         return result;
     }
 
     private JSObject buildEnginesPayload() {
-        JSArray enginesArray = new JSArray();
-        List<EngineInfo> engines = textToSpeech != null ? textToSpeech.getEngines() : new ArrayList<>();
-        List<String> engineNames = new ArrayList<>();
-        if (engines != null) {
-            for (EngineInfo engine : engines) {
-                JSObject engineObj = new JSObject();
-                engineObj.put("id", engine.name);
-                engineObj.put("label", engine.label != null ? engine.label : engine.name);
-                enginesArray.put(engineObj);
-                engineNames.add(engine.name);
-            }
-        }
-        log("Requested engines. count=" + enginesArray.length() + " names=" + engineNames);
+        ensureTextToSpeech();
+        JSArray enginesArray = collectEngines(speech.engine());
+        log("Requested engines. count=" + enginesArray.length());
         JSObject payload = new JSObject();
         payload.put("engines", enginesArray);
         payload.put("currentEngine", getCurrentEngine());
@@ -191,67 +261,102 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
     }
 
     private JSObject buildLanguagesPayload() {
-        JSArray languages = new JSArray();
+        ensureTextToSpeech();
         Locale defaultLocale = Locale.getDefault();
-        if (textToSpeech != null) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                try {
-                    Set<Locale> available = textToSpeech.getAvailableLanguages();
-                    if (available != null) {
-                        for (Locale locale : available) {
-                            if (locale != null) {
-                                languages.put(locale.toLanguageTag());
-                            }
-                        }
-                    }
-                } catch (Exception ex) {
-                    log("getAvailableLanguages failed: " + ex.getMessage());
-                }
-            }
-            Locale current = textToSpeech.getLanguage();
-            if (current != null) {
-                languages.put(current.toLanguageTag());
-            }
-        }
-        languages.put(defaultLocale.toLanguageTag());
         JSObject payload = new JSObject();
-        payload.put("languages", languages);
+        payload.put("languages", collectLanguages(speech.engine(), defaultLocale));
         payload.put("defaultLanguage", defaultLocale.toLanguageTag());
         return payload;
     }
 
     private JSObject buildVoicesPayload() {
-        if (!ready || textToSpeech == null) {
+        ensureTextToSpeech();
+        SpeechEngine engine = speech.engine();
+        if (!speech.isReady() || engine == null) {
             throw new IllegalStateException("not_ready");
         }
-        JSArray voicesArray = new JSArray();
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            Set<Voice> voices = textToSpeech.getVoices();
-            if (voices != null) {
-                for (Voice voice : voices) {
-                    JSObject voiceObject = new JSObject();
-                    voiceObject.put("id", voice.getName());
-                    voiceObject.put("name", voice.getName());
-                    Locale locale = voice.getLocale() != null ? voice.getLocale() : textToSpeech.getLanguage();
-                    voiceObject.put("locale", locale != null ? locale.toLanguageTag() : Locale.getDefault().toLanguageTag());
-                    voiceObject.put("quality", voice.getQuality());
-                    voiceObject.put("latency", voice.getLatency());
-                    voicesArray.put(voiceObject);
+        JSArray voicesArray = collectVoices(engine);
+        JSObject result = new JSObject();
+        result.put("voices", voicesArray);
+        log("Voices returned. count=" + voicesArray.length());
+        return result;
+    }
+
+    private JSObject buildSnapshotPayload() {
+        ensureTextToSpeech();
+        SpeechEngine engine = speech.engine();
+        boolean available = speech.isReady() && engine != null;
+        Locale defaultLocale = Locale.getDefault();
+        JSArray engines = collectEngines(engine);
+        JSArray voices = available ? collectVoices(engine) : new JSArray();
+        JSObject payload = new JSObject();
+        payload.put("available", available);
+        payload.put("engines", engines);
+        payload.put("currentEngine", activeEngine != null ? activeEngine : (engine != null ? engine.getDefaultEngine() : null));
+        payload.put("languages", collectLanguages(engine, defaultLocale));
+        payload.put("defaultLanguage", defaultLocale.toLanguageTag());
+        payload.put("voices", voices);
+        log("Snapshot returned. available=" + available + " engines=" + engines.length() + " voices=" + voices.length());
+        return payload;
+    }
+
+    @NonNull
+    private JSArray collectEngines(@Nullable SpeechEngine engine) {
+        JSArray enginesArray = new JSArray();
+        if (engine != null) {
+            for (SpeechEngine.EngineInfo info : engine.getEngines()) {
+                JSObject engineObj = new JSObject();
+                engineObj.put("id", info.name);
+                engineObj.put("label", info.label);
+                enginesArray.put(engineObj);
+            }
+        }
+        return enginesArray;
+    }
+
+    @NonNull
+    private JSArray collectLanguages(@Nullable SpeechEngine engine, @NonNull Locale defaultLocale) {
+        JSArray languages = new JSArray();
+        if (engine != null) {
+            try {
+                for (String language : engine.getAvailableLanguages()) {
+                    languages.put(language);
                 }
+            } catch (Exception ex) {
+                log("getAvailableLanguages failed: " + ex.getMessage());
+            }
+            String current = engine.getLanguage();
+            if (current != null) {
+                languages.put(current);
             }
         }
+        languages.put(defaultLocale.toLanguageTag());
+        return languages;
+    }
+
+    @NonNull
+    private JSArray collectVoices(@NonNull SpeechEngine engine) {
+        JSArray voicesArray = new JSArray();
+        List<SpeechEngine.Voice> voices = engine.getVoices();
+        for (SpeechEngine.Voice voice : voices) {
+            JSObject voiceObject = new JSObject();
+            voiceObject.put("id", voice.name);
+            voiceObject.put("name", voice.name);
+            voiceObject.put("locale", voice.locale);
+            voiceObject.put("quality", voice.quality);
+            voiceObject.put("latency", voice.latency);
+            voicesArray.put(voiceObject);
+        }
         if (voicesArray.length() == 0) {
             JSObject defaultVoice = new JSObject();
-            Locale locale = textToSpeech != null && textToSpeech.getLanguage() != null ? textToSpeech.getLanguage() : Locale.getDefault();
+            String current = engine.getLanguage();
+            Locale locale = current != null ? Locale.forLanguageTag(current) : Locale.getDefault();
             defaultVoice.put("id", locale.toLanguageTag());
             defaultVoice.put("name", locale.getDisplayName());
             defaultVoice.put("locale", locale.toLanguageTag());
             voicesArray.put(defaultVoice);
         }
-        JSObject result = new JSObject();
-        result.put("voices", voicesArray);
-        log("Voices returned. count=" + voicesArray.length());
-        return result;
+        return voicesArray;
     }
 
     public JSObject isAvailableSync() {
@@ -270,11 +375,16 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
         return buildVoicesPayload();
     }
 
+    public JSObject getSnapshotSync() {
+        return buildSnapshotPayload();
+    }
+
     public JSObject selectEngineSync(String engineId) {
         if (engineId == null || engineId.trim().isEmpty()) {
             throw new IllegalArgumentException("engineId is required");
         }
         log("Engine selection requested: " + engineId);
+        selectedEngine = engineId;
         initializeTextToSpeech(engineId);
         updateActiveEngine();
         log("Engine selection applied. activeEngine=" + activeEngine + " queried=" + getCurrentEngine());
@@ -287,52 +397,36 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
         if (text == null || text.trim().isEmpty()) {
             throw new IllegalArgumentException("Text is required");
         }
-        if (!ready) {
-            throw new IllegalStateException("TextToSpeech engine not ready");
-        }
-        float targetRate = rate != null ? rate.floatValue() : currentRate;
-        float targetPitch = pitch != null ? pitch.floatValue() : currentPitch;
-        currentRate = targetRate;
-        currentPitch = targetPitch;
-        log("Speak request. chars=" + text.length() + " rate=" + targetRate + " pitch=" + targetPitch + " voice=" + voiceId);
-        applyVoice(voiceId);
-        if (textToSpeech != null) {
-            textToSpeech.setSpeechRate(targetRate);
-            textToSpeech.setPitch(targetPitch);
-            String utteranceId = UUID.randomUUID().toString();
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                textToSpeech.speak(text, TextToSpeech.QUEUE_FLUSH, null, utteranceId);
-            } else {
-                textToSpeech.speak(text, TextToSpeech.QUEUE_FLUSH, null);
-            }
-        }
+        ensureTextToSpeech();
+        speech.speak(text, voiceId, rate != null ? rate.floatValue() : null, pitch != null ? pitch.floatValue() : null);
         JSObject result = new JSObject();
         result.put("success", true);
         return result;
     }
 
-    public void stopSync() {
-        if (textToSpeech != null) {
-            boolean wasSpeaking = textToSpeech.isSpeaking();
-            log("Stop requested");
-            textToSpeech.stop();
-            if (wasSpeaking) {
-                notifyState("done");
-            }
+    // Used by native readers that keep a few utterances queued; returns the id reported in ttsState.
+    @NonNull
+    public String queueSpeechSync(String text, @Nullable String voiceId, @Nullable Double rate, @Nullable Double pitch, boolean flush) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Text is required");
         }
+        ensureTextToSpeech();
+        return speech.speak(text, voiceId, rate != null ? rate.floatValue() : null,
+                pitch != null ? pitch.floatValue() : null, flush);
+    }
+
+    public void stopSync() {
+        speech.stop();
     }
 
     public JSObject setPitchSync(Double pitch) {
         if (pitch == null) {
             throw new IllegalArgumentException("pitch is required");
         }
-        currentPitch = pitch.floatValue();
-        if (textToSpeech != null) {
-            textToSpeech.setPitch(currentPitch);
-        }
-        log("Pitch updated: " + currentPitch);
+        speech.setPitch(pitch.floatValue());
+        log("Pitch updated: " + speech.pitch());
         JSObject result = new JSObject();
-        result.put("pitch", currentPitch);
+        result.put("pitch", speech.pitch());
         return result;
     }
 
@@ -340,29 +434,27 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
         if (rate == null) {
             throw new IllegalArgumentException("rate is required");
         }
-        currentRate = rate.floatValue();
-        if (textToSpeech != null) {
-            textToSpeech.setSpeechRate(currentRate);
-        }
-        log("Speech rate updated: " + currentRate);
+        speech.setRate(rate.floatValue());
+        log("Speech rate updated: " + speech.rate());
         JSObject result = new JSObject();
-        result.put("rate", currentRate);
+        result.put("rate", speech.rate());
         return result;
     }
 
     private void updateActiveEngine() {
-        if (textToSpeech == null) {
+        SpeechEngine engine = speech.engine();
+        if (engine == null) {
             log("updateActiveEngine skipped (tts=null)");
             return;
         }
         log("updateActiveEngine start. activeEngine=" + activeEngine);
-        String current = queryCurrentEngine();
+        String current = engine.getCurrentEngine();
         if (current != null && !current.isEmpty()) {
             log("updateActiveEngine detected current=" + current);
             activeEngine = current;
             return;
         }
-        activeEngine = textToSpeech.getDefaultEngine();
+        activeEngine = engine.getDefaultEngine();
         log("updateActiveEngine fallback default=" + activeEngine);
     }
 
@@ -371,52 +463,21 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
             log("getCurrentEngine returning cached=" + activeEngine);
             return activeEngine;
         }
-        if (textToSpeech == null) {
+        SpeechEngine engine = speech.engine();
+        if (engine == null) {
             log("getCurrentEngine returning null (tts=null)");
             return null;
         }
-        String current = queryCurrentEngine();
+        String current = engine.getCurrentEngine();
         if (current != null && !current.isEmpty()) {
             log("getCurrentEngine returning queried=" + current);
             return current;
         }
-        String fallback = textToSpeech.getDefaultEngine();
+        String fallback = engine.getDefaultEngine();
         log("getCurrentEngine fallback default=" + fallback);
         return fallback;
     }
 
-    @Nullable
-    private String queryCurrentEngine() {
-        if (textToSpeech == null) {
-            return null;
-        }
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
-            try {
-                Method method = TextToSpeech.class.getDeclaredMethod("getCurrentEngine");
-                method.setAccessible(true);
-                Object value = method.invoke(textToSpeech);
-                if (value instanceof String) {
-                    log("queryCurrentEngine reflection result=" + value);
-                    return (String) value;
-                }
-            } catch (Exception ignored) {
-                log("queryCurrentEngine reflection failed: " + ignored.getClass().getSimpleName());
-                // fall through to other strategies
-            }
-        }
-        try {
-            String secureValue = Settings.Secure.getString(
-                    getContext().getContentResolver(),
-                    "tts_default_synth"
-            );
-            log("queryCurrentEngine secure setting=" + secureValue);
-            return secureValue;
-        } catch (Exception ignored) {
-            log("queryCurrentEngine secure setting failed: " + ignored.getClass().getSimpleName());
-            return null;
-        }
-    }
-
     @PluginMethod
     public void isAvailable(PluginCall call) {
         call.resolve(buildAvailabilityPayload());
@@ -448,7 +509,7 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
 
     @PluginMethod
     public void getVoices(PluginCall call) {
-        log("getVoices invoked ready=" + ready + " tts=" + (textToSpeech != null));
+        log("getVoices invoked ready=" + speech.isReady() + " tts=" + (speech.engine() != null));
         try {
             JSObject result = buildVoicesPayload();
             call.resolve(result);
@@ -458,12 +519,17 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
         }
     }
 
+    @PluginMethod
+    public void getSnapshot(PluginCall call) {
+        call.resolve(buildSnapshotPayload());
+    }
+
     @PluginMethod
     public void speak(PluginCall call) {
         String text = call.getString("text");
         String voiceId = call.getString("voiceId");
-        Double rate = call.getDouble("rate", (double) currentRate);
-        Double pitch = call.getDouble("pitch", (double) currentPitch);
+        Double rate = call.getDouble("rate", (double) speech.rate());
+        Double pitch = call.getDouble("pitch", (double) speech.pitch());
 
         if (text == null || text.trim().isEmpty()) {
             call.reject("Text is required");
@@ -477,27 +543,6 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
         }
     }
 
-    private void applyVoice(@Nullable String voiceId) {
-        if (voiceId == null || voiceId.isEmpty()) {
-            return;
-        }
-        log("Applying voice: " + voiceId);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            Set<Voice> voices = textToSpeech.getVoices();
-            if (voices != null) {
-                for (Voice voice : voices) {
-                    if (voice.getName().equalsIgnoreCase(voiceId)) {
-                        textToSpeech.setVoice(voice);
-                        return;
-                    }
-                }
-            }
-        } else {
-            Locale locale = Locale.forLanguageTag(voiceId);
-            textToSpeech.setLanguage(locale);
-        }
-    }
-
     @PluginMethod
     public void stop(PluginCall call) {
         stopSync();
@@ -530,53 +575,219 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
     public void synthesizeToFile(PluginCall call) {
         String text = call.getString("text");
         String voiceId = call.getString("voiceId");
-        Double rate = call.getDouble("rate", (double) currentRate);
-        Double pitch = call.getDouble("pitch", (double) currentPitch);
+        Double rate = call.getDouble("rate", (double) speech.rate());
+        Double pitch = call.getDouble("pitch", (double) speech.pitch());
+        boolean trimSilence = call.getBoolean("trimSilence", false);
+        try {
+            call.resolve(synthesizeToFileSync(text, voiceId, rate, pitch, trimSilence));
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            call.reject(ex.getMessage());
+        }
+    }
+
+    @NonNull
+    public JSObject synthesizeToFileSync(@Nullable String text, @Nullable String voiceId, @Nullable Double rate, @Nullable Double pitch) {
+        return synthesizeToFileSync(text, voiceId, rate, pitch, false);
+    }
+
+    // trimSilence cuts the engine's leading and trailing padding before the file is reported done;
+    // the trimmed range arrives with the ttsSynthesis event.
+    @NonNull
+    public JSObject synthesizeToFileSync(@Nullable String text, @Nullable String voiceId, @Nullable Double rate,
+                                         @Nullable Double pitch, boolean trimSilence) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Text is required");
+        }
+        ensureTextToSpeech();
+        // Pending syntheses are tracked by path, so every call needs its own file even within a batch.
+        File outputFile = new File(getContext().getCacheDir(), "tts-" + UUID.randomUUID() + ".wav");
+        String utteranceId = speech.synthesizeToFile(text, voiceId,
+                rate != null ? rate.floatValue() : null, pitch != null ? pitch.floatValue() : null, outputFile,
+                trimSilence);
+
+        Uri uri = FileProvider.getUriForFile(getContext(), getContext().getPackageName() + ".fileprovider", outputFile);
+        JSObject result = new JSObject();
+        result.put("uri", uri.toString());
+        result.put("path", outputFile.getAbsolutePath());
+        result.put("utteranceId", utteranceId);
+        if (trimSilence) {
+            result.put("trimSilence", true);
+        }
+        log("Audio synthesized: " + outputFile.getName());
+        return result;
+    }
+
+    // Returns false only when the file is still being written after the timeout.
+    public boolean awaitSynthesis(@NonNull File file, long timeoutMs) {
+        return speech == null || speech.awaitSynthesis(file, timeoutMs);
+    }
+
+    // Plays a synthesized WAV with a pitch-preserving time-stretch, so one file synthesized at the
+    // normal rate serves every speed and setPlaybackSpeed applies without re-synthesis.
+    @PluginMethod
+    public void playAudio(PluginCall call) {
+        String path = call.getString("path");
+        if (path == null || path.trim().isEmpty()) {
+            call.reject("path is required");
+            return;
+        }
+        String filePath = path.startsWith("file://") ? Uri.parse(path).getPath() : path;
+        if (filePath == null) {
+            call.reject("Invalid file URI");
+            return;
+        }
+        File file = new File(filePath);
+        float speed = call.getDouble("speed", 1.0).floatValue();
+        long startMs = call.getDouble("startMs", 0.0).longValue();
+        // The file may still be being written by synthesizeToFile.
+        audioPlayer.play(file, speed, startMs, () -> awaitSynthesis(file, AUDIO_SYNTHESIS_WAIT_MS),
+                new StretchedAudioPlayer.StartCallback() {
+                    @Override
+                    public void onStarted(@NonNull WavHeader header) {
+                        JSObject result = new JSObject();
+                        result.put("durationMs", header.durationMs());
+                        result.put("sampleRate", header.sampleRate);
+                        result.put("channels", header.channels);
+                        call.resolve(result);
+                    }
+
+                    @Override
+                    public void onFailed(@NonNull String message) {
+                        log("Audio playback failed: " + message);
+                        call.reject(message);
+                    }
+                });
+    }
+
+    // Synthesizes and plays in one go. Where the engine can write to a pipe (Android 11+) the audio goes
+    // from the engine through a bounded in-memory buffer straight to playback, starting with the first
+    // samples and never touching storage; elsewhere it falls back to a cache file played once complete.
+    @PluginMethod
+    public void playSynthesis(PluginCall call) {
+        String text = call.getString("text");
         if (text == null || text.trim().isEmpty()) {
             call.reject("Text is required");
             return;
         }
-        if (!ready) {
-            call.reject("TextToSpeech engine not ready");
+        String voiceId = call.getString("voiceId");
+        Double rate = call.getDouble("rate", (double) speech.rate());
+        Double pitch = call.getDouble("pitch", (double) speech.pitch());
+        float speed = call.getDouble("speed", 1.0).floatValue();
+        int bufferBytes = call.getInt("bufferBytes", PcmStream.DEFAULT_CAPACITY_BYTES);
+        ensureTextToSpeech();
+        if (!speech.supportsStreamSynthesis()) {
+            JSObject synthesized;
+            try {
+                synthesized = synthesizeToFileSync(text, voiceId, rate, pitch);
+            } catch (IllegalArgumentException | IllegalStateException ex) {
+                call.reject(ex.getMessage());
+                return;
+            }
+            File file = new File(synthesized.getString("path"));
+            audioPlayer.play(file, speed, 0, () -> awaitSynthesis(file, AUDIO_SYNTHESIS_WAIT_MS),
+                    new SynthesisStartCallback(call, synthesized.getString("utteranceId"), file));
+            return;
+        }
+        PcmStream stream;
+        try {
+            stream = speech.synthesizeToStream(text, voiceId, rate.floatValue(), pitch.floatValue(),
+                    Math.max(MIN_STREAM_BUFFER_BYTES, Math.min(PcmStream.MAX_CAPACITY_BYTES, bufferBytes)));
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            call.reject(ex.getMessage());
             return;
         }
+        audioPlayer.play(stream, speed, AUDIO_SYNTHESIS_WAIT_MS, new SynthesisStartCallback(call, stream.id(), null));
+    }
 
-        float targetRate = rate != null ? rate.floatValue() : currentRate;
-        float targetPitch = pitch != null ? pitch.floatValue() : currentPitch;
-        currentRate = targetRate;
-        currentPitch = targetPitch;
+    private final class SynthesisStartCallback implements StretchedAudioPlayer.StartCallback {
+        private final PluginCall call;
+        private final String utteranceId;
+        @Nullable
+        private final File file;
 
-        log("Synthesize request. chars=" + text.length() + " rate=" + targetRate + " pitch=" + targetPitch + " voice=" + voiceId);
+        SynthesisStartCallback(PluginCall call, String utteranceId, @Nullable File file) {
+            this.call = call;
+            this.utteranceId = utteranceId;
+            this.file = file;
+        }
 
-        applyVoice(voiceId);
-        textToSpeech.setSpeechRate(targetRate);
-        textToSpeech.setPitch(targetPitch);
+        @Override
+        public void onStarted(@NonNull WavHeader header) {
+            JSObject result = new JSObject();
+            result.put("utteranceId", utteranceId);
+            result.put("streamed", file == null);
+            if (file != null) {
+                result.put("path", file.getAbsolutePath());
+            }
+            result.put("sampleRate", header.sampleRate);
+            result.put("channels", header.channels);
+            call.resolve(result);
+        }
 
-        File outputFile = new File(getContext().getCacheDir(), "tts-" + System.currentTimeMillis() + ".wav");
-        int status;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            Bundle params = new Bundle();
-            String utteranceId = UUID.randomUUID().toString();
-            params.putString(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId);
-            status = textToSpeech.synthesizeToFile(text, params, outputFile, utteranceId);
-        } else {
-            status = textToSpeech.synthesizeToFile(text, null, outputFile.getAbsolutePath());
+        @Override
+        public void onFailed(@NonNull String message) {
+            log("Synthesis playback failed: " + message);
+            call.reject(message);
         }
+    }
 
-        if (status != TextToSpeech.SUCCESS) {
-            log("synthesizeToFile failed with status " + status);
-            call.reject("Synthesize failed with status: " + status);
+    @PluginMethod
+    public void setPlaybackSpeed(PluginCall call) {
+        Double speed = call.getDouble("speed");
+        if (speed == null || speed.isNaN()) {
+            call.reject("speed is required");
             return;
         }
+        audioPlayer.setSpeed(speed.floatValue());
+        JSObject result = new JSObject();
+        result.put("speed", Math.max(TimeStretcher.MIN_SPEED, Math.min(TimeStretcher.MAX_SPEED, speed.floatValue())));
+        call.resolve(result);
+    }
 
-        Uri uri = FileProvider.getUriForFile(getContext(), getContext().getPackageName() + ".fileprovider", outputFile);
+    @PluginMethod
+    public void pauseAudio(PluginCall call) {
         JSObject result = new JSObject();
-        result.put("uri", uri.toString());
-        result.put("path", outputFile.getAbsolutePath());
-        log("Audio synthesized: " + outputFile.getName());
+        result.put("paused", audioPlayer.pause());
         call.resolve(result);
     }
 
+    @PluginMethod
+    public void resumeAudio(PluginCall call) {
+        JSObject result = new JSObject();
+        result.put("resumed", audioPlayer.resume());
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void stopAudio(PluginCall call) {
+        JSObject result = new JSObject();
+        result.put("positionMs", audioPlayer.positionMs());
+        result.put("stopped", audioPlayer.stop());
+        call.resolve(result);
+    }
+
+    private class AudioListener implements StretchedAudioPlayer.Listener {
+        @Override
+        public void onState(@NonNull String state, long positionMs, @Nullable String message) {
+            JSObject data = new JSObject();
+            data.put("state", state);
+            data.put("positionMs", positionMs);
+            if (message != null) {
+                data.put("message", message);
+            }
+            notifyEvent("audioState", data);
+        }
+
+        @Override
+        public void onProgress(long positionMs, long durationMs, float speed) {
+            JSObject data = new JSObject();
+            data.put("positionMs", positionMs);
+            data.put("durationMs", durationMs);
+            data.put("speed", speed);
+            notifyEvent("audioProgress", data);
+        }
+    }
+
     @PluginMethod
     public void shareAudio(PluginCall call) {
         String uriString = call.getString("uri");
@@ -634,10 +845,8 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
     @PluginMethod
     public void getLogs(PluginCall call) {
         JSArray array = new JSArray();
-        synchronized (logs) {
-            for (String entry : logs) {
-                array.put(entry);
-            }
+        for (String entry : logs.snapshot()) {
+            array.put(entry);
         }
         JSObject result = new JSObject();
         result.put("logs", array);
@@ -646,9 +855,7 @@ public class NativeTTSPlugin extends Plugin implements TextToSpeech.OnInitListen
 
     @PluginMethod
     public void clearLogs(PluginCall call) {
-        synchronized (logs) {
-            logs.clear();
-        }
+        logs.clear();
         log("Logs cleared");
         call.resolve();
     }
@@ -7,10 +7,12 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import android.webkit.CookieManager;
 import android.webkit.WebStorage;
-import android.webkit.WebView;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -19,14 +21,70 @@ import com.getcapacitor.annotation.CapacitorPlugin;
 import com.google.android.play.core.review.ReviewInfo;
 import com.google.android.play.core.review.ReviewManager;
 import com.google.android.play.core.review.ReviewManagerFactory;
+import com.subtit.player.core.CacheIndex;
+import com.subtit.player.core.CacheSweeper;
 
-import java.io.File;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @CapacitorPlugin(name = "NativeUtilities")
 public class NativeUtilitiesPlugin extends Plugin {
 
     private static final AtomicBoolean reviewFlowConsumed = new AtomicBoolean(false);
+    private static final String TAG = "NativeUtilities";
+    private static final String PREFS_NAME = "native_utilities";
+    private static final String PREF_CACHE_QUOTAS = "cacheQuotas";
+    private static final long DEFAULT_TTS_AUDIO_QUOTA_BYTES = 200L * 1024 * 1024;
+    private static final long DEFAULT_LOGS_QUOTA_BYTES = 10L * 1024 * 1024;
+    private static final long QUOTA_INITIAL_DELAY_MS = 30_000L;
+    private static final long QUOTA_INTERVAL_MS = 15 * 60_000L;
+    // Files younger than this may still be written or streamed, so quotas leave them alone.
+    private static final long QUOTA_MIN_FILE_AGE_MS = 5 * 60_000L;
+
+    private CacheSweeper cacheSweeper;
+    private ScheduledExecutorService cacheExecutor;
+    // Read from preferences the first time the cache thread needs them and only touched there.
+    private Map<String, Long> cacheQuotas;
+
+    @Override
+    public void load() {
+        super.load();
+        Context context = getContext();
+        cacheSweeper = new CacheSweeper(Arrays.asList(context.getCacheDir(), context.getExternalCacheDir()),
+                Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors())));
+        cacheExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CacheSweeper");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        cacheExecutor.scheduleWithFixedDelay(this::enforceCacheQuotas,
+                QUOTA_INITIAL_DELAY_MS, QUOTA_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        if (cacheExecutor != null) {
+            cacheExecutor.shutdownNow();
+            cacheExecutor = null;
+        }
+        if (cacheSweeper != null) {
+            cacheSweeper.shutdown();
+        }
+    }
 
     @PluginMethod
     public void rateApp(PluginCall call) {
@@ -92,47 +150,158 @@ public class NativeUtilitiesPlugin extends Plugin {
 
     @PluginMethod
     public void clearCache(PluginCall call) {
-        Activity activity = getActivity();
         Context context = getContext();
-        if (activity == null || context == null) {
+        if (context == null || cacheExecutor == null) {
             call.reject("Context not available");
             return;
         }
+        JSArray requested = call.getArray("categories");
+        final boolean clearAll = requested == null || requested.length() == 0;
+        final List<String> categories = new ArrayList<>();
+        if (clearAll) {
+            Collections.addAll(categories, CacheIndex.CATEGORIES);
+        } else {
+            for (int i = 0; i < requested.length(); i++) {
+                String category = requested.optString(i, "");
+                if (!CacheIndex.isCategory(category)) {
+                    call.reject("Unknown cache category " + category);
+                    return;
+                }
+                categories.add(category);
+            }
+        }
+        cacheExecutor.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            CacheSweeper.Result result;
+            try {
+                result = cacheSweeper.clear(categories, this::notifyCacheProgress);
+            } catch (Exception ex) {
+                call.reject("Failed to clear cache directories: " + ex.getMessage());
+                return;
+            }
+            JSObject payload = describeResult(result);
+            payload.put("durationMs", SystemClock.elapsedRealtime() - start);
+            if (!clearAll) {
+                call.resolve(payload);
+                return;
+            }
+            // A full clear also drops web storage and cookies, as it always has.
+            new Handler(Looper.getMainLooper()).post(() -> {
+                try {
+                    WebStorage.getInstance().deleteAllData();
+                } catch (Exception ignored) {
+                    // ignore WebStorage cleanup errors
+                }
+                try {
+                    CookieManager cookieManager = CookieManager.getInstance();
+                    cookieManager.removeAllCookies(null);
+                    cookieManager.flush();
+                } catch (Exception ignored) {
+                    // ignore CookieManager cleanup errors
+                }
+                call.resolve(payload);
+            });
+        });
+    }
 
-        try {
-            clearDirectory(context.getCacheDir());
-            clearDirectory(context.getExternalCacheDir());
-        } catch (Exception ex) {
-            call.reject("Failed to clear cache directories: " + ex.getMessage());
+    @PluginMethod
+    public void getCacheUsage(PluginCall call) {
+        if (cacheExecutor == null) {
+            call.reject("Context not available");
             return;
         }
-
-        Handler mainHandler = new Handler(Looper.getMainLooper());
-        mainHandler.post(() -> {
+        cacheExecutor.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            Map<String, CacheIndex.Usage> usage;
             try {
-                WebStorage.getInstance().deleteAllData();
-            } catch (Exception ignored) {
-                // ignore WebStorage cleanup errors
+                usage = CacheIndex.summarize(cacheSweeper.scan());
+            } catch (Exception ex) {
+                call.reject("Failed to measure cache: " + ex.getMessage());
+                return;
             }
-            try {
-                CookieManager cookieManager = CookieManager.getInstance();
-                cookieManager.removeAllCookies(null);
-                cookieManager.flush();
-            } catch (Exception ignored) {
-                // ignore CookieManager cleanup errors
+            Map<String, Long> quotas = currentQuotas();
+            JSObject categories = new JSObject();
+            long totalBytes = 0;
+            for (Map.Entry<String, CacheIndex.Usage> entry : usage.entrySet()) {
+                CacheIndex.Usage item = entry.getValue();
+                JSObject category = new JSObject();
+                category.put("bytes", item.bytes);
+                category.put("files", item.files);
+                category.put("oldestModified", item.oldestModified);
+                Long quota = quotas.get(entry.getKey());
+                category.put("quotaBytes", quota != null ? quota : 0);
+                categories.put(entry.getKey(), category);
+                totalBytes += item.bytes;
             }
-            try {
-                WebView webView = new WebView(activity);
-                webView.clearCache(true);
-                webView.clearHistory();
-                webView.destroy();
-            } catch (Exception ignored) {
-                // ignore WebView cleanup errors
+            JSObject result = new JSObject();
+            result.put("categories", categories);
+            result.put("totalBytes", totalBytes);
+            result.put("durationMs", SystemClock.elapsedRealtime() - start);
+            call.resolve(result);
+        });
+    }
+
+    @PluginMethod
+    public void setCacheQuotas(PluginCall call) {
+        JSObject quotas = call.getObject("quotas");
+        if (quotas == null) {
+            call.reject("quotas is required");
+            return;
+        }
+        if (cacheExecutor == null) {
+            call.reject("Context not available");
+            return;
+        }
+        Map<String, Long> requested = new LinkedHashMap<>();
+        Iterator<String> keys = quotas.keys();
+        while (keys.hasNext()) {
+            String category = keys.next();
+            if (!CacheIndex.isCategory(category)) {
+                call.reject("Unknown cache category " + category);
+                return;
+            }
+            requested.put(category, Math.max(0, quotas.optLong(category, 0)));
+        }
+        cacheExecutor.execute(() -> {
+            Map<String, Long> updated = currentQuotas();
+            updated.putAll(requested);
+            cacheQuotas = new LinkedHashMap<>(updated);
+            saveQuotas(updated);
+            JSObject values = new JSObject();
+            for (Map.Entry<String, Long> entry : updated.entrySet()) {
+                values.put(entry.getKey(), entry.getValue());
             }
-            call.resolve();
+            JSObject result = new JSObject();
+            result.put("quotas", values);
+            call.resolve(result);
+            enforceCacheQuotas();
         });
     }
 
+    @PluginMethod
+    public void getMemoryMetrics(PluginCall call) {
+        call.resolve(MemoryPressureManager.getInstance().snapshot());
+    }
+
+    @PluginMethod
+    public void getStartupTimeline(PluginCall call) {
+        call.resolve(StartupTimeline.getInstance().snapshot());
+    }
+
+    @PluginMethod
+    public void getStallMetrics(PluginCall call) {
+        MainThreadWatchdog watchdog = MainThreadWatchdog.getInstance();
+        Integer thresholdMs = call.getInt("thresholdMs");
+        if (thresholdMs != null) {
+            watchdog.setThresholdMs(thresholdMs);
+        }
+        JSObject result = watchdog.snapshot();
+        if (Boolean.TRUE.equals(call.getBoolean("reset", false))) {
+            watchdog.reset();
+        }
+        call.resolve(result);
+    }
+
     private void openStoreFallback(Activity activity) {
         String packageName = activity.getPackageName();
         Uri uri = Uri.parse("market://details?id=" + packageName);
@@ -146,21 +315,74 @@ public class NativeUtilitiesPlugin extends Plugin {
         }
     }
 
-    private void clearDirectory(File dir) {
-        if (dir == null || !dir.exists()) {
-            return;
+    private void enforceCacheQuotas() {
+        try {
+            CacheSweeper.Result result = cacheSweeper.enforceQuotas(currentQuotas(), QUOTA_MIN_FILE_AGE_MS,
+                    System.currentTimeMillis(), null);
+            if (result.filesDeleted > 0) {
+                MemoryPressureManager.getInstance().recordAction("cache.quotaBytes", result.totalBytesFreed);
+                notifyListeners("cacheQuotaEnforced", describeResult(result));
+            }
+        } catch (Exception ex) {
+            Log.w(TAG, "Cache quota enforcement failed: " + ex.getMessage());
         }
-        File[] files = dir.listFiles();
-        if (files == null) {
-            return;
+    }
+
+    private void notifyCacheProgress(String category, long filesDeleted, long bytesFreed, long bytesTotal) {
+        JSObject data = new JSObject();
+        data.put("category", category);
+        data.put("filesDeleted", filesDeleted);
+        data.put("bytesFreed", bytesFreed);
+        data.put("bytesTotal", bytesTotal);
+        notifyListeners("cacheClearProgress", data);
+    }
+
+    private static JSObject describeResult(CacheSweeper.Result result) {
+        JSObject categories = new JSObject();
+        for (Map.Entry<String, Long> entry : result.bytesFreed.entrySet()) {
+            categories.put(entry.getKey(), entry.getValue());
         }
-        for (File file : files) {
-            if (file.isDirectory()) {
-                clearDirectory(file);
-            }
-            if (!file.delete()) {
-                file.deleteOnExit();
+        JSObject payload = new JSObject();
+        payload.put("bytesFreed", result.totalBytesFreed);
+        payload.put("filesDeleted", result.filesDeleted);
+        payload.put("failures", result.failures);
+        payload.put("categories", categories);
+        return payload;
+    }
+
+    // Cache thread only.
+    private Map<String, Long> currentQuotas() {
+        if (cacheQuotas == null) {
+            cacheQuotas = loadQuotas();
+        }
+        return new LinkedHashMap<>(cacheQuotas);
+    }
+
+    private Map<String, Long> loadQuotas() {
+        Map<String, Long> quotas = new LinkedHashMap<>();
+        quotas.put(CacheIndex.CATEGORY_TTS_AUDIO, DEFAULT_TTS_AUDIO_QUOTA_BYTES);
+        quotas.put(CacheIndex.CATEGORY_LOGS, DEFAULT_LOGS_QUOTA_BYTES);
+        String stored = getContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getString(PREF_CACHE_QUOTAS, null);
+        if (stored == null) {
+            return quotas;
+        }
+        try {
+            JSONObject json = new JSONObject(stored);
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String category = keys.next();
+                quotas.put(category, Math.max(0, json.optLong(category, 0)));
             }
+        } catch (JSONException ex) {
+            Log.w(TAG, "Ignoring stored cache quotas: " + ex.getMessage());
         }
+        return quotas;
+    }
+
+    private void saveQuotas(Map<String, Long> quotas) {
+        getContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putString(PREF_CACHE_QUOTAS, new JSONObject(quotas).toString())
+                .apply();
     }
 }
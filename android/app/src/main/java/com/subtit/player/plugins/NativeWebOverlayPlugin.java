@@ -2,10 +2,15 @@ package com.subtit.player.plugins;
 
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.app.ActivityManager;
+import android.content.Context;
 import android.graphics.Color;
+import android.net.Uri;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.TypedValue;
 import android.view.Gravity;
@@ -13,8 +18,11 @@ import android.view.KeyEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.webkit.JavascriptInterface;
+import android.webkit.RenderProcessGoneDetail;
+import android.webkit.WebBackForwardList;
 import android.webkit.WebChromeClient;
 import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
@@ -23,6 +31,7 @@ import android.widget.LinearLayout;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import androidx.appcompat.widget.AppCompatButton;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -30,6 +39,7 @@ import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsCompat;
 import androidx.core.view.WindowInsetsControllerCompat;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -37,30 +47,118 @@ import com.getcapacitor.PluginHandle;
 import com.getcapacitor.PluginLoadException;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
-import org.json.JSONException;
+import com.subtit.player.core.BridgeRequestQueue;
+import com.subtit.player.core.OverlayBridge;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 @CapacitorPlugin(name = "NativeWebOverlay")
-public class NativeWebOverlayPlugin extends Plugin {
+public class NativeWebOverlayPlugin extends Plugin implements MemoryPressureManager.Client {
     private FrameLayout overlayContainer;
     private LinearLayout overlayContent;
     private LinearLayout controlBar;
     private FrameLayout webWrapper;
     private WebView webView;
-    private boolean overlayVisible = false;
+    private volatile OverlayPage activePage;
+    private OverlayWebViewPool<OverlayPage> pagePool;
+    private final Map<String, Bundle> parkedPageStates = new LinkedHashMap<String, Bundle>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bundle> eldest) {
+            return size() > MAX_RETAINED_PAGES;
+        }
+    };
+    private final Map<String, Long> lastRecoveryAt = new ConcurrentHashMap<>();
+    private volatile boolean overlayVisible = false;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private String lastReportedUrl = null;
-    private boolean trackingInjected = false;
     private boolean minimalMode = false;
     private int insetLeft = 0;
     private int insetTop = 0;
     private int insetRight = 0;
     private int insetBottom = 0;
-    private boolean runtimeInjected = false;
-    private final Map<String, NativeTTSPlugin.ExternalListener> ttsListenerMap = new ConcurrentHashMap<>();
+
+    private static final String BRIDGE_NAME = "NativeOverlayBridge";
+    private static final int MAX_RETAINED_PAGES = 3;
+    private static final long PAGE_COST_ESTIMATE_BYTES = 64L * 1024L * 1024L;
+    private static final String STATE_KEY = "nativeWebOverlay";
+    private static final String STATE_DESTINATIONS = "destinations";
+    private static final String STATE_ACTIVE = "activeDestination";
+    private static final String STATE_VISIBLE = "visible";
+    private static final String STATE_MINIMAL = "minimal";
+    private static final String STATE_REQUESTED_URL = "requestedUrl";
+    private static final String STATE_LOADED_URL = "loadedUrl";
+    private static final String STATE_PAGE_PREFIX = "page:";
+    private static final long MIN_RECOVERY_INTERVAL_MS = 5_000L;
+    private static final int LOAD_TIMING_HISTORY = 100;
+    private final OverlayLoadTimings loadTimings = new OverlayLoadTimings(LOAD_TIMING_HISTORY);
+    private final OverlayMediaClock mediaClock = new OverlayMediaClock();
+    private static final int BRIDGE_QUEUE_CAPACITY = 32;
+    private final BridgeRequestQueue requestQueue = new BridgeRequestQueue("OverlayBridge", BRIDGE_QUEUE_CAPACITY);
+    private final OverlayBridge<OverlayPage> overlayBridge = new OverlayBridge<>(requestQueue, new BridgeHost());
+    private static final long AUDIO_SYNTHESIS_WAIT_MS = 30_000L;
+    private final OverlayAudioServer audioServer = new OverlayAudioServer((file, timeoutMs) -> {
+        NativeTTSPlugin ttsPlugin = getNativeTtsPlugin();
+        return ttsPlugin == null || ttsPlugin.awaitSynthesis(file, timeoutMs);
+    }, AUDIO_SYNTHESIS_WAIT_MS);
+
+    private static final class OverlayPage implements OverlayBridge.Page {
+        final String destination;
+        final WebView webView;
+        final Map<String, NativeTTSPlugin.ExternalListener> ttsListeners = new ConcurrentHashMap<>();
+        String requestedUrl;
+        String loadedUrl;
+        String currentUrl;
+        Bundle lastSavedState;
+        long recoveryStartedAt = 0;
+        OverlayLoadTimings.Navigation navigation;
+        boolean loading = false;
+        boolean trackingInjected = false;
+        boolean runtimeInjected = false;
+        volatile boolean destroyed = false;
+
+        OverlayPage(@NonNull String destination, @NonNull WebView webView) {
+            this.destination = destination;
+            this.webView = webView;
+        }
+
+        @Override
+        public String id() {
+            return destination;
+        }
+
+        @Override
+        public boolean isDestroyed() {
+            return destroyed;
+        }
+
+        @Override
+        public void evaluate(String script) {
+            webView.post(() -> {
+                if (destroyed) {
+                    return;
+                }
+                // Replies and events are delivered here, on the main thread, after the bridge has parsed them.
+                MainThreadWatchdog watchdog = MainThreadWatchdog.getInstance();
+                String previous = watchdog.enter("NativeWebOverlay.bridgeDispatch");
+                try {
+                    webView.evaluateJavascript(script, null);
+                } finally {
+                    watchdog.exit(previous);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void load() {
+        super.load();
+        mediaClock.addListener(this::notifyMediaState);
+    }
 
     @PluginMethod
     public void show(final PluginCall call) {
@@ -71,27 +169,43 @@ public class NativeWebOverlayPlugin extends Plugin {
             call.reject("url is required");
             return;
         }
+        final String destination = resolveDestination(call.getString("destination"), url);
+        final boolean reload = Boolean.TRUE.equals(call.getBoolean("reload", false));
+        final long requestedAt = SystemClock.elapsedRealtime();
         runOnUiThread(() -> {
-            ensureOverlay(getActivity());
-            if (overlayContainer == null || webView == null) {
+            Activity activity = getActivity();
+            ensureOverlay(activity);
+            if (overlayContainer == null || pagePool == null || activity == null) {
                 call.reject("Overlay not available");
                 return;
             }
-            emitDebug("show url=" + url + " mode=" + mode + " minimal=" + minimal + " hasControlBar=" + (controlBar != null));
+            boolean retained = pagePool.contains(destination);
+            Bundle parkedState = retained ? null : parkedPageStates.remove(destination);
+            OverlayPage page = activatePage(activity, destination);
+            if (parkedState != null) {
+                retained = restorePageState(page, parkedState);
+            }
+            boolean resume = retained && !reload && isRetainedUrl(page, url);
+            emitDebug("show url=" + url + " mode=" + mode + " minimal=" + minimal + " destination=" + destination
+                    + " retained=" + retained + " resume=" + resume + " reload=" + reload
+                    + " pool=" + pagePool.keys() + " hasControlBar=" + (controlBar != null));
             applyPresentation(minimal);
             overlayContainer.setVisibility(View.VISIBLE);
             overlayContainer.bringToFront();
             overlayVisible = true;
-            enterImmersiveMode(getActivity());
+            enterImmersiveMode(activity);
             webView.onResume();
-            trackingInjected = false;
             lastReportedUrl = null;
-            runtimeInjected = false;
             webView.animate().cancel();
-            webView.setAlpha(0f);
-            webView.loadUrl(url);
-            webView.post(this::injectRuntimeScript);
-            notifyUrlChanged(url);
+            if (resume) {
+                loadTimings.recordResume();
+                webView.setAlpha(1f);
+                String currentUrl = webView.getUrl();
+                notifyUrlChanged(currentUrl != null ? currentUrl : url);
+            } else {
+                loadPage(page, url, requestedAt);
+                notifyUrlChanged(url);
+            }
             call.resolve();
         });
     }
@@ -122,18 +236,105 @@ public class NativeWebOverlayPlugin extends Plugin {
         });
     }
 
+    @PluginMethod
+    public void getLoadTimings(final PluginCall call) {
+        String destination = call.getString("destination");
+        int limit = call.getInt("limit", 20);
+        JSObject phases = new JSObject();
+        for (int phase = 0; phase < OverlayLoadTimings.PHASE_NAMES.length; phase++) {
+            OverlayLoadTimings.Summary summary = loadTimings.summarize(phase, destination);
+            JSObject item = new JSObject();
+            item.put("count", summary.count);
+            item.put("p50", summary.p50);
+            item.put("p90", summary.p90);
+            item.put("p99", summary.p99);
+            item.put("max", summary.max);
+            phases.put(OverlayLoadTimings.PHASE_NAMES[phase], item);
+        }
+        JSArray history = new JSArray();
+        for (OverlayLoadTimings.Navigation navigation : loadTimings.history(destination, limit)) {
+            JSObject item = new JSObject();
+            item.put("id", navigation.id);
+            item.put("destination", navigation.destination);
+            item.put("url", navigation.url);
+            for (int phase = 0; phase < OverlayLoadTimings.PHASE_NAMES.length; phase++) {
+                long value = navigation.phase(phase);
+                if (value >= 0) {
+                    item.put(OverlayLoadTimings.PHASE_NAMES[phase], value);
+                }
+            }
+            history.put(item);
+        }
+        JSObject result = new JSObject();
+        result.put("phases", phases);
+        result.put("history", history);
+        result.put("resumedShows", loadTimings.resumedShows());
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void clearLoadTimings(final PluginCall call) {
+        loadTimings.clear();
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getMediaTime(final PluginCall call) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        JSObject result = new JSObject();
+        result.put("available", mediaClock.hasSample());
+        result.put("position", mediaClock.positionAt(now));
+        result.put("playing", mediaClock.isPlaying());
+        result.put("rate", mediaClock.rate());
+        result.put("duration", mediaClock.duration());
+        result.put("sampleAgeMs", mediaClock.sampleAgeNanos(now) / 1_000_000L);
+        result.put("samplesReceived", mediaClock.samplesReceived());
+        result.put("eventsReceived", mediaClock.eventsReceived());
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void getBridgeStats(final PluginCall call) {
+        JSObject result = new JSObject();
+        result.put("capacity", requestQueue.capacity());
+        result.put("queued", requestQueue.queued());
+        result.put("inFlight", requestQueue.inFlight());
+        result.put("submitted", requestQueue.submitted());
+        result.put("completed", requestQueue.completed());
+        result.put("timedOut", requestQueue.timedOut());
+        result.put("failed", requestQueue.failed());
+        result.put("shed", requestQueue.shed());
+        result.put("cancelled", requestQueue.cancelled());
+        result.put("wedged", requestQueue.isWedged());
+        call.resolve(result);
+    }
+
+    @NonNull
+    OverlayMediaClock getMediaClock() {
+        return mediaClock;
+    }
+
+    private void notifyMediaState(int event, double position, double rate) {
+        JSObject data = new JSObject();
+        data.put("event", OverlayMediaClock.EVENT_NAMES[event]);
+        data.put("position", position);
+        data.put("rate", rate);
+        notifyListeners("mediaState", data);
+    }
+
     @Override
     protected void handleOnDestroy() {
         super.handleOnDestroy();
+        requestQueue.shutdown();
+        audioServer.clear();
         runOnUiThread(() -> {
-            if (webView != null) {
-                webView.onPause();
-                webView.stopLoading();
-                webView.setWebChromeClient(null);
-                webView.setWebViewClient(null);
-                webView.destroy();
-                webView = null;
+            if (pagePool != null) {
+                pagePool.clear();
+                pagePool = null;
             }
+            parkedPageStates.clear();
+            activePage = null;
+            webView = null;
             if (overlayContainer != null) {
                 ViewGroup parent = (ViewGroup) overlayContainer.getParent();
                 if (parent != null) {
@@ -146,16 +347,271 @@ public class NativeWebOverlayPlugin extends Plugin {
             controlBar = null;
             webWrapper = null;
             overlayVisible = false;
-            clearAllExternalListeners();
         });
     }
 
+    public void saveOverlayState(@NonNull Bundle outState) {
+        if (pagePool == null || pagePool.size() == 0) {
+            return;
+        }
+        Bundle state = new Bundle();
+        ArrayList<String> destinations = new ArrayList<>();
+        for (OverlayPage page : pagePool.values()) {
+            state.putBundle(STATE_PAGE_PREFIX + page.destination, capturePageState(page));
+            destinations.add(page.destination);
+        }
+        state.putStringArrayList(STATE_DESTINATIONS, destinations);
+        state.putString(STATE_ACTIVE, activePage != null ? activePage.destination : null);
+        state.putBoolean(STATE_VISIBLE, overlayVisible);
+        state.putBoolean(STATE_MINIMAL, minimalMode);
+        outState.putBundle(STATE_KEY, state);
+        emitDebug("saveOverlayState pages=" + destinations + " visible=" + overlayVisible);
+    }
+
+    public void restoreOverlayState(@Nullable Bundle savedState) {
+        final Bundle state = savedState != null ? savedState.getBundle(STATE_KEY) : null;
+        if (state == null) {
+            return;
+        }
+        runOnUiThread(() -> {
+            Activity activity = getActivity();
+            ensureOverlay(activity);
+            if (overlayContainer == null || pagePool == null || activity == null) {
+                emitDebug("restoreOverlayState skipped: overlay not available");
+                return;
+            }
+            ArrayList<String> destinations = state.getStringArrayList(STATE_DESTINATIONS);
+            if (destinations == null || destinations.isEmpty()) {
+                return;
+            }
+            for (String destination : destinations) {
+                Bundle pageState = state.getBundle(STATE_PAGE_PREFIX + destination);
+                if (pageState == null) {
+                    continue;
+                }
+                OverlayPage page = activatePage(activity, destination);
+                restorePageState(page, pageState);
+            }
+            String activeDestination = state.getString(STATE_ACTIVE);
+            OverlayPage active = activeDestination != null && pagePool.contains(activeDestination)
+                    ? activatePage(activity, activeDestination)
+                    : activePage;
+            applyPresentation(state.getBoolean(STATE_MINIMAL, false));
+            if (active != null && state.getBoolean(STATE_VISIBLE, false)) {
+                overlayContainer.setVisibility(View.VISIBLE);
+                overlayContainer.bringToFront();
+                overlayVisible = true;
+                enterImmersiveMode(activity);
+                active.webView.onResume();
+            } else if (active != null) {
+                active.webView.onPause();
+            }
+            emitDebug("restoreOverlayState pages=" + pagePool.keys() + " active=" + activeDestination + " visible=" + overlayVisible);
+        });
+    }
+
+    @Override
+    public void onMemoryPressure(int severity, @NonNull MemoryPressureManager manager) {
+        runOnUiThread(() -> trimPages(severity, manager));
+    }
+
+    private void trimPages(int severity, @NonNull MemoryPressureManager manager) {
+        if (pagePool == null || pagePool.size() == 0) {
+            return;
+        }
+        for (OverlayPage page : pagePool.values()) {
+            if (page == activePage && overlayVisible) {
+                continue;
+            }
+            boolean release = severity >= MemoryPressureManager.SEVERITY_CRITICAL
+                    || (severity >= MemoryPressureManager.SEVERITY_HIGH && page != activePage);
+            if (release) {
+                parkPage(page);
+                manager.recordAction("overlay.destroyPage", 1);
+            } else {
+                page.webView.onPause();
+                page.webView.clearCache(false);
+                manager.recordAction("overlay.clearCache", 1);
+            }
+        }
+        emitDebug("trimPages severity=" + severity + " retained=" + pagePool.keys() + " parked=" + parkedPageStates.keySet());
+    }
+
+    private void parkPage(@NonNull OverlayPage page) {
+        if (page.requestedUrl != null) {
+            parkedPageStates.put(page.destination, capturePageState(page));
+        }
+        pagePool.evict(page.destination);
+    }
+
+    @NonNull
+    private Bundle capturePageState(@NonNull OverlayPage page) {
+        Bundle pageState = new Bundle();
+        if (!page.loading) {
+            page.webView.saveState(pageState);
+        }
+        pageState.putString(STATE_REQUESTED_URL, page.requestedUrl);
+        pageState.putString(STATE_LOADED_URL, page.loadedUrl);
+        return pageState;
+    }
+
+    private boolean restorePageState(@NonNull OverlayPage page, @NonNull Bundle pageState) {
+        resetPageRuntime(page);
+        page.requestedUrl = pageState.getString(STATE_REQUESTED_URL);
+        page.loadedUrl = pageState.getString(STATE_LOADED_URL);
+        WebBackForwardList restored = page.webView.restoreState(pageState);
+        if (restored != null) {
+            page.navigation = loadTimings.begin(page.destination, page.requestedUrl, SystemClock.elapsedRealtime());
+            return true;
+        }
+        if (page.requestedUrl != null) {
+            loadPage(page, page.requestedUrl);
+        }
+        return false;
+    }
+
+    private void loadPage(@NonNull OverlayPage page, @NonNull String url) {
+        loadPage(page, url, SystemClock.elapsedRealtime());
+    }
+
+    private void loadPage(@NonNull OverlayPage page, @NonNull String url, long requestedAt) {
+        page.navigation = loadTimings.begin(page.destination, url, requestedAt);
+        page.requestedUrl = url;
+        page.loadedUrl = null;
+        page.currentUrl = url;
+        page.loading = true;
+        resetPageRuntime(page);
+        WebView view = page.webView;
+        view.animate().cancel();
+        view.setAlpha(0f);
+        loadTimings.mark(page.navigation, OverlayLoadTimings.PHASE_LOAD_URL, SystemClock.elapsedRealtime());
+        view.loadUrl(url);
+        view.post(() -> injectRuntimeScript(page));
+    }
+
+    private boolean isRetainedUrl(@NonNull OverlayPage page, @NonNull String url) {
+        if (page.loading || page.requestedUrl == null) {
+            return false;
+        }
+        String requested = normalizeUrl(url);
+        String current = normalizeUrl(page.webView.getUrl());
+        if (requested.equals(current)) {
+            return true;
+        }
+        // Redirects (e.g. www -> m.youtube.com) land on a different URL than the one requested.
+        return requested.equals(normalizeUrl(page.requestedUrl)) && current.equals(normalizeUrl(page.loadedUrl));
+    }
+
+    @NonNull
+    private static String normalizeUrl(@Nullable String url) {
+        if (url == null) {
+            return "";
+        }
+        String normalized = url.trim();
+        int fragment = normalized.indexOf('#');
+        if (fragment >= 0) {
+            normalized = normalized.substring(0, fragment);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    @NonNull
+    private String resolveDestination(@Nullable String destination, @NonNull String url) {
+        if (destination != null && !destination.trim().isEmpty()) {
+            return destination.trim();
+        }
+        String host = Uri.parse(url).getHost();
+        return host != null && !host.isEmpty() ? host : url;
+    }
+
+    @NonNull
+    private OverlayWebViewPool<OverlayPage> createPagePool(@NonNull Activity activity) {
+        int maxPages = MAX_RETAINED_PAGES;
+        long budget = MAX_RETAINED_PAGES * PAGE_COST_ESTIMATE_BYTES;
+        ActivityManager activityManager = (ActivityManager) activity.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager != null) {
+            if (activityManager.isLowRamDevice()) {
+                maxPages = 1;
+            }
+            budget = Math.min(budget, activityManager.getMemoryClass() * 1024L * 1024L / 2);
+        }
+        emitDebug("createPagePool maxPages=" + maxPages + " budgetBytes=" + budget);
+        return new OverlayWebViewPool<>(maxPages, budget, (destination, page) -> destroyPage(page));
+    }
+
+    @NonNull
+    private OverlayPage activatePage(@NonNull Activity activity, @NonNull String destination) {
+        OverlayPage previous = activePage;
+        OverlayPage page = pagePool.get(destination);
+        if (previous != null && previous != page) {
+            mediaClock.reset();
+            previous.webView.animate().cancel();
+            previous.webView.setVisibility(View.GONE);
+            previous.webView.onPause();
+        }
+        if (page == null) {
+            page = createPage(activity, destination);
+            pagePool.put(destination, page, PAGE_COST_ESTIMATE_BYTES);
+        }
+        activePage = page;
+        webView = page.webView;
+        webView.setVisibility(View.VISIBLE);
+        return page;
+    }
+
+    @NonNull
+    private OverlayPage createPage(@NonNull Activity activity, @NonNull String destination) {
+        WebView view = new WebView(activity);
+        view.setLayoutParams(new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        OverlayPage page = new OverlayPage(destination, view);
+        configureWebView(view, page);
+        webWrapper.addView(view);
+        emitDebug("createPage destination=" + destination);
+        return page;
+    }
+
+    private void destroyPage(@NonNull OverlayPage page) {
+        emitDebug("destroyPage destination=" + page.destination);
+        page.destroyed = true;
+        detachPageListeners(page);
+        if (page == activePage) {
+            activePage = null;
+            webView = null;
+        }
+        WebView view = page.webView;
+        view.animate().cancel();
+        ViewGroup parent = (ViewGroup) view.getParent();
+        if (parent != null) {
+            parent.removeView(view);
+        }
+        view.onPause();
+        view.stopLoading();
+        view.removeJavascriptInterface(BRIDGE_NAME);
+        view.setWebChromeClient(null);
+        view.setWebViewClient(null);
+        view.destroy();
+    }
+
+    private void resetPageRuntime(@NonNull OverlayPage page) {
+        if (page == activePage) {
+            mediaClock.reset();
+        }
+        page.trackingInjected = false;
+        page.runtimeInjected = false;
+        detachPageListeners(page);
+    }
+
     private void ensureOverlay(@Nullable Activity activity) {
         if (activity == null) {
             emitDebug("ensureOverlay skipped: activity null");
             return;
         }
-        if (overlayContainer != null && webView != null) {
+        if (overlayContainer != null) {
             emitDebug("ensureOverlay reused existing overlay");
             return;
         }
@@ -195,15 +651,11 @@ public class NativeWebOverlayPlugin extends Plugin {
         webWrapper.setLayoutParams(webWrapperParams);
         webWrapper.setBackgroundColor(Color.BLACK);
 
-        webView = new WebView(activity);
-        webView.setLayoutParams(new FrameLayout.LayoutParams(
-                ViewGroup.LayoutParams.MATCH_PARENT,
-                ViewGroup.LayoutParams.MATCH_PARENT));
-        configureWebView(webView);
-        webWrapper.addView(webView);
-
         overlayContent.addView(webWrapper);
         this.webWrapper = webWrapper;
+        if (pagePool == null) {
+            pagePool = createPagePool(activity);
+        }
         emitDebug("ensureOverlay created views controlBar=" + (controlBar != null) + " webWrapper=" + (webWrapper != null));
         applyPresentation(minimalMode);
 
@@ -303,7 +755,7 @@ public class NativeWebOverlayPlugin extends Plugin {
     }
 
     @SuppressLint({"SetJavaScriptEnabled", "JavascriptInterface"})
-    private void configureWebView(@NonNull WebView view) {
+    private void configureWebView(@NonNull WebView view, @NonNull OverlayPage page) {
         WebSettings settings = view.getSettings();
         settings.setJavaScriptEnabled(true);
         settings.setDomStorageEnabled(true);
@@ -311,47 +763,156 @@ public class NativeWebOverlayPlugin extends Plugin {
         settings.setBuiltInZoomControls(false);
         settings.setDisplayZoomControls(false);
 
-        view.addJavascriptInterface(new LocationBridge(), "NativeOverlayBridge");
+        view.addJavascriptInterface(new LocationBridge(page), BRIDGE_NAME);
         view.setBackgroundColor(Color.BLACK);
         view.setWebChromeClient(new WebChromeClient());
         view.setWebViewClient(new WebViewClient() {
             @Override
             public boolean shouldOverrideUrlLoading(WebView wv, String url) {
-                notifyUrlChanged(url);
-                trackingInjected = false;
-                runtimeInjected = false;
+                notifyPageUrlChanged(page, url);
+                resetPageRuntime(page);
                 return false;
             }
 
             @Override
             public boolean shouldOverrideUrlLoading(WebView wv, WebResourceRequest request) {
                 if (request != null && request.getUrl() != null) {
-                    notifyUrlChanged(request.getUrl().toString());
+                    notifyPageUrlChanged(page, request.getUrl().toString());
                 }
-                trackingInjected = false;
-                runtimeInjected = false;
+                resetPageRuntime(page);
                 return false;
             }
 
+            @Override
+            public WebResourceResponse shouldInterceptRequest(WebView wv, WebResourceRequest request) {
+                WebResourceResponse response = audioServer.intercept(request);
+                return response != null ? response : super.shouldInterceptRequest(wv, request);
+            }
+
             @Override
             public void onPageFinished(WebView wv, String url) {
                 super.onPageFinished(wv, url);
-                notifyUrlChanged(url);
-                injectRuntimeScript();
-                injectTrackingScript();
-                revealWebContent();
+                if (page.loading) {
+                    page.loading = false;
+                    page.loadedUrl = url;
+                }
+                notifyPageUrlChanged(page, url);
+                loadTimings.mark(page.navigation, OverlayLoadTimings.PHASE_PAGE_FINISHED, SystemClock.elapsedRealtime());
+                page.lastSavedState = capturePageState(page);
+                completeRecovery(page);
+                injectRuntimeScript(page);
+                injectTrackingScript(page);
+                revealWebContent(page);
             }
 
             @Override
             public void onPageCommitVisible(WebView wv, String url) {
                 super.onPageCommitVisible(wv, url);
-                injectRuntimeScript();
-                injectTrackingScript();
-                revealWebContent();
+                trackFirstPaint(page);
+                injectRuntimeScript(page);
+                injectTrackingScript(page);
+                revealWebContent(page);
+                completeRecovery(page);
+            }
+
+            @Override
+            @RequiresApi(api = Build.VERSION_CODES.O)
+            public boolean onRenderProcessGone(WebView wv, RenderProcessGoneDetail detail) {
+                handleRenderProcessGone(page, detail != null && detail.didCrash());
+                return true;
             }
         });
     }
 
+    private void trackFirstPaint(@NonNull OverlayPage page) {
+        final OverlayLoadTimings.Navigation navigation = page.navigation;
+        if (!loadTimings.mark(navigation, OverlayLoadTimings.PHASE_COMMIT_VISIBLE, SystemClock.elapsedRealtime())) {
+            return;
+        }
+        page.webView.postVisualStateCallback(navigation.id, new WebView.VisualStateCallback() {
+            @Override
+            public void onComplete(long requestId) {
+                loadTimings.mark(navigation, OverlayLoadTimings.PHASE_FIRST_PAINT, SystemClock.elapsedRealtime());
+            }
+        });
+    }
+
+    private void handleRenderProcessGone(@NonNull OverlayPage page, boolean crashed) {
+        if (page.destroyed) {
+            return;
+        }
+        final long goneAt = SystemClock.elapsedRealtime();
+        final String destination = page.destination;
+        final boolean wasActive = page == activePage;
+        final boolean wasVisible = wasActive && overlayVisible;
+        final Bundle state = page.lastSavedState != null ? page.lastSavedState : new Bundle();
+        String lastUrl = page.currentUrl != null ? page.currentUrl : page.requestedUrl;
+        state.putString(STATE_REQUESTED_URL, lastUrl);
+        emitDebug("renderProcessGone destination=" + destination + " crashed=" + crashed + " active=" + wasActive + " url=" + lastUrl);
+
+        if (pagePool != null) {
+            pagePool.evict(destination);
+        } else {
+            destroyPage(page);
+        }
+
+        JSObject gone = new JSObject();
+        gone.put("destination", destination);
+        gone.put("crashed", crashed);
+        gone.put("url", lastUrl);
+        notifyListeners("renderProcessGone", gone);
+
+        Long previousRecovery = lastRecoveryAt.get(destination);
+        boolean throttled = previousRecovery != null && goneAt - previousRecovery < MIN_RECOVERY_INTERVAL_MS;
+        if (!wasActive || throttled || lastUrl == null) {
+            if (lastUrl != null) {
+                parkedPageStates.put(destination, state);
+            }
+            if (throttled) {
+                emitDebug("renderProcessGone recovery throttled destination=" + destination);
+            }
+            return;
+        }
+        lastRecoveryAt.put(destination, goneAt);
+        mainHandler.post(() -> rebuildPage(destination, state, wasVisible, goneAt));
+    }
+
+    private void rebuildPage(@NonNull String destination, @NonNull Bundle state, boolean visible, long goneAt) {
+        Activity activity = getActivity();
+        ensureOverlay(activity);
+        if (activity == null || pagePool == null || (activePage != null && !destination.equals(activePage.destination))) {
+            parkedPageStates.put(destination, state);
+            return;
+        }
+        OverlayPage page = activatePage(activity, destination);
+        page.recoveryStartedAt = goneAt;
+        String lastUrl = state.getString(STATE_REQUESTED_URL);
+        if (restorePageState(page, state) && lastUrl != null
+                && !normalizeUrl(lastUrl).equals(normalizeUrl(page.webView.getUrl()))) {
+            loadPage(page, lastUrl);
+        }
+        if (visible && overlayVisible) {
+            page.webView.onResume();
+        } else {
+            page.webView.onPause();
+        }
+        emitDebug("rebuildPage destination=" + destination + " url=" + lastUrl + " visible=" + visible);
+    }
+
+    private void completeRecovery(@NonNull OverlayPage page) {
+        if (page.recoveryStartedAt == 0) {
+            return;
+        }
+        long downtime = SystemClock.elapsedRealtime() - page.recoveryStartedAt;
+        page.recoveryStartedAt = 0;
+        JSObject data = new JSObject();
+        data.put("destination", page.destination);
+        data.put("url", page.currentUrl != null ? page.currentUrl : page.requestedUrl);
+        data.put("downtimeMs", downtime);
+        notifyListeners("renderProcessRecovered", data);
+        emitDebug("renderProcessRecovered destination=" + page.destination + " downtimeMs=" + downtime);
+    }
+
     private void handleBackPress() {
         if (hideOverlayInternal(true)) {
             notifyClosed();
@@ -363,19 +924,23 @@ public class NativeWebOverlayPlugin extends Plugin {
             return false;
         }
         overlayVisible = false;
-        clearAllExternalListeners();
         if (overlayContainer != null) {
             overlayContainer.setVisibility(View.GONE);
         }
-        if (pauseWebView && webView != null) {
-            webView.onPause();
-            webView.stopLoading();
+        OverlayPage page = activePage;
+        if (pauseWebView && page != null) {
+            page.webView.onPause();
+            if (page.loading) {
+                // A half-loaded page cannot be resumed; the next show loads it again.
+                page.webView.stopLoading();
+                page.loading = false;
+                page.requestedUrl = null;
+            }
         }
         if (webView != null) {
             webView.animate().cancel();
             webView.setAlpha(1f);
         }
-        trackingInjected = false;
         return true;
     }
 
@@ -392,6 +957,16 @@ public class NativeWebOverlayPlugin extends Plugin {
         notifyListeners("urlChange", data);
     }
 
+    private void notifyPageUrlChanged(@NonNull OverlayPage page, @Nullable String url) {
+        if (url != null) {
+            page.currentUrl = url;
+        }
+        if (page != activePage) {
+            return;
+        }
+        notifyUrlChanged(url);
+    }
+
     private void notifyClosed() {
         notifyListeners("closed", new JSObject());
     }
@@ -416,225 +991,148 @@ public class NativeWebOverlayPlugin extends Plugin {
     }
 
 
-    private void revealWebContent() {
-        if (webView == null) {
+    private void revealWebContent(@NonNull OverlayPage page) {
+        if (page.destroyed) {
             return;
         }
-        if (webView.getAlpha() >= 1f) {
+        WebView view = page.webView;
+        if (view.getAlpha() >= 1f) {
             return;
         }
-        webView.animate().cancel();
-        webView.animate().alpha(1f).setDuration(150).start();
+        view.animate().cancel();
+        view.animate().alpha(1f).setDuration(150).start();
     }
 
-    private void handleBridgeMessage(String rawMessage) {
+    private void handleBridgeMessage(@NonNull OverlayPage page, String rawMessage) {
         if (rawMessage == null || rawMessage.trim().isEmpty()) {
             return;
         }
+        loadTimings.mark(page.navigation, OverlayLoadTimings.PHASE_RUNTIME_READY, SystemClock.elapsedRealtime());
+        MainThreadWatchdog watchdog = MainThreadWatchdog.getInstance();
+        String previous = watchdog.enter("NativeWebOverlay.bridgeParse");
         try {
-            JSONObject payload = new JSONObject(rawMessage);
-            String type = payload.optString("type", "request");
-            emitDebug("[Bridge] message type=" + type + " plugin=" + payload.optString("plugin") + " method=" + payload.optString("method"));
-            switch (type) {
-                case "request":
-                    handleBridgeRequest(payload);
-                    break;
-                case "addListener":
-                    handleBridgeAddListener(payload);
-                    break;
-                case "removeListener":
-                    handleBridgeRemoveListener(payload);
-                    break;
-                default:
-                    emitDebug("Unknown bridge message type=" + type);
-            }
-        } catch (JSONException ex) {
-            emitDebug("Bridge message parse error: " + ex.getMessage());
-        }
-    }
-
-    private void handleBridgeRequest(JSONObject payload) throws JSONException {
-        String requestId = payload.optString("id", "");
-        String plugin = payload.optString("plugin", "");
-        String method = payload.optString("method", "");
-        JSONObject params = payload.optJSONObject("params");
-        emitDebug("[Bridge] request id=" + requestId + " plugin=" + plugin + " method=" + method);
-        if (plugin.isEmpty()) {
-            sendError(requestId, "Plugin not specified");
-            return;
-        }
-        if (method.isEmpty()) {
-            sendError(requestId, "Method not specified");
-            return;
-        }
-        if ("NativeTTS".equals(plugin)) {
-            handleTtsRequest(requestId, method, params);
-            return;
+            overlayBridge.handleMessage(page, rawMessage);
+        } finally {
+            watchdog.exit(previous);
         }
-        sendError(requestId, "Unsupported plugin " + plugin);
     }
 
-    private void handleBridgeAddListener(JSONObject payload) {
-        String plugin = payload.optString("plugin", "");
-        String event = payload.optString("event", "");
-        String listenerId = payload.optString("listenerId", "");
-        emitDebug("[Bridge] addListener plugin=" + plugin + " event=" + event + " id=" + listenerId);
-        if (plugin.isEmpty() || event.isEmpty() || listenerId.isEmpty()) {
-            emitDebug("Invalid listener payload: " + payload.toString());
-            return;
-        }
-        if (!"NativeTTS".equals(plugin)) {
-            emitDebug("Unsupported listener plugin=" + plugin);
-            return;
-        }
-        NativeTTSPlugin ttsPlugin = getNativeTtsPlugin();
-        if (ttsPlugin == null) {
-            emitDebug("NativeTTS unavailable for listener");
-            return;
-        }
-        if (ttsListenerMap.containsKey(listenerId)) {
-            return;
-        }
-        NativeTTSPlugin.ExternalListener externalListener = (eventName, data) -> {
-            if (!event.equals(eventName)) {
-                return;
+    @NonNull
+    private JSObject invokeTts(@NonNull NativeTTSPlugin ttsPlugin, String method, @Nullable JSONObject params) {
+        switch (method) {
+            case "isAvailable":
+                return ttsPlugin.isAvailableSync();
+            case "getEngines":
+                return ttsPlugin.getEnginesSync();
+            case "getAvailableLanguages":
+                return ttsPlugin.getAvailableLanguagesSync();
+            case "getVoices":
+                return ttsPlugin.getVoicesSync();
+            case "getSnapshot":
+                return ttsPlugin.getSnapshotSync();
+            case "selectEngine":
+                return ttsPlugin.selectEngineSync(params != null ? params.optString("engineId", null) : null);
+            case "speak":
+                return ttsPlugin.speakSync(
+                        params != null ? params.optString("text", null) : null,
+                        params != null ? params.optString("voiceId", null) : null,
+                        (params != null && params.has("rate")) ? params.optDouble("rate") : null,
+                        (params != null && params.has("pitch")) ? params.optDouble("pitch") : null
+                );
+            case "synthesizeToFile": {
+                JSObject result = ttsPlugin.synthesizeToFileSync(
+                        params != null ? params.optString("text", null) : null,
+                        params != null ? params.optString("voiceId", null) : null,
+                        (params != null && params.has("rate")) ? params.optDouble("rate") : null,
+                        (params != null && params.has("pitch")) ? params.optDouble("pitch") : null,
+                        params != null && params.optBoolean("trimSilence", false)
+                );
+                String path = result.getString("path");
+                if (path == null) {
+                    throw new IllegalStateException("Synthesis returned no file");
+                }
+                // content:// URIs are not fetchable from the page, so expose the file on the virtual origin.
+                result.put("webUrl", audioServer.register(new File(path)));
+                return result;
             }
-            sendEventToWeb("NativeTTS", eventName, data);
-        };
-        ttsListenerMap.put(listenerId, externalListener);
-        ttsPlugin.addExternalListener(externalListener);
-    }
-
-    private void handleBridgeRemoveListener(JSONObject payload) {
-        String listenerId = payload.optString("listenerId", "");
-        if (listenerId.isEmpty()) {
-            return;
-        }
-        emitDebug("[Bridge] removeListener id=" + listenerId);
-        NativeTTSPlugin.ExternalListener listener = ttsListenerMap.remove(listenerId);
-        NativeTTSPlugin ttsPlugin = getNativeTtsPlugin();
-        if (listener != null && ttsPlugin != null) {
-            ttsPlugin.removeExternalListener(listener);
+            case "stop":
+                ttsPlugin.stopSync();
+                return new JSObject();
+            case "setPitch":
+                return ttsPlugin.setPitchSync((params != null && params.has("pitch")) ? params.optDouble("pitch") : null);
+            case "setSpeechRate":
+                return ttsPlugin.setSpeechRateSync((params != null && params.has("rate")) ? params.optDouble("rate") : null);
+            default:
+                throw new IllegalArgumentException("Unsupported method " + method);
         }
     }
 
-    private void handleTtsRequest(String requestId, String method, @Nullable JSONObject params) {
-        NativeTTSPlugin ttsPlugin = getNativeTtsPlugin();
-        if (ttsPlugin == null) {
-            sendError(requestId, "NativeTTS unavailable");
-            return;
-        }
-        emitDebug("[Bridge] TTS call method=" + method + " id=" + requestId);
-        try {
-            JSObject result;
-            switch (method) {
-                case "isAvailable":
-                    result = ttsPlugin.isAvailableSync();
-                    break;
-                case "getEngines":
-                    result = ttsPlugin.getEnginesSync();
-                    break;
-                case "getAvailableLanguages":
-                    result = ttsPlugin.getAvailableLanguagesSync();
-                    break;
-                case "getVoices":
-                    result = ttsPlugin.getVoicesSync();
-                    break;
-                case "selectEngine":
-                    result = ttsPlugin.selectEngineSync(params != null ? params.optString("engineId", null) : null);
-                    break;
-                case "speak":
-                    result = ttsPlugin.speakSync(
-                            params != null ? params.optString("text", null) : null,
-                            params != null ? params.optString("voiceId", null) : null,
-                            (params != null && params.has("rate")) ? params.optDouble("rate") : null,
-                            (params != null && params.has("pitch")) ? params.optDouble("pitch") : null
-                    );
-                    break;
-                case "stop":
-                    ttsPlugin.stopSync();
-                    result = new JSObject();
-                    break;
-                case "setPitch":
-                    result = ttsPlugin.setPitchSync((params != null && params.has("pitch")) ? params.optDouble("pitch") : null);
-                    break;
-                case "setSpeechRate":
-                    result = ttsPlugin.setSpeechRateSync((params != null && params.has("rate")) ? params.optDouble("rate") : null);
-                    break;
-                default:
-                    sendError(requestId, "Unsupported method " + method);
-                    return;
-            }
-            sendSuccess(requestId, result);
-        } catch (IllegalArgumentException | IllegalStateException ex) {
-            sendError(requestId, ex.getMessage());
+    private class BridgeHost implements OverlayBridge.Host<OverlayPage> {
+        @Override
+        public boolean supportsPlugin(String plugin) {
+            return "NativeTTS".equals(plugin);
         }
-    }
 
-    private void sendSuccess(@Nullable String requestId, @Nullable JSObject result) {
-        if (requestId == null || requestId.isEmpty()) {
-            return;
-        }
-        try {
-            emitDebug("[Bridge] sendSuccess id=" + requestId);
-            JSONObject message = new JSONObject();
-            message.put("type", "response");
-            message.put("id", requestId);
-            message.put("result", result != null ? new JSONObject(result.toString()) : new JSONObject());
-            dispatchToWeb(message);
-        } catch (JSONException ex) {
-            emitDebug("sendSuccess failed: " + ex.getMessage());
+        @Override
+        public JSONObject invoke(OverlayPage page, String plugin, String method, JSONObject params) {
+            NativeTTSPlugin ttsPlugin = getNativeTtsPlugin();
+            if (ttsPlugin == null) {
+                throw new IllegalStateException("NativeTTS unavailable");
+            }
+            return invokeTts(ttsPlugin, method, params);
         }
-    }
 
-    private void sendError(@Nullable String requestId, @Nullable String errorMessage) {
-        try {
-            emitDebug("[Bridge] sendError id=" + requestId + " message=" + errorMessage);
-            JSONObject message = new JSONObject();
-            message.put("type", "response");
-            if (requestId != null && !requestId.isEmpty()) {
-                message.put("id", requestId);
+        @Override
+        public void addListener(OverlayPage page, String plugin, String event, String listenerId) {
+            NativeTTSPlugin ttsPlugin = getNativeTtsPlugin();
+            if (ttsPlugin == null) {
+                emitDebug("NativeTTS unavailable for listener");
+                return;
             }
-            JSONObject error = new JSONObject();
-            error.put("message", errorMessage != null ? errorMessage : "Unknown error");
-            message.put("error", error);
-            dispatchToWeb(message);
-        } catch (JSONException ex) {
-            emitDebug("sendError failed: " + ex.getMessage());
+            if (page.ttsListeners.containsKey(listenerId)) {
+                return;
+            }
+            NativeTTSPlugin.ExternalListener externalListener = (eventName, data) -> {
+                if (!event.equals(eventName)) {
+                    return;
+                }
+                if (page != activePage || !overlayVisible) {
+                    return;
+                }
+                overlayBridge.sendEvent(page, plugin, eventName, data);
+            };
+            page.ttsListeners.put(listenerId, externalListener);
+            ttsPlugin.addExternalListener(externalListener);
         }
-    }
 
-    private void sendEventToWeb(@NonNull String pluginName, @NonNull String eventName, @NonNull JSObject data) {
-        try {
-            emitDebug("[Bridge] sendEvent plugin=" + pluginName + " event=" + eventName);
-            JSONObject payload = new JSONObject();
-            payload.put("type", "event");
-            payload.put("plugin", pluginName);
-            payload.put("event", eventName);
-            payload.put("data", new JSONObject(data.toString()));
-            dispatchToWeb(payload);
-        } catch (JSONException ex) {
-            emitDebug("sendEvent failed: " + ex.getMessage());
+        @Override
+        public void removeListener(OverlayPage page, String listenerId) {
+            NativeTTSPlugin.ExternalListener listener = page.ttsListeners.remove(listenerId);
+            NativeTTSPlugin ttsPlugin = getNativeTtsPlugin();
+            if (listener != null && ttsPlugin != null) {
+                ttsPlugin.removeExternalListener(listener);
+            }
         }
-    }
 
-    private void dispatchToWeb(@NonNull JSONObject message) {
-        if (webView == null) {
-            return;
+        @Override
+        public void debug(String message) {
+            emitDebug(message);
         }
-        emitDebug("[Bridge] dispatchToWeb type=" + message.optString("type") + " plugin=" + message.optString("plugin") + " id=" + message.optString("id"));
-        final String script = "window.__nativeOverlayDispatch && window.__nativeOverlayDispatch(" + message.toString() + ");";
-        webView.post(() -> webView.evaluateJavascript(script, null));
     }
 
-    private void injectRuntimeScript() {
-        if (webView == null || runtimeInjected) {
+    private void injectRuntimeScript(@NonNull OverlayPage page) {
+        if (page.destroyed || page.runtimeInjected) {
             return;
         }
-        emitDebug("[Bridge] Injecting runtime script");
+        emitDebug("[Bridge] Injecting runtime script destination=" + page.destination);
         final String script = buildRuntimeScript();
-        runtimeInjected = true;
-        webView.post(() -> webView.evaluateJavascript(script, null));
+        page.runtimeInjected = true;
+        final WebView view = page.webView;
+        view.post(() -> {
+            if (!page.destroyed) {
+                view.evaluateJavascript(script, null);
+            }
+        });
     }
 
     private String buildRuntimeScript() {
@@ -642,18 +1140,39 @@ public class NativeWebOverlayPlugin extends Plugin {
                 + "if(window.__nativeOverlayRuntime){return;}window.__nativeOverlayRuntime=true;"
                 + "console.log('[NativeOverlay] runtime:init');"
                 + "const pending=new Map();const listeners=new Map();let reqId=0;"
+                + "const DEFAULT_TIMEOUT=" + OverlayBridge.DEFAULT_REQUEST_TIMEOUT_MS + ";const MAX_PENDING=" + (BRIDGE_QUEUE_CAPACITY * 2) + ";"
+                + "const settle=(id)=>{const entry=pending.get(id);if(!entry){return null;}pending.delete(id);clearTimeout(entry.timer);return entry;};"
                 + "const key=(plugin,event)=>plugin+':'+event;"
                 + "const ensureListeners=(k)=>{if(!listeners.has(k)){listeners.set(k,new Map());}return listeners.get(k);};"
                 + "const postMessage=(msg)=>{try{console.log('[NativeOverlay] runtime:post',msg.type,msg.plugin,msg.method);window.NativeOverlayBridge&&window.NativeOverlayBridge.postMessage(JSON.stringify(msg));}catch(err){console.error('[NativeOverlay] runtime:post error',err);}};"
-                + "window.__nativeOverlayDispatch=function(message){if(!message){return;}console.log('[NativeOverlay] runtime:dispatch',message.type,message.plugin,message.event||message.id);if(message.type==='response'){const entry=pending.get(message.id);if(!entry){return;}pending.delete(message.id);if(message.error){entry.reject(new Error(message.error.message||message.error));}else{entry.resolve(message.result);}}else if(message.type==='event'){const k=key(message.plugin,message.event);const map=listeners.get(k);if(!map){return;}map.forEach((cb)=>{try{cb(message.data||{});}catch(err){console.error('[NativeOverlay] runtime:event error',err);}});}else if(message.type==='log'){console.log('[NativeOverlay]',message.message);}};"
-                + "const invoke=(plugin,method,params)=>{const id=String(++reqId);console.log('[NativeOverlay] runtime:invoke',plugin,method,id);return new Promise((resolve,reject)=>{pending.set(id,{resolve,reject});postMessage({type:'request',id,plugin,method,params:params||{}});});};"
+                + "window.__nativeOverlayDispatch=function(message){if(!message){return;}console.log('[NativeOverlay] runtime:dispatch',message.type,message.plugin,message.event||message.id);if(message.type==='response'){const entry=settle(message.id);if(!entry){return;}if(message.error){entry.reject(new Error(message.error.message||message.error));}else{entry.resolve(message.result);}}else if(message.type==='event'){const k=key(message.plugin,message.event);const map=listeners.get(k);if(!map){return;}map.forEach((cb)=>{try{cb(message.data||{});}catch(err){console.error('[NativeOverlay] runtime:event error',err);}});}else if(message.type==='log'){console.log('[NativeOverlay]',message.message);}};"
+                + "const invoke=(plugin,method,params)=>{if(pending.size>=MAX_PENDING){return Promise.reject(new Error('Too many pending native requests'));}const id=String(++reqId);console.log('[NativeOverlay] runtime:invoke',plugin,method,id);return new Promise((resolve,reject)=>{const timer=setTimeout(()=>{if(settle(id)){postMessage({type:'cancel',id});reject(new Error('Request timed out: '+plugin+'.'+method));}},DEFAULT_TIMEOUT);pending.set(id,{resolve,reject,timer});postMessage({type:'request',id,plugin,method,params:params||{},timeoutMs:DEFAULT_TIMEOUT});});};"
+                + "const invokeBatch=(calls)=>{if(!Array.isArray(calls)||calls.length===0){return Promise.resolve([]);}if(pending.size>=MAX_PENDING){return Promise.reject(new Error('Too many pending native requests'));}const id=String(++reqId);return new Promise((resolve,reject)=>{const timer=setTimeout(()=>{if(settle(id)){postMessage({type:'cancel',id});reject(new Error('Batch timed out'));}},DEFAULT_TIMEOUT);pending.set(id,{resolve:(result)=>resolve((result&&result.results)||[]),reject,timer});postMessage({type:'batch',id,timeoutMs:DEFAULT_TIMEOUT,calls:calls.map((c)=>({plugin:c.plugin,method:c.method,params:c.params||{}}))});});};"
+                + "const cancelAll=()=>{[...pending.keys()].forEach((id)=>{const entry=settle(id);if(entry){postMessage({type:'cancel',id});entry.reject(new Error('Request cancelled'));}});};"
+                + "window.addEventListener('pagehide',cancelAll);"
                 + "const registerListener=(plugin,eventName,callback)=>{const k=key(plugin,eventName);const map=ensureListeners(k);const existing=[...map.values()].find((entry)=>entry===callback);if(existing){return{remove:async()=>{}};}const listenerId='L'+(++reqId);map.set(listenerId,callback);postMessage({type:'addListener',plugin,event:eventName,listenerId});return{remove:async()=>{const current=listeners.get(k);if(current&&current.has(listenerId)){current.delete(listenerId);postMessage({type:'removeListener',plugin,event:eventName,listenerId});}}};};"
-                + "const cap=window.Capacitor||{};cap.getPlatform=()=> 'android';cap.isNativePlatform=()=>true;cap.Plugins=cap.Plugins||{};"
+                + "const cap=window.Capacitor||{};cap.getPlatform=()=> 'android';cap.isNativePlatform=()=>true;cap.Plugins=cap.Plugins||{};cap.cancelNativeRequests=cancelAll;cap.nativeBatch=invokeBatch;"
                 + "cap.nativePromise=(plugin,method,options)=>invoke(plugin,method,options||{});"
                 + "cap.nativeCallback=(plugin,method,options,callback)=>{if(method==='addListener'){const eventName=options&&options.eventName;if(!eventName||typeof callback!=='function'){return Promise.reject(new Error('addListener requires eventName and callback'));}const reg=registerListener(plugin,eventName,callback);return Promise.resolve({remove:reg.remove});}return cap.nativePromise(plugin,method,options).then((result)=>{if(typeof callback==='function'){callback(result);}return result;});};"
                 + "const createPluginProxy=(plugin)=>new Proxy({}, {get(_,prop){if(prop==='addListener'){return (eventName,callback)=>registerListener(plugin,eventName,callback);}return (params)=>cap.nativePromise(plugin,String(prop),params||{});}});"
                 + "cap.Plugins.NativeTTS=createPluginProxy('NativeTTS');"
                 + "window.Capacitor=cap;window.CapacitorPlugins=cap.Plugins;"
+                + buildMediaSyncScript()
+                + "})();";
+    }
+
+    private String buildMediaSyncScript() {
+        return "(function(){"
+                + "const bridge=window.NativeOverlayBridge;if(!bridge||!bridge.mediaTime){return;}"
+                + "const EV={play:1,pause:2,seeked:3,ratechange:4,ended:5,waiting:6};const MIN_INTERVAL=200;let lastSent=0;"
+                + "const send=(code,v)=>{try{bridge.mediaTime(code,v.currentTime||0,v.paused?0:(v.playbackRate||1),isFinite(v.duration)?v.duration:0);}catch(e){}};"
+                + "const attach=(v)=>{if(v.__nativeMediaSync){return;}v.__nativeMediaSync=true;"
+                + "Object.keys(EV).forEach((name)=>v.addEventListener(name,()=>{lastSent=performance.now();send(EV[name],v);},true));"
+                + "v.addEventListener('timeupdate',()=>{const now=performance.now();if(v.paused||now-lastSent<MIN_INTERVAL){return;}lastSent=now;send(0,v);},true);"
+                + "send(v.paused?EV.pause:EV.play,v);};"
+                + "let scanScheduled=false;const scan=()=>{scanScheduled=false;document.querySelectorAll('video').forEach(attach);};"
+                + "const scheduleScan=()=>{if(scanScheduled){return;}scanScheduled=true;setTimeout(scan,500);};"
+                + "new MutationObserver(scheduleScan).observe(document.documentElement,{childList:true,subtree:true});scan();"
                 + "})();";
     }
 
@@ -679,14 +1198,17 @@ public class NativeWebOverlayPlugin extends Plugin {
         return null;
     }
 
-    private void clearAllExternalListeners() {
+    private void detachPageListeners(@NonNull OverlayPage page) {
+        if (page.ttsListeners.isEmpty()) {
+            return;
+        }
         NativeTTSPlugin ttsPlugin = getNativeTtsPlugin();
         if (ttsPlugin != null) {
-            for (NativeTTSPlugin.ExternalListener listener : ttsListenerMap.values()) {
+            for (NativeTTSPlugin.ExternalListener listener : page.ttsListeners.values()) {
                 ttsPlugin.removeExternalListener(listener);
             }
         }
-        ttsListenerMap.clear();
+        page.ttsListeners.clear();
     }
 
     private int dp(@NonNull Activity activity, int value) {
@@ -701,11 +1223,11 @@ public class NativeWebOverlayPlugin extends Plugin {
         notifyListeners("debug", payload);
     }
 
-    private void injectTrackingScript() {
-        if (webView == null || trackingInjected) {
+    private void injectTrackingScript(@NonNull OverlayPage page) {
+        if (page.destroyed || page.trackingInjected) {
             return;
         }
-        trackingInjected = true;
+        page.trackingInjected = true;
         final String script = "(function(){"
                 + "if(window.__nativeOverlayTracking){return;}window.__nativeOverlayTracking=true;"
                 + "const bridge=window.NativeOverlayBridge;"
@@ -724,18 +1246,37 @@ public class NativeWebOverlayPlugin extends Plugin {
                 + "setInterval(trigger,2000);"
                 + "trigger();"
                 + "})();";
-        webView.evaluateJavascript(script, null);
+        page.webView.evaluateJavascript(script, null);
     }
 
     private class LocationBridge {
+        private final OverlayPage page;
+
+        LocationBridge(@NonNull OverlayPage page) {
+            this.page = page;
+        }
+
         @JavascriptInterface
         public void notifyLocation(final String url) {
-            mainHandler.post(() -> notifyUrlChanged(url));
+            mainHandler.post(() -> notifyPageUrlChanged(page, url));
+        }
+
+        @JavascriptInterface
+        public void mediaTime(int event, double position, double rate, double duration) {
+            // Runs on the WebView's JavaBridge thread; the clock is lock-free so no main-thread hop is needed.
+            if (page.destroyed || page != activePage) {
+                return;
+            }
+            mediaClock.update(event, position, rate, duration, SystemClock.elapsedRealtimeNanos());
         }
 
         @JavascriptInterface
         public void postMessage(final String message) {
-            mainHandler.post(() -> handleBridgeMessage(message));
+            mainHandler.post(() -> {
+                if (!page.destroyed) {
+                    handleBridgeMessage(page, message);
+                }
+            });
         }
     }
 }
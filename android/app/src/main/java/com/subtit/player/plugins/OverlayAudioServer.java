@@ -0,0 +1,238 @@
+package com.subtit.player.plugins;
+
+import android.net.Uri;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+final class OverlayAudioServer {
+    static final String HOST = "native-audio.overlay";
+    static final String ORIGIN = "https://" + HOST;
+    private static final String PATH_PREFIX = "/tts/";
+    private static final String MIME_TYPE = "audio/wav";
+    private static final int MAX_ENTRIES = 32;
+
+    interface CompletionProbe {
+        boolean awaitComplete(@NonNull File file, long timeoutMs);
+    }
+
+    private final LinkedHashMap<String, File> files = new LinkedHashMap<String, File>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, File> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final CompletionProbe completionProbe;
+    private final long completionTimeoutMs;
+
+    OverlayAudioServer(@Nullable CompletionProbe completionProbe, long completionTimeoutMs) {
+        this.completionProbe = completionProbe;
+        this.completionTimeoutMs = completionTimeoutMs;
+    }
+
+    // Hands out an unguessable URL so pages can only reach files the bridge explicitly exposed.
+    @NonNull
+    synchronized String register(@NonNull File file) {
+        String token = UUID.randomUUID().toString().replace("-", "");
+        files.put(token, file);
+        return ORIGIN + PATH_PREFIX + token + ".wav";
+    }
+
+    synchronized void clear() {
+        files.clear();
+    }
+
+    static boolean handles(@Nullable Uri uri) {
+        return uri != null && "https".equals(uri.getScheme()) && HOST.equals(uri.getHost());
+    }
+
+    // Called on the WebView network thread; returns null for requests outside the virtual origin.
+    @Nullable
+    WebResourceResponse intercept(@Nullable WebResourceRequest request) {
+        if (request == null || !handles(request.getUrl())) {
+            return null;
+        }
+        Map<String, String> requestHeaders = request.getRequestHeaders();
+        Map<String, String> headers = baseHeaders(header(requestHeaders, "Origin"));
+        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            headers.put("Access-Control-Allow-Methods", "GET, HEAD, OPTIONS");
+            headers.put("Access-Control-Allow-Headers", "Range");
+            return emptyResponse(204, "No Content", headers);
+        }
+        File file = lookup(request.getUrl().getPath());
+        if (file == null) {
+            return emptyResponse(404, "Not Found", headers);
+        }
+        if (completionProbe != null && !completionProbe.awaitComplete(file, completionTimeoutMs)) {
+            return emptyResponse(503, "Service Unavailable", headers);
+        }
+        long length = file.length();
+        if (!file.isFile() || length == 0) {
+            return emptyResponse(404, "Not Found", headers);
+        }
+        long[] range = parseRange(header(requestHeaders, "Range"), length);
+        if (range != null && range.length == 0) {
+            headers.put("Content-Range", "bytes */" + length);
+            return emptyResponse(416, "Range Not Satisfiable", headers);
+        }
+        long start = range != null ? range[0] : 0;
+        long end = range != null ? range[1] : length - 1;
+        InputStream body;
+        try {
+            body = new RangeInputStream(file, start, end - start + 1);
+        } catch (IOException ex) {
+            return emptyResponse(404, "Not Found", headers);
+        }
+        headers.put("Content-Length", String.valueOf(end - start + 1));
+        if (range != null) {
+            headers.put("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            return new WebResourceResponse(MIME_TYPE, null, 206, "Partial Content", headers, body);
+        }
+        return new WebResourceResponse(MIME_TYPE, null, 200, "OK", headers, body);
+    }
+
+    // Returns null when the whole file should be served, an empty array when the range is unsatisfiable.
+    @Nullable
+    static long[] parseRange(@Nullable String header, long length) {
+        if (header == null) {
+            return null;
+        }
+        String value = header.trim().toLowerCase(Locale.US);
+        if (!value.startsWith("bytes=") || value.indexOf(',') >= 0) {
+            return null;
+        }
+        int dash = value.indexOf('-', 6);
+        if (dash < 0) {
+            return null;
+        }
+        String first = value.substring(6, dash).trim();
+        String last = value.substring(dash + 1).trim();
+        try {
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return new long[0];
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private synchronized File lookup(@Nullable String path) {
+        if (path == null || !path.startsWith(PATH_PREFIX)) {
+            return null;
+        }
+        String name = path.substring(PATH_PREFIX.length());
+        int dot = name.indexOf('.');
+        String token = dot >= 0 ? name.substring(0, dot) : name;
+        return files.get(token);
+    }
+
+    @NonNull
+    private static Map<String, String> baseHeaders(@Nullable String origin) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Access-Control-Allow-Origin", origin != null ? origin : "*");
+        headers.put("Access-Control-Expose-Headers", "Content-Length, Content-Range, Accept-Ranges");
+        headers.put("Accept-Ranges", "bytes");
+        headers.put("Cache-Control", "no-store");
+        return headers;
+    }
+
+    @Nullable
+    private static String header(@Nullable Map<String, String> headers, @NonNull String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    @NonNull
+    private static WebResourceResponse emptyResponse(int status, @NonNull String reason, @NonNull Map<String, String> headers) {
+        return new WebResourceResponse(MIME_TYPE, null, status, reason, headers, new ByteArrayInputStream(new byte[0]));
+    }
+
+    // Reads lazily so the WebView can start decoding the first chunk before the rest is touched.
+    private static final class RangeInputStream extends InputStream {
+        private final FileInputStream input;
+        private long remaining;
+
+        RangeInputStream(@NonNull File file, long start, long length) throws IOException {
+            this.input = new FileInputStream(file);
+            this.remaining = length;
+            try {
+                input.getChannel().position(start);
+            } catch (IOException ex) {
+                input.close();
+                throw ex;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = input.read();
+            if (value >= 0) {
+                remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = input.read(buffer, offset, (int) Math.min(length, remaining));
+            if (count > 0) {
+                remaining -= count;
+            }
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(input.available(), remaining);
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.subtit.player.plugins;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class OverlayLoadTimings {
+    static final int PHASE_LOAD_URL = 0;
+    static final int PHASE_COMMIT_VISIBLE = 1;
+    static final int PHASE_FIRST_PAINT = 2;
+    static final int PHASE_PAGE_FINISHED = 3;
+    static final int PHASE_RUNTIME_READY = 4;
+    static final String[] PHASE_NAMES = {"loadUrl", "commitVisible", "firstPaint", "pageFinished", "runtimeReady"};
+
+    static final class Navigation {
+        final long id;
+        final String destination;
+        final String url;
+        final long startedAt;
+        final long[] phases = new long[PHASE_NAMES.length];
+
+        Navigation(long id, String destination, String url, long startedAt) {
+            this.id = id;
+            this.destination = destination;
+            this.url = url;
+            this.startedAt = startedAt;
+            Arrays.fill(phases, -1L);
+        }
+
+        long phase(int phase) {
+            return phases[phase];
+        }
+    }
+
+    static final class Summary {
+        final int count;
+        final long p50;
+        final long p90;
+        final long p99;
+        final long max;
+
+        Summary(int count, long p50, long p90, long p99, long max) {
+            this.count = count;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+    }
+
+    private final ArrayDeque<Navigation> history;
+    private final int capacity;
+    private long nextId = 1;
+    private long resumedShows = 0;
+
+    OverlayLoadTimings(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.history = new ArrayDeque<>(this.capacity);
+    }
+
+    synchronized Navigation begin(String destination, String url, long startedAt) {
+        if (history.size() >= capacity) {
+            history.removeFirst();
+        }
+        Navigation navigation = new Navigation(nextId++, destination, url, startedAt);
+        history.addLast(navigation);
+        return navigation;
+    }
+
+    synchronized boolean mark(Navigation navigation, int phase, long now) {
+        if (navigation == null || navigation.phases[phase] >= 0) {
+            return false;
+        }
+        navigation.phases[phase] = Math.max(0, now - navigation.startedAt);
+        return true;
+    }
+
+    synchronized void recordResume() {
+        resumedShows++;
+    }
+
+    synchronized long resumedShows() {
+        return resumedShows;
+    }
+
+    synchronized List<Navigation> history(String destination, int limit) {
+        List<Navigation> result = new ArrayList<>();
+        for (Navigation navigation : history) {
+            if (destination == null || destination.equals(navigation.destination)) {
+                result.add(navigation);
+            }
+        }
+        if (limit > 0 && result.size() > limit) {
+            return new ArrayList<>(result.subList(result.size() - limit, result.size()));
+        }
+        return result;
+    }
+
+    synchronized Summary summarize(int phase, String destination) {
+        long[] values = new long[history.size()];
+        int count = 0;
+        for (Navigation navigation : history) {
+            if (destination != null && !destination.equals(navigation.destination)) {
+                continue;
+            }
+            long value = navigation.phases[phase];
+            if (value >= 0) {
+                values[count++] = value;
+            }
+        }
+        if (count == 0) {
+            return new Summary(0, -1, -1, -1, -1);
+        }
+        Arrays.sort(values, 0, count);
+        return new Summary(count,
+                percentile(values, count, 0.50),
+                percentile(values, count, 0.90),
+                percentile(values, count, 0.99),
+                values[count - 1]);
+    }
+
+    synchronized void clear() {
+        history.clear();
+        resumedShows = 0;
+    }
+
+    static long percentile(long[] sorted, int count, double quantile) {
+        int rank = (int) Math.ceil(quantile * count);
+        int index = Math.min(count - 1, Math.max(0, rank - 1));
+        return sorted[index];
+    }
+}
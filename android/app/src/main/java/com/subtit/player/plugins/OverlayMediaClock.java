@@ -0,0 +1,126 @@
+package com.subtit.player.plugins;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class OverlayMediaClock {
+    static final int EVENT_SAMPLE = 0;
+    static final int EVENT_PLAY = 1;
+    static final int EVENT_PAUSE = 2;
+    static final int EVENT_SEEKED = 3;
+    static final int EVENT_RATE_CHANGE = 4;
+    static final int EVENT_ENDED = 5;
+    static final int EVENT_WAITING = 6;
+    static final String[] EVENT_NAMES = {"sample", "play", "pause", "seeked", "ratechange", "ended", "waiting"};
+
+    interface Listener {
+        void onMediaEvent(int event, double positionSeconds, double rate);
+    }
+
+    private static final class Sample {
+        final double position;
+        final double rate;
+        final double duration;
+        final long receivedAtNanos;
+
+        Sample(double position, double rate, double duration, long receivedAtNanos) {
+            this.position = position;
+            this.rate = rate;
+            this.duration = duration;
+            this.receivedAtNanos = receivedAtNanos;
+        }
+    }
+
+    private volatile Sample sample;
+    private volatile int lastEvent = -1;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong samplesReceived = new AtomicLong();
+    private final AtomicLong eventsReceived = new AtomicLong();
+
+    void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void update(int event, double position, double rate, double duration, long nowNanos) {
+        if (event < 0 || event >= EVENT_NAMES.length || Double.isNaN(position)) {
+            return;
+        }
+        double effectiveRate = event == EVENT_PAUSE || event == EVENT_ENDED || event == EVENT_WAITING
+                || Double.isNaN(rate) ? 0 : Math.max(0, rate);
+        sample = new Sample(Math.max(0, position), effectiveRate, Double.isNaN(duration) ? 0 : duration, nowNanos);
+        if (event == EVENT_SAMPLE) {
+            samplesReceived.incrementAndGet();
+            return;
+        }
+        lastEvent = event;
+        eventsReceived.incrementAndGet();
+        for (Listener listener : listeners) {
+            try {
+                listener.onMediaEvent(event, position, effectiveRate);
+            } catch (Exception ignored) {
+                // ignore listener errors to keep the timing channel flowing
+            }
+        }
+    }
+
+    double positionAt(long nowNanos) {
+        Sample current = sample;
+        if (current == null) {
+            return -1;
+        }
+        if (current.rate <= 0) {
+            return current.position;
+        }
+        double elapsed = Math.max(0, nowNanos - current.receivedAtNanos) / 1_000_000_000d;
+        double position = current.position + elapsed * current.rate;
+        if (current.duration > 0 && position > current.duration) {
+            return current.duration;
+        }
+        return position;
+    }
+
+    boolean hasSample() {
+        return sample != null;
+    }
+
+    boolean isPlaying() {
+        Sample current = sample;
+        return current != null && current.rate > 0;
+    }
+
+    double rate() {
+        Sample current = sample;
+        return current != null ? current.rate : 0;
+    }
+
+    double duration() {
+        Sample current = sample;
+        return current != null ? current.duration : 0;
+    }
+
+    long sampleAgeNanos(long nowNanos) {
+        Sample current = sample;
+        return current != null ? nowNanos - current.receivedAtNanos : -1;
+    }
+
+    int lastEvent() {
+        return lastEvent;
+    }
+
+    long samplesReceived() {
+        return samplesReceived.get();
+    }
+
+    long eventsReceived() {
+        return eventsReceived.get();
+    }
+
+    void reset() {
+        sample = null;
+        lastEvent = -1;
+    }
+}
@@ -0,0 +1,137 @@
+package com.subtit.player.plugins;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class OverlayWebViewPool<T> {
+    interface EvictionListener<T> {
+        void onEvicted(String key, T value);
+    }
+
+    private static final class Entry<T> {
+        final T value;
+        final long costBytes;
+
+        Entry(T value, long costBytes) {
+            this.value = value;
+            this.costBytes = costBytes;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry<T>> entries = new LinkedHashMap<>(8, 0.75f, true);
+    private final EvictionListener<T> evictionListener;
+    private int maxEntries;
+    private long budgetBytes;
+    private long usedBytes = 0;
+
+    OverlayWebViewPool(int maxEntries, long budgetBytes, EvictionListener<T> evictionListener) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.budgetBytes = Math.max(0, budgetBytes);
+        this.evictionListener = evictionListener;
+    }
+
+    T get(String key) {
+        Entry<T> entry = entries.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    void put(String key, T value, long costBytes) {
+        List<Map.Entry<String, T>> evicted = new ArrayList<>();
+        Entry<T> previous = entries.put(key, new Entry<>(value, costBytes));
+        usedBytes += costBytes;
+        if (previous != null) {
+            usedBytes -= previous.costBytes;
+            if (previous.value != value) {
+                evicted.add(new AbstractMap.SimpleEntry<>(key, previous.value));
+            }
+        }
+        collectOverflow(evicted);
+        notifyEvicted(evicted);
+    }
+
+    boolean evict(String key) {
+        Entry<T> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        usedBytes -= entry.costBytes;
+        if (evictionListener != null) {
+            evictionListener.onEvicted(key, entry.value);
+        }
+        return true;
+    }
+
+    void clear() {
+        List<Map.Entry<String, T>> evicted = new ArrayList<>();
+        for (Map.Entry<String, Entry<T>> entry : entries.entrySet()) {
+            evicted.add(new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().value));
+        }
+        entries.clear();
+        usedBytes = 0;
+        notifyEvicted(evicted);
+    }
+
+    void resize(int maxEntries, long budgetBytes) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.budgetBytes = Math.max(0, budgetBytes);
+        List<Map.Entry<String, T>> evicted = new ArrayList<>();
+        collectOverflow(evicted);
+        notifyEvicted(evicted);
+    }
+
+    List<String> keys() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    List<T> values() {
+        List<T> values = new ArrayList<>(entries.size());
+        for (Entry<T> entry : entries.values()) {
+            values.add(entry.value);
+        }
+        return values;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long usedBytes() {
+        return usedBytes;
+    }
+
+    int maxEntries() {
+        return maxEntries;
+    }
+
+    long budgetBytes() {
+        return budgetBytes;
+    }
+
+    private void collectOverflow(List<Map.Entry<String, T>> evicted) {
+        // The most recently used entry is always retained, even when it alone exceeds the budget.
+        Iterator<Map.Entry<String, Entry<T>>> iterator = entries.entrySet().iterator();
+        while (entries.size() > 1 && (entries.size() > maxEntries || usedBytes > budgetBytes) && iterator.hasNext()) {
+            Map.Entry<String, Entry<T>> eldest = iterator.next();
+            iterator.remove();
+            usedBytes -= eldest.getValue().costBytes;
+            evicted.add(new AbstractMap.SimpleEntry<>(eldest.getKey(), eldest.getValue().value));
+        }
+    }
+
+    private void notifyEvicted(List<Map.Entry<String, T>> evicted) {
+        if (evictionListener == null) {
+            return;
+        }
+        for (Map.Entry<String, T> entry : evicted) {
+            evictionListener.onEvicted(entry.getKey(), entry.getValue());
+        }
+    }
+}
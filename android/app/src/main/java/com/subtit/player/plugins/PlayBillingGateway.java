@@ -0,0 +1,183 @@
+package com.subtit.player.plugins;
+
+import android.app.Activity;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.billingclient.api.AcknowledgePurchaseParams;
+import com.android.billingclient.api.BillingClient;
+import com.android.billingclient.api.BillingClientStateListener;
+import com.android.billingclient.api.BillingFlowParams;
+import com.android.billingclient.api.BillingResult;
+import com.android.billingclient.api.ConsumeParams;
+import com.android.billingclient.api.ProductDetails;
+import com.android.billingclient.api.Purchase;
+import com.android.billingclient.api.QueryProductDetailsParams;
+import com.android.billingclient.api.QueryPurchasesParams;
+import com.subtit.player.core.BillingConnection;
+import com.subtit.player.core.BillingGateway;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+// BillingGateway backed by the Play BillingClient.
+final class PlayBillingGateway implements BillingGateway {
+    private final BillingClient client;
+    private final Supplier<Activity> activitySupplier;
+    private volatile PurchasesListener purchasesListener;
+
+    PlayBillingGateway(@NonNull Context context, @NonNull Supplier<Activity> activitySupplier) {
+        this.activitySupplier = activitySupplier;
+        this.client = BillingClient.newBuilder(context)
+                .enablePendingPurchases()
+                .setListener(this::onPurchasesUpdated)
+                .build();
+    }
+
+    @Override
+    public void startConnection(BillingConnection.SetupListener listener) {
+        client.startConnection(new BillingClientStateListener() {
+            @Override
+            public void onBillingSetupFinished(@NonNull BillingResult billingResult) {
+                listener.onSetupFinished(billingResult.getResponseCode(), billingResult.getDebugMessage());
+            }
+
+            @Override
+            public void onBillingServiceDisconnected() {
+                listener.onDisconnected();
+            }
+        });
+    }
+
+    @Override
+    public void endConnection() {
+        client.endConnection();
+    }
+
+    @Override
+    public void setPurchasesListener(PurchasesListener listener) {
+        purchasesListener = listener;
+    }
+
+    @Override
+    public void queryProducts(String type, List<String> productIds, ProductsCallback callback) {
+        List<QueryProductDetailsParams.Product> products = new ArrayList<>();
+        for (String productId : productIds) {
+            products.add(QueryProductDetailsParams.Product.newBuilder()
+                    .setProductId(productId)
+                    .setProductType(type)
+                    .build());
+        }
+        QueryProductDetailsParams params = QueryProductDetailsParams.newBuilder()
+                .setProductList(products)
+                .build();
+        client.queryProductDetailsAsync(params, (billingResult, detailsList) -> {
+            List<Product> result = new ArrayList<>();
+            if (detailsList != null) {
+                for (ProductDetails details : detailsList) {
+                    result.add(toProduct(details));
+                }
+            }
+            callback.onResult(billingResult.getResponseCode(), billingResult.getDebugMessage(), result);
+        });
+    }
+
+    @Override
+    public void launchPurchase(Product product, @Nullable String offerToken, ResultCallback callback) {
+        Activity activity = activitySupplier.get();
+        if (activity == null) {
+            callback.onResult(DEVELOPER_ERROR, "Activity not available");
+            return;
+        }
+        BillingFlowParams.ProductDetailsParams.Builder paramsBuilder =
+                BillingFlowParams.ProductDetailsParams.newBuilder()
+                        .setProductDetails((ProductDetails) product.handle);
+        if (offerToken != null) {
+            paramsBuilder.setOfferToken(offerToken);
+        }
+        BillingFlowParams flowParams = BillingFlowParams.newBuilder()
+                .setProductDetailsParamsList(Collections.singletonList(paramsBuilder.build()))
+                .build();
+        BillingResult result = client.launchBillingFlow(activity, flowParams);
+        callback.onResult(result.getResponseCode(), result.getDebugMessage());
+    }
+
+    @Override
+    public void queryPurchases(String type, PurchasesCallback callback) {
+        QueryPurchasesParams params = QueryPurchasesParams.newBuilder()
+                .setProductType(type)
+                .build();
+        client.queryPurchasesAsync(params, (billingResult, purchases) ->
+                callback.onResult(billingResult.getResponseCode(), billingResult.getDebugMessage(), toRecords(purchases)));
+    }
+
+    @Override
+    public void consume(String purchaseToken, ResultCallback callback) {
+        ConsumeParams params = ConsumeParams.newBuilder()
+                .setPurchaseToken(purchaseToken)
+                .build();
+        client.consumeAsync(params, (billingResult, outToken) ->
+                callback.onResult(billingResult.getResponseCode(), billingResult.getDebugMessage()));
+    }
+
+    @Override
+    public void acknowledge(String purchaseToken, ResultCallback callback) {
+        AcknowledgePurchaseParams params = AcknowledgePurchaseParams.newBuilder()
+                .setPurchaseToken(purchaseToken)
+                .build();
+        client.acknowledgePurchase(params, billingResult ->
+                callback.onResult(billingResult.getResponseCode(), billingResult.getDebugMessage()));
+    }
+
+    private void onPurchasesUpdated(@NonNull BillingResult billingResult, @Nullable List<Purchase> purchases) {
+        PurchasesListener listener = purchasesListener;
+        if (listener != null) {
+            listener.onPurchasesUpdated(billingResult.getResponseCode(), billingResult.getDebugMessage(),
+                    purchases != null ? toRecords(purchases) : null);
+        }
+    }
+
+    private static List<PurchaseRecord> toRecords(@Nullable List<Purchase> purchases) {
+        List<PurchaseRecord> records = new ArrayList<>();
+        if (purchases == null) {
+            return records;
+        }
+        for (Purchase purchase : purchases) {
+            int state = purchase.getPurchaseState() == Purchase.PurchaseState.PURCHASED
+                    ? PURCHASE_STATE_PURCHASED
+                    : purchase.getPurchaseState() == Purchase.PurchaseState.PENDING ? PURCHASE_STATE_PENDING : 0;
+            records.add(new PurchaseRecord(purchase.getProducts(), purchase.getPurchaseToken(), purchase.getOrderId(),
+                    purchase.getPurchaseTime(), state, purchase.isAcknowledged(), purchase.isAutoRenewing()));
+        }
+        return records;
+    }
+
+    private static Product toProduct(ProductDetails details) {
+        PricingPhase oneTimePrice = null;
+        ProductDetails.OneTimePurchaseOfferDetails oneTime = details.getOneTimePurchaseOfferDetails();
+        if (oneTime != null) {
+            oneTimePrice = new PricingPhase(oneTime.getFormattedPrice(), oneTime.getPriceAmountMicros(),
+                    oneTime.getPriceCurrencyCode(), null, 0, 0);
+        }
+        List<Offer> offers = null;
+        List<ProductDetails.SubscriptionOfferDetails> subscriptionOffers = details.getSubscriptionOfferDetails();
+        if (subscriptionOffers != null) {
+            offers = new ArrayList<>();
+            for (ProductDetails.SubscriptionOfferDetails offer : subscriptionOffers) {
+                List<PricingPhase> phases = new ArrayList<>();
+                for (ProductDetails.PricingPhase phase : offer.getPricingPhases().getPricingPhaseList()) {
+                    phases.add(new PricingPhase(phase.getFormattedPrice(), phase.getPriceAmountMicros(),
+                            phase.getPriceCurrencyCode(), phase.getBillingPeriod(), phase.getBillingCycleCount(),
+                            phase.getRecurrenceMode()));
+                }
+                offers.add(new Offer(offer.getBasePlanId(), offer.getOfferId(), offer.getOfferToken(), phases));
+            }
+        }
+        return new Product(details.getProductId(), details.getProductType(), details.getTitle(), details.getName(),
+                details.getDescription(), oneTimePrice, offers, details);
+    }
+}
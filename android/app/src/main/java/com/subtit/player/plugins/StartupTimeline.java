@@ -0,0 +1,114 @@
+package com.subtit.player.plugins;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class StartupTimeline {
+    private static final String TAG = "StartupTimeline";
+    private static final int MAX_PHASES = 64;
+    private static final StartupTimeline INSTANCE = new StartupTimeline();
+
+    private static final class Phase {
+        final String name;
+        final long startMs;
+        long endMs = -1;
+        String detail;
+
+        Phase(String name, long startMs) {
+            this.name = name;
+            this.startMs = startMs;
+        }
+    }
+
+    // Falls back to class load time where the platform cannot report the process start.
+    private final long originMs;
+    private final boolean originIsProcessStart;
+    private final List<Phase> phases = new ArrayList<>();
+    private final Map<String, Phase> open = new LinkedHashMap<>();
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+
+    private StartupTimeline() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            originMs = Process.getStartElapsedRealtime();
+            originIsProcessStart = true;
+        } else {
+            originMs = SystemClock.elapsedRealtime();
+            originIsProcessStart = false;
+        }
+    }
+
+    @NonNull
+    public static StartupTimeline getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void begin(@NonNull String name) {
+        if (open.containsKey(name) || phases.size() >= MAX_PHASES) {
+            return;
+        }
+        Phase phase = new Phase(name, SystemClock.elapsedRealtime());
+        open.put(name, phase);
+        phases.add(phase);
+    }
+
+    public void end(@NonNull String name) {
+        end(name, null);
+    }
+
+    public synchronized void end(@NonNull String name, @Nullable String detail) {
+        Phase phase = open.remove(name);
+        if (phase == null) {
+            return;
+        }
+        phase.endMs = SystemClock.elapsedRealtime();
+        phase.detail = detail;
+        Log.i(TAG, name + " took " + (phase.endMs - phase.startMs) + "ms" + (detail != null ? " (" + detail + ")" : ""));
+    }
+
+    // Records a point in time once; later marks with the same name are ignored.
+    public synchronized void mark(@NonNull String name) {
+        if (marks.containsKey(name)) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        marks.put(name, now);
+        Log.i(TAG, name + " at +" + (now - originMs) + "ms");
+    }
+
+    @NonNull
+    public synchronized JSObject snapshot() {
+        JSArray phaseList = new JSArray();
+        for (Phase phase : phases) {
+            JSObject item = new JSObject();
+            item.put("name", phase.name);
+            item.put("startMs", phase.startMs - originMs);
+            item.put("durationMs", phase.endMs >= 0 ? phase.endMs - phase.startMs : -1);
+            if (phase.detail != null) {
+                item.put("detail", phase.detail);
+            }
+            phaseList.put(item);
+        }
+        JSObject markValues = new JSObject();
+        for (Map.Entry<String, Long> entry : marks.entrySet()) {
+            markValues.put(entry.getKey(), entry.getValue() - originMs);
+        }
+        JSObject result = new JSObject();
+        result.put("origin", originIsProcessStart ? "processStart" : "classLoad");
+        result.put("phases", phaseList);
+        result.put("marks", markValues);
+        return result;
+    }
+}
@@ -0,0 +1,462 @@
+package com.subtit.player.plugins;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.subtit.player.core.Pcm16;
+import com.subtit.player.core.PcmStream;
+import com.subtit.player.core.TimeStretcher;
+import com.subtit.player.core.WavHeader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+// Plays a synthesized WAV or a live synthesis stream through AudioTrack, time-stretched on the way so
+// the speed can change while it plays without going back to the engine. One source at a time; a new
+// play replaces the old one.
+final class StretchedAudioPlayer {
+    static final String STATE_PLAYING = "playing";
+    static final String STATE_PAUSED = "paused";
+    static final String STATE_DONE = "done";
+    static final String STATE_STOPPED = "stopped";
+    static final String STATE_ERROR = "error";
+
+    // Small chunks keep a speed change audible within a few tens of milliseconds.
+    private static final int CHUNK_MS = 20;
+    private static final int TRACK_BUFFER_MS = 120;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final long DRAIN_TIMEOUT_MS = 2000;
+
+    interface Listener {
+        void onState(@NonNull String state, long positionMs, @Nullable String message);
+
+        void onProgress(long positionMs, long durationMs, float speed);
+    }
+
+    interface StartCallback {
+        void onStarted(@NonNull WavHeader header);
+
+        void onFailed(@NonNull String message);
+    }
+
+    private final Listener listener;
+    private final Object lock = new Object();
+    private Playback current;
+
+    StretchedAudioPlayer(@NonNull Listener listener) {
+        this.listener = listener;
+    }
+
+    // ready runs on the playback thread before the file is opened, e.g. to wait for synthesis to finish.
+    void play(@NonNull File file, float speed, long startMs, @Nullable Runnable ready, @NonNull StartCallback callback) {
+        start(new Playback(new FileSource(file), speed, startMs, ready, callback));
+    }
+
+    // Starts as soon as the stream's format is known and plays while the engine is still producing
+    // audio. Stopping the playback cancels the stream.
+    void play(@NonNull PcmStream stream, float speed, long formatTimeoutMs, @NonNull StartCallback callback) {
+        start(new Playback(new StreamSource(stream, formatTimeoutMs), speed, 0, null, callback));
+    }
+
+    private void start(Playback playback) {
+        synchronized (lock) {
+            if (current != null) {
+                // The replacement reports its own state; a late "stopped" from this one would confuse listeners.
+                current.replaced = true;
+                current.cancel();
+            }
+            current = playback;
+        }
+        playback.thread.start();
+    }
+
+    void setSpeed(float speed) {
+        Playback playback = active();
+        if (playback != null) {
+            playback.speed = speed;
+        }
+    }
+
+    boolean pause() {
+        Playback playback = active();
+        return playback != null && playback.setPaused(true);
+    }
+
+    boolean resume() {
+        Playback playback = active();
+        return playback != null && playback.setPaused(false);
+    }
+
+    boolean stop() {
+        Playback playback;
+        synchronized (lock) {
+            playback = current;
+            current = null;
+        }
+        if (playback == null) {
+            return false;
+        }
+        playback.cancel();
+        return true;
+    }
+
+    long positionMs() {
+        Playback playback = active();
+        return playback != null ? playback.positionMs() : 0;
+    }
+
+    @Nullable
+    private Playback active() {
+        synchronized (lock) {
+            return current;
+        }
+    }
+
+    private void finished(Playback playback) {
+        synchronized (lock) {
+            if (current == playback) {
+                current = null;
+            }
+        }
+    }
+
+    // Where a playback's PCM comes from.
+    private interface Source {
+        @NonNull
+        WavHeader open() throws IOException;
+
+        // Moves to startMs where the source allows it and returns the frame reached.
+        long seek(long startMs) throws IOException;
+
+        // Up to length bytes of whole frames; 0 when nothing arrived in time, -1 at the end.
+        int read(byte[] buffer, int length) throws IOException;
+
+        // Total frames, or -1 while still unknown.
+        long totalFrames();
+
+        void close();
+    }
+
+    private static final class FileSource implements Source {
+        private final File file;
+        private RandomAccessFile input;
+        private WavHeader header;
+        private long frame;
+
+        FileSource(File file) {
+            this.file = file;
+        }
+
+        @NonNull
+        @Override
+        public WavHeader open() throws IOException {
+            try {
+                input = new RandomAccessFile(file, "r");
+            } catch (IOException ex) {
+                throw new IOException("Cannot open " + file.getName() + ": " + ex.getMessage(), ex);
+            }
+            header = WavHeader.read(input);
+            return header;
+        }
+
+        @Override
+        public long seek(long startMs) throws IOException {
+            frame = Math.min(header.frames(), startMs * header.sampleRate / 1000);
+            input.seek(header.dataOffset + frame * header.frameSize());
+            return frame;
+        }
+
+        @Override
+        public int read(byte[] buffer, int length) throws IOException {
+            int frames = (int) Math.min(length / header.frameSize(), header.frames() - frame);
+            if (frames <= 0) {
+                return -1;
+            }
+            input.readFully(buffer, 0, frames * header.frameSize());
+            frame += frames;
+            return frames * header.frameSize();
+        }
+
+        @Override
+        public long totalFrames() {
+            return header.frames();
+        }
+
+        @Override
+        public void close() {
+            if (input != null) {
+                closeQuietly(input);
+            }
+        }
+    }
+
+    private static final class StreamSource implements Source {
+        private final PcmStream stream;
+        private final long formatTimeoutMs;
+        private int frameSize = 1;
+
+        StreamSource(PcmStream stream, long formatTimeoutMs) {
+            this.stream = stream;
+            this.formatTimeoutMs = formatTimeoutMs;
+        }
+
+        @NonNull
+        @Override
+        public WavHeader open() throws IOException {
+            try {
+                WavHeader header = stream.awaitFormat(formatTimeoutMs);
+                frameSize = Math.max(1, header.frameSize());
+                return header;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", ex);
+            }
+        }
+
+        @Override
+        public long seek(long startMs) {
+            return 0;
+        }
+
+        @Override
+        public int read(byte[] buffer, int length) throws IOException {
+            try {
+                // Waiting no longer than a chunk keeps pause and stop responsive during an underrun.
+                return stream.read(buffer, 0, length, CHUNK_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", ex);
+            }
+        }
+
+        @Override
+        public long totalFrames() {
+            return stream.isFinished() ? stream.bytesWritten() / frameSize : -1;
+        }
+
+        @Override
+        public void close() {
+            stream.cancel();
+        }
+    }
+
+    private final class Playback implements Runnable {
+        final Thread thread;
+        final Source source;
+        final long startMs;
+        final Runnable ready;
+        final StartCallback callback;
+        volatile float speed;
+        volatile boolean cancelled;
+        volatile boolean replaced;
+        private boolean paused;
+        private volatile long sourceFrame;
+        private volatile int sampleRate = 1;
+
+        Playback(Source source, float speed, long startMs, Runnable ready, StartCallback callback) {
+            this.source = source;
+            this.speed = speed;
+            this.startMs = Math.max(0, startMs);
+            this.ready = ready;
+            this.callback = callback;
+            this.thread = new Thread(this, "StretchedAudio");
+        }
+
+        void cancel() {
+            cancelled = true;
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        synchronized boolean setPaused(boolean value) {
+            if (paused == value || cancelled) {
+                return false;
+            }
+            paused = value;
+            notifyAll();
+            return true;
+        }
+
+        long positionMs() {
+            return sourceFrame * 1000L / sampleRate;
+        }
+
+        @Override
+        public void run() {
+            if (ready != null) {
+                ready.run();
+            }
+            if (cancelled) {
+                fail("Playback stopped");
+                return;
+            }
+            WavHeader header;
+            AudioTrack track;
+            try {
+                header = source.open();
+                if (!header.isPcm16() || header.channels < 1 || header.channels > 2) {
+                    throw new IOException("Only 16-bit mono or stereo PCM can be played");
+                }
+                track = createTrack(header);
+            } catch (IOException | IllegalArgumentException | UnsupportedOperationException ex) {
+                source.close();
+                fail(ex.getMessage() != null ? ex.getMessage() : "Playback failed");
+                return;
+            }
+            sampleRate = header.sampleRate;
+            callback.onStarted(header);
+            String state = STATE_DONE;
+            String message = null;
+            try {
+                stream(header, track);
+                if (cancelled) {
+                    state = STATE_STOPPED;
+                }
+            } catch (IOException | IllegalStateException ex) {
+                state = STATE_ERROR;
+                message = ex.getMessage();
+            } finally {
+                track.release();
+                source.close();
+                finished(this);
+            }
+            if (!replaced) {
+                listener.onState(state, positionMs(), message);
+            }
+        }
+
+        private void stream(WavHeader header, AudioTrack track) throws IOException {
+            int channels = header.channels;
+            int frameSize = header.frameSize();
+            long frame = source.seek(startMs);
+            sourceFrame = frame;
+
+            int chunkFrames = Math.max(1, header.sampleRate * CHUNK_MS / 1000);
+            byte[] bytes = new byte[chunkFrames * frameSize];
+            short[] samples = new short[chunkFrames * channels];
+            short[] out = new short[chunkFrames * channels * 4];
+            TimeStretcher stretcher = new TimeStretcher(header.sampleRate, channels);
+            long sourceStart = frame;
+            long written = 0;
+            long lastProgressAt = 0;
+            track.play();
+            listener.onState(STATE_PLAYING, positionMs(), null);
+            boolean ended = false;
+            while (!cancelled && !ended) {
+                if (!awaitResume(track)) {
+                    break;
+                }
+                stretcher.setSpeed(speed);
+                int length = source.read(bytes, bytes.length);
+                if (length > 0) {
+                    int frames = length / frameSize;
+                    Pcm16.toShorts(bytes, 0, length, samples, 0);
+                    stretcher.write(samples, 0, frames);
+                    frame += frames;
+                } else if (length < 0) {
+                    stretcher.flush();
+                    ended = true;
+                }
+                int read;
+                while (!cancelled && (read = stretcher.read(out, 0, out.length / channels)) > 0) {
+                    int result = track.write(out, 0, read * channels);
+                    if (result < 0) {
+                        throw new IllegalStateException("AudioTrack write failed: " + result);
+                    }
+                    written += read;
+                }
+                // Output still queued in the track was produced from input at roughly the current speed.
+                long unplayed = Math.max(0, written - (track.getPlaybackHeadPosition() & 0xFFFFFFFFL));
+                long consumed = sourceStart + stretcher.framesIn() - stretcher.pendingInputFrames();
+                sourceFrame = Math.max(sourceStart, Math.min(frame, consumed - (long) (unplayed * stretcher.speed())));
+                long now = SystemClock.elapsedRealtime();
+                if (now - lastProgressAt >= PROGRESS_INTERVAL_MS) {
+                    lastProgressAt = now;
+                    // A stream's length is only known once synthesis is over; 0 until then.
+                    long totalFrames = source.totalFrames();
+                    long durationMs = totalFrames >= 0 ? totalFrames * 1000L / header.sampleRate : 0;
+                    listener.onProgress(positionMs(), durationMs, stretcher.speed());
+                }
+            }
+            if (cancelled) {
+                track.pause();
+                track.flush();
+                return;
+            }
+            // In streaming mode stop() lets the queued audio play out.
+            track.stop();
+            long deadline = SystemClock.elapsedRealtime() + DRAIN_TIMEOUT_MS;
+            while (!cancelled && (track.getPlaybackHeadPosition() & 0xFFFFFFFFL) < written
+                    && SystemClock.elapsedRealtime() < deadline) {
+                SystemClock.sleep(CHUNK_MS);
+            }
+            sourceFrame = frame;
+        }
+
+        // Blocks while paused; false once cancelled.
+        private boolean awaitResume(AudioTrack track) {
+            synchronized (this) {
+                if (!paused) {
+                    return !cancelled;
+                }
+                track.pause();
+                listener.onState(STATE_PAUSED, positionMs(), null);
+                while (paused && !cancelled) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+            if (cancelled) {
+                return false;
+            }
+            track.play();
+            listener.onState(STATE_PLAYING, positionMs(), null);
+            return true;
+        }
+
+        private void fail(String message) {
+            finished(this);
+            callback.onFailed(message);
+        }
+    }
+
+    @NonNull
+    private static AudioTrack createTrack(WavHeader header) {
+        int channelMask = header.channels == 2 ? AudioFormat.CHANNEL_OUT_STEREO : AudioFormat.CHANNEL_OUT_MONO;
+        AudioFormat format = new AudioFormat.Builder()
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setSampleRate(header.sampleRate)
+                .setChannelMask(channelMask)
+                .build();
+        int minBuffer = AudioTrack.getMinBufferSize(header.sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT);
+        int buffer = Math.max(minBuffer, header.byteRate() * TRACK_BUFFER_MS / 1000);
+        return new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build())
+                .setAudioFormat(format)
+                .setBufferSizeInBytes(buffer)
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .build();
+    }
+
+    private static void closeQuietly(RandomAccessFile input) {
+        try {
+            input.close();
+        } catch (IOException ignored) {
+            // nothing to recover
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.subtit.player.benchmarks;
+
+import com.subtit.player.core.BridgeJsonReader;
+import com.subtit.player.core.BridgeJsonWriter;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Mirrors the overlay bridge: requests arrive as JSON strings, events leave as a dispatch script.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class BridgeJsonBenchmark {
+    private String request;
+    private String batch;
+    private JSONObject eventData;
+
+    @Setup
+    public void setUp() throws JSONException {
+        request = "{\"type\":\"request\",\"id\":\"req-1842\",\"plugin\":\"NativeTTS\",\"method\":\"speak\","
+                + "\"timeoutMs\":15000,\"params\":{\"text\":\"" + Fixtures.text("prose", 600).replace("\"", "'")
+                + "\",\"voiceId\":\"en-us-x-sfg-local\",\"rate\":1.1,\"pitch\":1.0,\"queue\":true}}";
+        StringBuilder calls = new StringBuilder("{\"type\":\"batch\",\"id\":\"batch-7\",\"calls\":[");
+        for (int i = 0; i < 8; i++) {
+            if (i > 0) {
+                calls.append(',');
+            }
+            calls.append("{\"id\":\"c").append(i).append("\",\"plugin\":\"NativeTTS\",\"method\":\"getVoices\",\"params\":{}}");
+        }
+        batch = calls.append("]}").toString();
+        eventData = new JSONObject()
+                .put("utteranceId", "utt-1842|3/12")
+                .put("start", 1204)
+                .put("end", 1290)
+                .put("frame", 77)
+                .put("text", "the quick brown fox");
+    }
+
+    @Benchmark
+    public BridgeJsonReader.Message readRequest() throws JSONException {
+        return BridgeJsonReader.readMessage(request);
+    }
+
+    @Benchmark
+    public JSONObject readRequestParams() throws JSONException {
+        return BridgeJsonReader.readMessage(request).params();
+    }
+
+    @Benchmark
+    public BridgeJsonReader.Message readBatch() throws JSONException {
+        return BridgeJsonReader.readMessage(batch);
+    }
+
+    @Benchmark
+    public String writeEvent() {
+        return BridgeJsonWriter.obtain()
+                .raw("window.__nativeOverlayDispatch && window.__nativeOverlayDispatch(")
+                .beginObject()
+                .name("type").value("event")
+                .name("event").value("rangeStart")
+                .name("data").value(eventData)
+                .endObject()
+                .raw(");")
+                .finish();
+    }
+
+    // Baseline the writer replaced: build a JSONObject and stringify it.
+    @Benchmark
+    public String writeEventWithJsonObject() throws JSONException {
+        JSONObject message = new JSONObject()
+                .put("type", "event")
+                .put("event", "rangeStart")
+                .put("data", eventData);
+        return "window.__nativeOverlayDispatch && window.__nativeOverlayDispatch(" + message + ");";
+    }
+}
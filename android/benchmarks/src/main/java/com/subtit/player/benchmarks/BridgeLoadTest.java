@@ -0,0 +1,385 @@
+package com.subtit.player.benchmarks;
+
+import com.subtit.player.core.BridgeRequestQueue;
+import com.subtit.player.core.OverlayBridge;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drives the overlay bridge end to end on the JVM: page messages go through the fake
+// @JavascriptInterface onto the fake main thread, requests run on the real BridgeRequestQueue, and
+// responses/events come back as dispatch scripts that the fake WebView evaluates.
+//
+//   ./gradlew :benchmarks:bridgeLoadTest -PloadTestArgs="--requests=20000 --window=24 --debugHook=false"
+public final class BridgeLoadTest {
+    static final class Options {
+        int requests = 5000;
+        int events = 20000;
+        int warmup = 3000;
+        // Outstanding requests from the page; the app's runtime allows twice the queue capacity.
+        int window = 16;
+        int eventWindow = 64;
+        int queueCapacity = 32;
+        int voices = 40;
+        long serviceMicros = 0;
+        // Mirrors emitDebug: every debug line is serialized for notifyListeners.
+        boolean debugHook = true;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "requests": options.requests = Integer.parseInt(value); break;
+                    case "events": options.events = Integer.parseInt(value); break;
+                    case "warmup": options.warmup = Integer.parseInt(value); break;
+                    case "window": options.window = Integer.parseInt(value); break;
+                    case "eventWindow": options.eventWindow = Integer.parseInt(value); break;
+                    case "queueCapacity": options.queueCapacity = Integer.parseInt(value); break;
+                    case "voices": options.voices = Integer.parseInt(value); break;
+                    case "serviceMicros": options.serviceMicros = Long.parseLong(value); break;
+                    case "debugHook": options.debugHook = Boolean.parseBoolean(value); break;
+                    default: throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            return options;
+        }
+    }
+
+    private static final class Recorder {
+        private final long[] values;
+        private final AtomicInteger count = new AtomicInteger();
+
+        Recorder(int capacity) {
+            values = new long[Math.max(1, capacity)];
+        }
+
+        void record(long value) {
+            int index = count.getAndIncrement();
+            if (index < values.length) {
+                values[index] = value;
+            }
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(values, Math.min(count.get(), values.length));
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private static final class PhaseResult {
+        String name;
+        long messages;
+        long elapsedNanos;
+        long allocatedBytes;
+        long[] requestLatencies;
+        long[] eventLatencies;
+        long errors;
+        long shed;
+        long debugCalls;
+        long mainTasks;
+        long mainBusyNanos;
+        long mainLongTasks;
+        long mainMaxTaskNanos;
+    }
+
+    private final Options options;
+    private final FakeWebView page;
+    private final OverlayBridge<FakeWebView> bridge;
+    private final BridgeRequestQueue queue;
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong debugCalls = new AtomicLong();
+    private final Semaphore requestWindow;
+    private final Semaphore eventWindow;
+    private volatile Recorder requestLatencies = new Recorder(0);
+    private volatile Recorder eventLatencies = new Recorder(0);
+    private volatile CountDownLatch responsesLeft = new CountDownLatch(0);
+    private volatile CountDownLatch eventsLeft = new CountDownLatch(0);
+
+    private BridgeLoadTest(Options options) {
+        this.options = options;
+        this.requestWindow = new Semaphore(options.window);
+        this.eventWindow = new Semaphore(options.eventWindow);
+        this.queue = new BridgeRequestQueue("OverlayBridge", options.queueCapacity);
+        this.page = new FakeWebView("load-test", this::onDispatch);
+        this.bridge = new OverlayBridge<>(queue, new FakeHost());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        BridgeLoadTest test = new BridgeLoadTest(options);
+        try {
+            test.run();
+        } finally {
+            test.page.destroy();
+            test.queue.shutdown();
+        }
+    }
+
+    private void run() throws InterruptedException {
+        System.out.printf(Locale.US, "overlay bridge load test: requests=%d events=%d window=%d queueCapacity=%d voices=%d serviceMicros=%d debugHook=%s%n",
+                options.requests, options.events, options.window, options.queueCapacity, options.voices,
+                options.serviceMicros, options.debugHook);
+        phase("warmup", options.warmup, options.warmup * 2);
+        print(phase("requests", options.requests, 0));
+        print(phase("events", 0, options.events));
+        print(phase("mixed", options.requests, options.events));
+    }
+
+    private PhaseResult phase(String name, int requests, int events) throws InterruptedException {
+        requestLatencies = new Recorder(requests);
+        eventLatencies = new Recorder(events);
+        responsesLeft = new CountDownLatch(requests);
+        eventsLeft = new CountDownLatch(events);
+        errors.set(0);
+        debugCalls.set(0);
+        page.resetStats();
+        long shedBefore = queue.shed();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        Thread emitter = new Thread(() -> emitEvents(events), "TextToSpeech");
+        emitter.start();
+        sendRequests(requests);
+        emitter.join();
+        if (!responsesLeft.await(60, TimeUnit.SECONDS) || !eventsLeft.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(name + ": timed out waiting for dispatches, pending=" + pending.size());
+        }
+
+        PhaseResult result = new PhaseResult();
+        result.name = name;
+        result.elapsedNanos = System.nanoTime() - start;
+        result.allocatedBytes = allocatedBytes() - allocatedBefore;
+        result.messages = requests + events;
+        result.requestLatencies = requestLatencies.sorted();
+        result.eventLatencies = eventLatencies.sorted();
+        result.errors = errors.get();
+        result.shed = queue.shed() - shedBefore;
+        result.debugCalls = debugCalls.get();
+        result.mainTasks = page.tasks();
+        result.mainBusyNanos = page.busyNanos();
+        result.mainLongTasks = page.longTasks();
+        result.mainMaxTaskNanos = page.maxTaskNanos();
+        return result;
+    }
+
+    // Runs on the caller thread, which plays the WebView's JavaBridge thread.
+    private void sendRequests(int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            requestWindow.acquire();
+            String id = String.valueOf(nextId.incrementAndGet());
+            String message;
+            switch (i % 10) {
+                case 7:
+                case 8:
+                    message = request(id, "getVoices");
+                    break;
+                case 9:
+                    message = "{\"type\":\"batch\",\"id\":\"" + id + "\",\"timeoutMs\":15000,\"calls\":["
+                            + "{\"plugin\":\"NativeTTS\",\"method\":\"isAvailable\",\"params\":{}},"
+                            + "{\"plugin\":\"NativeTTS\",\"method\":\"getVoices\",\"params\":{}},"
+                            + "{\"plugin\":\"NativeTTS\",\"method\":\"getEngines\",\"params\":{}},"
+                            + "{\"plugin\":\"NativeTTS\",\"method\":\"missing\",\"params\":{}}]}";
+                    break;
+                default:
+                    message = request(id, "isAvailable");
+            }
+            pending.put(id, System.nanoTime());
+            page.postMessage(bridge, message);
+        }
+    }
+
+    private static String request(String id, String method) {
+        return "{\"type\":\"request\",\"id\":\"" + id + "\",\"plugin\":\"NativeTTS\",\"method\":\"" + method
+                + "\",\"params\":{},\"timeoutMs\":15000}";
+    }
+
+    // Plays the TTS engine thread firing rangeStart callbacks into an external listener.
+    private void emitEvents(int count) {
+        try {
+            for (int i = 0; i < count; i++) {
+                eventWindow.acquire();
+                JSONObject data = new JSONObject()
+                        .put("utteranceId", "utt-" + (i / 40))
+                        .put("start", i * 6)
+                        .put("end", i * 6 + 5)
+                        .put("frame", i % 40)
+                        .put("sentAt", System.nanoTime());
+                bridge.sendEvent(page, "NativeTTS", "rangeStart", data);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void onDispatch(JSONObject message, long evaluatedAt) {
+        String type = message.optString("type");
+        if ("response".equals(type)) {
+            Long sentAt = pending.remove(message.optString("id"));
+            if (sentAt == null) {
+                return;
+            }
+            if (message.has("error")) {
+                errors.incrementAndGet();
+            }
+            requestLatencies.record(evaluatedAt - sentAt);
+            requestWindow.release();
+            responsesLeft.countDown();
+        } else if ("event".equals(type)) {
+            JSONObject data = message.optJSONObject("data");
+            if (data != null) {
+                eventLatencies.record(evaluatedAt - data.optLong("sentAt", evaluatedAt));
+            }
+            eventWindow.release();
+            eventsLeft.countDown();
+        }
+    }
+
+    private final class FakeHost implements OverlayBridge.Host<FakeWebView> {
+        @Override
+        public boolean supportsPlugin(String plugin) {
+            return "NativeTTS".equals(plugin);
+        }
+
+        @Override
+        public JSONObject invoke(FakeWebView page, String plugin, String method, JSONObject params) {
+            spin(options.serviceMicros);
+            try {
+                switch (method) {
+                    case "isAvailable":
+                        return new JSONObject().put("available", true);
+                    case "getVoices":
+                        return new JSONObject().put("voices", voices(options.voices));
+                    case "getEngines":
+                        return new JSONObject().put("engines", new JSONArray()
+                                .put(new JSONObject().put("name", "com.google.android.tts").put("label", "Speech Services"))
+                                .put(new JSONObject().put("name", "com.samsung.SMT").put("label", "Samsung TTS")));
+                    default:
+                        throw new IllegalArgumentException("Unsupported method " + method);
+                }
+            } catch (JSONException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void addListener(FakeWebView page, String plugin, String event, String listenerId) {
+        }
+
+        @Override
+        public void removeListener(FakeWebView page, String listenerId) {
+        }
+
+        @Override
+        public void debug(String message) {
+            debugCalls.incrementAndGet();
+            if (options.debugHook) {
+                try {
+                    new JSONObject().put("message", message).toString();
+                } catch (JSONException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private static JSONArray voices(int count) throws JSONException {
+        JSONArray voices = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            voices.put(new JSONObject()
+                    .put("id", "en-us-x-voice" + i + "-local")
+                    .put("name", "en-us-x-voice" + i + "-local")
+                    .put("locale", i % 2 == 0 ? "en-US" : "en-GB")
+                    .put("quality", 400)
+                    .put("latency", 200)
+                    .put("networkRequired", i % 5 == 0));
+        }
+        return voices;
+    }
+
+    private static void spin(long micros) {
+        if (micros <= 0) {
+            return;
+        }
+        long end = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+
+    // Allocation across all live threads; the queue worker and main thread outlive every phase.
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    private static void print(PhaseResult result) {
+        double seconds = result.elapsedNanos / 1e9;
+        System.out.printf(Locale.US, "%n[%s] %d messages in %.2f s -> %.0f msg/s%n",
+                result.name, result.messages, seconds, result.messages / seconds);
+        if (result.requestLatencies.length > 0) {
+            printLatencies("request round trip", result.requestLatencies);
+        }
+        if (result.eventLatencies.length > 0) {
+            printLatencies("event dispatch", result.eventLatencies);
+        }
+        System.out.printf(Locale.US, "  allocation        %s/message%n",
+                result.allocatedBytes < 0 ? "n/a" : formatBytes(result.allocatedBytes / Math.max(1, result.messages)));
+        System.out.printf(Locale.US, "  main thread       %d tasks, %.1f%% busy, %d over 16 ms, longest %.2f ms%n",
+                result.mainTasks, 100.0 * result.mainBusyNanos / result.elapsedNanos, result.mainLongTasks,
+                result.mainMaxTaskNanos / 1e6);
+        System.out.printf(Locale.US, "  errors            %d (shed %d), debug lines %.1f/message%n",
+                result.errors, result.shed, (double) result.debugCalls / Math.max(1, result.messages));
+    }
+
+    private static void printLatencies(String label, long[] sorted) {
+        System.out.printf(Locale.US, "  %-17s p50 %s  p90 %s  p99 %s  p99.9 %s  max %s%n", label,
+                formatMicros(percentile(sorted, 0.50)), formatMicros(percentile(sorted, 0.90)),
+                formatMicros(percentile(sorted, 0.99)), formatMicros(percentile(sorted, 0.999)),
+                formatMicros(sorted[sorted.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String formatMicros(long nanos) {
+        return String.format(Locale.US, "%.0fus", nanos / 1e3);
+    }
+
+    private static String formatBytes(long bytes) {
+        return bytes < 10 * 1024 ? bytes + " B" : String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+    }
+}
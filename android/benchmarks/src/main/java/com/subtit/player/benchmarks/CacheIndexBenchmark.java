@@ -0,0 +1,48 @@
+package com.subtit.player.benchmarks;
+
+import com.subtit.player.core.CacheIndex;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Covers the in-memory half of cache usage and quota enforcement; the file walk is I/O bound.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class CacheIndexBenchmark {
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Param({"1000", "20000"})
+    public int files;
+
+    private List<CacheIndex.Entry> entries;
+
+    @Setup
+    public void setUp() {
+        entries = Fixtures.cacheEntries(files, NOW);
+    }
+
+    @Benchmark
+    public Map<String, CacheIndex.Usage> summarize() {
+        return CacheIndex.summarize(entries);
+    }
+
+    @Benchmark
+    public List<CacheIndex.Entry> selectQuotaVictims() {
+        return CacheIndex.selectQuotaVictims(entries, CacheIndex.CATEGORY_TTS_AUDIO, 50L * 1024 * 1024, 5 * 60_000L, NOW);
+    }
+}
@@ -0,0 +1,141 @@
+package com.subtit.player.benchmarks;
+
+import com.subtit.player.core.OverlayBridge;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stands in for an overlay WebView: a single "main" thread plays the Looper (every postMessage and
+// evaluateJavascript hops onto it, as in the app), and evaluating a dispatch script parses the JSON
+// the way the page runtime would before handing it to the sink.
+final class FakeWebView implements OverlayBridge.Page {
+    static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    interface Sink {
+        void onDispatch(JSONObject message, long evaluatedAtNanos);
+    }
+
+    private final String id;
+    private final Sink sink;
+    private final BlockingQueue<Runnable> looper = new ArrayBlockingQueue<>(1 << 16);
+    private final Thread mainThread;
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong longTasks = new AtomicLong();
+    private final AtomicLong maxTaskNanos = new AtomicLong();
+    private final AtomicLong tasks = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+    private volatile boolean destroyed = false;
+
+    FakeWebView(String id, Sink sink) {
+        this.id = id;
+        this.sink = sink;
+        this.mainThread = new Thread(this::loop, "main");
+        this.mainThread.setDaemon(true);
+        this.mainThread.start();
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    @Override
+    public void evaluate(String script) {
+        post(() -> evaluateNow(script));
+    }
+
+    // The @JavascriptInterface side: LocationBridge.postMessage posts the raw string to the main thread.
+    void postMessage(OverlayBridge<FakeWebView> bridge, String message) {
+        post(() -> bridge.handleMessage(this, message));
+    }
+
+    void post(Runnable task) {
+        try {
+            looper.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long mainThreadId() {
+        return mainThread.getId();
+    }
+
+    long busyNanos() {
+        return busyNanos.get();
+    }
+
+    long longTasks() {
+        return longTasks.get();
+    }
+
+    long maxTaskNanos() {
+        return maxTaskNanos.get();
+    }
+
+    long tasks() {
+        return tasks.get();
+    }
+
+    long malformed() {
+        return malformed.get();
+    }
+
+    void resetStats() {
+        busyNanos.set(0);
+        longTasks.set(0);
+        maxTaskNanos.set(0);
+        tasks.set(0);
+        malformed.set(0);
+    }
+
+    void destroy() {
+        destroyed = true;
+        mainThread.interrupt();
+    }
+
+    private void evaluateNow(String script) {
+        String prefix = OverlayBridge.DISPATCH_PREFIX;
+        String suffix = OverlayBridge.DISPATCH_SUFFIX;
+        if (!script.startsWith(prefix) || !script.endsWith(suffix)) {
+            malformed.incrementAndGet();
+            return;
+        }
+        try {
+            JSONObject message = new JSONObject(script.substring(prefix.length(), script.length() - suffix.length()));
+            sink.onDispatch(message, System.nanoTime());
+        } catch (JSONException e) {
+            malformed.incrementAndGet();
+        }
+    }
+
+    private void loop() {
+        while (!destroyed) {
+            Runnable task;
+            try {
+                task = looper.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long start = System.nanoTime();
+            task.run();
+            long elapsed = System.nanoTime() - start;
+            tasks.incrementAndGet();
+            busyNanos.addAndGet(elapsed);
+            if (elapsed > FRAME_BUDGET_NANOS) {
+                longTasks.incrementAndGet();
+            }
+            maxTaskNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+}
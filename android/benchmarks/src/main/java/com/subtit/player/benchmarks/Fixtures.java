@@ -0,0 +1,77 @@
+package com.subtit.player.benchmarks;
+
+import com.subtit.player.core.CacheIndex;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic inputs so runs on different machines measure the same work.
+final class Fixtures {
+    private static final String[] WORDS = {
+            "the", "narrator", "paused", "before", "turning", "page", "quietly", "river", "light", "remembered",
+            "winter", "station", "a", "of", "and", "whispered", "letters", "across", "evening", "distant"
+    };
+
+    private Fixtures() {
+    }
+
+    static String text(String shape, int length) {
+        Random random = new Random(42);
+        StringBuilder out = new StringBuilder(length + 16);
+        if ("unbroken".equals(shape)) {
+            while (out.length() < length) {
+                out.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+        } else {
+            int wordsInSentence = 0;
+            while (out.length() < length) {
+                out.append(WORDS[random.nextInt(WORDS.length)]);
+                wordsInSentence++;
+                if (wordsInSentence > 6 && random.nextInt(8) == 0) {
+                    out.append(random.nextInt(4) == 0 ? "? " : ". ");
+                    wordsInSentence = 0;
+                } else if (random.nextInt(10) == 0) {
+                    out.append(", ");
+                } else {
+                    out.append(' ');
+                }
+                if (random.nextInt(400) == 0) {
+                    out.append('\n');
+                }
+            }
+        }
+        out.setLength(length);
+        return out.toString();
+    }
+
+    static List<CacheIndex.Entry> cacheEntries(int count, long nowMs) {
+        Random random = new Random(7);
+        File root = new File("/cache");
+        List<CacheIndex.Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String category = CacheIndex.CATEGORIES[random.nextInt(CacheIndex.CATEGORIES.length)];
+            long length = 1024L + random.nextInt(512 * 1024);
+            long age = (long) random.nextInt(14 * 24 * 60) * 60_000L;
+            entries.add(new CacheIndex.Entry(new File(root, category + "/f" + i), category, length, nowMs - age));
+        }
+        return entries;
+    }
+
+    // Synthetic speech-like PCM: bursts of a modulated tone separated by near-silence.
+    static byte[] pcm(int sampleRate, int seconds) {
+        Random random = new Random(3);
+        int samples = sampleRate * seconds;
+        byte[] data = new byte[samples * 2];
+        for (int i = 0; i < samples; i++) {
+            boolean voiced = (i / (sampleRate / 4)) % 3 != 2;
+            double value = voiced
+                    ? Math.sin(i * 2 * Math.PI * 180 / sampleRate) * 9000 * (0.6 + 0.4 * Math.sin(i * 0.0007))
+                    : random.nextGaussian() * 20;
+            int sample = (int) value;
+            data[i * 2] = (byte) sample;
+            data[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        return data;
+    }
+}
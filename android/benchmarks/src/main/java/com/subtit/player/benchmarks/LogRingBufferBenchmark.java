@@ -0,0 +1,45 @@
+package com.subtit.player.benchmarks;
+
+import com.subtit.player.core.LogRingBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class LogRingBufferBenchmark {
+    private final LogRingBuffer buffer = new LogRingBuffer(500);
+    private String message;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.add("[12:00:00.000] warmup " + i);
+        }
+        message = "[12:00:01.250] onRangeStart utt-1842 1204-1290";
+    }
+
+    // Steady state once the buffer is full: every add evicts the oldest entry.
+    @Benchmark
+    public void addWhenFull() {
+        buffer.add(message);
+    }
+
+    @Benchmark
+    public List<String> snapshot() {
+        return buffer.snapshot();
+    }
+}
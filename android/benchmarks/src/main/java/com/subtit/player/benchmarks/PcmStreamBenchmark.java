@@ -0,0 +1,70 @@
+package com.subtit.player.benchmarks;
+
+import com.subtit.player.core.PcmStream;
+import com.subtit.player.core.WavHeader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class PcmStreamBenchmark {
+    private static final int SAMPLE_RATE = 22050;
+    // The playback thread's chunk size.
+    private static final int CHUNK_BYTES = SAMPLE_RATE / 50 * 2;
+
+    @Param({"16384", "262144"})
+    public int capacity;
+
+    private byte[] wav;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] pcm = Fixtures.pcm(SAMPLE_RATE, 10);
+        byte[] header = WavHeader.canonical(WavHeader.FORMAT_PCM, 1, SAMPLE_RATE, 16, 0);
+        wav = new byte[header.length + pcm.length];
+        System.arraycopy(header, 0, wav, 0, header.length);
+        System.arraycopy(pcm, 0, wav, header.length, pcm.length);
+    }
+
+    // Ten seconds of synthesis output pumped through the ring buffer while a second thread reads it
+    // in playback-sized chunks; the cost of keeping synthesis in memory instead of a cache file.
+    @Benchmark
+    public long pumpTenSeconds() throws Exception {
+        PcmStream stream = new PcmStream("bench", capacity);
+        Thread writer = new Thread(() -> {
+            try {
+                stream.pump(new ByteArrayInputStream(wav));
+                // What onDone does for an engine.
+                stream.finish();
+            } catch (IOException ignored) {
+                // reported through the stream
+            }
+        });
+        writer.start();
+        byte[] chunk = new byte[CHUNK_BYTES];
+        long total = 0;
+        int read;
+        while ((read = stream.read(chunk, 0, chunk.length, 1000)) != -1) {
+            total += read;
+        }
+        writer.join();
+        return total;
+    }
+}
@@ -0,0 +1,44 @@
+package com.subtit.player.benchmarks;
+
+import com.subtit.player.core.TextChunker;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class TextChunkerBenchmark {
+    @Param({"prose", "unbroken"})
+    public String shape;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = Fixtures.text(shape, 64 * 1024);
+    }
+
+    @Benchmark
+    public List<TextChunker.Chunk> splitForSpeech() {
+        return TextChunker.split(text, 3999);
+    }
+
+    @Benchmark
+    public List<TextChunker.Chunk> splitForLookAhead() {
+        return TextChunker.split(text, 400);
+    }
+}
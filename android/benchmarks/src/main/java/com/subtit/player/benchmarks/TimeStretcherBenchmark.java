@@ -0,0 +1,64 @@
+package com.subtit.player.benchmarks;
+
+import com.subtit.player.core.Pcm16;
+import com.subtit.player.core.TimeStretcher;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class TimeStretcherBenchmark {
+    private static final int SAMPLE_RATE = 22050;
+    // Matches the chunk size the playback thread feeds in.
+    private static final int CHUNK_FRAMES = SAMPLE_RATE / 50;
+
+    @Param({"0.75", "1.5", "2.5"})
+    public float speed;
+
+    private short[] samples;
+    private short[] out;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] pcm = Fixtures.pcm(SAMPLE_RATE, 10);
+        samples = new short[pcm.length / 2];
+        Pcm16.toShorts(pcm, 0, pcm.length, samples, 0);
+        out = new short[CHUNK_FRAMES * 8];
+    }
+
+    // Ten seconds of speech in playback-sized chunks; well under 10 s per op means real time is easy.
+    @Benchmark
+    public long stretchTenSeconds() {
+        TimeStretcher stretcher = new TimeStretcher(SAMPLE_RATE, 1);
+        stretcher.setSpeed(speed);
+        long produced = 0;
+        for (int offset = 0; offset < samples.length; offset += CHUNK_FRAMES) {
+            stretcher.write(samples, offset, Math.min(CHUNK_FRAMES, samples.length - offset));
+            int read;
+            while ((read = stretcher.read(out, 0, out.length)) > 0) {
+                produced += read;
+            }
+        }
+        stretcher.flush();
+        int read;
+        while ((read = stretcher.read(out, 0, out.length)) > 0) {
+            produced += read;
+        }
+        return produced;
+    }
+}
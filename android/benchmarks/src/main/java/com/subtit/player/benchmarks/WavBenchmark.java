@@ -0,0 +1,67 @@
+package com.subtit.player.benchmarks;
+
+import com.subtit.player.core.Pcm16;
+import com.subtit.player.core.WavHeader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class WavBenchmark {
+    private static final int SAMPLE_RATE = 22050;
+    private static final int WINDOW_FRAMES = SAMPLE_RATE / 50;
+
+    private byte[] pcm;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pcm = Fixtures.pcm(SAMPLE_RATE, 10);
+        file = File.createTempFile("bench", ".wav");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(WavHeader.canonical(WavHeader.FORMAT_PCM, 1, SAMPLE_RATE, 16, pcm.length));
+            out.write(pcm);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public WavHeader readHeader() throws IOException {
+        return WavHeader.read(file);
+    }
+
+    // 20 ms energy windows over ten seconds of audio, the granularity used for silence detection.
+    @Benchmark
+    public int energyScan() {
+        int voiced = 0;
+        int frames = pcm.length / 2;
+        for (int frame = 0; frame + WINDOW_FRAMES <= frames; frame += WINDOW_FRAMES) {
+            if (Pcm16.toDecibels(Pcm16.meanSquare(pcm, frame * 2, WINDOW_FRAMES, 1)) > -45) {
+                voiced++;
+            }
+        }
+        return voiced;
+    }
+}
@@ -0,0 +1,277 @@
+package com.subtit.player.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Keeps a billing service connection warm and runs operations once it is up. Concurrent callers
+// share a single startConnection; operations queue while connecting and fail only when setup fails
+// with a non-retriable code or the retry budget is spent. Lost connections come back with
+// exponential backoff while keepWarm is set.
+public final class BillingConnection {
+    public enum State { DISCONNECTED, CONNECTING, CONNECTED, BACKING_OFF, CLOSED }
+
+    // BillingClient.BillingResponseCode values the retry policy looks at.
+    public static final int CODE_SERVICE_TIMEOUT = -3;
+    public static final int CODE_SERVICE_DISCONNECTED = -1;
+    public static final int CODE_OK = 0;
+    public static final int CODE_SERVICE_UNAVAILABLE = 2;
+    public static final int CODE_BILLING_UNAVAILABLE = 3;
+    public static final int CODE_ERROR = 6;
+    public static final int CODE_NETWORK_ERROR = 12;
+
+    private static final long INITIAL_BACKOFF_MS = 1_000L;
+    private static final long MAX_BACKOFF_MS = 60_000L;
+    // Queued operations give up after this many failed attempts; the connection itself keeps trying.
+    private static final int MAX_ATTEMPTS_FOR_WAITERS = 4;
+
+    public interface Connector {
+        void startConnection(SetupListener listener);
+
+        void endConnection();
+    }
+
+    public interface SetupListener {
+        void onSetupFinished(int responseCode, String debugMessage);
+
+        void onDisconnected();
+    }
+
+    public interface Operation {
+        void run();
+
+        void fail(int responseCode, String message);
+    }
+
+    public interface StateListener {
+        void onStateChanged(State state, int attempt);
+    }
+
+    private final Connector connector;
+    private final ScheduledExecutorService scheduler;
+    private final ArrayDeque<Operation> waiting = new ArrayDeque<>();
+    private State state = State.DISCONNECTED;
+    private int attempt = 0;
+    private int session = 0;
+    private boolean keepWarm = false;
+    private ScheduledFuture<?> retry;
+    private StateListener stateListener;
+
+    public BillingConnection(Connector connector, ScheduledExecutorService scheduler) {
+        this.connector = connector;
+        this.scheduler = scheduler;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized boolean isConnected() {
+        return state == State.CONNECTED;
+    }
+
+    public synchronized void setStateListener(StateListener listener) {
+        this.stateListener = listener;
+    }
+
+    // While set, a lost connection is re-established without waiting for the next operation.
+    public void setKeepWarm(boolean value) {
+        boolean connect;
+        synchronized (this) {
+            keepWarm = value;
+            connect = value && state == State.DISCONNECTED;
+        }
+        if (connect) {
+            connect();
+        }
+    }
+
+    public void connect() {
+        execute(null);
+    }
+
+    // Runs the operation on the calling thread if connected, otherwise once setup completes.
+    public void execute(Operation operation) {
+        boolean runNow = false;
+        boolean start = false;
+        boolean closed = false;
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                closed = true;
+            } else if (state == State.CONNECTED) {
+                runNow = operation != null;
+            } else {
+                if (operation != null) {
+                    waiting.add(operation);
+                }
+                if (state == State.DISCONNECTED) {
+                    start = true;
+                } else if (state == State.BACKING_OFF && operation != null) {
+                    // Someone is waiting now; retry straight away rather than sitting out the backoff.
+                    cancelRetryLocked();
+                    start = true;
+                }
+                if (start) {
+                    transitionLocked(State.CONNECTING);
+                }
+            }
+        }
+        if (closed) {
+            if (operation != null) {
+                operation.fail(CODE_SERVICE_DISCONNECTED, "Billing connection closed");
+            }
+        } else if (runNow) {
+            operation.run();
+        } else if (start) {
+            startConnection();
+        }
+    }
+
+    // Reports that the service dropped in the middle of an operation, e.g. a SERVICE_DISCONNECTED
+    // result, so the next operation reconnects instead of failing again.
+    public void onServiceDisconnected() {
+        handleDisconnected(session());
+    }
+
+    public void close() {
+        List<Operation> failed;
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            cancelRetryLocked();
+            session++;
+            transitionLocked(State.CLOSED);
+            failed = drainLocked();
+        }
+        connector.endConnection();
+        for (Operation operation : failed) {
+            operation.fail(CODE_SERVICE_DISCONNECTED, "Billing connection closed");
+        }
+    }
+
+    public static boolean isRetriable(int responseCode) {
+        return responseCode == CODE_SERVICE_TIMEOUT
+                || responseCode == CODE_SERVICE_DISCONNECTED
+                || responseCode == CODE_SERVICE_UNAVAILABLE
+                || responseCode == CODE_ERROR
+                || responseCode == CODE_NETWORK_ERROR;
+    }
+
+    static long backoffDelayMs(int attempt) {
+        long delay = INITIAL_BACKOFF_MS << Math.min(16, Math.max(0, attempt - 1));
+        return Math.min(MAX_BACKOFF_MS, delay);
+    }
+
+    private synchronized int session() {
+        return session;
+    }
+
+    private void startConnection() {
+        final int current;
+        synchronized (this) {
+            current = ++session;
+        }
+        connector.startConnection(new SetupListener() {
+            @Override
+            public void onSetupFinished(int responseCode, String debugMessage) {
+                handleSetupFinished(current, responseCode, debugMessage);
+            }
+
+            @Override
+            public void onDisconnected() {
+                handleDisconnected(current);
+            }
+        });
+    }
+
+    private void handleSetupFinished(int owner, int responseCode, String debugMessage) {
+        List<Operation> ready = null;
+        List<Operation> failed = null;
+        synchronized (this) {
+            if (owner != session || state != State.CONNECTING) {
+                return;
+            }
+            if (responseCode == CODE_OK) {
+                attempt = 0;
+                transitionLocked(State.CONNECTED);
+                ready = drainLocked();
+            } else {
+                attempt++;
+                boolean retriable = isRetriable(responseCode);
+                if (!retriable || attempt >= MAX_ATTEMPTS_FOR_WAITERS) {
+                    failed = drainLocked();
+                }
+                if (retriable && (keepWarm || !waiting.isEmpty())) {
+                    scheduleRetryLocked();
+                } else {
+                    transitionLocked(State.DISCONNECTED);
+                }
+            }
+        }
+        if (ready != null) {
+            for (Operation operation : ready) {
+                operation.run();
+            }
+        }
+        if (failed != null) {
+            String message = "Billing setup failed: " + debugMessage;
+            for (Operation operation : failed) {
+                operation.fail(responseCode, message);
+            }
+        }
+    }
+
+    private void handleDisconnected(int owner) {
+        synchronized (this) {
+            if (owner != session || state != State.CONNECTED) {
+                return;
+            }
+            if (keepWarm) {
+                attempt = 1;
+                scheduleRetryLocked();
+            } else {
+                transitionLocked(State.DISCONNECTED);
+            }
+        }
+    }
+
+    private void scheduleRetryLocked() {
+        cancelRetryLocked();
+        transitionLocked(State.BACKING_OFF);
+        final int owner = session;
+        retry = scheduler.schedule(() -> {
+            synchronized (BillingConnection.this) {
+                if (owner != session || state != State.BACKING_OFF) {
+                    return;
+                }
+                retry = null;
+                transitionLocked(State.CONNECTING);
+            }
+            startConnection();
+        }, backoffDelayMs(attempt), TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelRetryLocked() {
+        if (retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
+    }
+
+    private List<Operation> drainLocked() {
+        List<Operation> drained = new ArrayList<>(waiting);
+        waiting.clear();
+        return drained;
+    }
+
+    private void transitionLocked(State next) {
+        state = next;
+        if (stateListener != null) {
+            stateListener.onStateChanged(next, attempt);
+        }
+    }
+}
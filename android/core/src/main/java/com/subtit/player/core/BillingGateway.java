@@ -0,0 +1,133 @@
+package com.subtit.player.core;
+
+import java.util.Collections;
+import java.util.List;
+
+// The slice of the Play BillingClient the purchases plugin uses, with plain value types so the
+// purchase flow can run against BillingSimulator on the JVM. Codes, product types and purchase
+// states carry the Play Billing values. Callbacks may arrive on any thread.
+public interface BillingGateway extends BillingConnection.Connector {
+    String TYPE_INAPP = "inapp";
+    String TYPE_SUBS = "subs";
+
+    int OK = BillingConnection.CODE_OK;
+    int USER_CANCELED = 1;
+    int ITEM_UNAVAILABLE = 4;
+    int DEVELOPER_ERROR = 5;
+    int ERROR = BillingConnection.CODE_ERROR;
+    int ITEM_ALREADY_OWNED = 7;
+    int ITEM_NOT_OWNED = 8;
+    int SERVICE_DISCONNECTED = BillingConnection.CODE_SERVICE_DISCONNECTED;
+
+    int PURCHASE_STATE_PURCHASED = 1;
+    int PURCHASE_STATE_PENDING = 2;
+
+    interface PurchasesListener {
+        void onPurchasesUpdated(int responseCode, String debugMessage, List<PurchaseRecord> purchases);
+    }
+
+    interface ProductsCallback {
+        void onResult(int responseCode, String debugMessage, List<Product> products);
+    }
+
+    interface PurchasesCallback {
+        void onResult(int responseCode, String debugMessage, List<PurchaseRecord> purchases);
+    }
+
+    interface ResultCallback {
+        void onResult(int responseCode, String debugMessage);
+    }
+
+    final class PricingPhase {
+        public final String price;
+        public final long priceMicros;
+        public final String currency;
+        public final String billingPeriod;
+        public final int billingCycleCount;
+        public final int recurrenceMode;
+
+        public PricingPhase(String price, long priceMicros, String currency, String billingPeriod,
+                            int billingCycleCount, int recurrenceMode) {
+            this.price = price;
+            this.priceMicros = priceMicros;
+            this.currency = currency;
+            this.billingPeriod = billingPeriod;
+            this.billingCycleCount = billingCycleCount;
+            this.recurrenceMode = recurrenceMode;
+        }
+    }
+
+    final class Offer {
+        public final String basePlanId;
+        public final String offerId;
+        public final String offerToken;
+        public final List<PricingPhase> pricingPhases;
+
+        public Offer(String basePlanId, String offerId, String offerToken, List<PricingPhase> pricingPhases) {
+            this.basePlanId = basePlanId;
+            this.offerId = offerId;
+            this.offerToken = offerToken;
+            this.pricingPhases = Collections.unmodifiableList(pricingPhases);
+        }
+    }
+
+    final class Product {
+        public final String productId;
+        public final String type;
+        public final String title;
+        public final String name;
+        public final String description;
+        // One-time price; null for subscriptions.
+        public final PricingPhase oneTimePrice;
+        // Null for one-time products.
+        public final List<Offer> offers;
+        // The gateway's own product object, handed back on launch.
+        public final Object handle;
+
+        public Product(String productId, String type, String title, String name, String description,
+                       PricingPhase oneTimePrice, List<Offer> offers, Object handle) {
+            this.productId = productId;
+            this.type = type;
+            this.title = title;
+            this.name = name;
+            this.description = description;
+            this.oneTimePrice = oneTimePrice;
+            this.offers = offers != null ? Collections.unmodifiableList(offers) : null;
+            this.handle = handle;
+        }
+    }
+
+    final class PurchaseRecord {
+        public final List<String> products;
+        public final String purchaseToken;
+        public final String orderId;
+        public final long purchaseTime;
+        public final int purchaseState;
+        public final boolean acknowledged;
+        public final boolean autoRenewing;
+
+        public PurchaseRecord(List<String> products, String purchaseToken, String orderId, long purchaseTime,
+                              int purchaseState, boolean acknowledged, boolean autoRenewing) {
+            this.products = Collections.unmodifiableList(products);
+            this.purchaseToken = purchaseToken;
+            this.orderId = orderId;
+            this.purchaseTime = purchaseTime;
+            this.purchaseState = purchaseState;
+            this.acknowledged = acknowledged;
+            this.autoRenewing = autoRenewing;
+        }
+    }
+
+    void setPurchasesListener(PurchasesListener listener);
+
+    void queryProducts(String type, List<String> productIds, ProductsCallback callback);
+
+    // Opens the purchase sheet; the outcome arrives through the PurchasesListener. Call on the UI thread.
+    void launchPurchase(Product product, String offerToken, ResultCallback callback);
+
+    void queryPurchases(String type, PurchasesCallback callback);
+
+    void consume(String purchaseToken, ResultCallback callback);
+
+    void acknowledge(String purchaseToken, ResultCallback callback);
+}
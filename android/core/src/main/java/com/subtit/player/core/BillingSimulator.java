@@ -0,0 +1,361 @@
+package com.subtit.player.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Local stand-in for Play Billing. Every call answers on a single "main" thread after a configured
+// latency, the way BillingClient delivers its callbacks. Error codes can be queued per operation and
+// the service can drop at random or on demand; operations while disconnected fail with
+// SERVICE_DISCONNECTED. Purchases are owned by the simulator until consumed.
+public final class BillingSimulator implements BillingGateway {
+    public enum Operation { CONNECT, QUERY_PRODUCTS, LAUNCH, PURCHASE, QUERY_PURCHASES, CONSUME, ACKNOWLEDGE }
+
+    public static final class Config {
+        public long connectLatencyMs = 150;
+        public long queryProductsLatencyMs = 250;
+        // Time for the sheet to appear after launch.
+        public long launchLatencyMs = 80;
+        // Time the user spends on the sheet before the result is delivered.
+        public long userLatencyMs = 400;
+        public long queryPurchasesLatencyMs = 120;
+        public long consumeLatencyMs = 200;
+        public long acknowledgeLatencyMs = 200;
+        // Chance that the service drops right before an operation runs.
+        public double disconnectProbability = 0;
+        public long seed = 1;
+        // New purchases stay PENDING (e.g. cash payments) instead of PURCHASED.
+        public boolean pendingPurchases = false;
+        public List<Product> products = defaultProducts();
+    }
+
+    public static List<Product> defaultProducts() {
+        PricingPhase pro = new PricingPhase("$4.99", 4_990_000L, "USD", null, 0, 3);
+        PricingPhase credits = new PricingPhase("$0.99", 990_000L, "USD", null, 0, 3);
+        PricingPhase trial = new PricingPhase("Free", 0L, "USD", "P1W", 1, 2);
+        PricingPhase monthly = new PricingPhase("$1.99", 1_990_000L, "USD", "P1M", 0, 1);
+        return Arrays.asList(
+                new Product("id_pro", TYPE_INAPP, "Pro (Sim)", "Pro", "Unlock everything", pro, null, null),
+                new Product("id_d_1", TYPE_INAPP, "Credits (Sim)", "Credits", "A pack of credits", credits, null, null),
+                new Product("premium_month_1", TYPE_SUBS, "Premium (Sim)", "Premium", "Monthly premium", null,
+                        Collections.singletonList(new Offer("monthly", "trial", "offer-token-monthly", Arrays.asList(trial, monthly))),
+                        null));
+    }
+
+    private final Config config;
+    private final ScheduledExecutorService main;
+    private final Random random;
+    private final Map<Operation, ArrayDeque<Integer>> injected = new EnumMap<>(Operation.class);
+    private final Map<Operation, Integer> counts = new EnumMap<>(Operation.class);
+    private final List<PurchaseRecord> owned = new ArrayList<>();
+    private final Map<String, String> ownedTypes = new HashMap<>();
+    private PurchasesListener purchasesListener;
+    private BillingConnection.SetupListener setupListener;
+    private boolean connected = false;
+    private boolean sheetOpen = false;
+    private int nextOrder = 1;
+
+    public BillingSimulator(Config config) {
+        this.config = config;
+        this.random = new Random(config.seed);
+        this.main = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BillingSimulator-main");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Operation operation : Operation.values()) {
+            injected.put(operation, new ArrayDeque<>());
+            counts.put(operation, 0);
+        }
+    }
+
+    // The next call of the operation answers with this code instead of running.
+    public synchronized void failNext(Operation operation, int responseCode) {
+        injected.get(operation).add(responseCode);
+    }
+
+    public synchronized int count(Operation operation) {
+        return counts.get(operation);
+    }
+
+    public synchronized boolean isConnected() {
+        return connected;
+    }
+
+    // Drops the service connection as Play does when its process dies.
+    public void disconnect() {
+        BillingConnection.SetupListener listener;
+        synchronized (this) {
+            if (!connected) {
+                return;
+            }
+            connected = false;
+            listener = setupListener;
+        }
+        if (listener != null) {
+            main.execute(listener::onDisconnected);
+        }
+    }
+
+    // Adds a purchase the user already owns, e.g. one made on another device.
+    public synchronized PurchaseRecord grant(String productId, boolean acknowledged) {
+        PurchaseRecord record = new PurchaseRecord(Collections.singletonList(productId), "token-" + nextOrder,
+                "GPA.SIM-" + nextOrder, System.currentTimeMillis(), PURCHASE_STATE_PURCHASED, acknowledged, false);
+        nextOrder++;
+        owned.add(record);
+        ownedTypes.put(record.purchaseToken, typeOf(productId));
+        return record;
+    }
+
+    public synchronized List<PurchaseRecord> ownedPurchases() {
+        return new ArrayList<>(owned);
+    }
+
+    public void shutdown() {
+        main.shutdownNow();
+    }
+
+    @Override
+    public void startConnection(BillingConnection.SetupListener listener) {
+        Integer code;
+        synchronized (this) {
+            setupListener = listener;
+            code = begin(Operation.CONNECT, false);
+        }
+        final int result = code != null ? code : OK;
+        after(config.connectLatencyMs, () -> {
+            synchronized (this) {
+                if (setupListener != listener) {
+                    return;
+                }
+                connected = result == OK;
+            }
+            listener.onSetupFinished(result, result == OK ? "" : "Simulated setup failure " + result);
+        });
+    }
+
+    @Override
+    public void endConnection() {
+        synchronized (this) {
+            connected = false;
+            setupListener = null;
+        }
+    }
+
+    @Override
+    public synchronized void setPurchasesListener(PurchasesListener listener) {
+        this.purchasesListener = listener;
+    }
+
+    @Override
+    public void queryProducts(String type, List<String> productIds, ProductsCallback callback) {
+        Integer code;
+        List<Product> found = new ArrayList<>();
+        synchronized (this) {
+            code = begin(Operation.QUERY_PRODUCTS, true);
+            for (Product product : config.products) {
+                if (product.type.equals(type) && productIds.contains(product.productId)) {
+                    found.add(product);
+                }
+            }
+        }
+        after(config.queryProductsLatencyMs, () -> {
+            if (code != null) {
+                callback.onResult(code, message(code), Collections.emptyList());
+            } else {
+                callback.onResult(OK, "", found);
+            }
+        });
+    }
+
+    @Override
+    public void launchPurchase(Product product, String offerToken, ResultCallback callback) {
+        Integer code;
+        synchronized (this) {
+            code = begin(Operation.LAUNCH, true);
+            if (code == null && sheetOpen) {
+                code = DEVELOPER_ERROR;
+            }
+            if (code == null) {
+                sheetOpen = true;
+            }
+        }
+        // launchBillingFlow answers synchronously; only the sheet itself takes time.
+        callback.onResult(code != null ? code : OK, code != null ? message(code) : "");
+        if (code != null) {
+            return;
+        }
+        after(config.launchLatencyMs + config.userLatencyMs, () -> deliverPurchase(product));
+    }
+
+    private void deliverPurchase(Product product) {
+        Integer code;
+        PurchaseRecord record = null;
+        PurchasesListener listener;
+        synchronized (this) {
+            sheetOpen = false;
+            listener = purchasesListener;
+            code = begin(Operation.PURCHASE, false);
+            if (code == null && TYPE_INAPP.equals(product.type) && ownedProduct(product.productId) != null) {
+                code = ITEM_ALREADY_OWNED;
+            }
+            if (code == null) {
+                int state = config.pendingPurchases ? PURCHASE_STATE_PENDING : PURCHASE_STATE_PURCHASED;
+                record = new PurchaseRecord(Collections.singletonList(product.productId), "token-" + nextOrder,
+                        "GPA.SIM-" + nextOrder, System.currentTimeMillis(), state, false, TYPE_SUBS.equals(product.type));
+                nextOrder++;
+                owned.add(record);
+                ownedTypes.put(record.purchaseToken, product.type);
+            }
+        }
+        if (listener == null) {
+            return;
+        }
+        if (code != null) {
+            listener.onPurchasesUpdated(code, message(code), null);
+        } else {
+            listener.onPurchasesUpdated(OK, "", Collections.singletonList(record));
+        }
+    }
+
+    @Override
+    public void queryPurchases(String type, PurchasesCallback callback) {
+        Integer code;
+        List<PurchaseRecord> found = new ArrayList<>();
+        synchronized (this) {
+            code = begin(Operation.QUERY_PURCHASES, true);
+            for (PurchaseRecord record : owned) {
+                if (type.equals(ownedTypes.get(record.purchaseToken))) {
+                    found.add(record);
+                }
+            }
+        }
+        after(config.queryPurchasesLatencyMs, () -> {
+            if (code != null) {
+                callback.onResult(code, message(code), Collections.emptyList());
+            } else {
+                callback.onResult(OK, "", found);
+            }
+        });
+    }
+
+    @Override
+    public void consume(String purchaseToken, ResultCallback callback) {
+        Integer code;
+        synchronized (this) {
+            code = begin(Operation.CONSUME, true);
+        }
+        after(config.consumeLatencyMs, () -> {
+            int result = code != null ? code : OK;
+            if (result == OK) {
+                synchronized (this) {
+                    PurchaseRecord record = ownedToken(purchaseToken);
+                    if (record == null) {
+                        result = ITEM_NOT_OWNED;
+                    } else {
+                        owned.remove(record);
+                        ownedTypes.remove(purchaseToken);
+                    }
+                }
+            }
+            callback.onResult(result, message(result));
+        });
+    }
+
+    @Override
+    public void acknowledge(String purchaseToken, ResultCallback callback) {
+        Integer code;
+        synchronized (this) {
+            code = begin(Operation.ACKNOWLEDGE, true);
+        }
+        after(config.acknowledgeLatencyMs, () -> {
+            int result = code != null ? code : OK;
+            if (result == OK) {
+                synchronized (this) {
+                    PurchaseRecord record = ownedToken(purchaseToken);
+                    if (record == null) {
+                        result = ITEM_NOT_OWNED;
+                    } else {
+                        owned.set(owned.indexOf(record), new PurchaseRecord(record.products, record.purchaseToken,
+                                record.orderId, record.purchaseTime, record.purchaseState, true, record.autoRenewing));
+                    }
+                }
+            }
+            callback.onResult(result, message(result));
+        });
+    }
+
+    // Counts the call and returns the code it should fail with, or null to run it normally.
+    private Integer begin(Operation operation, boolean needsConnection) {
+        counts.put(operation, counts.get(operation) + 1);
+        Integer code = injected.get(operation).poll();
+        if (code != null) {
+            if (code == SERVICE_DISCONNECTED) {
+                dropLocked();
+            }
+            return code;
+        }
+        if (!needsConnection) {
+            return null;
+        }
+        if (connected && config.disconnectProbability > 0 && random.nextDouble() < config.disconnectProbability) {
+            dropLocked();
+        }
+        return connected ? null : SERVICE_DISCONNECTED;
+    }
+
+    private void dropLocked() {
+        if (!connected) {
+            return;
+        }
+        connected = false;
+        BillingConnection.SetupListener listener = setupListener;
+        if (listener != null) {
+            main.execute(listener::onDisconnected);
+        }
+    }
+
+    private PurchaseRecord ownedProduct(String productId) {
+        for (PurchaseRecord record : owned) {
+            if (record.products.contains(productId)) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    private PurchaseRecord ownedToken(String purchaseToken) {
+        for (PurchaseRecord record : owned) {
+            if (record.purchaseToken.equals(purchaseToken)) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    private String typeOf(String productId) {
+        for (Product product : config.products) {
+            if (product.productId.equals(productId)) {
+                return product.type;
+            }
+        }
+        return TYPE_INAPP;
+    }
+
+    private static String message(int code) {
+        return code == OK ? "" : "Simulated response " + code;
+    }
+
+    private void after(long delayMs, Runnable task) {
+        main.schedule(task, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+    }
+}
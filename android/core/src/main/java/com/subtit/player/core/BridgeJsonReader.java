@@ -0,0 +1,333 @@
+package com.subtit.player.core;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BridgeJsonReader {
+    public static final int TOKEN_OBJECT = 0;
+    public static final int TOKEN_ARRAY = 1;
+    public static final int TOKEN_STRING = 2;
+    public static final int TOKEN_NUMBER = 3;
+    public static final int TOKEN_LITERAL = 4;
+    public static final int TOKEN_END = 5;
+
+    private static final int MAX_DEPTH = 64;
+
+    // Router view of a bridge message; nested payloads stay as raw text until a handler asks for them.
+    public static final class Message {
+        public String type = "request";
+        public String id = "";
+        public String plugin = "";
+        public String method = "";
+        public String event = "";
+        public String listenerId = "";
+        public long timeoutMs = 0;
+        public String paramsJson = null;
+        public List<Message> calls = null;
+        private JSONObject params = null;
+
+        public JSONObject params() throws JSONException {
+            if (params == null && paramsJson != null) {
+                params = new JSONObject(paramsJson);
+            }
+            return params;
+        }
+    }
+
+    private final String input;
+    private int pos = 0;
+
+    public BridgeJsonReader(String input) {
+        this.input = input;
+    }
+
+    public static Message readMessage(String raw) throws JSONException {
+        BridgeJsonReader reader = new BridgeJsonReader(raw);
+        Message message = reader.readMessageObject(true);
+        if (reader.peek() != TOKEN_END) {
+            throw reader.syntaxError("Trailing data");
+        }
+        return message;
+    }
+
+    public int peek() throws JSONException {
+        skipWhitespace();
+        if (pos >= input.length()) {
+            return TOKEN_END;
+        }
+        char c = input.charAt(pos);
+        switch (c) {
+            case '{':
+                return TOKEN_OBJECT;
+            case '[':
+                return TOKEN_ARRAY;
+            case '"':
+                return TOKEN_STRING;
+            case 't':
+            case 'f':
+            case 'n':
+                return TOKEN_LITERAL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return TOKEN_NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + c + "'");
+        }
+    }
+
+    public void beginObject() throws JSONException {
+        expect('{');
+    }
+
+    public void beginArray() throws JSONException {
+        expect('[');
+    }
+
+    // Consumes a separating comma or the closing bracket; returns false once the container is closed.
+    public boolean hasNext(char close, boolean firstElement) throws JSONException {
+        skipWhitespace();
+        if (pos < input.length() && input.charAt(pos) == close) {
+            pos++;
+            return false;
+        }
+        if (!firstElement) {
+            expect(',');
+        }
+        return true;
+    }
+
+    public String nextName() throws JSONException {
+        String name = nextString();
+        expect(':');
+        return name;
+    }
+
+    public String nextString() throws JSONException {
+        expect('"');
+        StringBuilder decoded = null;
+        int start = pos;
+        while (pos < input.length()) {
+            char c = input.charAt(pos);
+            if (c == '"') {
+                String value = decoded == null
+                        ? input.substring(start, pos)
+                        : decoded.append(input, start, pos).toString();
+                pos++;
+                return value;
+            }
+            if (c == '\\') {
+                if (decoded == null) {
+                    decoded = new StringBuilder(pos - start + 16);
+                }
+                decoded.append(input, start, pos);
+                pos++;
+                decoded.append(readEscape());
+                start = pos;
+                continue;
+            }
+            pos++;
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    // Scalars are returned as their text so ids may arrive as numbers or strings.
+    public String nextScalar(String fallback) throws JSONException {
+        int token = peek();
+        if (token == TOKEN_STRING) {
+            return nextString();
+        }
+        if (token == TOKEN_NUMBER || token == TOKEN_LITERAL) {
+            String text = input.substring(skipScalar(), pos);
+            return "null".equals(text) ? fallback : text;
+        }
+        skipValue();
+        return fallback;
+    }
+
+    public long nextLong(long fallback) throws JSONException {
+        String text = nextScalar(null);
+        if (text == null) {
+            return fallback;
+        }
+        try {
+            return (long) Double.parseDouble(text);
+        } catch (NumberFormatException ex) {
+            return fallback;
+        }
+    }
+
+    public String nextRaw() throws JSONException {
+        skipWhitespace();
+        int start = pos;
+        skipValue();
+        return input.substring(start, pos);
+    }
+
+    public void skipValue() throws JSONException {
+        skipValue(0);
+    }
+
+    private void skipValue(int depth) throws JSONException {
+        if (depth > MAX_DEPTH) {
+            throw syntaxError("Nesting too deep");
+        }
+        boolean first = true;
+        switch (peek()) {
+            case TOKEN_OBJECT:
+                beginObject();
+                while (hasNext('}', first)) {
+                    first = false;
+                    nextName();
+                    skipValue(depth + 1);
+                }
+                break;
+            case TOKEN_ARRAY:
+                beginArray();
+                while (hasNext(']', first)) {
+                    first = false;
+                    skipValue(depth + 1);
+                }
+                break;
+            case TOKEN_STRING:
+                nextString();
+                break;
+            case TOKEN_NUMBER:
+            case TOKEN_LITERAL:
+                skipScalar();
+                break;
+            default:
+                throw syntaxError("Unexpected end of input");
+        }
+    }
+
+    private Message readMessageObject(boolean topLevel) throws JSONException {
+        Message message = new Message();
+        beginObject();
+        boolean first = true;
+        while (hasNext('}', first)) {
+            first = false;
+            String name = nextName();
+            switch (name) {
+                case "type":
+                    message.type = nextScalar(message.type);
+                    break;
+                case "id":
+                    message.id = nextScalar(message.id);
+                    break;
+                case "plugin":
+                    message.plugin = nextScalar(message.plugin);
+                    break;
+                case "method":
+                    message.method = nextScalar(message.method);
+                    break;
+                case "event":
+                    message.event = nextScalar(message.event);
+                    break;
+                case "listenerId":
+                    message.listenerId = nextScalar(message.listenerId);
+                    break;
+                case "timeoutMs":
+                    message.timeoutMs = nextLong(message.timeoutMs);
+                    break;
+                case "params":
+                    if (peek() == TOKEN_OBJECT) {
+                        message.paramsJson = nextRaw();
+                    } else {
+                        skipValue();
+                    }
+                    break;
+                case "calls":
+                    if (topLevel && peek() == TOKEN_ARRAY) {
+                        message.calls = readCalls();
+                    } else {
+                        skipValue();
+                    }
+                    break;
+                default:
+                    skipValue();
+            }
+        }
+        return message;
+    }
+
+    private List<Message> readCalls() throws JSONException {
+        List<Message> calls = new ArrayList<>();
+        beginArray();
+        boolean first = true;
+        while (hasNext(']', first)) {
+            first = false;
+            if (peek() == TOKEN_OBJECT) {
+                calls.add(readMessageObject(false));
+            } else {
+                skipValue();
+                calls.add(null);
+            }
+        }
+        return calls;
+    }
+
+    private int skipScalar() {
+        int start = pos;
+        while (pos < input.length()) {
+            char c = input.charAt(pos);
+            if (c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+                break;
+            }
+            pos++;
+        }
+        return start;
+    }
+
+    private char readEscape() throws JSONException {
+        if (pos >= input.length()) {
+            throw syntaxError("Unterminated escape");
+        }
+        char c = input.charAt(pos++);
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                if (pos + 4 > input.length()) {
+                    throw syntaxError("Invalid unicode escape");
+                }
+                try {
+                    char decoded = (char) Integer.parseInt(input.substring(pos, pos + 4), 16);
+                    pos += 4;
+                    return decoded;
+                } catch (NumberFormatException ex) {
+                    throw syntaxError("Invalid unicode escape");
+                }
+            default:
+                return c;
+        }
+    }
+
+    private void expect(char expected) throws JSONException {
+        skipWhitespace();
+        if (pos >= input.length() || input.charAt(pos) != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private void skipWhitespace() {
+        while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at " + pos);
+    }
+}
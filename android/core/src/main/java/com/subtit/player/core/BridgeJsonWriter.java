@@ -0,0 +1,275 @@
+package com.subtit.player.core;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.Map;
+
+public final class BridgeJsonWriter {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final int MAX_DEPTH = 64;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<BridgeJsonWriter> LOCAL = new ThreadLocal<BridgeJsonWriter>() {
+        @Override
+        protected BridgeJsonWriter initialValue() {
+            return new BridgeJsonWriter();
+        }
+    };
+
+    private StringBuilder buffer = new StringBuilder(INITIAL_CAPACITY);
+    private boolean first = true;
+    private boolean afterName = false;
+    private int depth = 0;
+
+    public BridgeJsonWriter() {
+    }
+
+    // Each thread reuses one buffer; callers must finish() before obtaining it again.
+    public static BridgeJsonWriter obtain() {
+        BridgeJsonWriter writer = LOCAL.get();
+        writer.reset();
+        return writer;
+    }
+
+    public void reset() {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(INITIAL_CAPACITY);
+        } else {
+            buffer.setLength(0);
+        }
+        first = true;
+        afterName = false;
+        depth = 0;
+    }
+
+    public BridgeJsonWriter raw(String text) {
+        buffer.append(text);
+        return this;
+    }
+
+    public BridgeJsonWriter beginObject() {
+        beforeValue();
+        buffer.append('{');
+        enter();
+        return this;
+    }
+
+    public BridgeJsonWriter endObject() {
+        buffer.append('}');
+        leave();
+        return this;
+    }
+
+    public BridgeJsonWriter beginArray() {
+        beforeValue();
+        buffer.append('[');
+        enter();
+        return this;
+    }
+
+    public BridgeJsonWriter endArray() {
+        buffer.append(']');
+        leave();
+        return this;
+    }
+
+    public BridgeJsonWriter name(String name) {
+        if (!first) {
+            buffer.append(',');
+        }
+        first = false;
+        writeString(name);
+        buffer.append(':');
+        afterName = true;
+        return this;
+    }
+
+    public BridgeJsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            buffer.append("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    public BridgeJsonWriter value(long value) {
+        beforeValue();
+        buffer.append(value);
+        return this;
+    }
+
+    public BridgeJsonWriter value(double value) {
+        beforeValue();
+        writeDouble(value);
+        return this;
+    }
+
+    public BridgeJsonWriter value(boolean value) {
+        beforeValue();
+        buffer.append(value);
+        return this;
+    }
+
+    public BridgeJsonWriter nullValue() {
+        beforeValue();
+        buffer.append("null");
+        return this;
+    }
+
+    // Walks JSONObject/JSONArray (and therefore JSObject/JSArray) trees in place instead of
+    // round-tripping them through toString() and a fresh parse.
+    public BridgeJsonWriter value(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            return nullValue();
+        }
+        if (value instanceof String) {
+            return value((String) value);
+        }
+        if (value instanceof Boolean) {
+            return value(((Boolean) value).booleanValue());
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(((Number) value).longValue());
+        }
+        if (value instanceof Number) {
+            return value(((Number) value).doubleValue());
+        }
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            beginObject();
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                name(key);
+                value(object.opt(key));
+            }
+            return endObject();
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            beginArray();
+            for (int i = 0; i < array.length(); i++) {
+                value(array.opt(i));
+            }
+            return endArray();
+        }
+        if (value instanceof Map) {
+            beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                name(String.valueOf(entry.getKey()));
+                value(entry.getValue());
+            }
+            return endObject();
+        }
+        if (value instanceof Iterable) {
+            beginArray();
+            for (Object item : (Iterable<?>) value) {
+                value(item);
+            }
+            return endArray();
+        }
+        if (value instanceof Object[]) {
+            beginArray();
+            for (Object item : (Object[]) value) {
+                value(item);
+            }
+            return endArray();
+        }
+        return value(String.valueOf(value));
+    }
+
+    public int length() {
+        return buffer.length();
+    }
+
+    public String finish() {
+        String result = buffer.toString();
+        reset();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (!first) {
+            buffer.append(',');
+        }
+        first = false;
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw new IllegalStateException("JSON nesting exceeds " + MAX_DEPTH);
+        }
+        first = true;
+    }
+
+    private void leave() {
+        depth--;
+        first = false;
+    }
+
+    private void writeDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            buffer.append("null");
+            return;
+        }
+        long whole = (long) value;
+        if (whole == value && Math.abs(value) < 1e15) {
+            buffer.append(whole);
+        } else {
+            buffer.append(value);
+        }
+    }
+
+    private void writeString(String value) {
+        StringBuilder out = buffer;
+        out.append('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '"') {
+                replacement = "\\\"";
+            } else if (c == '\\') {
+                replacement = "\\\\";
+            } else if (c == '\n') {
+                replacement = "\\n";
+            } else if (c == '\r') {
+                replacement = "\\r";
+            } else if (c == '\t') {
+                replacement = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                // U+2028/U+2029 are valid JSON but terminate lines in the evaluated script.
+                replacement = null;
+            } else {
+                continue;
+            }
+            out.append(value, start, i);
+            if (replacement != null) {
+                out.append(replacement);
+            } else {
+                out.append("\\u")
+                        .append(HEX[(c >> 12) & 0xF])
+                        .append(HEX[(c >> 8) & 0xF])
+                        .append(HEX[(c >> 4) & 0xF])
+                        .append(HEX[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        out.append(value, start, length);
+        out.append('"');
+    }
+}
@@ -0,0 +1,247 @@
+package com.subtit.player.core;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Requests run one at a time in submission order. The deadline covers queueing and running: a request
+// still running when it expires is interrupted and rejected, so one slow call cannot hold the requests
+// behind it past their own deadlines. Calls run on a single call thread; one that ignores the interrupt
+// keeps it, and until it returns the queue is wedged and sheds what reaches the front rather than run
+// two calls at once.
+public final class BridgeRequestQueue {
+    public static final String REASON_QUEUE_FULL = "Bridge queue full";
+    public static final String REASON_TIMEOUT = "Request timed out";
+    public static final String REASON_SHUTDOWN = "Bridge shut down";
+    public static final String REASON_WEDGED = "Bridge busy with an abandoned request";
+    public static final String REASON_FAILED = "Request failed";
+    // How long an interrupted call gets to return before the queue counts it as abandoned.
+    private static final long CANCEL_GRACE_MS = 100;
+
+    public interface RejectionHandler {
+        void onRejected(String requestId, String reason);
+    }
+
+    private final ThreadPoolExecutor executor;
+    // Requests with a deadline run here while the queue thread waits on them.
+    private final ThreadPoolExecutor runner;
+    // Set while a call is on the call thread, including one abandoned at its deadline.
+    private final AtomicBoolean callRunning = new AtomicBoolean();
+    private final int capacity;
+    private final Set<String> queuedIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> cancelledIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    public BridgeRequestQueue(final String threadName, int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(this.capacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.runner = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadName + "-call");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.runner.allowCoreThreadTimeOut(true);
+    }
+
+    public boolean submit(final String requestId, long timeoutMs, final Runnable work, final RejectionHandler onRejected) {
+        final long deadline = timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : 0;
+        final boolean tracked = requestId != null && !requestId.isEmpty();
+        if (tracked) {
+            queuedIds.add(requestId);
+        }
+        inFlight.incrementAndGet();
+        submitted.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (tracked) {
+                        queuedIds.remove(requestId);
+                        if (cancelledIds.remove(requestId)) {
+                            cancelled.incrementAndGet();
+                            return;
+                        }
+                    }
+                    if (deadline == 0) {
+                        runInline(requestId, work, onRejected);
+                        return;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timedOut.incrementAndGet();
+                        onRejected.onRejected(requestId, REASON_TIMEOUT);
+                        return;
+                    }
+                    runWithDeadline(requestId, work, remaining, onRejected);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            if (tracked) {
+                queuedIds.remove(requestId);
+            }
+            inFlight.decrementAndGet();
+            shed.incrementAndGet();
+            onRejected.onRejected(requestId, executor.isShutdown() ? REASON_SHUTDOWN : REASON_QUEUE_FULL);
+            return false;
+        }
+    }
+
+    private void runInline(String requestId, Runnable work, RejectionHandler onRejected) {
+        if (callRunning.get()) {
+            shed.incrementAndGet();
+            onRejected.onRejected(requestId, REASON_WEDGED);
+            return;
+        }
+        try {
+            work.run();
+            completed.incrementAndGet();
+        } catch (RuntimeException ex) {
+            failed.incrementAndGet();
+            onRejected.onRejected(requestId, failureReason(ex));
+        }
+    }
+
+    private void runWithDeadline(String requestId, Runnable work, long remainingNanos, RejectionHandler onRejected) {
+        // Only this thread starts calls, so nothing can claim the call thread between check and submit.
+        if (callRunning.get()) {
+            shed.incrementAndGet();
+            onRejected.onRejected(requestId, REASON_WEDGED);
+            return;
+        }
+        final CountDownLatch exited = new CountDownLatch(1);
+        Future<?> future;
+        try {
+            future = runner.submit(() -> {
+                callRunning.set(true);
+                try {
+                    work.run();
+                } finally {
+                    callRunning.set(false);
+                    exited.countDown();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            onRejected.onRejected(requestId, REASON_SHUTDOWN);
+            return;
+        }
+        try {
+            future.get(remainingNanos, TimeUnit.NANOSECONDS);
+            completed.incrementAndGet();
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            timedOut.incrementAndGet();
+            onRejected.onRejected(requestId, REASON_TIMEOUT);
+            if (callRunning.get()) {
+                try {
+                    exited.await(CANCEL_GRACE_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            onRejected.onRejected(requestId, REASON_SHUTDOWN);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            // Thrown on this thread it would be uncaught and take the process down.
+            failed.incrementAndGet();
+            onRejected.onRejected(requestId, failureReason(cause));
+        }
+    }
+
+    private static String failureReason(Throwable cause) {
+        String message = cause.getMessage();
+        return REASON_FAILED + ": " + (message != null ? message : cause.getClass().getSimpleName());
+    }
+
+    public boolean cancel(String requestId) {
+        if (requestId == null || !queuedIds.contains(requestId)) {
+            return false;
+        }
+        cancelledIds.add(requestId);
+        // The request may have started between the check and the add; drop the stale marker.
+        if (!queuedIds.contains(requestId)) {
+            cancelledIds.remove(requestId);
+            return false;
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        runner.shutdownNow();
+        queuedIds.clear();
+        cancelledIds.clear();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    public long submitted() {
+        return submitted.get();
+    }
+
+    public long completed() {
+        return completed.get();
+    }
+
+    public long timedOut() {
+        return timedOut.get();
+    }
+
+    public long failed() {
+        return failed.get();
+    }
+
+    // Whether a call abandoned at its deadline still holds the call thread.
+    public boolean isWedged() {
+        return callRunning.get();
+    }
+
+    public long shed() {
+        return shed.get();
+    }
+
+    public long cancelled() {
+        return cancelled.get();
+    }
+}
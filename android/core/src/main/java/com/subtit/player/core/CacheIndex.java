@@ -0,0 +1,128 @@
+package com.subtit.player.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public final class CacheIndex {
+    public static final String CATEGORY_TTS_AUDIO = "ttsAudio";
+    public static final String CATEGORY_WEBVIEW = "webView";
+    public static final String CATEGORY_HTTP = "httpCache";
+    public static final String CATEGORY_LOGS = "logs";
+    public static final String CATEGORY_OTHER = "other";
+    public static final String[] CATEGORIES = {CATEGORY_TTS_AUDIO, CATEGORY_WEBVIEW, CATEGORY_HTTP, CATEGORY_LOGS, CATEGORY_OTHER};
+
+    private static final Comparator<Entry> OLDEST_FIRST = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return Long.compare(a.lastModified, b.lastModified);
+        }
+    };
+
+    public static final class Entry {
+        public final File file;
+        public final String category;
+        public final long length;
+        public final long lastModified;
+
+        public Entry(File file, String category, long length, long lastModified) {
+            this.file = file;
+            this.category = category;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    public static final class Usage {
+        public long bytes;
+        public int files;
+        public long oldestModified;
+    }
+
+    private CacheIndex() {
+    }
+
+    public static boolean isCategory(String category) {
+        for (String known : CATEGORIES) {
+            if (known.equals(category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Categories are decided by the top-level entry under a cache root, so whole trees share one category.
+    public static String classify(String topLevelName) {
+        String name = topLevelName.toLowerCase(Locale.US);
+        if (name.startsWith("tts-") && name.endsWith(".wav")) {
+            return CATEGORY_TTS_AUDIO;
+        }
+        if (name.equals("webview") || name.equals("org.chromium.android_webview") || name.equals("crashpad")) {
+            return CATEGORY_WEBVIEW;
+        }
+        if (name.equals("http-cache") || name.equals("okhttp") || name.equals("http") || name.equals("image_manager_disk_cache")) {
+            return CATEGORY_HTTP;
+        }
+        if (name.equals("logs") || name.endsWith(".log")) {
+            return CATEGORY_LOGS;
+        }
+        return CATEGORY_OTHER;
+    }
+
+    public static Map<String, Usage> summarize(List<Entry> entries) {
+        Map<String, Usage> usage = new LinkedHashMap<>();
+        for (String category : CATEGORIES) {
+            usage.put(category, new Usage());
+        }
+        for (Entry entry : entries) {
+            Usage item = usage.get(entry.category);
+            if (item == null) {
+                item = new Usage();
+                usage.put(entry.category, item);
+            }
+            item.bytes += entry.length;
+            item.files++;
+            if (item.oldestModified == 0 || entry.lastModified < item.oldestModified) {
+                item.oldestModified = entry.lastModified;
+            }
+        }
+        return usage;
+    }
+
+    // Oldest files of the category first, until the remainder fits the quota; files younger than minAgeMs are kept.
+    public static List<Entry> selectQuotaVictims(List<Entry> entries, String category, long quotaBytes, long minAgeMs, long nowMs) {
+        if (quotaBytes <= 0) {
+            return Collections.emptyList();
+        }
+        long total = 0;
+        List<Entry> candidates = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (!entry.category.equals(category)) {
+                continue;
+            }
+            total += entry.length;
+            if (nowMs - entry.lastModified >= minAgeMs) {
+                candidates.add(entry);
+            }
+        }
+        long excess = total - quotaBytes;
+        if (excess <= 0) {
+            return Collections.emptyList();
+        }
+        Collections.sort(candidates, OLDEST_FIRST);
+        List<Entry> victims = new ArrayList<>();
+        for (Entry entry : candidates) {
+            if (excess <= 0) {
+                break;
+            }
+            victims.add(entry);
+            excess -= entry.length;
+        }
+        return victims;
+    }
+}
@@ -0,0 +1,271 @@
+package com.subtit.player.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class CacheSweeper {
+    private static final int MAX_DEPTH = 32;
+    private static final int DELETE_SPLIT_THRESHOLD = 64;
+    private static final long PROGRESS_INTERVAL_NANOS = 250_000_000L;
+
+    public interface ProgressListener {
+        void onProgress(String category, long filesDeleted, long bytesFreed, long bytesTotal);
+    }
+
+    public static final class Result {
+        public final Map<String, Long> bytesFreed = new LinkedHashMap<>();
+        public long filesDeleted;
+        public long totalBytesFreed;
+        public long failures;
+    }
+
+    private final List<File> roots = new ArrayList<>();
+    private final ForkJoinPool pool;
+
+    public CacheSweeper(Collection<File> roots, int parallelism) {
+        for (File root : roots) {
+            if (root != null) {
+                this.roots.add(root);
+            }
+        }
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    // Each top-level entry of every root is walked as its own fork/join task.
+    public List<CacheIndex.Entry> scan() {
+        List<WalkTask> tasks = new ArrayList<>();
+        for (File root : roots) {
+            File[] children = root.listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                tasks.add(new WalkTask(child, CacheIndex.classify(child.getName()), 0));
+            }
+        }
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return pool.invoke(new RecursiveTask<List<CacheIndex.Entry>>() {
+            @Override
+            protected List<CacheIndex.Entry> compute() {
+                invokeAll(tasks);
+                List<CacheIndex.Entry> entries = new ArrayList<>();
+                for (WalkTask task : tasks) {
+                    entries.addAll(task.join());
+                }
+                return entries;
+            }
+        });
+    }
+
+    public Result clear(Collection<String> categories, ProgressListener listener) {
+        List<CacheIndex.Entry> entries = scan();
+        Map<String, List<CacheIndex.Entry>> selected = new LinkedHashMap<>();
+        for (CacheIndex.Entry entry : entries) {
+            if (!categories.contains(entry.category)) {
+                continue;
+            }
+            List<CacheIndex.Entry> bucket = selected.get(entry.category);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                selected.put(entry.category, bucket);
+            }
+            bucket.add(entry);
+        }
+        Result result = new Result();
+        for (Map.Entry<String, List<CacheIndex.Entry>> bucket : selected.entrySet()) {
+            delete(bucket.getKey(), bucket.getValue(), result, listener);
+        }
+        pruneEmptyDirectories(categories);
+        return result;
+    }
+
+    // Deletes the oldest files of each category until it fits its quota; a quota <= 0 means unlimited.
+    public Result enforceQuotas(Map<String, Long> quotas, long minAgeMs, long nowMs, ProgressListener listener) {
+        List<CacheIndex.Entry> entries = scan();
+        Result result = new Result();
+        for (Map.Entry<String, Long> quota : quotas.entrySet()) {
+            long limit = quota.getValue() != null ? quota.getValue() : 0;
+            List<CacheIndex.Entry> victims = CacheIndex.selectQuotaVictims(entries, quota.getKey(), limit, minAgeMs, nowMs);
+            delete(quota.getKey(), victims, result, listener);
+        }
+        return result;
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void delete(String category, List<CacheIndex.Entry> entries, Result result, ProgressListener listener) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        long total = 0;
+        for (CacheIndex.Entry entry : entries) {
+            total += entry.length;
+        }
+        Progress progress = new Progress(category, total, listener);
+        long[] counts = pool.invoke(new DeleteTask(entries, 0, entries.size(), progress));
+        progress.report(true);
+        Long previous = result.bytesFreed.get(category);
+        result.bytesFreed.put(category, (previous != null ? previous : 0) + counts[1]);
+        result.filesDeleted += counts[0];
+        result.totalBytesFreed += counts[1];
+        result.failures += counts[2];
+    }
+
+    private void pruneEmptyDirectories(Collection<String> categories) {
+        for (File root : roots) {
+            File[] children = root.listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                if (child.isDirectory() && categories.contains(CacheIndex.classify(child.getName()))) {
+                    pruneDirectory(child, 0);
+                }
+            }
+        }
+    }
+
+    private static boolean pruneDirectory(File dir, int depth) {
+        File[] children = dir.listFiles();
+        if (children == null || depth > MAX_DEPTH) {
+            return false;
+        }
+        boolean empty = true;
+        for (File child : children) {
+            if (!child.isDirectory() || !pruneDirectory(child, depth + 1)) {
+                empty = false;
+            }
+        }
+        return empty && dir.delete();
+    }
+
+    private static final class Progress {
+        final String category;
+        final long total;
+        final ProgressListener listener;
+        final AtomicLong files = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong lastReportNanos = new AtomicLong(System.nanoTime());
+
+        Progress(String category, long total, ProgressListener listener) {
+            this.category = category;
+            this.total = total;
+            this.listener = listener;
+        }
+
+        void add(long length) {
+            files.incrementAndGet();
+            bytes.addAndGet(length);
+            report(false);
+        }
+
+        void report(boolean force) {
+            if (listener == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            long last = lastReportNanos.get();
+            if (!force && (now - last < PROGRESS_INTERVAL_NANOS || !lastReportNanos.compareAndSet(last, now))) {
+                return;
+            }
+            listener.onProgress(category, files.get(), bytes.get(), total);
+        }
+    }
+
+    private static final class WalkTask extends RecursiveTask<List<CacheIndex.Entry>> {
+        private static final long serialVersionUID = 1L;
+
+        private final File file;
+        private final String category;
+        private final int depth;
+
+        WalkTask(File file, String category, int depth) {
+            this.file = file;
+            this.category = category;
+            this.depth = depth;
+        }
+
+        @Override
+        protected List<CacheIndex.Entry> compute() {
+            List<CacheIndex.Entry> entries = new ArrayList<>();
+            if (!file.isDirectory()) {
+                if (file.isFile()) {
+                    entries.add(new CacheIndex.Entry(file, category, file.length(), file.lastModified()));
+                }
+                return entries;
+            }
+            File[] children = depth < MAX_DEPTH ? file.listFiles() : null;
+            if (children == null) {
+                return entries;
+            }
+            List<WalkTask> subdirectories = new ArrayList<>();
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    subdirectories.add(new WalkTask(child, category, depth + 1));
+                } else if (child.isFile()) {
+                    entries.add(new CacheIndex.Entry(child, category, child.length(), child.lastModified()));
+                }
+            }
+            invokeAll(subdirectories);
+            for (WalkTask task : subdirectories) {
+                entries.addAll(task.join());
+            }
+            return entries;
+        }
+    }
+
+    private static final class DeleteTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<CacheIndex.Entry> entries;
+        private final int from;
+        private final int to;
+        private final Progress progress;
+
+        DeleteTask(List<CacheIndex.Entry> entries, int from, int to, Progress progress) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > DELETE_SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                DeleteTask left = new DeleteTask(entries, from, middle, progress);
+                DeleteTask right = new DeleteTask(entries, middle, to, progress);
+                left.fork();
+                long[] rightCounts = right.compute();
+                long[] leftCounts = left.join();
+                return new long[]{leftCounts[0] + rightCounts[0], leftCounts[1] + rightCounts[1], leftCounts[2] + rightCounts[2]};
+            }
+            long files = 0;
+            long bytes = 0;
+            long failures = 0;
+            for (int i = from; i < to; i++) {
+                CacheIndex.Entry entry = entries.get(i);
+                if (entry.file.delete() || !entry.file.exists()) {
+                    files++;
+                    bytes += entry.length;
+                    progress.add(entry.length);
+                } else {
+                    failures++;
+                }
+            }
+            return new long[]{files, bytes, failures};
+        }
+    }
+}
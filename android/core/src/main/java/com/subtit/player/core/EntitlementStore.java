@@ -0,0 +1,251 @@
+package com.subtit.player.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+// Last known purchases, persisted so entitlement checks at startup never wait on the store. The
+// file is HMAC-signed with a key the caller keeps outside the file (the Android Keystore on device);
+// a file that fails verification is treated as empty until the next reconciliation rewrites it.
+public final class EntitlementStore {
+    public static final String STATE_PURCHASED = "purchased";
+    public static final String STATE_PENDING = "pending";
+
+    private static final int VERSION = 1;
+    private static final int MAX_FILE_SIZE = 256 * 1024;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    public static final class Entitlement {
+        public final String productId;
+        public final String productType;
+        public final String purchaseToken;
+        public final String orderId;
+        public final long purchaseTime;
+        public final String state;
+        public final boolean acknowledged;
+        public final boolean autoRenewing;
+
+        public Entitlement(String productId, String productType, String purchaseToken, String orderId,
+                           long purchaseTime, String state, boolean acknowledged, boolean autoRenewing) {
+            this.productId = productId;
+            this.productType = productType;
+            this.purchaseToken = purchaseToken;
+            this.orderId = orderId;
+            this.purchaseTime = purchaseTime;
+            this.state = state;
+            this.acknowledged = acknowledged;
+            this.autoRenewing = autoRenewing;
+        }
+
+        public boolean isActive() {
+            return STATE_PURCHASED.equals(state);
+        }
+    }
+
+    public static final class Snapshot {
+        public final List<Entitlement> entitlements;
+        // Wall-clock time of the last successful reconciliation, 0 if there has been none.
+        public final long reconciledAt;
+        // False when a stored file existed but its signature did not match.
+        public final boolean verified;
+
+        Snapshot(List<Entitlement> entitlements, long reconciledAt, boolean verified) {
+            this.entitlements = Collections.unmodifiableList(entitlements);
+            this.reconciledAt = reconciledAt;
+            this.verified = verified;
+        }
+
+        public Entitlement find(String productId) {
+            for (Entitlement entitlement : entitlements) {
+                if (entitlement.productId.equals(productId)) {
+                    return entitlement;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final File file;
+    private final SecretKey key;
+    private Snapshot snapshot;
+
+    // key may be null, in which case the store only lives in memory.
+    public EntitlementStore(File file, SecretKey key) {
+        this.file = file;
+        this.key = key;
+    }
+
+    public synchronized Snapshot snapshot() {
+        if (snapshot == null) {
+            snapshot = load();
+        }
+        return snapshot;
+    }
+
+    // Replaces everything with the result of a full reconciliation.
+    public synchronized Snapshot replace(List<Entitlement> entitlements, long reconciledAt) throws IOException {
+        Snapshot updated = new Snapshot(new ArrayList<>(entitlements), reconciledAt, true);
+        write(updated);
+        snapshot = updated;
+        return updated;
+    }
+
+    // Records a single purchase as it completes, keeping the reconciliation time.
+    public synchronized Snapshot put(Entitlement entitlement) throws IOException {
+        Snapshot current = snapshot();
+        List<Entitlement> entitlements = new ArrayList<>();
+        for (Entitlement existing : current.entitlements) {
+            if (!existing.productId.equals(entitlement.productId)) {
+                entitlements.add(existing);
+            }
+        }
+        entitlements.add(entitlement);
+        Snapshot updated = new Snapshot(entitlements, current.reconciledAt, true);
+        write(updated);
+        snapshot = updated;
+        return updated;
+    }
+
+    private Snapshot load() {
+        Snapshot empty = new Snapshot(new ArrayList<>(), 0, true);
+        if (key == null || !file.isFile()) {
+            return empty;
+        }
+        try {
+            String content = readFile(file);
+            JSONObject envelope = new JSONObject(content);
+            String payload = envelope.getString("payload");
+            byte[] expected = sign(payload);
+            byte[] actual = fromHex(envelope.optString("signature", ""));
+            if (actual == null || !MessageDigest.isEqual(expected, actual)) {
+                return new Snapshot(new ArrayList<>(), 0, false);
+            }
+            return decode(new JSONObject(payload));
+        } catch (IOException | JSONException | GeneralSecurityException e) {
+            return new Snapshot(new ArrayList<>(), 0, false);
+        }
+    }
+
+    private void write(Snapshot value) throws IOException {
+        if (key == null) {
+            return;
+        }
+        try {
+            String payload = encode(value).toString();
+            JSONObject envelope = new JSONObject();
+            envelope.put("payload", payload);
+            envelope.put("signature", toHex(sign(payload)));
+            byte[] bytes = envelope.toString().getBytes(StandardCharsets.UTF_8);
+            // Write beside the target and rename so a crash never leaves a half-written file.
+            File temp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(bytes);
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Unable to replace " + file);
+            }
+        } catch (JSONException | GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private byte[] sign(String payload) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(key);
+        return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static JSONObject encode(Snapshot value) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Entitlement entitlement : value.entitlements) {
+            JSONObject item = new JSONObject();
+            item.put("productId", entitlement.productId);
+            item.put("productType", entitlement.productType);
+            item.put("purchaseToken", entitlement.purchaseToken);
+            item.put("orderId", entitlement.orderId != null ? entitlement.orderId : JSONObject.NULL);
+            item.put("purchaseTime", entitlement.purchaseTime);
+            item.put("state", entitlement.state);
+            item.put("acknowledged", entitlement.acknowledged);
+            item.put("autoRenewing", entitlement.autoRenewing);
+            array.put(item);
+        }
+        JSONObject root = new JSONObject();
+        root.put("version", VERSION);
+        root.put("reconciledAt", value.reconciledAt);
+        root.put("entitlements", array);
+        return root;
+    }
+
+    private static Snapshot decode(JSONObject root) throws JSONException {
+        if (root.optInt("version", 0) != VERSION) {
+            return new Snapshot(new ArrayList<>(), 0, true);
+        }
+        JSONArray array = root.getJSONArray("entitlements");
+        List<Entitlement> entitlements = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject item = array.getJSONObject(i);
+            entitlements.add(new Entitlement(
+                    item.getString("productId"),
+                    item.getString("productType"),
+                    item.getString("purchaseToken"),
+                    item.isNull("orderId") ? null : item.optString("orderId", null),
+                    item.optLong("purchaseTime", 0),
+                    item.optString("state", STATE_PURCHASED),
+                    item.optBoolean("acknowledged", false),
+                    item.optBoolean("autoRenewing", false)));
+        }
+        return new Snapshot(entitlements, root.optLong("reconciledAt", 0), true);
+    }
+
+    private static String readFile(File source) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(source, "r")) {
+            long length = input.length();
+            if (length > MAX_FILE_SIZE) {
+                throw new IOException("Entitlement file too large: " + length);
+            }
+            byte[] bytes = new byte[(int) length];
+            input.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.isEmpty() || hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
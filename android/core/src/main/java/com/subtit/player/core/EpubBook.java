@@ -0,0 +1,539 @@
+package com.subtit.player.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// An EPUB opened for reading aloud. Only the container, the OPF and the table of contents are parsed
+// up front; chapter text is inflated from the zip's central directory on demand and handed out one
+// block (paragraph, heading, list item) at a time, so memory stays at a few blocks per open chapter.
+public final class EpubBook implements Closeable {
+    private static final String CONTAINER_PATH = "META-INF/container.xml";
+    private static final String NAV_PROPERTY = "nav";
+    private static final String NCX_MEDIA_TYPE = "application/x-dtbncx+xml";
+    // A paragraph longer than this is handed out in sentence-aligned pieces.
+    static final int MAX_BLOCK_CHARS = 4000;
+    private static final Set<String> SKIPPED = new HashSet<>(Arrays.asList(
+            "head", "style", "script", "svg", "math", "rt", "rp"));
+    private static final Set<String> BLOCKS = new HashSet<>(Arrays.asList(
+            "p", "div", "h1", "h2", "h3", "h4", "h5", "h6", "li", "blockquote", "pre", "tr", "td", "th",
+            "dt", "dd", "section", "article", "header", "footer", "aside", "figcaption", "caption",
+            "body", "ol", "ul", "table", "hr"));
+
+    public static final class Section {
+        public final String title;
+        // Fragment id inside the chapter, or null for the chapter start.
+        public final String anchor;
+        public final int depth;
+
+        Section(String title, String anchor, int depth) {
+            this.title = title;
+            this.anchor = anchor;
+            this.depth = depth;
+        }
+    }
+
+    public static final class Chapter {
+        public final int index;
+        public final String id;
+        // Path of the XHTML document inside the zip.
+        public final String path;
+        public final boolean linear;
+        // From the table of contents; null when the chapter is not listed there.
+        public final String title;
+        public final List<Section> sections;
+
+        Chapter(int index, String id, String path, boolean linear, String title, List<Section> sections) {
+            this.index = index;
+            this.id = id;
+            this.path = path;
+            this.linear = linear;
+            this.title = title;
+            this.sections = Collections.unmodifiableList(sections);
+        }
+    }
+
+    public static final class Block {
+        public final int chapter;
+        public final int index;
+        public final String text;
+        // Nearest element id at or before the block, usable to resume at a table-of-contents entry.
+        public final String anchor;
+        public final boolean heading;
+
+        Block(int chapter, int index, String text, String anchor, boolean heading) {
+            this.chapter = chapter;
+            this.index = index;
+            this.text = text;
+            this.anchor = anchor;
+            this.heading = heading;
+        }
+    }
+
+    private final ZipFile zip;
+    private final String title;
+    private final String language;
+    private final List<Chapter> chapters;
+
+    private EpubBook(ZipFile zip, String title, String language, List<Chapter> chapters) {
+        this.zip = zip;
+        this.title = title;
+        this.language = language;
+        this.chapters = Collections.unmodifiableList(chapters);
+    }
+
+    public static EpubBook open(File file) throws IOException {
+        ZipFile zip = new ZipFile(file);
+        try {
+            return read(zip);
+        } catch (IOException | RuntimeException ex) {
+            zip.close();
+            throw ex;
+        }
+    }
+
+    public String title() {
+        return title;
+    }
+
+    public String language() {
+        return language;
+    }
+
+    public List<Chapter> chapters() {
+        return chapters;
+    }
+
+    public TextStream openChapter(int index) throws IOException {
+        if (index < 0 || index >= chapters.size()) {
+            throw new IllegalArgumentException("No chapter " + index);
+        }
+        Chapter chapter = chapters.get(index);
+        return new TextStream(index, new XmlScanner(reader(zip, chapter.path)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+
+    // Blocks of one chapter in document order. Not thread-safe; close it when done.
+    public static final class TextStream implements Closeable {
+        private final int chapter;
+        private final XmlScanner scanner;
+        private final ArrayDeque<Block> ready = new ArrayDeque<>();
+        private final StringBuilder text = new StringBuilder();
+        private String lastId;
+        private String blockAnchor;
+        private int headingDepth = 0;
+        private boolean blockIsHeading;
+        private int nextIndex = 0;
+        private boolean finished;
+
+        TextStream(int chapter, XmlScanner scanner) {
+            this.chapter = chapter;
+            this.scanner = scanner;
+        }
+
+        // Returns null at the end of the chapter.
+        public Block next() throws IOException {
+            while (ready.isEmpty() && !finished) {
+                advance();
+            }
+            return ready.poll();
+        }
+
+        // Skips to the first block at or after the element with this id; false if it does not occur.
+        public boolean skipTo(String anchor) throws IOException {
+            while (true) {
+                while (ready.isEmpty() && !finished) {
+                    advance();
+                    if (anchor.equals(lastId) && text.length() == 0) {
+                        ready.clear();
+                        return true;
+                    }
+                }
+                Block block = ready.peek();
+                if (block == null) {
+                    return false;
+                }
+                if (anchor.equals(block.anchor)) {
+                    return true;
+                }
+                ready.poll();
+            }
+        }
+
+        private void advance() throws IOException {
+            int event = scanner.next();
+            switch (event) {
+                case XmlScanner.END_DOCUMENT:
+                    flush();
+                    finished = true;
+                    break;
+                case XmlScanner.START_TAG: {
+                    String name = scanner.name();
+                    if (SKIPPED.contains(name)) {
+                        scanner.skipElement();
+                        break;
+                    }
+                    if (BLOCKS.contains(name)) {
+                        flush();
+                    }
+                    String id = scanner.attribute("id");
+                    if (id != null && !id.isEmpty()) {
+                        lastId = id;
+                    }
+                    if (isHeading(name)) {
+                        headingDepth++;
+                    }
+                    if ("br".equals(name)) {
+                        lineBreak();
+                    }
+                    break;
+                }
+                case XmlScanner.END_TAG: {
+                    String name = scanner.name();
+                    if (BLOCKS.contains(name)) {
+                        flush();
+                    }
+                    if (isHeading(name) && headingDepth > 0) {
+                        headingDepth--;
+                    }
+                    break;
+                }
+                case XmlScanner.TEXT:
+                    append(scanner.text());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // Whitespace in markup is collapsed to single spaces, as a browser would render it.
+        private void append(String raw) {
+            for (int i = 0; i < raw.length(); i++) {
+                char c = raw.charAt(i);
+                if (Character.isWhitespace(c) || c == '\u00a0') {
+                    int length = text.length();
+                    if (length > 0 && text.charAt(length - 1) != ' ' && text.charAt(length - 1) != '\n') {
+                        text.append(' ');
+                    }
+                    continue;
+                }
+                if (text.length() == 0) {
+                    blockAnchor = lastId;
+                    blockIsHeading = headingDepth > 0;
+                }
+                text.append(c);
+            }
+            while (text.length() > MAX_BLOCK_CHARS) {
+                int cut = TextChunker.findBreak(text.toString(), 0, MAX_BLOCK_CHARS);
+                emit(text.substring(0, cut));
+                text.delete(0, cut);
+                while (text.length() > 0 && Character.isWhitespace(text.charAt(0))) {
+                    text.deleteCharAt(0);
+                }
+            }
+        }
+
+        // <br> keeps its line break, which TextChunker treats as a sentence end (verse, dialogue).
+        private void lineBreak() {
+            while (text.length() > 0 && text.charAt(text.length() - 1) == ' ') {
+                text.setLength(text.length() - 1);
+            }
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+        }
+
+        private void flush() {
+            if (text.length() > 0) {
+                emit(text.toString());
+                text.setLength(0);
+            }
+        }
+
+        private void emit(String raw) {
+            String trimmed = raw.trim();
+            if (!trimmed.isEmpty()) {
+                ready.add(new Block(chapter, nextIndex++, trimmed, blockAnchor, blockIsHeading));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finished = true;
+            ready.clear();
+            scanner.close();
+        }
+
+        private static boolean isHeading(String name) {
+            return name.length() == 2 && name.charAt(0) == 'h' && name.charAt(1) >= '1' && name.charAt(1) <= '6';
+        }
+    }
+
+    private static EpubBook read(ZipFile zip) throws IOException {
+        String opfPath = null;
+        try (XmlScanner container = new XmlScanner(reader(zip, CONTAINER_PATH))) {
+            while (container.next() != XmlScanner.END_DOCUMENT) {
+                if (container.event() == XmlScanner.START_TAG && "rootfile".equals(container.name())) {
+                    opfPath = container.attribute("full-path");
+                    break;
+                }
+            }
+        }
+        if (opfPath == null || opfPath.isEmpty()) {
+            throw new IOException("No package document in " + CONTAINER_PATH);
+        }
+        String base = directoryOf(opfPath);
+
+        String title = null;
+        String language = null;
+        String ncxId = null;
+        Map<String, String[]> manifest = new HashMap<>();
+        List<String[]> spine = new ArrayList<>();
+        String navPath = null;
+        try (XmlScanner opf = new XmlScanner(reader(zip, opfPath))) {
+            while (opf.next() != XmlScanner.END_DOCUMENT) {
+                if (opf.event() != XmlScanner.START_TAG) {
+                    continue;
+                }
+                switch (opf.name()) {
+                    case "title":
+                        if (title == null) {
+                            title = readText(opf);
+                        }
+                        break;
+                    case "language":
+                        if (language == null) {
+                            language = readText(opf);
+                        }
+                        break;
+                    case "item": {
+                        String id = opf.attribute("id");
+                        String href = opf.attribute("href");
+                        if (id == null || href == null) {
+                            break;
+                        }
+                        String path = resolve(base, href);
+                        manifest.put(id, new String[]{path, opf.attribute("media-type")});
+                        String properties = opf.attribute("properties");
+                        if (properties != null && Arrays.asList(properties.split("\\s+")).contains(NAV_PROPERTY)) {
+                            navPath = path;
+                        }
+                        break;
+                    }
+                    case "spine":
+                        ncxId = opf.attribute("toc");
+                        break;
+                    case "itemref": {
+                        String idref = opf.attribute("idref");
+                        if (idref != null) {
+                            spine.add(new String[]{idref, opf.attribute("linear")});
+                        }
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            }
+        }
+
+        // EPUB 3 navigation document, falling back to the EPUB 2 NCX.
+        List<String[]> toc = new ArrayList<>();
+        if (navPath != null && zip.getEntry(navPath) != null) {
+            readNav(zip, navPath, toc);
+        } else if (ncxId != null && manifest.containsKey(ncxId)) {
+            readNcx(zip, manifest.get(ncxId)[0], toc);
+        } else {
+            for (String[] item : manifest.values()) {
+                if (NCX_MEDIA_TYPE.equals(item[1])) {
+                    readNcx(zip, item[0], toc);
+                    break;
+                }
+            }
+        }
+
+        List<Chapter> chapters = new ArrayList<>();
+        for (String[] itemref : spine) {
+            String[] item = manifest.get(itemref[0]);
+            if (item == null) {
+                continue;
+            }
+            String path = item[0];
+            String chapterTitle = null;
+            List<Section> sections = new ArrayList<>();
+            for (String[] entry : toc) {
+                String target = entry[1];
+                int hash = target.indexOf('#');
+                String targetPath = hash >= 0 ? target.substring(0, hash) : target;
+                if (!targetPath.equals(path)) {
+                    continue;
+                }
+                String anchor = hash >= 0 ? target.substring(hash + 1) : null;
+                if (chapterTitle == null && anchor == null) {
+                    chapterTitle = entry[0];
+                }
+                sections.add(new Section(entry[0], anchor, Integer.parseInt(entry[2])));
+            }
+            if (chapterTitle == null && !sections.isEmpty()) {
+                chapterTitle = sections.get(0).title;
+            }
+            boolean linear = !"no".equalsIgnoreCase(itemref[1]);
+            chapters.add(new Chapter(chapters.size(), itemref[0], path, linear, chapterTitle, sections));
+        }
+        if (chapters.isEmpty()) {
+            throw new IOException("Empty spine in " + opfPath);
+        }
+        return new EpubBook(zip, title, language, chapters);
+    }
+
+    // Collects {label, target path, depth} for every link in the nav's toc list.
+    private static void readNav(ZipFile zip, String navPath, List<String[]> toc) throws IOException {
+        String base = directoryOf(navPath);
+        try (XmlScanner nav = new XmlScanner(reader(zip, navPath))) {
+            int navDepth = 0;
+            boolean inToc = false;
+            int listDepth = 0;
+            while (nav.next() != XmlScanner.END_DOCUMENT) {
+                String name = nav.name();
+                if (nav.event() == XmlScanner.START_TAG) {
+                    if ("nav".equals(name)) {
+                        navDepth++;
+                        String type = nav.attribute("type");
+                        inToc = navDepth == 1 && (type == null || type.contains("toc"));
+                    } else if (inToc && "ol".equals(name)) {
+                        listDepth++;
+                    } else if (inToc && "a".equals(name)) {
+                        String href = nav.attribute("href");
+                        String label = readText(nav);
+                        if (href != null && !label.isEmpty()) {
+                            toc.add(new String[]{label, resolve(base, href), String.valueOf(Math.max(0, listDepth - 1))});
+                        }
+                    }
+                } else if (nav.event() == XmlScanner.END_TAG) {
+                    if ("nav".equals(name)) {
+                        navDepth--;
+                        if (navDepth == 0 && inToc) {
+                            return;
+                        }
+                    } else if (inToc && "ol".equals(name)) {
+                        listDepth--;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void readNcx(ZipFile zip, String ncxPath, List<String[]> toc) throws IOException {
+        if (zip.getEntry(ncxPath) == null) {
+            return;
+        }
+        String base = directoryOf(ncxPath);
+        try (XmlScanner ncx = new XmlScanner(reader(zip, ncxPath))) {
+            int depth = 0;
+            String label = null;
+            while (ncx.next() != XmlScanner.END_DOCUMENT) {
+                String name = ncx.name();
+                if (ncx.event() == XmlScanner.START_TAG) {
+                    if ("navpoint".equals(name)) {
+                        depth++;
+                        label = null;
+                    } else if ("text".equals(name) && depth > 0 && label == null) {
+                        label = readText(ncx);
+                    } else if ("content".equals(name) && depth > 0) {
+                        String src = ncx.attribute("src");
+                        if (src != null && label != null && !label.isEmpty()) {
+                            toc.add(new String[]{label, resolve(base, src), String.valueOf(depth - 1)});
+                        }
+                    }
+                } else if (ncx.event() == XmlScanner.END_TAG && "navpoint".equals(name)) {
+                    depth--;
+                }
+            }
+        }
+    }
+
+    // Text content up to the end of the element just started, whitespace collapsed.
+    private static String readText(XmlScanner scanner) throws IOException {
+        String element = scanner.name();
+        StringBuilder result = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = scanner.next();
+            if (event == XmlScanner.END_DOCUMENT) {
+                break;
+            }
+            if (event == XmlScanner.TEXT) {
+                result.append(scanner.text());
+            } else if (event == XmlScanner.START_TAG && element.equals(scanner.name())) {
+                depth++;
+            } else if (event == XmlScanner.END_TAG && element.equals(scanner.name())) {
+                depth--;
+            }
+        }
+        return result.toString().replaceAll("[\\s\\u00a0]+", " ").trim();
+    }
+
+    private static InputStreamReader reader(ZipFile zip, String path) throws IOException {
+        ZipEntry entry = zip.getEntry(path);
+        if (entry == null) {
+            throw new IOException("Missing " + path);
+        }
+        InputStream input = zip.getInputStream(entry);
+        return new InputStreamReader(input, StandardCharsets.UTF_8);
+    }
+
+    private static String directoryOf(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(0, slash + 1) : "";
+    }
+
+    // Resolves an href against the directory of the document it appears in, keeping any fragment.
+    static String resolve(String base, String href) {
+        String fragment = "";
+        int hash = href.indexOf('#');
+        if (hash >= 0) {
+            fragment = href.substring(hash);
+            href = href.substring(0, hash);
+        }
+        try {
+            href = URLDecoder.decode(href.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException ignored) {
+            // keep the href as written
+        }
+        if (href.isEmpty()) {
+            return fragment;
+        }
+        ArrayDeque<String> parts = new ArrayDeque<>();
+        String combined = href.startsWith("/") ? href.substring(1) : base + href;
+        for (String part : combined.split("/")) {
+            if (part.isEmpty() || ".".equals(part)) {
+                continue;
+            }
+            if ("..".equals(part)) {
+                parts.pollLast();
+            } else {
+                parts.addLast(part);
+            }
+        }
+        return String.join("/", parts) + fragment;
+    }
+}
@@ -0,0 +1,269 @@
+package com.subtit.player.core;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.Executor;
+
+// Reads an EpubBook aloud through a Speaker, keeping only lookAhead blocks queued in the engine. Each
+// finished utterance pulls the next block from the open chapter stream, moving on to the next linear
+// spine item at the end of a chapter. State is confined to the executor; utterance callbacks may
+// arrive on any thread.
+public final class EpubNarrator {
+    public static final String STATE_PLAYING = "playing";
+    public static final String STATE_STOPPED = "stopped";
+    public static final String STATE_FINISHED = "finished";
+    public static final String STATE_ERROR = "error";
+    public static final int DEFAULT_LOOK_AHEAD = 3;
+    // Ids of utterances dropped by an earlier run whose callbacks may still be in flight.
+    private static final int MAX_RETIRED_IDS = 64;
+
+    public interface Speaker {
+        // Returns the utterance id that later arrives in onUtteranceStart/Done/Error.
+        String speak(String text, boolean flush);
+
+        void stop();
+    }
+
+    public interface Listener {
+        // The block has started playing.
+        void onBlock(EpubBook.Block block, String utteranceId);
+
+        void onState(String state, EpubBook.Block position, String message);
+    }
+
+    private static final class Queued {
+        final EpubBook.Block block;
+        final String utteranceId;
+
+        Queued(EpubBook.Block block, String utteranceId) {
+            this.block = block;
+            this.utteranceId = utteranceId;
+        }
+    }
+
+    private final EpubBook book;
+    private final Speaker speaker;
+    private final Executor executor;
+    private final Listener listener;
+
+    private final ArrayDeque<Queued> queued = new ArrayDeque<>();
+    private final LinkedHashSet<String> retired = new LinkedHashSet<>();
+    private EpubBook.TextStream stream;
+    private int chapter;
+    private int lookAhead = DEFAULT_LOOK_AHEAD;
+    private boolean active;
+    private boolean flushNext;
+    private volatile EpubBook.Block current;
+    private volatile String state = STATE_STOPPED;
+
+    public EpubNarrator(EpubBook book, Speaker speaker, Executor executor, Listener listener) {
+        this.book = book;
+        this.speaker = speaker;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    public String state() {
+        return state;
+    }
+
+    // The block playing now, or the last one played.
+    public EpubBook.Block position() {
+        return current;
+    }
+
+    // Starts at the element with the given id when anchor is set, else at the block index.
+    public void play(final int chapterIndex, final String anchor, final int blockIndex, final int lookAheadBlocks) {
+        executor.execute(() -> start(chapterIndex, anchor, blockIndex, lookAheadBlocks));
+    }
+
+    public void stop() {
+        executor.execute(() -> {
+            if (active) {
+                end(STATE_STOPPED, null);
+                speaker.stop();
+            }
+        });
+    }
+
+    public void close() {
+        executor.execute(() -> {
+            if (active) {
+                end(STATE_STOPPED, null);
+                speaker.stop();
+            }
+            closeStream();
+        });
+    }
+
+    public void onUtteranceStart(final String utteranceId) {
+        executor.execute(() -> {
+            if (!active || retired.contains(utteranceId)) {
+                return;
+            }
+            Queued entry = find(utteranceId);
+            if (entry == null) {
+                // Something else took over the engine and flushed our queue.
+                end(STATE_STOPPED, "Interrupted by other speech");
+                return;
+            }
+            current = entry.block;
+            listener.onBlock(entry.block, utteranceId);
+        });
+    }
+
+    public void onUtteranceDone(final String utteranceId) {
+        executor.execute(() -> {
+            retired.remove(utteranceId);
+            if (!active || find(utteranceId) == null) {
+                return;
+            }
+            // Engines report in order, so anything queued before this utterance is done too.
+            while (!queued.isEmpty()) {
+                if (queued.poll().utteranceId.equals(utteranceId)) {
+                    break;
+                }
+            }
+            fill();
+        });
+    }
+
+    public void onUtteranceError(final String utteranceId) {
+        executor.execute(() -> {
+            retired.remove(utteranceId);
+            if (active && find(utteranceId) != null) {
+                end(STATE_ERROR, "Utterance failed");
+                speaker.stop();
+            }
+        });
+    }
+
+    // Speech was stopped from outside, e.g. through the TTS plugin's stop.
+    public void onSpeechStopped() {
+        executor.execute(() -> {
+            if (active) {
+                end(STATE_STOPPED, null);
+            }
+        });
+    }
+
+    private void start(int chapterIndex, String anchor, int blockIndex, int lookAheadBlocks) {
+        closeStream();
+        retire();
+        active = true;
+        flushNext = true;
+        lookAhead = Math.max(1, lookAheadBlocks);
+        try {
+            chapter = chapterIndex;
+            stream = book.openChapter(chapterIndex);
+            if (anchor != null && !anchor.isEmpty()) {
+                if (!stream.skipTo(anchor)) {
+                    closeStream();
+                    throw new IllegalArgumentException("Anchor " + anchor + " not found in chapter " + chapterIndex);
+                }
+            } else {
+                int skipped = 0;
+                while (skipped < blockIndex && stream.next() != null) {
+                    skipped++;
+                }
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            end(STATE_ERROR, ex.getMessage());
+            return;
+        }
+        state = STATE_PLAYING;
+        listener.onState(STATE_PLAYING, current, null);
+        fill();
+    }
+
+    private void fill() {
+        try {
+            while (active && queued.size() < lookAhead) {
+                EpubBook.Block block = nextBlock();
+                if (block == null) {
+                    break;
+                }
+                String utteranceId = speaker.speak(block.text, flushNext);
+                flushNext = false;
+                queued.add(new Queued(block, utteranceId));
+            }
+        } catch (IOException | IllegalArgumentException | IllegalStateException ex) {
+            end(STATE_ERROR, ex.getMessage());
+            speaker.stop();
+            return;
+        }
+        if (active && queued.isEmpty()) {
+            end(STATE_FINISHED, null);
+        }
+    }
+
+    // Continues into the next linear chapter at the end of the current one; null at the end of the book.
+    private EpubBook.Block nextBlock() throws IOException {
+        while (stream != null) {
+            EpubBook.Block block = stream.next();
+            if (block != null) {
+                return block;
+            }
+            closeStream();
+            int next = chapter + 1;
+            while (next < book.chapters().size() && !book.chapters().get(next).linear) {
+                next++;
+            }
+            if (next >= book.chapters().size()) {
+                return null;
+            }
+            chapter = next;
+            stream = book.openChapter(next);
+        }
+        return null;
+    }
+
+    private Queued find(String utteranceId) {
+        if (utteranceId == null) {
+            return null;
+        }
+        Iterator<Queued> iterator = queued.iterator();
+        while (iterator.hasNext()) {
+            Queued entry = iterator.next();
+            if (entry.utteranceId.equals(utteranceId)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void end(String finalState, String message) {
+        active = false;
+        retire();
+        closeStream();
+        state = finalState;
+        listener.onState(finalState, current, message);
+    }
+
+    // A late onStart from a previous run must not read as another app taking over the engine.
+    private void retire() {
+        for (Queued entry : queued) {
+            retired.add(entry.utteranceId);
+        }
+        queued.clear();
+        Iterator<String> oldest = retired.iterator();
+        while (retired.size() > MAX_RETIRED_IDS) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    private void closeStream() {
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // nothing to recover
+        }
+        stream = null;
+    }
+}
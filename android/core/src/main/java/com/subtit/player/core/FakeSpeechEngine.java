@@ -0,0 +1,426 @@
+package com.subtit.player.core;
+
+import java.io.File;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Deterministic stand-in for a TextToSpeech engine. Timing follows a fixed model (init delay, start
+// latency, characters per second scaled by rate) and synthesized files are real 16-bit mono WAVs
+// whose header, as with the platform engines, is only finalized once the utterance completes.
+public final class FakeSpeechEngine implements SpeechEngine {
+    public static final String ENGINE_NAME = "com.subtit.player.fake";
+    // The default Linux pipe capacity.
+    private static final int PIPE_BUFFER_BYTES = 64 * 1024;
+
+    public static final class Config {
+        public long initDelayMs = 300;
+        public boolean initSucceeds = true;
+        public long startLatencyMs = 40;
+        // Speaking speed at rate 1.0.
+        public double charsPerSecond = 15;
+        // Offline synthesis runs faster than real time.
+        public double synthesisCharsPerSecond = 600;
+        // Multiplies every delay; 0 runs the model without sleeping.
+        public double timeScale = 1.0;
+        public int sampleRate = 22050;
+        public int maxSpeechInputLength = 4000;
+        // Silence written before and after synthesized speech, as platform engines do.
+        public int paddingMs = 0;
+        // Stream synthesis goes through a pipe with its own reader thread, like the platform engine.
+        public boolean streamSynthesis = true;
+        // Utterances whose text contains this marker fail after onStart.
+        public String failMarker = "[[fail]]";
+        // Every n-th queued utterance fails; 0 disables.
+        public int failEvery = 0;
+        public List<Voice> voices = Arrays.asList(
+                new Voice("fake-en-us-1", "en-US", 400, 200, false),
+                new Voice("fake-en-gb-1", "en-GB", 300, 300, false),
+                new Voice("fake-de-de-1", "de-DE", 400, 200, true));
+    }
+
+    public static Factory factory(final Config config) {
+        return (engineId, callback) -> new FakeSpeechEngine(config, callback);
+    }
+
+    private static final class Utterance {
+        final String id;
+        final String text;
+        final File file;
+        final PcmStream stream;
+        final float rate;
+        final float pitch;
+        final boolean fail;
+
+        Utterance(String id, String text, File file, PcmStream stream, float rate, float pitch, boolean fail) {
+            this.id = id;
+            this.text = text;
+            this.file = file;
+            this.stream = stream;
+            this.rate = rate;
+            this.pitch = pitch;
+            this.fail = fail;
+        }
+    }
+
+    private final Config config;
+    private final Callback callback;
+    private final ArrayDeque<Utterance> queue = new ArrayDeque<>();
+    // Flushed utterances, as {id, interrupted}, reported by the worker like the platform's onStop.
+    private final List<Object[]> stopped = new ArrayList<>();
+    private final Thread worker;
+    private Utterance current;
+    private long epoch = 0;
+    private long queued = 0;
+    private boolean initialized = false;
+    private boolean shutDown = false;
+    private volatile float rate = 1f;
+    private volatile float pitch = 1f;
+    private volatile String voice;
+
+    public FakeSpeechEngine(Config config, Callback callback) {
+        this.config = config;
+        this.callback = callback;
+        this.voice = config.voices.isEmpty() ? null : config.voices.get(0).name;
+        this.worker = new Thread(this::run, "FakeSpeechEngine");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public int speak(String text, int queueMode, String utteranceId) {
+        return enqueue(text, null, null, queueMode, utteranceId);
+    }
+
+    @Override
+    public int synthesizeToFile(String text, File file, String utteranceId) {
+        return enqueue(text, file, null, QUEUE_ADD, utteranceId);
+    }
+
+    @Override
+    public boolean supportsStreamSynthesis() {
+        return config.streamSynthesis;
+    }
+
+    @Override
+    public int synthesizeToStream(String text, PcmStream sink, String utteranceId) {
+        if (!config.streamSynthesis) {
+            return ERROR;
+        }
+        return enqueue(text, null, sink, QUEUE_ADD, utteranceId);
+    }
+
+    private synchronized int enqueue(String text, File file, PcmStream stream, int queueMode, String utteranceId) {
+        if (!initialized || shutDown || text == null || text.length() > config.maxSpeechInputLength) {
+            return ERROR;
+        }
+        if (queueMode == QUEUE_FLUSH) {
+            flushLocked();
+        }
+        queued++;
+        boolean fail = (config.failMarker != null && text.contains(config.failMarker))
+                || (config.failEvery > 0 && queued % config.failEvery == 0);
+        queue.add(new Utterance(utteranceId, text, file, stream, rate, pitch, fail));
+        notifyAll();
+        return SUCCESS;
+    }
+
+    @Override
+    public synchronized boolean isSpeaking() {
+        return current != null || !queue.isEmpty();
+    }
+
+    @Override
+    public synchronized void stop() {
+        flushLocked();
+    }
+
+    private void flushLocked() {
+        if (current != null) {
+            stopped.add(new Object[]{current.id, true});
+        }
+        for (Utterance pending : queue) {
+            stopped.add(new Object[]{pending.id, false});
+        }
+        queue.clear();
+        // The running utterance notices the new epoch at its next step and ends without onDone or onError;
+        // the worker reports it through onStop instead.
+        epoch++;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutDown = true;
+        flushLocked();
+    }
+
+    @Override
+    public void setSpeechRate(float rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public void setPitch(float pitch) {
+        this.pitch = pitch;
+    }
+
+    @Override
+    public List<Voice> getVoices() {
+        return Collections.unmodifiableList(config.voices);
+    }
+
+    @Override
+    public boolean setVoice(String name) {
+        for (Voice candidate : config.voices) {
+            if (candidate.name.equalsIgnoreCase(name)) {
+                voice = candidate.name;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<EngineInfo> getEngines() {
+        return Collections.singletonList(new EngineInfo(ENGINE_NAME, "Fake TTS"));
+    }
+
+    @Override
+    public String getDefaultEngine() {
+        return ENGINE_NAME;
+    }
+
+    @Override
+    public String getCurrentEngine() {
+        return ENGINE_NAME;
+    }
+
+    @Override
+    public List<String> getAvailableLanguages() {
+        List<String> languages = new ArrayList<>();
+        for (Voice candidate : config.voices) {
+            if (!languages.contains(candidate.locale)) {
+                languages.add(candidate.locale);
+            }
+        }
+        return languages;
+    }
+
+    @Override
+    public String getLanguage() {
+        String name = voice;
+        for (Voice candidate : config.voices) {
+            if (candidate.name.equals(name)) {
+                return candidate.locale;
+            }
+        }
+        return Locale.US.toLanguageTag();
+    }
+
+    @Override
+    public int getMaxSpeechInputLength() {
+        return config.maxSpeechInputLength;
+    }
+
+    private void run() {
+        boolean initOk = sleep(config.initDelayMs, -1) && config.initSucceeds;
+        synchronized (this) {
+            if (shutDown) {
+                return;
+            }
+            initialized = initOk;
+        }
+        callback.onInit(initOk);
+        while (true) {
+            Utterance next;
+            long startEpoch;
+            List<Object[]> stops;
+            synchronized (this) {
+                current = null;
+                while (queue.isEmpty() && stopped.isEmpty() && !shutDown) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (shutDown) {
+                    return;
+                }
+                stops = new ArrayList<>(stopped);
+                stopped.clear();
+                next = queue.poll();
+                current = next;
+                startEpoch = epoch;
+            }
+            for (Object[] stop : stops) {
+                callback.onStop((String) stop[0], (Boolean) stop[1]);
+            }
+            if (next != null) {
+                process(next, startEpoch);
+            }
+        }
+    }
+
+    private void process(Utterance utterance, long startEpoch) {
+        if (!sleep(config.startLatencyMs, startEpoch)) {
+            return;
+        }
+        callback.onStart(utterance.id);
+        if (utterance.fail) {
+            callback.onError(utterance.id, ERROR_SYNTHESIS);
+            return;
+        }
+        if (utterance.file != null) {
+            synthesize(utterance, startEpoch);
+            return;
+        }
+        if (utterance.stream != null) {
+            synthesizeToPipe(utterance, startEpoch);
+            return;
+        }
+        double charsPerMs = config.charsPerSecond * Math.max(0.1f, utterance.rate) / 1000.0;
+        for (int[] word : words(utterance.text)) {
+            callback.onRangeStart(utterance.id, word[0], word[1]);
+            if (!sleep(Math.round((word[1] - word[0] + 1) / charsPerMs), startEpoch)) {
+                return;
+            }
+        }
+        callback.onDone(utterance.id);
+    }
+
+    private void synthesize(Utterance utterance, long startEpoch) {
+        int sampleRate = config.sampleRate;
+        try (RandomAccessFile out = new RandomAccessFile(utterance.file, "rw")) {
+            out.setLength(0);
+            // Placeholder size, patched on completion like a streaming engine.
+            out.write(WavHeader.canonical(WavHeader.FORMAT_PCM, 1, sampleRate, 16, 0));
+            long dataLength = writeSpeech(utterance, startEpoch, out);
+            if (dataLength < 0) {
+                return;
+            }
+            out.seek(0);
+            out.write(WavHeader.canonical(WavHeader.FORMAT_PCM, 1, sampleRate, 16, dataLength));
+        } catch (IOException e) {
+            callback.onError(utterance.id, ERROR_OUTPUT);
+            return;
+        }
+        callback.onDone(utterance.id);
+    }
+
+    // A pipe cannot be seeked back into, so the header keeps its placeholder length.
+    private void synthesizeToPipe(Utterance utterance, long startEpoch) {
+        PipedInputStream input = new PipedInputStream(PIPE_BUFFER_BYTES);
+        long dataLength;
+        try (DataOutputStream out = new DataOutputStream(new PipedOutputStream(input))) {
+            Thread reader = new Thread(() -> {
+                try (PipedInputStream in = input) {
+                    utterance.stream.pump(in);
+                } catch (IOException ignored) {
+                    // pump has already failed the stream
+                }
+            }, "FakeSpeechEngine-pipe");
+            reader.setDaemon(true);
+            reader.start();
+            out.write(WavHeader.canonical(WavHeader.FORMAT_PCM, 1, config.sampleRate, 16, 0));
+            // A flush closes the pipe early; the reader learns of it through onStop.
+            dataLength = writeSpeech(utterance, startEpoch, out);
+        } catch (IOException e) {
+            callback.onError(utterance.id, ERROR_OUTPUT);
+            return;
+        }
+        if (dataLength >= 0) {
+            callback.onDone(utterance.id);
+        }
+    }
+
+    // Writes padding, one tone per word and padding again. Returns the bytes written, or -1 if the
+    // engine was flushed part way.
+    private long writeSpeech(Utterance utterance, long startEpoch, DataOutput out) throws IOException {
+        int sampleRate = config.sampleRate;
+        double speakingCharsPerSecond = config.charsPerSecond * Math.max(0.1f, utterance.rate);
+        byte[] padding = new byte[sampleRate * config.paddingMs / 1000 * 2];
+        out.write(padding);
+        long dataLength = padding.length;
+        int wordIndex = 0;
+        for (int[] word : words(utterance.text)) {
+            callback.onRangeStart(utterance.id, word[0], word[1]);
+            int characters = word[1] - word[0] + 1;
+            int frames = (int) Math.round(characters / speakingCharsPerSecond * sampleRate);
+            byte[] pcm = tone(frames, sampleRate, 140.0 * utterance.pitch + (wordIndex % 5) * 12.0);
+            out.write(pcm);
+            dataLength += pcm.length;
+            wordIndex++;
+            if (!sleep(Math.round(characters * 1000.0 / config.synthesisCharsPerSecond), startEpoch)) {
+                return -1;
+            }
+        }
+        out.write(padding);
+        return dataLength + padding.length;
+    }
+
+    // [start, end) offsets of each whitespace-separated word; speaking time counts one extra character per word for the gap.
+    static List<int[]> words(String text) {
+        List<int[]> words = new ArrayList<>();
+        int length = text.length();
+        int position = 0;
+        while (position < length) {
+            while (position < length && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            if (position >= length) {
+                break;
+            }
+            int start = position;
+            while (position < length && !Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            words.add(new int[]{start, position});
+        }
+        return words;
+    }
+
+    // A word-length tone with 5 ms fades followed by a short gap, so the output has speech-like bursts.
+    private static byte[] tone(int frames, int sampleRate, double frequency) {
+        int gap = sampleRate / 20;
+        int fade = Math.max(1, sampleRate / 200);
+        byte[] pcm = new byte[(frames + gap) * 2];
+        for (int i = 0; i < frames; i++) {
+            double envelope = Math.min(1.0, Math.min(i, frames - 1 - i) / (double) fade);
+            Pcm16.putSample(pcm, i * 2, (int) (Math.sin(2 * Math.PI * frequency * i / sampleRate) * 8000 * envelope));
+        }
+        return pcm;
+    }
+
+    // Sleeps for the scaled delay; returns false if the engine was flushed in the meantime.
+    private boolean sleep(long delayMs, long startEpoch) {
+        long scaled = Math.round(delayMs * config.timeScale);
+        long deadline = System.currentTimeMillis() + scaled;
+        synchronized (this) {
+            while (true) {
+                if (shutDown || (startEpoch >= 0 && epoch != startEpoch)) {
+                    return false;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return true;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+        }
+    }
+}
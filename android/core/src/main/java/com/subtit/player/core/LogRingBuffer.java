@@ -0,0 +1,72 @@
+package com.subtit.player.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class LogRingBuffer {
+    private final String[] items;
+    private int head = 0;
+    private int size = 0;
+    private long dropped = 0;
+
+    public LogRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.items = new String[capacity];
+    }
+
+    public synchronized void add(String message) {
+        int tail = (head + size) % items.length;
+        items[tail] = message;
+        if (size < items.length) {
+            size++;
+        } else {
+            head = (head + 1) % items.length;
+            dropped++;
+        }
+    }
+
+    // Oldest first.
+    public synchronized List<String> snapshot() {
+        List<String> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(items[(head + i) % items.length]);
+        }
+        return result;
+    }
+
+    // Drops the oldest entries so that at most keep remain; returns how many were removed.
+    public synchronized int trimTo(int keep) {
+        int excess = size - Math.max(0, keep);
+        if (excess <= 0) {
+            return 0;
+        }
+        for (int i = 0; i < excess; i++) {
+            items[(head + i) % items.length] = null;
+        }
+        head = (head + excess) % items.length;
+        size -= excess;
+        return excess;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < items.length; i++) {
+            items[i] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+}
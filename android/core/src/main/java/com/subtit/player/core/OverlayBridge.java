@@ -0,0 +1,315 @@
+package com.subtit.player.core;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Protocol half of the overlay page bridge: parses page messages, runs requests on the bounded queue
+// and writes responses and events as dispatch scripts. WebView and plugin specifics live behind Page
+// and Host so the whole path can be driven on the JVM.
+public final class OverlayBridge<P extends OverlayBridge.Page> {
+    public static final String DISPATCH_PREFIX = "window.__nativeOverlayDispatch && window.__nativeOverlayDispatch(";
+    public static final String DISPATCH_SUFFIX = ");";
+    public static final long DEFAULT_REQUEST_TIMEOUT_MS = 15_000L;
+    public static final long MAX_REQUEST_TIMEOUT_MS = 120_000L;
+    public static final int MAX_BATCH_CALLS = 16;
+
+    public interface Page {
+        String id();
+
+        boolean isDestroyed();
+
+        // Called from any thread; implementations hop to the UI thread before evaluating.
+        void evaluate(String script);
+    }
+
+    public interface Host<P extends Page> {
+        boolean supportsPlugin(String plugin);
+
+        // Runs on a request queue call thread and is interrupted once the request passes its deadline.
+        // Call failures are IllegalArgumentException or IllegalStateException; any other runtime
+        // exception is reported to the page as an internal error.
+        JSONObject invoke(P page, String plugin, String method, JSONObject params);
+
+        void addListener(P page, String plugin, String event, String listenerId);
+
+        void removeListener(P page, String listenerId);
+
+        void debug(String message);
+    }
+
+    private final BridgeRequestQueue queue;
+    private final Host<P> host;
+
+    public OverlayBridge(BridgeRequestQueue queue, Host<P> host) {
+        this.queue = queue;
+        this.host = host;
+    }
+
+    public BridgeRequestQueue queue() {
+        return queue;
+    }
+
+    public void handleMessage(P page, String rawMessage) {
+        if (rawMessage == null || rawMessage.trim().isEmpty()) {
+            return;
+        }
+        try {
+            BridgeJsonReader.Message payload = BridgeJsonReader.readMessage(rawMessage);
+            String type = payload.type;
+            host.debug("[Bridge] message type=" + type + " plugin=" + payload.plugin + " method=" + payload.method);
+            switch (type) {
+                case "request":
+                    handleRequest(page, payload);
+                    break;
+                case "addListener":
+                    handleAddListener(page, payload);
+                    break;
+                case "removeListener":
+                    handleRemoveListener(page, payload);
+                    break;
+                case "batch":
+                    handleBatch(page, payload);
+                    break;
+                case "cancel":
+                    handleCancel(page, payload);
+                    break;
+                default:
+                    host.debug("Unknown bridge message type=" + type);
+            }
+        } catch (JSONException ex) {
+            host.debug("Bridge message parse error: " + ex.getMessage());
+        }
+    }
+
+    private void handleRequest(P page, BridgeJsonReader.Message payload) {
+        String requestId = payload.id;
+        String plugin = payload.plugin;
+        String method = payload.method;
+        host.debug("[Bridge] request id=" + requestId + " plugin=" + plugin + " method=" + method);
+        if (plugin.isEmpty()) {
+            sendError(page, requestId, "Plugin not specified");
+            return;
+        }
+        if (method.isEmpty()) {
+            sendError(page, requestId, "Method not specified");
+            return;
+        }
+        if (!host.supportsPlugin(plugin)) {
+            sendError(page, requestId, "Unsupported plugin " + plugin);
+            return;
+        }
+        AtomicBoolean answered = new AtomicBoolean();
+        submit(page, requestId, payload, answered, () -> runRequest(page, requestId, plugin, method, payload, answered));
+    }
+
+    private void handleBatch(P page, BridgeJsonReader.Message payload) {
+        String requestId = payload.id;
+        List<BridgeJsonReader.Message> calls = payload.calls;
+        if (calls == null || calls.isEmpty()) {
+            sendError(page, requestId, "Batch calls not specified");
+            return;
+        }
+        if (calls.size() > MAX_BATCH_CALLS) {
+            sendError(page, requestId, "Batch exceeds " + MAX_BATCH_CALLS + " calls");
+            return;
+        }
+        AtomicBoolean answered = new AtomicBoolean();
+        submit(page, requestId, payload, answered, () -> runBatch(page, requestId, calls, answered));
+    }
+
+    // answered makes sure a request gets one response: a call interrupted by its deadline may still
+    // finish afterwards, and its late result must not follow the timeout error.
+    private void submit(P page, String requestId, BridgeJsonReader.Message payload, AtomicBoolean answered,
+                        Runnable work) {
+        long timeoutMs = payload.timeoutMs;
+        if (timeoutMs <= 0 || timeoutMs > MAX_REQUEST_TIMEOUT_MS) {
+            timeoutMs = DEFAULT_REQUEST_TIMEOUT_MS;
+        }
+        queue.submit(queueKey(page, requestId), timeoutMs, work,
+                (key, reason) -> {
+                    host.debug("[Bridge] request id=" + requestId + " rejected: " + reason
+                            + " inFlight=" + queue.inFlight() + " queued=" + queue.queued());
+                    if (answered.compareAndSet(false, true)) {
+                        sendError(page, requestId, reason);
+                    }
+                });
+    }
+
+    private void handleCancel(P page, BridgeJsonReader.Message payload) {
+        String requestId = payload.id;
+        if (requestId.isEmpty()) {
+            return;
+        }
+        boolean cancelled = queue.cancel(queueKey(page, requestId));
+        host.debug("[Bridge] cancel id=" + requestId + " dropped=" + cancelled);
+    }
+
+    private static String queueKey(Page page, String requestId) {
+        return requestId.isEmpty() ? "" : page.id() + ":" + requestId;
+    }
+
+    private void handleAddListener(P page, BridgeJsonReader.Message payload) {
+        String plugin = payload.plugin;
+        String event = payload.event;
+        String listenerId = payload.listenerId;
+        host.debug("[Bridge] addListener plugin=" + plugin + " event=" + event + " id=" + listenerId);
+        if (plugin.isEmpty() || event.isEmpty() || listenerId.isEmpty()) {
+            host.debug("Invalid listener payload plugin=" + plugin + " event=" + event + " id=" + listenerId);
+            return;
+        }
+        if (!host.supportsPlugin(plugin)) {
+            host.debug("Unsupported listener plugin=" + plugin);
+            return;
+        }
+        host.addListener(page, plugin, event, listenerId);
+    }
+
+    private void handleRemoveListener(P page, BridgeJsonReader.Message payload) {
+        String listenerId = payload.listenerId;
+        if (listenerId.isEmpty()) {
+            return;
+        }
+        host.debug("[Bridge] removeListener id=" + listenerId);
+        host.removeListener(page, listenerId);
+    }
+
+    private void runRequest(P page, String requestId, String plugin, String method, BridgeJsonReader.Message payload,
+                            AtomicBoolean answered) {
+        host.debug("[Bridge] call plugin=" + plugin + " method=" + method + " id=" + requestId);
+        JSONObject result;
+        try {
+            result = host.invoke(page, plugin, method, payload.params());
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            if (answered.compareAndSet(false, true)) {
+                sendError(page, requestId, ex.getMessage());
+            }
+            return;
+        } catch (JSONException ex) {
+            if (answered.compareAndSet(false, true)) {
+                sendError(page, requestId, "Invalid params: " + ex.getMessage());
+            }
+            return;
+        } catch (RuntimeException ex) {
+            host.debug("[Bridge] call id=" + requestId + " crashed: " + ex);
+            if (answered.compareAndSet(false, true)) {
+                sendError(page, requestId, internalError(ex));
+            }
+            return;
+        }
+        if (answered.compareAndSet(false, true)) {
+            sendSuccess(page, requestId, result);
+        }
+    }
+
+    private void runBatch(P page, String requestId, List<BridgeJsonReader.Message> calls, AtomicBoolean answered) {
+        host.debug("[Bridge] batch id=" + requestId + " calls=" + calls.size());
+        // Every call runs before the response is written: a call may dispatch events itself, which
+        // reuses this thread's writer.
+        JSONObject[] results = new JSONObject[calls.size()];
+        String[] errors = new String[calls.size()];
+        for (int i = 0; i < calls.size(); i++) {
+            BridgeJsonReader.Message entry = calls.get(i);
+            String plugin = entry != null ? entry.plugin : "";
+            String method = entry != null ? entry.method : "";
+            try {
+                if (!host.supportsPlugin(plugin)) {
+                    throw new IllegalArgumentException("Unsupported plugin " + plugin);
+                }
+                results[i] = host.invoke(page, plugin, method, entry.params());
+            } catch (IllegalArgumentException | IllegalStateException | JSONException ex) {
+                errors[i] = ex.getMessage() != null ? ex.getMessage() : "Unknown error";
+            } catch (RuntimeException ex) {
+                host.debug("[Bridge] batch id=" + requestId + " call " + i + " crashed: " + ex);
+                errors[i] = internalError(ex);
+            }
+        }
+        if (!answered.compareAndSet(false, true)) {
+            return;
+        }
+        BridgeJsonWriter writer = beginDispatch();
+        writer.beginObject()
+                .name("type").value("response")
+                .name("id").value(requestId)
+                .name("result").beginObject()
+                .name("results").beginArray();
+        for (int i = 0; i < results.length; i++) {
+            writer.beginObject();
+            if (errors[i] != null) {
+                writer.name("error").beginObject().name("message").value(errors[i]).endObject();
+            } else if (results[i] != null) {
+                writer.name("result").value((Object) results[i]);
+            } else {
+                writer.name("result").beginObject().endObject();
+            }
+            writer.endObject();
+        }
+        writer.endArray().endObject().endObject();
+        dispatch(page, writer, "response", requestId);
+    }
+
+    public void sendSuccess(P page, String requestId, JSONObject result) {
+        if (requestId == null || requestId.isEmpty()) {
+            return;
+        }
+        host.debug("[Bridge] sendSuccess id=" + requestId);
+        BridgeJsonWriter writer = beginDispatch();
+        writer.beginObject()
+                .name("type").value("response")
+                .name("id").value(requestId)
+                .name("result");
+        if (result != null) {
+            writer.value((Object) result);
+        } else {
+            writer.beginObject().endObject();
+        }
+        writer.endObject();
+        dispatch(page, writer, "response", requestId);
+    }
+
+    private static String internalError(RuntimeException ex) {
+        return "Internal error: " + (ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName());
+    }
+
+    public void sendError(P page, String requestId, String errorMessage) {
+        host.debug("[Bridge] sendError id=" + requestId + " message=" + errorMessage);
+        BridgeJsonWriter writer = beginDispatch();
+        writer.beginObject().name("type").value("response");
+        if (requestId != null && !requestId.isEmpty()) {
+            writer.name("id").value(requestId);
+        }
+        writer.name("error").beginObject()
+                .name("message").value(errorMessage != null ? errorMessage : "Unknown error")
+                .endObject()
+                .endObject();
+        dispatch(page, writer, "response", requestId);
+    }
+
+    public void sendEvent(P page, String pluginName, String eventName, JSONObject data) {
+        host.debug("[Bridge] sendEvent plugin=" + pluginName + " event=" + eventName);
+        BridgeJsonWriter writer = beginDispatch();
+        writer.beginObject()
+                .name("type").value("event")
+                .name("plugin").value(pluginName)
+                .name("event").value(eventName)
+                .name("data").value((Object) data)
+                .endObject();
+        dispatch(page, writer, "event", eventName);
+    }
+
+    // The message is written straight into the dispatch script so it is serialized exactly once.
+    private static BridgeJsonWriter beginDispatch() {
+        return BridgeJsonWriter.obtain().raw(DISPATCH_PREFIX);
+    }
+
+    private void dispatch(P page, BridgeJsonWriter writer, String type, String tag) {
+        String script = writer.raw(DISPATCH_SUFFIX).finish();
+        if (page.isDestroyed()) {
+            return;
+        }
+        host.debug("[Bridge] dispatchToWeb type=" + type + " tag=" + tag + " bytes=" + script.length());
+        page.evaluate(script);
+    }
+}
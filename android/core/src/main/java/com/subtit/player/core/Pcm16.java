@@ -0,0 +1,51 @@
+package com.subtit.player.core;
+
+// Helpers for interleaved signed 16-bit little-endian PCM held in byte arrays.
+public final class Pcm16 {
+    private Pcm16() {
+    }
+
+    public static short sample(byte[] data, int byteOffset) {
+        return (short) ((data[byteOffset] & 0xFF) | (data[byteOffset + 1] << 8));
+    }
+
+    public static void putSample(byte[] data, int byteOffset, int value) {
+        int clamped = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+        data[byteOffset] = (byte) clamped;
+        data[byteOffset + 1] = (byte) (clamped >> 8);
+    }
+
+    public static int toShorts(byte[] data, int byteOffset, int byteLength, short[] out, int outOffset) {
+        int count = Math.min(byteLength / 2, out.length - outOffset);
+        for (int i = 0; i < count; i++) {
+            out[outOffset + i] = sample(data, byteOffset + i * 2);
+        }
+        return count;
+    }
+
+    public static void fromShorts(short[] samples, int offset, int count, byte[] out, int byteOffset) {
+        for (int i = 0; i < count; i++) {
+            short value = samples[offset + i];
+            out[byteOffset + i * 2] = (byte) value;
+            out[byteOffset + i * 2 + 1] = (byte) (value >> 8);
+        }
+    }
+
+    // Mean square over all channels of frameCount frames, in full-scale units squared (0..1).
+    public static double meanSquare(byte[] data, int byteOffset, int frameCount, int channels) {
+        int samples = frameCount * channels;
+        if (samples <= 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < samples; i++) {
+            int value = sample(data, byteOffset + i * 2);
+            sum += (long) value * value;
+        }
+        return sum / (samples * 32768d * 32768d);
+    }
+
+    public static double toDecibels(double meanSquare) {
+        return meanSquare <= 0 ? Double.NEGATIVE_INFINITY : 10 * Math.log10(meanSquare);
+    }
+}
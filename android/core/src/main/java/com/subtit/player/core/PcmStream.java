@@ -0,0 +1,217 @@
+package com.subtit.player.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+// Synthesized PCM on its way from the engine to a consumer, held in a bounded ring buffer instead of a
+// file. The engine side pumps a WAV byte stream in and blocks while the buffer is full, so a slow
+// consumer throttles synthesis rather than growing memory. One writer and one reader thread. The end
+// of the engine's output alone does not complete the stream: a flushed or failed engine closes its
+// output too, so readers see the end only once finish() confirms the utterance completed.
+public final class PcmStream {
+    // About six seconds of 22 kHz mono speech.
+    public static final int DEFAULT_CAPACITY_BYTES = 256 * 1024;
+    // Bounds what a caller can make one stream allocate; about 24 s of 22 kHz mono speech.
+    public static final int MAX_CAPACITY_BYTES = 1024 * 1024;
+    private static final int PUMP_BUFFER_BYTES = 16 * 1024;
+
+    private final String id;
+    private final byte[] ring;
+    private int head;
+    private int count;
+    private long bytesWritten;
+    private WavHeader format;
+    private boolean inputEnded;
+    private boolean finished;
+    private boolean cancelled;
+    private String failure;
+
+    public PcmStream(String id, int capacityBytes) {
+        if (capacityBytes < 1024) {
+            throw new IllegalArgumentException("Capacity too small: " + capacityBytes);
+        }
+        if (capacityBytes > MAX_CAPACITY_BYTES) {
+            throw new IllegalArgumentException("Capacity too large: " + capacityBytes);
+        }
+        this.id = id;
+        this.ring = new byte[capacityBytes];
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    public synchronized long bytesWritten() {
+        return bytesWritten;
+    }
+
+    public synchronized int buffered() {
+        return count;
+    }
+
+    // For engines that report the format out of band; a header in the stream itself wins.
+    public synchronized void setFormat(int sampleRate, int channels, int bitsPerSample) {
+        if (format == null) {
+            format = new WavHeader(WavHeader.FORMAT_PCM, channels, sampleRate, bitsPerSample, 0, 0);
+            notifyAll();
+        }
+    }
+
+    // Blocks until the format is known. The length is not known up front, so dataLength means nothing.
+    public synchronized WavHeader awaitFormat(long timeoutMs) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (format == null) {
+            if (failure != null) {
+                throw new IOException(failure);
+            }
+            if (isComplete() || cancelled) {
+                throw new IOException("Stream ended before its format was known");
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new IOException("Timed out waiting for synthesis to start");
+            }
+            wait(remaining);
+        }
+        return format;
+    }
+
+    // Reads the engine's WAV output until end of stream. Platform engines write a canonical header,
+    // possibly still zeroed because it is only patched once synthesis ends; it is used when valid.
+    public void pump(InputStream input) throws IOException {
+        try {
+            byte[] buffer = new byte[PUMP_BUFFER_BYTES];
+            int header = readFully(input, buffer, WavHeader.CANONICAL_SIZE);
+            if (header == WavHeader.CANONICAL_SIZE) {
+                WavHeader parsed = WavHeader.parseCanonical(buffer);
+                if (parsed != null) {
+                    synchronized (this) {
+                        format = parsed;
+                        notifyAll();
+                    }
+                }
+            }
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                write(buffer, 0, read);
+            }
+            endInput();
+        } catch (IOException ex) {
+            fail(ex.getMessage() != null ? ex.getMessage() : "Synthesis stream failed");
+            throw ex;
+        }
+    }
+
+    public void write(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            synchronized (this) {
+                while (count == ring.length && !cancelled && failure == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted");
+                    }
+                }
+                if (cancelled) {
+                    throw new IOException("Stream cancelled");
+                }
+                if (failure != null) {
+                    throw new IOException(failure);
+                }
+                int tail = (head + count) % ring.length;
+                int chunk = Math.min(length, Math.min(ring.length - count, ring.length - tail));
+                System.arraycopy(data, offset, ring, tail, chunk);
+                count += chunk;
+                bytesWritten += chunk;
+                offset += chunk;
+                length -= chunk;
+                notifyAll();
+            }
+        }
+    }
+
+    // Reads whole frames, waiting up to timeoutMs for at least one. Returns the bytes read, 0 on
+    // timeout, or -1 once the stream is complete and drained. A trailing partial frame is dropped.
+    public synchronized int read(byte[] out, int offset, int length, long timeoutMs)
+            throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (format == null || count < format.frameSize()) {
+            if (failure != null) {
+                throw new IOException(failure);
+            }
+            if (isComplete() || cancelled) {
+                return -1;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return 0;
+            }
+            wait(remaining);
+        }
+        int frameSize = format.frameSize();
+        int wanted = Math.min(length, count) / frameSize * frameSize;
+        int done = 0;
+        while (done < wanted) {
+            int chunk = Math.min(wanted - done, ring.length - head);
+            System.arraycopy(ring, head, out, offset + done, chunk);
+            head = (head + chunk) % ring.length;
+            count -= chunk;
+            done += chunk;
+        }
+        notifyAll();
+        return done;
+    }
+
+    // The writer has nothing more to add.
+    public synchronized void endInput() {
+        inputEnded = true;
+        notifyAll();
+    }
+
+    // The engine reports the utterance complete; the stream ends once its input has ended too.
+    public synchronized void finish() {
+        finished = true;
+        notifyAll();
+    }
+
+    // The first failure sticks and overrides an ended input; a complete stream keeps its data.
+    public synchronized void fail(String message) {
+        if (!isComplete() && failure == null) {
+            failure = message;
+            notifyAll();
+        }
+    }
+
+    // Called by the consumer; the writer gets an IOException on its next write.
+    public synchronized void cancel() {
+        cancelled = true;
+        count = 0;
+        notifyAll();
+    }
+
+    public synchronized boolean isFinished() {
+        return isComplete();
+    }
+
+    private boolean isComplete() {
+        return finished && inputEnded && failure == null;
+    }
+
+    private static int readFully(InputStream input, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = input.read(buffer, total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
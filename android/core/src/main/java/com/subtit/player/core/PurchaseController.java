@@ -0,0 +1,725 @@
+package com.subtit.player.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Gateway-independent half of the purchases plugin: product catalogue cache, purchase queue,
+// entitlement store and reconciliation. The plugin adapts PluginCall to Call and forwards events.
+public final class PurchaseController {
+    public static final String EVENT_ENTITLEMENTS_CHANGED = "entitlementsChanged";
+    public static final String EVENT_PURCHASE_RECOVERED = "purchaseRecovered";
+
+    public interface Call {
+        void setKeepAlive(boolean keepAlive);
+
+        void resolve(JSONObject data);
+
+        void reject(String message);
+    }
+
+    public interface Listener {
+        void onEvent(String eventName, JSONObject data);
+
+        void onLog(String message);
+    }
+
+    public static final class Config {
+        public List<String> inAppProducts = new ArrayList<>();
+        public List<String> subsProducts = new ArrayList<>();
+        public List<String> consumableProducts = new ArrayList<>();
+        // Store prices change rarely; refetching hourly keeps them current without a round trip per purchase.
+        public long catalogueTtlMs = 60 * 60 * 1000L;
+    }
+
+    private static final class PurchaseRequest {
+        final Call call;
+        final String productId;
+        final String productType;
+        final boolean consumable;
+
+        PurchaseRequest(Call call, String productId, String productType, boolean consumable) {
+            this.call = call;
+            this.productId = productId;
+            this.productType = productType;
+            this.consumable = consumable;
+        }
+    }
+
+    private final BillingGateway gateway;
+    private final BillingConnection connection;
+    private final Config config;
+    private final Supplier<EntitlementStore> storeSupplier;
+    private final ScheduledExecutorService executor;
+    private final Executor uiExecutor;
+    private final Listener listener;
+
+    private final Object purchaseLock = new Object();
+    private final ArrayDeque<PurchaseRequest> purchaseQueue = new ArrayDeque<>();
+    private PurchaseRequest activePurchase;
+
+    private final Map<String, BillingGateway.Product> productCache = new ConcurrentHashMap<>();
+    private volatile long catalogueFetchedAt = 0;
+    private int catalogueQueriesInFlight = 0;
+    private boolean catalogueFailed = false;
+    private final List<Runnable> catalogueWaiters = new ArrayList<>();
+
+    private EntitlementStore entitlementStore;
+    private final Object storeLock = new Object();
+    private final Object reconcileLock = new Object();
+    private int reconcileQueriesInFlight = 0;
+    private boolean reconcileFailed = false;
+    private final List<EntitlementStore.Entitlement> reconciled = new ArrayList<>();
+    private final List<BillingGateway.PurchaseRecord> reconciledPurchases = new ArrayList<>();
+
+    // executor runs store writes and connection retries; uiExecutor is where purchase sheets are
+    // launched and calls settled.
+    public PurchaseController(BillingGateway gateway, Config config, Supplier<EntitlementStore> storeSupplier,
+                              ScheduledExecutorService executor, Executor uiExecutor, Listener listener) {
+        this.gateway = gateway;
+        this.config = config;
+        this.storeSupplier = storeSupplier;
+        this.executor = executor;
+        this.uiExecutor = uiExecutor;
+        this.listener = listener;
+        this.connection = new BillingConnection(gateway, executor);
+        this.connection.setStateListener((state, attempt) -> listener.onLog("Billing connection " + state + " attempt=" + attempt));
+        gateway.setPurchasesListener(this::onPurchasesUpdated);
+    }
+
+    public BillingConnection connection() {
+        return connection;
+    }
+
+    // Connects, then warms the catalogue and reconciles entitlements.
+    public void start() {
+        connection.setKeepWarm(true);
+        connection.execute(operation(null, () -> {
+            refreshCatalogue(null);
+            reconcileEntitlements();
+        }));
+    }
+
+    public void onResume() {
+        connection.setKeepWarm(true);
+        // Purchases can change outside the app (refunds, renewals, pending payments completing).
+        connection.execute(operation(null, this::reconcileEntitlements));
+    }
+
+    public void onPause() {
+        connection.setKeepWarm(false);
+    }
+
+    // Ends the connection and rejects every call still waiting on it.
+    public void close() {
+        List<PurchaseRequest> abandoned = new ArrayList<>();
+        synchronized (purchaseLock) {
+            if (activePurchase != null) {
+                abandoned.add(activePurchase);
+                activePurchase = null;
+            }
+            abandoned.addAll(purchaseQueue);
+            purchaseQueue.clear();
+        }
+        connection.close();
+        // Released above, so callbacks still in flight for these requests find nothing to settle.
+        for (PurchaseRequest request : abandoned) {
+            settle(request.call, null, "Billing connection closed");
+        }
+    }
+
+    public boolean hasPendingPurchases() {
+        synchronized (purchaseLock) {
+            return activePurchase != null || !purchaseQueue.isEmpty();
+        }
+    }
+
+    public void getProducts(final Call call, final List<String> productIds, boolean forceRefresh) {
+        if (!forceRefresh && isCatalogueFresh()) {
+            call.resolve(describeCatalogue(productIds));
+            return;
+        }
+        call.setKeepAlive(true);
+        connection.execute(operation(call, () -> refreshCatalogue(() -> {
+            if (catalogueFetchedAt == 0 && productCache.isEmpty()) {
+                settle(call, null, "Product catalogue not available");
+            } else {
+                settle(call, describeCatalogue(productIds), null);
+            }
+        })));
+    }
+
+    // Answers from the persisted store without touching the billing service; a background
+    // reconciliation follows and reports changes through the entitlementsChanged event.
+    public void getEntitlements(Call call) {
+        call.resolve(describeEntitlements(entitlementStore().snapshot()));
+        connection.execute(operation(null, this::reconcileEntitlements));
+    }
+
+    public void buy(Call call, String productId, String productType, boolean consumable) {
+        if (productId == null || productId.trim().isEmpty()) {
+            call.reject("productId is required");
+            return;
+        }
+        call.setKeepAlive(true);
+        // Only one billing sheet can be up at a time; later purchases wait their turn instead of failing.
+        synchronized (purchaseLock) {
+            purchaseQueue.add(new PurchaseRequest(call, productId, productType, consumable));
+        }
+        advancePurchaseQueue();
+    }
+
+    private EntitlementStore entitlementStore() {
+        synchronized (storeLock) {
+            if (entitlementStore == null) {
+                entitlementStore = storeSupplier.get();
+            }
+            return entitlementStore;
+        }
+    }
+
+    // Runs work once connected; a failed connection rejects the call, if there is one.
+    private BillingConnection.Operation operation(final Call call, final Runnable onReady) {
+        return new BillingConnection.Operation() {
+            @Override
+            public void run() {
+                onReady.run();
+            }
+
+            @Override
+            public void fail(int responseCode, String message) {
+                if (call != null) {
+                    settle(call, null, message);
+                } else {
+                    listener.onLog(message);
+                }
+            }
+        };
+    }
+
+    // Reports a disconnect seen in an operation result so the connection is re-established.
+    private void checkDisconnected(int responseCode) {
+        if (responseCode == BillingGateway.SERVICE_DISCONNECTED) {
+            connection.onServiceDisconnected();
+        }
+    }
+
+    private boolean isCatalogueFresh() {
+        long fetchedAt = catalogueFetchedAt;
+        return fetchedAt > 0 && now() - fetchedAt < config.catalogueTtlMs;
+    }
+
+    private static long now() {
+        // Never 0, which marks "not fetched".
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) | 1L;
+    }
+
+    private BillingGateway.Product cachedProduct(String productId, String productType) {
+        if (!isCatalogueFresh()) {
+            return null;
+        }
+        BillingGateway.Product product = productCache.get(productId);
+        return product != null && productType.equals(product.type) ? product : null;
+    }
+
+    // Queries INAPP and SUBS in parallel; a refresh already in flight is joined rather than repeated.
+    private void refreshCatalogue(Runnable onComplete) {
+        synchronized (catalogueWaiters) {
+            if (onComplete != null) {
+                catalogueWaiters.add(onComplete);
+            }
+            if (catalogueQueriesInFlight > 0) {
+                return;
+            }
+            catalogueFailed = false;
+            catalogueQueriesInFlight = 2;
+        }
+        queryCatalogue(config.inAppProducts, BillingGateway.TYPE_INAPP);
+        queryCatalogue(config.subsProducts, BillingGateway.TYPE_SUBS);
+    }
+
+    private void queryCatalogue(List<String> productIds, String productType) {
+        if (productIds.isEmpty()) {
+            onCatalogueQueryFinished(true);
+            return;
+        }
+        gateway.queryProducts(productType, productIds, (responseCode, debugMessage, products) -> {
+            boolean ok = responseCode == BillingGateway.OK;
+            checkDisconnected(responseCode);
+            if (ok && products != null) {
+                for (BillingGateway.Product product : products) {
+                    productCache.put(product.productId, product);
+                }
+            } else {
+                listener.onLog("Catalogue query failed for " + productType + ": " + debugMessage);
+            }
+            onCatalogueQueryFinished(ok);
+        });
+    }
+
+    private void onCatalogueQueryFinished(boolean ok) {
+        List<Runnable> waiters;
+        synchronized (catalogueWaiters) {
+            catalogueFailed |= !ok;
+            if (--catalogueQueriesInFlight > 0) {
+                return;
+            }
+            if (!catalogueFailed) {
+                catalogueFetchedAt = now();
+            }
+            waiters = new ArrayList<>(catalogueWaiters);
+            catalogueWaiters.clear();
+        }
+        for (Runnable waiter : waiters) {
+            waiter.run();
+        }
+    }
+
+    private void advancePurchaseQueue() {
+        final PurchaseRequest next;
+        synchronized (purchaseLock) {
+            if (activePurchase != null || purchaseQueue.isEmpty()) {
+                return;
+            }
+            next = purchaseQueue.poll();
+            activePurchase = next;
+        }
+        connection.execute(new BillingConnection.Operation() {
+            @Override
+            public void run() {
+                BillingGateway.Product product = cachedProduct(next.productId, next.productType);
+                if (product != null) {
+                    uiExecutor.execute(() -> launchPurchase(next, product));
+                } else {
+                    queryProduct(next);
+                }
+            }
+
+            @Override
+            public void fail(int responseCode, String message) {
+                failPurchase(next, message);
+            }
+        });
+    }
+
+    private void queryProduct(final PurchaseRequest request) {
+        List<String> productIds = new ArrayList<>();
+        productIds.add(request.productId);
+        gateway.queryProducts(request.productType, productIds, (responseCode, debugMessage, products) -> {
+            if (responseCode != BillingGateway.OK) {
+                checkDisconnected(responseCode);
+                failPurchase(request, "Query failed: " + debugMessage);
+                return;
+            }
+            if (products == null || products.isEmpty()) {
+                failPurchase(request, "Product details not found for " + request.productId);
+                return;
+            }
+            BillingGateway.Product product = products.get(0);
+            productCache.put(product.productId, product);
+            uiExecutor.execute(() -> launchPurchase(request, product));
+        });
+    }
+
+    private void launchPurchase(final PurchaseRequest request, final BillingGateway.Product product) {
+        String offerToken = null;
+        if (BillingGateway.TYPE_SUBS.equals(request.productType)) {
+            if (product.offers == null || product.offers.isEmpty()) {
+                failPurchase(request, "Subscription offer details missing for " + product.productId);
+                return;
+            }
+            offerToken = product.offers.get(0).offerToken;
+            if (offerToken == null || offerToken.isEmpty()) {
+                failPurchase(request, "Subscription offer token missing for " + product.productId);
+                return;
+            }
+        }
+        gateway.launchPurchase(product, offerToken, (responseCode, debugMessage) -> {
+            if (responseCode != BillingGateway.OK) {
+                checkDisconnected(responseCode);
+                failPurchase(request, "Failed to launch purchase flow: " + debugMessage);
+            }
+        });
+    }
+
+    private PurchaseRequest activePurchase() {
+        synchronized (purchaseLock) {
+            return activePurchase;
+        }
+    }
+
+    private void onPurchasesUpdated(int responseCode, String debugMessage, List<BillingGateway.PurchaseRecord> purchases) {
+        PurchaseRequest request = activePurchase();
+        if (request == null) {
+            // Purchases completing outside a flow (pending payments, promo codes) land in the store.
+            if (responseCode == BillingGateway.OK) {
+                connection.execute(operation(null, this::reconcileEntitlements));
+            }
+            return;
+        }
+        if (responseCode == BillingGateway.OK && purchases != null) {
+            for (BillingGateway.PurchaseRecord purchase : purchases) {
+                if (purchase.products.contains(request.productId)) {
+                    handlePurchase(request, purchase);
+                    return;
+                }
+            }
+            failPurchase(request, "Purchase completed but product not found in response");
+        } else if (responseCode == BillingGateway.USER_CANCELED) {
+            failPurchase(request, "Покупка отменена пользователем");
+        } else {
+            checkDisconnected(responseCode);
+            failPurchase(request, "Ошибка покупки: " + debugMessage);
+        }
+    }
+
+    private void handlePurchase(final PurchaseRequest request, final BillingGateway.PurchaseRecord purchase) {
+        if (request.consumable) {
+            gateway.consume(purchase.purchaseToken, (responseCode, debugMessage) -> {
+                if (responseCode == BillingGateway.OK) {
+                    finishWithSuccess(request, purchase);
+                } else {
+                    checkDisconnected(responseCode);
+                    failPurchase(request, "Consume failed: " + debugMessage);
+                }
+            });
+        } else if (!purchase.acknowledged) {
+            gateway.acknowledge(purchase.purchaseToken, (responseCode, debugMessage) -> {
+                if (responseCode == BillingGateway.OK) {
+                    finishWithSuccess(request, purchase);
+                } else {
+                    checkDisconnected(responseCode);
+                    failPurchase(request, "Acknowledge failed: " + debugMessage);
+                }
+            });
+        } else {
+            finishWithSuccess(request, purchase);
+        }
+    }
+
+    private void finishWithSuccess(PurchaseRequest request, BillingGateway.PurchaseRecord purchase) {
+        if (!release(request)) {
+            return;
+        }
+        if (!request.consumable) {
+            recordPurchase(purchase);
+        }
+        JSONObject data = new JSONObject();
+        try {
+            data.put("productId", request.productId);
+            data.put("purchaseToken", purchase.purchaseToken);
+            data.put("orderId", purchase.orderId != null ? purchase.orderId : JSONObject.NULL);
+        } catch (JSONException ignored) {
+            // keys are non-null
+        }
+        settle(request.call, data, null);
+        advancePurchaseQueue();
+    }
+
+    private void failPurchase(PurchaseRequest request, String message) {
+        if (!release(request)) {
+            return;
+        }
+        settle(request.call, null, message);
+        advancePurchaseQueue();
+    }
+
+    private void settle(final Call call, final JSONObject data, final String error) {
+        uiExecutor.execute(() -> {
+            call.setKeepAlive(false);
+            if (error != null) {
+                call.reject(error);
+            } else {
+                call.resolve(data);
+            }
+        });
+    }
+
+    // Takes the request out of the purchase queue. Only the caller that gets true may settle it, so a
+    // purchase is answered exactly once even when close() races a billing callback.
+    private boolean release(PurchaseRequest request) {
+        synchronized (purchaseLock) {
+            if (activePurchase == request) {
+                activePurchase = null;
+                return true;
+            }
+            return purchaseQueue.remove(request);
+        }
+    }
+
+    // INAPP and SUBS are queried in parallel; the store is only rewritten when both succeed.
+    private void reconcileEntitlements() {
+        synchronized (reconcileLock) {
+            if (reconcileQueriesInFlight > 0) {
+                return;
+            }
+            reconcileQueriesInFlight = 2;
+            reconcileFailed = false;
+            reconciled.clear();
+            reconciledPurchases.clear();
+        }
+        queryPurchases(BillingGateway.TYPE_INAPP);
+        queryPurchases(BillingGateway.TYPE_SUBS);
+    }
+
+    private void queryPurchases(final String productType) {
+        gateway.queryPurchases(productType, (responseCode, debugMessage, purchases) -> {
+            List<EntitlementStore.Entitlement> entitlements;
+            List<BillingGateway.PurchaseRecord> purchased;
+            synchronized (reconcileLock) {
+                if (responseCode != BillingGateway.OK) {
+                    checkDisconnected(responseCode);
+                    reconcileFailed = true;
+                } else {
+                    for (BillingGateway.PurchaseRecord purchase : purchases) {
+                        for (String productId : purchase.products) {
+                            if (config.consumableProducts.contains(productId)) {
+                                continue;
+                            }
+                            reconciled.add(toEntitlement(purchase, productId, productType, purchase.acknowledged));
+                        }
+                        reconciledPurchases.add(purchase);
+                    }
+                }
+                if (--reconcileQueriesInFlight > 0 || reconcileFailed) {
+                    return;
+                }
+                entitlements = new ArrayList<>(reconciled);
+                purchased = new ArrayList<>(reconciledPurchases);
+            }
+            executor.execute(() -> applyReconciliation(entitlements));
+            for (BillingGateway.PurchaseRecord purchase : purchased) {
+                finishReconciledPurchase(purchase);
+            }
+        });
+    }
+
+    private void applyReconciliation(List<EntitlementStore.Entitlement> entitlements) {
+        EntitlementStore store = entitlementStore();
+        EntitlementStore.Snapshot previous = store.snapshot();
+        try {
+            EntitlementStore.Snapshot updated = store.replace(entitlements, System.currentTimeMillis());
+            if (!sameEntitlements(previous, updated)) {
+                listener.onEvent(EVENT_ENTITLEMENTS_CHANGED, describeEntitlements(updated));
+            }
+        } catch (IOException ex) {
+            listener.onLog("Failed to persist entitlements: " + ex.getMessage());
+        }
+    }
+
+    // Acknowledges or consumes purchases left unfinished, e.g. by a crash mid-flow or a pending
+    // payment that completed while the app was closed. A purchase owned by the running flow is skipped.
+    private void finishReconciledPurchase(final BillingGateway.PurchaseRecord purchase) {
+        if (purchase.purchaseState != BillingGateway.PURCHASE_STATE_PURCHASED) {
+            return;
+        }
+        PurchaseRequest request = activePurchase();
+        if (request != null && purchase.products.contains(request.productId)) {
+            return;
+        }
+        boolean consumable = false;
+        for (String productId : purchase.products) {
+            consumable |= config.consumableProducts.contains(productId);
+        }
+        if (consumable) {
+            gateway.consume(purchase.purchaseToken, (responseCode, debugMessage) -> {
+                if (responseCode == BillingGateway.OK) {
+                    // The JS side never saw this purchase complete, so it still has to grant it.
+                    listener.onEvent(EVENT_PURCHASE_RECOVERED, describePurchase(purchase));
+                }
+            });
+        } else if (!purchase.acknowledged) {
+            gateway.acknowledge(purchase.purchaseToken, (responseCode, debugMessage) -> {
+                if (responseCode == BillingGateway.OK) {
+                    recordPurchase(purchase);
+                }
+            });
+        }
+    }
+
+    // Called once a purchase has been acknowledged.
+    private void recordPurchase(final BillingGateway.PurchaseRecord purchase) {
+        final String productType = isSubscription(purchase) ? BillingGateway.TYPE_SUBS : BillingGateway.TYPE_INAPP;
+        executor.execute(() -> {
+            EntitlementStore store = entitlementStore();
+            try {
+                EntitlementStore.Snapshot updated = null;
+                for (String productId : purchase.products) {
+                    if (config.consumableProducts.contains(productId)) {
+                        continue;
+                    }
+                    updated = store.put(toEntitlement(purchase, productId, productType, true));
+                }
+                if (updated != null) {
+                    listener.onEvent(EVENT_ENTITLEMENTS_CHANGED, describeEntitlements(updated));
+                }
+            } catch (IOException ex) {
+                listener.onLog("Failed to persist purchase: " + ex.getMessage());
+            }
+        });
+    }
+
+    private boolean isSubscription(BillingGateway.PurchaseRecord purchase) {
+        for (String productId : purchase.products) {
+            if (config.subsProducts.contains(productId)) {
+                return true;
+            }
+            BillingGateway.Product product = productCache.get(productId);
+            if (product != null && BillingGateway.TYPE_SUBS.equals(product.type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static EntitlementStore.Entitlement toEntitlement(BillingGateway.PurchaseRecord purchase, String productId,
+                                                              String productType, boolean acknowledged) {
+        boolean purchased = purchase.purchaseState == BillingGateway.PURCHASE_STATE_PURCHASED;
+        return new EntitlementStore.Entitlement(
+                productId,
+                productType,
+                purchase.purchaseToken,
+                purchase.orderId,
+                purchase.purchaseTime,
+                purchased ? EntitlementStore.STATE_PURCHASED : EntitlementStore.STATE_PENDING,
+                acknowledged,
+                purchase.autoRenewing);
+    }
+
+    private static boolean sameEntitlements(EntitlementStore.Snapshot a, EntitlementStore.Snapshot b) {
+        if (a.entitlements.size() != b.entitlements.size()) {
+            return false;
+        }
+        Set<String> keys = new HashSet<>();
+        for (EntitlementStore.Entitlement entitlement : a.entitlements) {
+            keys.add(entitlement.productId + ":" + entitlement.purchaseToken + ":" + entitlement.state);
+        }
+        for (EntitlementStore.Entitlement entitlement : b.entitlements) {
+            if (!keys.contains(entitlement.productId + ":" + entitlement.purchaseToken + ":" + entitlement.state)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private JSONObject describeCatalogue(List<String> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            productIds = new ArrayList<>(config.inAppProducts);
+            productIds.addAll(config.subsProducts);
+        }
+        JSONObject result = new JSONObject();
+        try {
+            JSONArray products = new JSONArray();
+            for (String productId : productIds) {
+                BillingGateway.Product product = productCache.get(productId);
+                if (product != null) {
+                    products.put(describeProduct(product));
+                }
+            }
+            result.put("products", products);
+            result.put("stale", !isCatalogueFresh());
+        } catch (JSONException ignored) {
+            // keys are non-null
+        }
+        return result;
+    }
+
+    private static JSONObject describeProduct(BillingGateway.Product details) throws JSONException {
+        JSONObject product = new JSONObject();
+        product.put("productId", details.productId);
+        product.put("type", details.type);
+        product.put("title", details.title);
+        product.put("name", details.name);
+        product.put("description", details.description);
+        if (details.oneTimePrice != null) {
+            putPrice(product, details.oneTimePrice);
+        }
+        if (details.offers != null) {
+            JSONArray offersArray = new JSONArray();
+            for (BillingGateway.Offer offer : details.offers) {
+                JSONObject offerObject = new JSONObject();
+                offerObject.put("basePlanId", offer.basePlanId);
+                offerObject.put("offerId", offer.offerId != null ? offer.offerId : JSONObject.NULL);
+                offerObject.put("offerToken", offer.offerToken);
+                JSONArray phases = new JSONArray();
+                for (BillingGateway.PricingPhase phase : offer.pricingPhases) {
+                    JSONObject phaseObject = new JSONObject();
+                    putPrice(phaseObject, phase);
+                    phaseObject.put("billingPeriod", phase.billingPeriod);
+                    phaseObject.put("billingCycleCount", phase.billingCycleCount);
+                    phaseObject.put("recurrenceMode", phase.recurrenceMode);
+                    phases.put(phaseObject);
+                }
+                offerObject.put("pricingPhases", phases);
+                offersArray.put(offerObject);
+            }
+            product.put("offers", offersArray);
+            if (!details.offers.isEmpty()) {
+                List<BillingGateway.PricingPhase> phases = details.offers.get(0).pricingPhases;
+                if (!phases.isEmpty()) {
+                    putPrice(product, phases.get(phases.size() - 1));
+                }
+            }
+        }
+        return product;
+    }
+
+    private static void putPrice(JSONObject target, BillingGateway.PricingPhase phase) throws JSONException {
+        target.put("price", phase.price);
+        target.put("priceMicros", phase.priceMicros);
+        target.put("currency", phase.currency);
+    }
+
+    private static JSONObject describeEntitlements(EntitlementStore.Snapshot snapshot) {
+        JSONObject result = new JSONObject();
+        try {
+            JSONArray entitlements = new JSONArray();
+            boolean premium = false;
+            for (EntitlementStore.Entitlement entitlement : snapshot.entitlements) {
+                JSONObject item = new JSONObject();
+                item.put("productId", entitlement.productId);
+                item.put("type", entitlement.productType);
+                item.put("purchaseToken", entitlement.purchaseToken);
+                item.put("orderId", entitlement.orderId != null ? entitlement.orderId : JSONObject.NULL);
+                item.put("purchaseTime", entitlement.purchaseTime);
+                item.put("state", entitlement.state);
+                item.put("acknowledged", entitlement.acknowledged);
+                item.put("autoRenewing", entitlement.autoRenewing);
+                entitlements.put(item);
+                premium |= entitlement.isActive();
+            }
+            result.put("entitlements", entitlements);
+            result.put("premium", premium);
+            result.put("reconciledAt", snapshot.reconciledAt);
+            result.put("verified", snapshot.verified);
+        } catch (JSONException ignored) {
+            // keys are non-null
+        }
+        return result;
+    }
+
+    private static JSONObject describePurchase(BillingGateway.PurchaseRecord purchase) {
+        JSONObject data = new JSONObject();
+        try {
+            data.put("productId", purchase.products.isEmpty() ? JSONObject.NULL : purchase.products.get(0));
+            data.put("purchaseToken", purchase.purchaseToken);
+            data.put("orderId", purchase.orderId != null ? purchase.orderId : JSONObject.NULL);
+        } catch (JSONException ignored) {
+            // keys are non-null
+        }
+        return data;
+    }
+}
@@ -0,0 +1,283 @@
+package com.subtit.player.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Full-text index over a library of EPUBs, one SearchSegment file per book so adding, refreshing or
+// removing a book never rewrites the others. A query matches blocks (paragraphs, headings) holding
+// every query word, the last word as a prefix so results follow typing. Indexing and searching may run
+// on different threads; searches see the segments that were complete when they started.
+public final class SearchIndex implements Closeable {
+    public static final int DEFAULT_LIMIT = 50;
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final int MAX_TERM_CHARS = 64;
+    private static final int MAX_QUERY_TERMS = 8;
+
+    public interface TokenVisitor {
+        void visit(String term, int offset, int length);
+    }
+
+    public static final class Hit {
+        public final String bookId;
+        public final int chapter;
+        public final int block;
+        // Chars into the block text of the earliest query word, and that word's length.
+        public final int offset;
+        public final int length;
+
+        Hit(String bookId, int chapter, int block, int offset, int length) {
+            this.bookId = bookId;
+            this.chapter = chapter;
+            this.block = block;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    public static final class Result {
+        public final List<Hit> hits;
+        // Matching blocks across the library; hits holds at most the requested limit of them.
+        public final int total;
+
+        Result(List<Hit> hits, int total) {
+            this.hits = Collections.unmodifiableList(hits);
+            this.total = total;
+        }
+    }
+
+    private final File directory;
+    private final Object lock = new Object();
+    private Map<String, SearchSegment> segments = new TreeMap<>();
+
+    public SearchIndex(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(SEGMENT_SUFFIX)) {
+                // Leftovers of an interrupted write.
+                file.delete();
+                continue;
+            }
+            try {
+                SearchSegment segment = SearchSegment.open(file);
+                segments.put(segment.bookId(), segment);
+            } catch (IOException ex) {
+                file.delete();
+            }
+        }
+    }
+
+    public List<String> books() {
+        synchronized (lock) {
+            return new ArrayList<>(segments.keySet());
+        }
+    }
+
+    // Whether the book is indexed from a source of this size and modification time.
+    public boolean isCurrent(String bookId, long sourceSize, long sourceModified) {
+        SearchSegment segment;
+        synchronized (lock) {
+            segment = segments.get(bookId);
+        }
+        return segment != null && segment.sourceSize() == sourceSize && segment.sourceModified() == sourceModified;
+    }
+
+    // Indexes every chapter of the book and replaces any earlier segment for bookId. Returns the number
+    // of distinct terms.
+    public int addBook(String bookId, EpubBook book, long sourceSize, long sourceModified) throws IOException {
+        SearchSegment.Builder builder = new SearchSegment.Builder();
+        for (EpubBook.Chapter chapter : book.chapters()) {
+            try (EpubBook.TextStream stream = book.openChapter(chapter.index)) {
+                EpubBook.Block block;
+                while ((block = stream.next()) != null) {
+                    final int chapterIndex = block.chapter;
+                    final int blockIndex = block.index;
+                    tokenize(block.text, (term, offset, length) -> builder.add(term, chapterIndex, blockIndex, offset));
+                }
+            }
+        }
+        File target = segmentFile(bookId);
+        File partial = new File(directory, target.getName() + ".part");
+        try {
+            builder.write(partial, bookId, sourceSize, sourceModified);
+            if (!partial.renameTo(target)) {
+                throw new IOException("Cannot store " + target.getName());
+            }
+        } finally {
+            partial.delete();
+        }
+        SearchSegment segment = SearchSegment.open(target);
+        SearchSegment previous;
+        synchronized (lock) {
+            Map<String, SearchSegment> next = new TreeMap<>(segments);
+            previous = next.put(bookId, segment);
+            segments = next;
+        }
+        if (previous != null) {
+            previous.close();
+        }
+        return builder.termCount();
+    }
+
+    public boolean removeBook(String bookId) {
+        SearchSegment previous;
+        synchronized (lock) {
+            if (!segments.containsKey(bookId)) {
+                return false;
+            }
+            Map<String, SearchSegment> next = new TreeMap<>(segments);
+            previous = next.remove(bookId);
+            segments = next;
+        }
+        // Searches already holding the mapping keep reading it; the pages go once it is collected.
+        previous.close();
+        return segmentFile(bookId).delete();
+    }
+
+    public Result search(String query, int limit) {
+        List<String> terms = queryTerms(query);
+        List<Hit> hits = new ArrayList<>();
+        if (terms.isEmpty()) {
+            return new Result(hits, 0);
+        }
+        Map<String, SearchSegment> current;
+        synchronized (lock) {
+            current = segments;
+        }
+        int total = 0;
+        for (SearchSegment segment : current.values()) {
+            total += searchSegment(segment, terms, Math.max(0, limit - hits.size()), hits);
+        }
+        return new Result(hits, total);
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            for (SearchSegment segment : segments.values()) {
+                segment.close();
+            }
+            segments = new TreeMap<>();
+        }
+    }
+
+    // Adds up to limit hits in document order and returns the number of matching blocks.
+    private static int searchSegment(SearchSegment segment, List<String> terms, int limit, List<Hit> hits) {
+        int last = terms.size() - 1;
+        // Rarest word first keeps the candidate set small.
+        List<Integer> order = new ArrayList<>();
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            int count = segment.count(terms.get(i), i == last);
+            if (count == 0) {
+                return 0;
+            }
+            counts.put(i, count);
+            order.add(i);
+        }
+        order.sort((a, b) -> Integer.compare(counts.get(a), counts.get(b)));
+
+        // Block key (chapter << 32 | block) to the earliest match in it, packed as offset << 32 | length.
+        Map<Long, Long> candidates = null;
+        for (int i : order) {
+            final Map<Long, Long> allowed = candidates;
+            final Map<Long, Long> matches = new HashMap<>();
+            segment.visit(terms.get(i), i == last, (termLength, chapter, block, offset) -> {
+                long key = ((long) chapter << 32) | (block & 0xffffffffL);
+                if (allowed != null && !allowed.containsKey(key)) {
+                    return;
+                }
+                long packed = ((long) offset << 32) | termLength;
+                Long known = matches.get(key);
+                if (known == null || packed < known) {
+                    matches.put(key, packed);
+                }
+            });
+            if (allowed != null) {
+                for (Map.Entry<Long, Long> entry : matches.entrySet()) {
+                    entry.setValue(Math.min(entry.getValue(), allowed.get(entry.getKey())));
+                }
+            }
+            candidates = matches;
+            if (candidates.isEmpty()) {
+                return 0;
+            }
+        }
+        List<Long> keys = new ArrayList<>(candidates.keySet());
+        Collections.sort(keys);
+        for (int i = 0; i < keys.size() && i < limit; i++) {
+            long key = keys.get(i);
+            long packed = candidates.get(key);
+            hits.add(new Hit(segment.bookId(), (int) (key >>> 32), (int) key, (int) (packed >>> 32), (int) packed));
+        }
+        return keys.size();
+    }
+
+    static List<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (query != null) {
+            tokenize(query, (term, offset, length) -> {
+                if (terms.size() < MAX_QUERY_TERMS) {
+                    terms.add(term);
+                }
+            });
+        }
+        return new ArrayList<>(terms);
+    }
+
+    // Words are runs of letters and digits, lower-cased with ё folded into е; overlong runs are skipped.
+    public static void tokenize(String text, TokenVisitor visitor) {
+        StringBuilder term = new StringBuilder();
+        int start = -1;
+        int i = 0;
+        while (i <= text.length()) {
+            int codePoint = i < text.length() ? text.codePointAt(i) : -1;
+            if (codePoint >= 0 && Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                    term.setLength(0);
+                }
+                int lower = Character.toLowerCase(codePoint);
+                term.appendCodePoint(lower == 'ё' ? 'е' : lower);
+            } else if (start >= 0) {
+                if (term.length() <= MAX_TERM_CHARS) {
+                    visitor.visit(term.toString(), start, i - start);
+                }
+                start = -1;
+            }
+            i += codePoint >= 0 ? Character.charCount(codePoint) : 1;
+        }
+    }
+
+    private File segmentFile(String bookId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(bookId.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 12; i++) {
+                name.append(String.format("%02x", digest[i] & 0xff));
+            }
+            return new File(directory, name + SEGMENT_SUFFIX);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.subtit.player.core;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// On-disk inverted index for one book, read through a memory map so only the pages a query touches
+// are loaded. Layout, big-endian:
+//   header    magic, version, sourceSize, sourceModified, termCount, termTableOffset, bookId
+//   postings  per term: (chapter, block, offset) triples as varints, each field delta-coded against
+//             the previous posting and reset to absolute when an enclosing field changes
+//   terms     per term: varint byte length, UTF-8 bytes, varint posting count, varint postings offset
+//   table     int offset of each term entry, in UTF-8 byte order for binary search
+public final class SearchSegment implements Closeable {
+    private static final int MAGIC = 0x4d535831; // "MSX1"
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4;
+    // Bounds the work a one-letter prefix can cause.
+    public static final int MAX_PREFIX_TERMS = 256;
+
+    public interface PostingVisitor {
+        void visit(int termLength, int chapter, int block, int offset);
+    }
+
+    private final MappedByteBuffer buffer;
+    private final String bookId;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final int termCount;
+    private final int termTableOffset;
+
+    private SearchSegment(MappedByteBuffer buffer, String bookId, long sourceSize, long sourceModified,
+                          int termCount, int termTableOffset) {
+        this.buffer = buffer;
+        this.bookId = bookId;
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.termCount = termCount;
+        this.termTableOffset = termTableOffset;
+    }
+
+    public static SearchSegment open(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r"); FileChannel channel = input.getChannel()) {
+            long size = channel.size();
+            if (size < FIXED_HEADER_BYTES + 2 || size > Integer.MAX_VALUE) {
+                throw new IOException("Bad index size " + size);
+            }
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a search index: " + file.getName());
+            }
+            long sourceSize = buffer.getLong(8);
+            long sourceModified = buffer.getLong(16);
+            int termCount = buffer.getInt(24);
+            int termTableOffset = buffer.getInt(28);
+            int idLength = buffer.getShort(FIXED_HEADER_BYTES) & 0xffff;
+            if (termCount < 0 || termTableOffset < 0 || (long) termTableOffset + 4L * termCount > size
+                    || FIXED_HEADER_BYTES + 2 + idLength > size) {
+                throw new IOException("Corrupt search index: " + file.getName());
+            }
+            byte[] id = new byte[idLength];
+            for (int i = 0; i < idLength; i++) {
+                id[i] = buffer.get(FIXED_HEADER_BYTES + 2 + i);
+            }
+            return new SearchSegment(buffer, new String(id, StandardCharsets.UTF_8), sourceSize, sourceModified,
+                    termCount, termTableOffset);
+        }
+    }
+
+    public String bookId() {
+        return bookId;
+    }
+
+    public long sourceSize() {
+        return sourceSize;
+    }
+
+    public long sourceModified() {
+        return sourceModified;
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    // Number of postings for the term, or for all terms starting with it (up to MAX_PREFIX_TERMS).
+    public int count(String term, boolean prefix) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int start = lowerBound(key);
+        int end = prefix ? Math.min(termCount, start + MAX_PREFIX_TERMS) : termCount;
+        int total = 0;
+        for (int i = start; i < end; i++) {
+            Cursor cursor = new Cursor(termEntry(i));
+            int match = matchTerm(cursor, key, prefix);
+            if (match < 0) {
+                break;
+            }
+            total += readVarint(cursor);
+            if (!prefix) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    // Visits every posting of the term, or of each term starting with it, in document order per term.
+    public void visit(String term, boolean prefix, PostingVisitor visitor) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int start = lowerBound(key);
+        int end = prefix ? Math.min(termCount, start + MAX_PREFIX_TERMS) : termCount;
+        for (int i = start; i < end; i++) {
+            Cursor cursor = new Cursor(termEntry(i));
+            int termLength = matchTerm(cursor, key, prefix);
+            if (termLength < 0) {
+                return;
+            }
+            int postings = readVarint(cursor);
+            cursor.position = readVarint(cursor);
+            int chapter = 0;
+            int block = 0;
+            int offset = 0;
+            for (int p = 0; p < postings; p++) {
+                int chapterDelta = readVarint(cursor);
+                int blockValue = readVarint(cursor);
+                int offsetValue = readVarint(cursor);
+                if (chapterDelta != 0) {
+                    chapter += chapterDelta;
+                    block = blockValue;
+                    offset = offsetValue;
+                } else if (blockValue != 0) {
+                    block += blockValue;
+                    offset = offsetValue;
+                } else {
+                    offset += offsetValue;
+                }
+                visitor.visit(termLength, chapter, block, offset);
+            }
+            if (!prefix) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // Mapped buffers are released by the garbage collector; there is no portable unmap, so a search
+        // still reading a segment the index has closed and swapped out is unaffected.
+    }
+
+    private int termEntry(int index) {
+        return buffer.getInt(termTableOffset + 4 * index);
+    }
+
+    // First term not below key in UTF-8 byte order.
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = termCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Cursor cursor = new Cursor(termEntry(mid));
+            int length = readVarint(cursor);
+            if (compare(cursor.position, length, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Reads the term at the cursor; returns its length in chars when it matches key, else -1.
+    private int matchTerm(Cursor cursor, byte[] key, boolean prefix) {
+        int length = readVarint(cursor);
+        int start = cursor.position;
+        cursor.position += length;
+        if (length < key.length || (!prefix && length != key.length)) {
+            return -1;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(start + i) != key[i]) {
+                return -1;
+            }
+        }
+        int chars = 0;
+        for (int i = 0; i < length; i++) {
+            int b = buffer.get(start + i) & 0xff;
+            if ((b & 0xc0) != 0x80) {
+                chars += b >= 0xf0 ? 2 : 1;
+            }
+        }
+        return chars;
+    }
+
+    private int compare(int start, int length, byte[] key) {
+        int shared = Math.min(length, key.length);
+        for (int i = 0; i < shared; i++) {
+            int difference = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private int readVarint(Cursor cursor) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            int b = buffer.get(cursor.position++);
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static final class Cursor {
+        int position;
+
+        Cursor(int position) {
+            this.position = position;
+        }
+    }
+
+    // Collects postings in document order, already varint-encoded, then writes a segment file.
+    public static final class Builder {
+        private final Map<String, TermPostings> terms = new HashMap<>();
+
+        public void add(String term, int chapter, int block, int offset) {
+            TermPostings postings = terms.get(term);
+            if (postings == null) {
+                postings = new TermPostings();
+                terms.put(term, postings);
+            }
+            postings.add(chapter, block, offset);
+        }
+
+        public int termCount() {
+            return terms.size();
+        }
+
+        public void write(File file, String bookId, long sourceSize, long sourceModified) throws IOException {
+            byte[] id = bookId.getBytes(StandardCharsets.UTF_8);
+            if (id.length > 0xffff) {
+                throw new IllegalArgumentException("bookId too long");
+            }
+            List<Map.Entry<byte[], TermPostings>> entries = new ArrayList<>(terms.size());
+            for (Map.Entry<String, TermPostings> entry : terms.entrySet()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey().getBytes(StandardCharsets.UTF_8),
+                        entry.getValue()));
+            }
+            entries.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+
+            try (FileOutputStream stream = new FileOutputStream(file);
+                 DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024))) {
+                // Header fields that depend on the body are patched in once it is written.
+                output.write(new byte[FIXED_HEADER_BYTES]);
+                output.writeShort(id.length);
+                output.write(id);
+                int[] postingOffsets = new int[entries.size()];
+                for (int i = 0; i < entries.size(); i++) {
+                    postingOffsets[i] = output.size();
+                    TermPostings postings = entries.get(i).getValue();
+                    output.write(postings.bytes, 0, postings.length);
+                }
+                int[] entryOffsets = new int[entries.size()];
+                for (int i = 0; i < entries.size(); i++) {
+                    entryOffsets[i] = output.size();
+                    byte[] key = entries.get(i).getKey();
+                    writeVarint(output, key.length);
+                    output.write(key);
+                    writeVarint(output, entries.get(i).getValue().count);
+                    writeVarint(output, postingOffsets[i]);
+                }
+                int termTableOffset = output.size();
+                for (int offset : entryOffsets) {
+                    output.writeInt(offset);
+                }
+                output.flush();
+                if (output.size() == Integer.MAX_VALUE) {
+                    // DataOutputStream saturates its count; the int offsets above would be wrong.
+                    throw new IOException("Search index too large");
+                }
+                ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putLong(sourceSize).putLong(sourceModified)
+                        .putInt(entries.size()).putInt(termTableOffset);
+                header.flip();
+                FileChannel channel = stream.getChannel();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                stream.getFD().sync();
+            }
+        }
+    }
+
+    private static final class TermPostings {
+        byte[] bytes = new byte[8];
+        int length;
+        int count;
+        int chapter = 0;
+        int block = 0;
+        int offset = 0;
+
+        void add(int chapter, int block, int offset) {
+            if (chapter != this.chapter) {
+                append(chapter - this.chapter);
+                append(block);
+                append(offset);
+            } else if (block != this.block) {
+                append(0);
+                append(block - this.block);
+                append(offset);
+            } else {
+                append(0);
+                append(0);
+                append(offset - this.offset);
+            }
+            this.chapter = chapter;
+            this.block = block;
+            this.offset = offset;
+            count++;
+        }
+
+        private void append(int value) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7f) != 0) {
+                bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+
+    private static void writeVarint(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            output.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+}
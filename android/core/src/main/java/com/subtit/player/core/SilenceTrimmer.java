@@ -0,0 +1,141 @@
+package com.subtit.player.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+// Cuts the silence engines pad synthesized speech with. Silence is found in 20 ms energy windows read
+// inwards from each end, so only the padding and the copy itself are read; the kept range is then
+// streamed into a new file that replaces the original.
+public final class SilenceTrimmer {
+    public static final double DEFAULT_THRESHOLD_DB = -45;
+    // Kept on each side of the detected speech so soft onsets and decays are not clipped.
+    public static final int DEFAULT_MARGIN_MS = 30;
+    private static final int WINDOW_MS = 20;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    public static final class Result {
+        public final int sampleRate;
+        public final long originalFrames;
+        // Kept range of the original, [startFrame, endFrame).
+        public final long startFrame;
+        public final long endFrame;
+
+        Result(int sampleRate, long originalFrames, long startFrame, long endFrame) {
+            this.sampleRate = sampleRate;
+            this.originalFrames = originalFrames;
+            this.startFrame = startFrame;
+            this.endFrame = endFrame;
+        }
+
+        public boolean trimmed() {
+            return startFrame > 0 || endFrame < originalFrames;
+        }
+
+        public long leadingMs() {
+            return toMs(startFrame);
+        }
+
+        public long trailingMs() {
+            return toMs(originalFrames - endFrame);
+        }
+
+        public long durationMs() {
+            return toMs(endFrame - startFrame);
+        }
+
+        public long originalDurationMs() {
+            return toMs(originalFrames);
+        }
+
+        private long toMs(long frames) {
+            return sampleRate > 0 ? frames * 1000L / sampleRate : 0;
+        }
+    }
+
+    private SilenceTrimmer() {
+    }
+
+    // Rewrites file without its leading and trailing silence. Files that are not 16-bit PCM, or hold
+    // nothing above the threshold, are left as they are.
+    public static Result trim(File file, double thresholdDb, int marginMs) throws IOException {
+        Result result;
+        WavHeader header;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            header = WavHeader.read(input);
+            result = analyze(input, header, thresholdDb, marginMs);
+            if (!result.trimmed()) {
+                return result;
+            }
+            File partial = new File(file.getPath() + ".trim");
+            try {
+                long length = (result.endFrame - result.startFrame) * header.frameSize();
+                try (OutputStream output = new FileOutputStream(partial)) {
+                    output.write(WavHeader.canonical(WavHeader.FORMAT_PCM, header.channels, header.sampleRate,
+                            header.bitsPerSample, length));
+                    input.seek(header.dataOffset + result.startFrame * header.frameSize());
+                    byte[] buffer = new byte[COPY_BUFFER_BYTES];
+                    long remaining = length;
+                    while (remaining > 0) {
+                        int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (read < 0) {
+                            throw new IOException("WAV data ended early");
+                        }
+                        output.write(buffer, 0, read);
+                        remaining -= read;
+                    }
+                }
+                if (!partial.renameTo(file)) {
+                    throw new IOException("Cannot replace " + file.getName());
+                }
+            } finally {
+                partial.delete();
+            }
+        }
+        return result;
+    }
+
+    // Finds the kept range without changing anything.
+    public static Result analyze(RandomAccessFile input, WavHeader header, double thresholdDb, int marginMs)
+            throws IOException {
+        long frames = header.frames();
+        Result untouched = new Result(header.sampleRate, frames, 0, frames);
+        if (!header.isPcm16() || header.channels <= 0 || frames == 0) {
+            return untouched;
+        }
+        int frameSize = header.frameSize();
+        int windowFrames = Math.max(1, header.sampleRate * WINDOW_MS / 1000);
+        byte[] window = new byte[windowFrames * frameSize];
+
+        long start = -1;
+        for (long at = 0; at < frames; at += windowFrames) {
+            int count = (int) Math.min(windowFrames, frames - at);
+            if (isVoiced(input, header, at, count, window, thresholdDb)) {
+                start = at;
+                break;
+            }
+        }
+        if (start < 0) {
+            return untouched;
+        }
+        long end = start + windowFrames;
+        for (long at = frames; at > start; at -= windowFrames) {
+            long from = Math.max(start, at - windowFrames);
+            if (isVoiced(input, header, from, (int) (at - from), window, thresholdDb)) {
+                end = at;
+                break;
+            }
+        }
+        long margin = (long) header.sampleRate * Math.max(0, marginMs) / 1000;
+        return new Result(header.sampleRate, frames, Math.max(0, start - margin), Math.min(frames, end + margin));
+    }
+
+    private static boolean isVoiced(RandomAccessFile input, WavHeader header, long frame, int count, byte[] window,
+                                    double thresholdDb) throws IOException {
+        input.seek(header.dataOffset + frame * header.frameSize());
+        input.readFully(window, 0, count * header.frameSize());
+        return Pcm16.toDecibels(Pcm16.meanSquare(window, 0, count, header.channels)) > thresholdDb;
+    }
+}
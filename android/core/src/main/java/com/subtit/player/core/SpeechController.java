@@ -0,0 +1,490 @@
+package com.subtit.player.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Engine-independent half of the TTS plugin: engine lifecycle, chunked speech, utterance state
+// events and pending file and stream synthesis. The plugin supplies a SpeechEngine.Factory and turns
+// Listener callbacks into Capacitor events.
+public final class SpeechController {
+    public static final String STATE_START = "start";
+    public static final String STATE_DONE = "done";
+    public static final String STATE_ERROR = "error";
+
+    // Long texts are spoken as several utterances with ids "<base>|<index>/<count>".
+    private static final char CHUNK_SEPARATOR = '|';
+
+    public interface Listener {
+        void onReady(boolean success);
+
+        // utteranceId is the id returned by speak/synthesizeToFile, or null when stop() ended speech.
+        void onState(String state, String utteranceId);
+
+        // Offsets refer to the full text passed to speak, across chunks.
+        void onRange(String utteranceId, int start, int end);
+
+        // A synthesizeToFile output is complete. trim is null unless trimming was requested.
+        void onSynthesized(String utteranceId, String path, SilenceTrimmer.Result trim);
+
+        void onLog(String message);
+    }
+
+    private final SpeechEngine.Factory factory;
+    private final Listener listener;
+    private volatile SpeechEngine engine;
+    private volatile boolean ready = false;
+    private volatile boolean released = false;
+    private volatile float rate = 1f;
+    private volatile float pitch = 1f;
+    private volatile int generation = 0;
+    private final Map<String, Integer> chunkOffsets = new ConcurrentHashMap<>();
+    private final Map<String, String> synthesisPaths = new ConcurrentHashMap<>();
+    private final Map<String, CountDownLatch> pendingSyntheses = new ConcurrentHashMap<>();
+    private final Set<String> trimRequests = ConcurrentHashMap.newKeySet();
+    private final Map<String, PcmStream> streams = new ConcurrentHashMap<>();
+
+    public SpeechController(SpeechEngine.Factory factory, Listener listener) {
+        this.factory = factory;
+        this.listener = listener;
+    }
+
+    public SpeechEngine engine() {
+        return engine;
+    }
+
+    public boolean isReady() {
+        return ready && engine != null;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    public float rate() {
+        return rate;
+    }
+
+    public float pitch() {
+        return pitch;
+    }
+
+    public boolean hasPendingSyntheses() {
+        return !pendingSyntheses.isEmpty();
+    }
+
+    public boolean supportsStreamSynthesis() {
+        SpeechEngine current = engine;
+        return current != null && current.supportsStreamSynthesis();
+    }
+
+    public boolean isSpeaking() {
+        SpeechEngine current = engine;
+        try {
+            return current != null && current.isSpeaking();
+        } catch (RuntimeException ignored) {
+            return false;
+        }
+    }
+
+    // Replaces any current engine. Callbacks from the previous engine are ignored from here on.
+    public synchronized void initialize(String engineId) {
+        ready = false;
+        released = false;
+        shutdownEngine();
+        int current = ++generation;
+        SpeechEngine created = factory.create(engineId, new EngineCallback(current));
+        created.setPitch(pitch);
+        created.setSpeechRate(rate);
+        engine = created;
+    }
+
+    // Frees the engine but remembers that it should come back on next use.
+    public synchronized boolean release() {
+        if (engine == null) {
+            return false;
+        }
+        shutdownEngine();
+        released = true;
+        return true;
+    }
+
+    public synchronized void shutdown() {
+        shutdownEngine();
+    }
+
+    private void shutdownEngine() {
+        SpeechEngine previous = engine;
+        engine = null;
+        ready = false;
+        generation++;
+        if (previous != null) {
+            try {
+                previous.stop();
+                previous.shutdown();
+            } catch (RuntimeException ignored) {
+                // ignore
+            }
+        }
+        chunkOffsets.clear();
+        abandonSyntheses();
+    }
+
+    public String speak(String text, String voiceId, Float targetRate, Float targetPitch) {
+        return speak(text, voiceId, targetRate, targetPitch, true);
+    }
+
+    // With flush false the text is queued behind whatever is already being spoken.
+    public String speak(String text, String voiceId, Float targetRate, Float targetPitch, boolean flush) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Text is required");
+        }
+        SpeechEngine current = requireReady();
+        applyParameters(current, voiceId, targetRate, targetPitch);
+        listener.onLog("Speak request. chars=" + text.length() + " rate=" + rate + " pitch=" + pitch + " voice=" + voiceId
+                + (flush ? "" : " queued"));
+        if (flush) {
+            chunkOffsets.clear();
+        }
+        String utteranceId = UUID.randomUUID().toString();
+        int maxLength = current.getMaxSpeechInputLength();
+        if (text.length() <= maxLength) {
+            checkStatus("Speak", current.speak(text, flush ? SpeechEngine.QUEUE_FLUSH : SpeechEngine.QUEUE_ADD, utteranceId));
+            return utteranceId;
+        }
+        // Engines refuse anything longer outright (TextToSpeech.speak returns ERROR), so the text goes
+        // out as queued chunks that report to the listener as the single utterance the caller asked for.
+        List<TextChunker.Chunk> chunks = TextChunker.split(text, maxLength);
+        listener.onLog("Splitting long text into " + chunks.size() + " utterances");
+        for (int i = 0; i < chunks.size(); i++) {
+            TextChunker.Chunk chunk = chunks.get(i);
+            String chunkId = utteranceId + CHUNK_SEPARATOR + i + "/" + chunks.size();
+            chunkOffsets.put(chunkId, chunk.start);
+            int queueMode = i == 0 && flush ? SpeechEngine.QUEUE_FLUSH : SpeechEngine.QUEUE_ADD;
+            int status = current.speak(chunk.text(), queueMode, chunkId);
+            if (status != SpeechEngine.SUCCESS) {
+                current.stop();
+                chunkOffsets.clear();
+                checkStatus("Speak", status);
+            }
+        }
+        return utteranceId;
+    }
+
+    public String synthesizeToFile(String text, String voiceId, Float targetRate, Float targetPitch, File outputFile) {
+        return synthesizeToFile(text, voiceId, targetRate, targetPitch, outputFile, false);
+    }
+
+    // With trimSilence the padding engines add at both ends is cut before the file counts as finished,
+    // so awaitSynthesis callers only ever see the trimmed file.
+    public String synthesizeToFile(String text, String voiceId, Float targetRate, Float targetPitch, File outputFile,
+                                   boolean trimSilence) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Text is required");
+        }
+        SpeechEngine current = requireReady();
+        applyParameters(current, voiceId, targetRate, targetPitch);
+        listener.onLog("Synthesize request. chars=" + text.length() + " rate=" + rate + " pitch=" + pitch + " voice=" + voiceId);
+        String utteranceId = UUID.randomUUID().toString();
+        // Register before queueing so a fast engine cannot finish ahead of the bookkeeping.
+        beginSynthesis(utteranceId, outputFile);
+        if (trimSilence) {
+            trimRequests.add(utteranceId);
+        }
+        int status = current.synthesizeToFile(text, outputFile, utteranceId);
+        if (status != SpeechEngine.SUCCESS) {
+            finishSynthesis(utteranceId);
+            listener.onLog("synthesizeToFile failed with status " + status);
+            throw new IllegalStateException("Synthesize failed with status: " + status);
+        }
+        return utteranceId;
+    }
+
+    // Synthesizes into a bounded in-memory stream that a consumer reads while the engine is still
+    // producing audio. The engine is held back whenever capacityBytes are buffered and unread.
+    public PcmStream synthesizeToStream(String text, String voiceId, Float targetRate, Float targetPitch,
+                                        int capacityBytes) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Text is required");
+        }
+        SpeechEngine current = requireReady();
+        if (!current.supportsStreamSynthesis()) {
+            throw new IllegalStateException("Stream synthesis is not supported by this engine");
+        }
+        applyParameters(current, voiceId, targetRate, targetPitch);
+        listener.onLog("Stream synthesis request. chars=" + text.length() + " rate=" + rate + " pitch=" + pitch
+                + " voice=" + voiceId + " buffer=" + capacityBytes);
+        String utteranceId = UUID.randomUUID().toString();
+        PcmStream stream = new PcmStream(utteranceId, capacityBytes);
+        streams.put(utteranceId, stream);
+        int status = current.synthesizeToStream(text, stream, utteranceId);
+        if (status != SpeechEngine.SUCCESS) {
+            streams.remove(utteranceId);
+            listener.onLog("synthesizeToStream failed with status " + status);
+            throw new IllegalStateException("Synthesize failed with status: " + status);
+        }
+        return stream;
+    }
+
+    // Returns whether anything was being spoken.
+    public boolean stop() {
+        SpeechEngine current = engine;
+        if (current == null) {
+            return false;
+        }
+        boolean wasSpeaking = current.isSpeaking();
+        listener.onLog("Stop requested");
+        current.stop();
+        chunkOffsets.clear();
+        abandonStreams("Synthesis stopped");
+        if (wasSpeaking) {
+            listener.onState(STATE_DONE, null);
+        }
+        return wasSpeaking;
+    }
+
+    public void setRate(float value) {
+        rate = value;
+        SpeechEngine current = engine;
+        if (current != null) {
+            current.setSpeechRate(value);
+        }
+    }
+
+    public void setPitch(float value) {
+        pitch = value;
+        SpeechEngine current = engine;
+        if (current != null) {
+            current.setPitch(value);
+        }
+    }
+
+    // Returns false only when the file is still being written after the timeout.
+    public boolean awaitSynthesis(File file, long timeoutMs) {
+        CountDownLatch latch = pendingSyntheses.get(file.getAbsolutePath());
+        if (latch == null) {
+            return true;
+        }
+        try {
+            return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private SpeechEngine requireReady() {
+        SpeechEngine current = engine;
+        if (!ready || current == null) {
+            throw new IllegalStateException("TextToSpeech engine not ready");
+        }
+        return current;
+    }
+
+    private void applyParameters(SpeechEngine current, String voiceId, Float targetRate, Float targetPitch) {
+        if (targetRate != null) {
+            rate = targetRate;
+        }
+        if (targetPitch != null) {
+            pitch = targetPitch;
+        }
+        if (voiceId != null && !voiceId.isEmpty()) {
+            listener.onLog("Applying voice: " + voiceId);
+            current.setVoice(voiceId);
+        }
+        current.setSpeechRate(rate);
+        current.setPitch(pitch);
+    }
+
+    private static void checkStatus(String operation, int status) {
+        if (status != SpeechEngine.SUCCESS) {
+            throw new IllegalStateException(operation + " failed with status: " + status);
+        }
+    }
+
+    private void beginSynthesis(String utteranceId, File outputFile) {
+        String path = outputFile.getAbsolutePath();
+        synthesisPaths.put(utteranceId, path);
+        pendingSyntheses.put(path, new CountDownLatch(1));
+    }
+
+    // Runs on the engine callback thread before the waiters are released.
+    private void completeSynthesis(String utteranceId) {
+        String path = utteranceId != null ? synthesisPaths.get(utteranceId) : null;
+        if (path == null) {
+            return;
+        }
+        SilenceTrimmer.Result trim = null;
+        if (trimRequests.remove(utteranceId)) {
+            try {
+                trim = SilenceTrimmer.trim(new File(path), SilenceTrimmer.DEFAULT_THRESHOLD_DB,
+                        SilenceTrimmer.DEFAULT_MARGIN_MS);
+                listener.onLog("Trimmed silence. leadingMs=" + trim.leadingMs() + " trailingMs=" + trim.trailingMs());
+            } catch (IOException ex) {
+                listener.onLog("Silence trim failed: " + ex.getMessage());
+            }
+        }
+        listener.onSynthesized(utteranceId, path, trim);
+        finishSynthesis(utteranceId);
+    }
+
+    private void finishSynthesis(String utteranceId) {
+        if (utteranceId == null) {
+            return;
+        }
+        trimRequests.remove(utteranceId);
+        String path = synthesisPaths.remove(utteranceId);
+        if (path == null) {
+            return;
+        }
+        CountDownLatch latch = pendingSyntheses.remove(path);
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    // Wakes anyone waiting on files an engine that has been shut down will never finish.
+    private void abandonSyntheses() {
+        synthesisPaths.clear();
+        trimRequests.clear();
+        for (CountDownLatch latch : pendingSyntheses.values()) {
+            latch.countDown();
+        }
+        pendingSyntheses.clear();
+        abandonStreams("Speech engine shut down");
+    }
+
+    private void abandonStreams(String reason) {
+        for (PcmStream stream : streams.values()) {
+            stream.fail(reason);
+        }
+        streams.clear();
+    }
+
+    static String baseId(String utteranceId) {
+        int separator = utteranceId != null ? utteranceId.lastIndexOf(CHUNK_SEPARATOR) : -1;
+        return separator < 0 ? utteranceId : utteranceId.substring(0, separator);
+    }
+
+    static boolean isFirstChunk(String utteranceId) {
+        int separator = utteranceId != null ? utteranceId.lastIndexOf(CHUNK_SEPARATOR) : -1;
+        return separator < 0 || utteranceId.startsWith("0/", separator + 1);
+    }
+
+    static boolean isLastChunk(String utteranceId) {
+        int separator = utteranceId != null ? utteranceId.lastIndexOf(CHUNK_SEPARATOR) : -1;
+        if (separator < 0) {
+            return true;
+        }
+        int slash = utteranceId.indexOf('/', separator);
+        if (slash < 0) {
+            return true;
+        }
+        try {
+            int index = Integer.parseInt(utteranceId.substring(separator + 1, slash));
+            int count = Integer.parseInt(utteranceId.substring(slash + 1));
+            return index >= count - 1;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private final class EngineCallback implements SpeechEngine.Callback {
+        private final int owner;
+
+        EngineCallback(int owner) {
+            this.owner = owner;
+        }
+
+        private boolean stale() {
+            return owner != generation;
+        }
+
+        @Override
+        public void onInit(boolean success) {
+            if (stale()) {
+                return;
+            }
+            ready = success;
+            listener.onReady(success);
+        }
+
+        @Override
+        public void onStart(String utteranceId) {
+            if (!stale() && isFirstChunk(utteranceId)) {
+                listener.onState(STATE_START, baseId(utteranceId));
+            }
+        }
+
+        @Override
+        public void onRangeStart(String utteranceId, int start, int end) {
+            if (stale()) {
+                return;
+            }
+            Integer offset = chunkOffsets.get(utteranceId);
+            int shift = offset != null ? offset : 0;
+            listener.onRange(baseId(utteranceId), start + shift, end + shift);
+        }
+
+        @Override
+        public void onDone(String utteranceId) {
+            if (stale()) {
+                return;
+            }
+            completeSynthesis(utteranceId);
+            PcmStream stream = utteranceId != null ? streams.remove(utteranceId) : null;
+            if (stream != null) {
+                stream.finish();
+            }
+            chunkOffsets.remove(utteranceId);
+            if (isLastChunk(utteranceId)) {
+                listener.onState(STATE_DONE, baseId(utteranceId));
+            }
+        }
+
+        @Override
+        public void onStop(String utteranceId, boolean interrupted) {
+            if (stale()) {
+                return;
+            }
+            String path = utteranceId != null ? synthesisPaths.get(utteranceId) : null;
+            if (path != null) {
+                listener.onLog("Synthesis stopped before completion: " + path);
+            }
+            // Releases awaitSynthesis waiters; the file holds whatever was written before the flush.
+            finishSynthesis(utteranceId);
+            PcmStream stream = utteranceId != null ? streams.remove(utteranceId) : null;
+            if (stream != null) {
+                stream.fail("Synthesis stopped");
+            }
+            chunkOffsets.remove(utteranceId);
+        }
+
+        @Override
+        public void onError(String utteranceId, int errorCode) {
+            if (stale()) {
+                return;
+            }
+            finishSynthesis(utteranceId);
+            PcmStream stream = utteranceId != null ? streams.remove(utteranceId) : null;
+            if (stream != null) {
+                stream.fail("Synthesis failed with code " + errorCode);
+            }
+            chunkOffsets.remove(utteranceId);
+            listener.onLog("Utterance error code=" + errorCode);
+            SpeechEngine current = engine;
+            if (!isLastChunk(utteranceId) && current != null) {
+                // Drop the remaining chunks so the caller sees a single terminal state.
+                current.stop();
+                chunkOffsets.clear();
+            }
+            listener.onState(STATE_ERROR, baseId(utteranceId));
+        }
+    }
+}
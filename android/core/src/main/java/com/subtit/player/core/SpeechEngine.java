@@ -0,0 +1,102 @@
+package com.subtit.player.core;
+
+import java.io.File;
+import java.util.List;
+
+// The slice of android.speech.tts.TextToSpeech the TTS plugin relies on. Constants match the
+// framework values so adapters can pass them straight through.
+public interface SpeechEngine {
+    int SUCCESS = 0;
+    int ERROR = -1;
+    int QUEUE_FLUSH = 0;
+    int QUEUE_ADD = 1;
+    int ERROR_SYNTHESIS = -3;
+    int ERROR_OUTPUT = -5;
+
+    interface Callback {
+        void onInit(boolean success);
+
+        void onStart(String utteranceId);
+
+        // Character offsets into the text passed for this utterance.
+        void onRangeStart(String utteranceId, int start, int end);
+
+        void onDone(String utteranceId);
+
+        void onError(String utteranceId, int errorCode);
+
+        // The utterance was flushed by stop() or a QUEUE_FLUSH speak; neither onDone nor onError follows.
+        // interrupted is false when it was dropped from the queue before it started.
+        void onStop(String utteranceId, boolean interrupted);
+    }
+
+    interface Factory {
+        // engineId is null for the system default engine. onInit is delivered asynchronously.
+        SpeechEngine create(String engineId, Callback callback);
+    }
+
+    final class Voice {
+        public final String name;
+        public final String locale;
+        public final int quality;
+        public final int latency;
+        public final boolean networkRequired;
+
+        public Voice(String name, String locale, int quality, int latency, boolean networkRequired) {
+            this.name = name;
+            this.locale = locale;
+            this.quality = quality;
+            this.latency = latency;
+            this.networkRequired = networkRequired;
+        }
+    }
+
+    final class EngineInfo {
+        public final String name;
+        public final String label;
+
+        public EngineInfo(String name, String label) {
+            this.name = name;
+            this.label = label;
+        }
+    }
+
+    int speak(String text, int queueMode, String utteranceId);
+
+    int synthesizeToFile(String text, File file, String utteranceId);
+
+    // Whether synthesizeToStream is available; the platform engine needs API 30 to write to a pipe.
+    boolean supportsStreamSynthesis();
+
+    // Synthesizes into sink as audio is produced, without touching storage. The engine pumps the
+    // stream on its own thread and finishes it at end of output; onDone/onError still follow.
+    int synthesizeToStream(String text, PcmStream sink, String utteranceId);
+
+    boolean isSpeaking();
+
+    void stop();
+
+    void shutdown();
+
+    void setSpeechRate(float rate);
+
+    void setPitch(float pitch);
+
+    List<Voice> getVoices();
+
+    boolean setVoice(String name);
+
+    List<EngineInfo> getEngines();
+
+    String getDefaultEngine();
+
+    // The engine actually bound, or null when it cannot be determined.
+    String getCurrentEngine();
+
+    List<String> getAvailableLanguages();
+
+    // Language tag of the current language, or null.
+    String getLanguage();
+
+    int getMaxSpeechInputLength();
+}
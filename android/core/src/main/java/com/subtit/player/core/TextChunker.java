@@ -0,0 +1,128 @@
+package com.subtit.player.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class TextChunker {
+    public static final class Chunk {
+        public final int start;
+        public final int end;
+        private final String source;
+
+        Chunk(String source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int length() {
+            return end - start;
+        }
+
+        public String text() {
+            return source.substring(start, end);
+        }
+    }
+
+    private TextChunker() {
+    }
+
+    // Splits at the last sentence end inside each window, then at a clause or word break, and only
+    // cuts mid-word when a single word is longer than maxLength. Offsets refer to the original text.
+    public static List<Chunk> split(String text, int maxLength) {
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("maxLength must be positive");
+        }
+        List<Chunk> chunks = new ArrayList<>();
+        if (text == null) {
+            return chunks;
+        }
+        int length = text.length();
+        int position = skipWhitespace(text, 0, length);
+        while (position < length) {
+            int limit = Math.min(length, position + maxLength);
+            int end;
+            if (limit == length) {
+                end = length;
+            } else {
+                end = findBreak(text, position, limit);
+            }
+            int trimmedEnd = end;
+            while (trimmedEnd > position && Character.isWhitespace(text.charAt(trimmedEnd - 1))) {
+                trimmedEnd--;
+            }
+            if (trimmedEnd > position) {
+                chunks.add(new Chunk(text, position, trimmedEnd));
+            }
+            position = skipWhitespace(text, end, length);
+        }
+        return chunks;
+    }
+
+    static int findBreak(String text, int start, int limit) {
+        int sentence = -1;
+        int clause = -1;
+        int space = -1;
+        // A break at index i means the chunk ends right before i.
+        for (int i = limit; i > start; i--) {
+            char previous = text.charAt(i - 1);
+            char current = text.charAt(i);
+            if (previous == '\n') {
+                sentence = Math.max(sentence, i);
+                break;
+            }
+            if (!Character.isWhitespace(current)) {
+                // CJK text has no spaces after terminal punctuation.
+                if (previous == '。' || previous == '！' || previous == '？') {
+                    sentence = i;
+                    break;
+                }
+                continue;
+            }
+            if (isSentenceEnd(text, i - 1, start)) {
+                sentence = i;
+                break;
+            }
+            if (clause < 0 && isClauseEnd(previous)) {
+                clause = i;
+            }
+            if (space < 0) {
+                space = i;
+            }
+        }
+        if (sentence > start) {
+            return sentence;
+        }
+        if (clause > start) {
+            return clause;
+        }
+        if (space > start) {
+            return space;
+        }
+        // No break at all; avoid splitting a surrogate pair.
+        if (Character.isHighSurrogate(text.charAt(limit - 1)) && limit - 1 > start) {
+            return limit - 1;
+        }
+        return limit;
+    }
+
+    private static boolean isSentenceEnd(String text, int index, int start) {
+        char c = text.charAt(index);
+        // Closing quotes and brackets count only when they follow terminal punctuation: ."  !)  ?»
+        if ((c == '"' || c == '»' || c == '”' || c == ')') && index > start) {
+            c = text.charAt(index - 1);
+        }
+        return c == '.' || c == '!' || c == '?' || c == '…' || c == '。' || c == '！' || c == '？';
+    }
+
+    private static boolean isClauseEnd(char c) {
+        return c == ',' || c == ';' || c == ':' || c == '—' || c == '–' || c == '、' || c == '，';
+    }
+
+    private static int skipWhitespace(String text, int position, int length) {
+        while (position < length && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+}
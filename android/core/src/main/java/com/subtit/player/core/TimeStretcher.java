@@ -0,0 +1,276 @@
+package com.subtit.player.core;
+
+import java.util.Arrays;
+
+// Streaming speed change for 16-bit PCM speech that keeps the pitch, after the Sonic library: the
+// pitch period is found by AMDF, and whole periods are cross-faded out (faster) or repeated (slower)
+// so the waveform stays continuous. Speed may change between writes; the new value applies from the
+// next unprocessed period. Not thread-safe.
+public final class TimeStretcher {
+    public static final float MIN_SPEED = 0.25f;
+    public static final float MAX_SPEED = 4f;
+    private static final int MIN_PITCH_HZ = 65;
+    private static final int MAX_PITCH_HZ = 400;
+    // Pitch search runs on a mono copy decimated to about this rate, then refines at full rate.
+    private static final int SEARCH_RATE = 4000;
+
+    private final int sampleRate;
+    private final int channels;
+    private final int minPeriod;
+    private final int maxPeriod;
+    private final int maxRequired;
+    private final int skip;
+    private final short[] mono;
+
+    private short[] input = new short[0];
+    private int inputFrames;
+    private short[] output = new short[0];
+    private int outputFrames;
+    private int outputRead;
+    private int remainingToCopy;
+    private float speed = 1f;
+    private long framesIn;
+    private long framesOut;
+
+    public TimeStretcher(int sampleRate, int channels) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("Invalid format " + sampleRate + "Hz x" + channels);
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.minPeriod = sampleRate / MAX_PITCH_HZ;
+        this.maxPeriod = sampleRate / MIN_PITCH_HZ;
+        this.maxRequired = 2 * maxPeriod;
+        this.skip = Math.max(1, sampleRate / SEARCH_RATE);
+        this.mono = new short[maxRequired];
+    }
+
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    public int channels() {
+        return channels;
+    }
+
+    public float speed() {
+        return speed;
+    }
+
+    public void setSpeed(float value) {
+        if (Float.isNaN(value)) {
+            throw new IllegalArgumentException("speed is NaN");
+        }
+        speed = Math.max(MIN_SPEED, Math.min(MAX_SPEED, value));
+    }
+
+    // Frames written and read so far, for mapping playback back to the source timeline.
+    public long framesIn() {
+        return framesIn;
+    }
+
+    public long framesOut() {
+        return framesOut;
+    }
+
+    // Input frames accepted but not yet turned into output.
+    public int pendingInputFrames() {
+        return inputFrames;
+    }
+
+    public int availableFrames() {
+        return outputFrames - outputRead;
+    }
+
+    public void write(short[] samples, int offset, int frames) {
+        if (frames <= 0) {
+            return;
+        }
+        ensureInput(inputFrames + frames);
+        System.arraycopy(samples, offset, input, inputFrames * channels, frames * channels);
+        inputFrames += frames;
+        framesIn += frames;
+        process();
+    }
+
+    // Copies up to maxFrames processed frames into out and returns how many were copied.
+    public int read(short[] out, int offset, int maxFrames) {
+        int frames = Math.min(maxFrames, availableFrames());
+        if (frames <= 0) {
+            return 0;
+        }
+        System.arraycopy(output, outputRead * channels, out, offset, frames * channels);
+        outputRead += frames;
+        framesOut += frames;
+        if (outputRead == outputFrames) {
+            outputRead = 0;
+            outputFrames = 0;
+        }
+        return frames;
+    }
+
+    // Processes what is left at the end of the stream. The tail is too short to search for a pitch
+    // period, so it is padded with silence and the extra output is cut back to the expected length.
+    public void flush() {
+        if (inputFrames == 0) {
+            return;
+        }
+        int copied = Math.min(remainingToCopy, inputFrames);
+        int expected = outputFrames + copied + Math.round((inputFrames - copied) / speed);
+        ensureInput(inputFrames + maxRequired);
+        Arrays.fill(input, inputFrames * channels, (inputFrames + maxRequired) * channels, (short) 0);
+        inputFrames += maxRequired;
+        process();
+        outputFrames = Math.max(outputRead, Math.min(outputFrames, expected));
+        inputFrames = 0;
+        remainingToCopy = 0;
+    }
+
+    public void clear() {
+        inputFrames = 0;
+        outputFrames = 0;
+        outputRead = 0;
+        remainingToCopy = 0;
+    }
+
+    private void process() {
+        int position = 0;
+        while (true) {
+            if (remainingToCopy > 0) {
+                int frames = Math.min(remainingToCopy, inputFrames - position);
+                if (frames == 0) {
+                    break;
+                }
+                appendOutput(input, position, frames);
+                remainingToCopy -= frames;
+                position += frames;
+            } else if (Math.abs(speed - 1f) < 0.001f) {
+                appendOutput(input, position, inputFrames - position);
+                position = inputFrames;
+                break;
+            } else if (position + maxRequired <= inputFrames) {
+                int period = findPitchPeriod(position);
+                position += speed > 1f ? skipPeriod(position, period) : insertPeriod(position, period);
+            } else {
+                break;
+            }
+        }
+        int left = inputFrames - position;
+        System.arraycopy(input, position * channels, input, 0, left * channels);
+        inputFrames = left;
+    }
+
+    // Cross-fades two consecutive periods into one, then copies enough input straight through to land
+    // on the requested speed. Returns the input frames consumed.
+    private int skipPeriod(int position, int period) {
+        int blended;
+        if (speed >= 2f) {
+            blended = Math.round(period / (speed - 1f));
+        } else {
+            blended = period;
+            remainingToCopy = Math.round(period * (2f - speed) / (speed - 1f));
+        }
+        int start = reserveOutput(blended);
+        overlapAdd(blended, start, position, position + period);
+        return period + blended;
+    }
+
+    // Plays a period and then repeats it, cross-faded into the following input. Returns the input
+    // frames consumed.
+    private int insertPeriod(int position, int period) {
+        int repeated;
+        if (speed < 0.5f) {
+            repeated = Math.round(period * speed / (1f - speed));
+        } else {
+            repeated = period;
+            remainingToCopy = Math.round(period * (2f * speed - 1f) / (1f - speed));
+        }
+        appendOutput(input, position, period);
+        int start = reserveOutput(repeated);
+        overlapAdd(repeated, start, position + period, position);
+        return repeated;
+    }
+
+    // Writes frames fading from the input at fadeOut to the input at fadeIn.
+    private void overlapAdd(int frames, int outputStart, int fadeOut, int fadeIn) {
+        for (int channel = 0; channel < channels; channel++) {
+            int out = outputStart * channels + channel;
+            int down = fadeOut * channels + channel;
+            int up = fadeIn * channels + channel;
+            for (int t = 0; t < frames; t++) {
+                output[out] = (short) ((input[down] * (frames - t) + input[up] * t) / frames);
+                out += channels;
+                down += channels;
+                up += channels;
+            }
+        }
+    }
+
+    // Average magnitude difference function over a mono copy: coarse on the decimated signal, then
+    // refined at full rate around the coarse best.
+    private int findPitchPeriod(int position) {
+        for (int i = 0; i < maxRequired; i++) {
+            int base = (position + i) * channels;
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += input[base + c];
+            }
+            mono[i] = (short) (sum / channels);
+        }
+        int coarse = bestPeriod(minPeriod / skip * skip, maxPeriod, skip);
+        int low = Math.max(minPeriod, coarse - skip);
+        int high = Math.min(maxPeriod, coarse + skip);
+        return skip > 1 ? bestPeriod(low, high, 1) : coarse;
+    }
+
+    private int bestPeriod(int low, int high, int step) {
+        int best = Math.max(1, low);
+        long bestDiff = 1;
+        int bestSpan = 0;
+        for (int period = Math.max(step, low); period <= high; period += step) {
+            long diff = 0;
+            int span = 0;
+            for (int i = 0; i < period; i += step) {
+                diff += Math.abs(mono[i] - mono[i + period]);
+                span++;
+            }
+            // Compare diff / span across periods without dividing.
+            if (bestSpan == 0 || diff * bestSpan < bestDiff * span) {
+                best = period;
+                bestDiff = diff;
+                bestSpan = span;
+            }
+        }
+        return best;
+    }
+
+    private void appendOutput(short[] source, int frameOffset, int frames) {
+        int start = reserveOutput(frames);
+        System.arraycopy(source, frameOffset * channels, output, start * channels, frames * channels);
+    }
+
+    // Grows the output by frames and returns where the new frames start.
+    private int reserveOutput(int frames) {
+        int needed = (outputFrames + frames) * channels;
+        if (needed > output.length) {
+            if (outputRead > 0) {
+                System.arraycopy(output, outputRead * channels, output, 0, (outputFrames - outputRead) * channels);
+                outputFrames -= outputRead;
+                outputRead = 0;
+                needed = (outputFrames + frames) * channels;
+            }
+            if (needed > output.length) {
+                output = Arrays.copyOf(output, Math.max(needed, output.length * 2));
+            }
+        }
+        int start = outputFrames;
+        outputFrames += frames;
+        return start;
+    }
+
+    private void ensureInput(int frames) {
+        if (frames * channels > input.length) {
+            input = Arrays.copyOf(input, Math.max(frames * channels, input.length * 2));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.subtit.player.core;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public final class WavHeader {
+    public static final int FORMAT_PCM = 1;
+    public static final int FORMAT_IEEE_FLOAT = 3;
+    public static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    public static final int CANONICAL_SIZE = 44;
+
+    private static final int MAX_CHUNKS = 64;
+
+    public final int audioFormat;
+    public final int channels;
+    public final int sampleRate;
+    public final int bitsPerSample;
+    public final long dataOffset;
+    public final long dataLength;
+
+    public WavHeader(int audioFormat, int channels, int sampleRate, int bitsPerSample, long dataOffset, long dataLength) {
+        this.audioFormat = audioFormat;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.bitsPerSample = bitsPerSample;
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+    }
+
+    public int frameSize() {
+        return channels * ((bitsPerSample + 7) / 8);
+    }
+
+    public int byteRate() {
+        return sampleRate * frameSize();
+    }
+
+    public long frames() {
+        int frameSize = frameSize();
+        return frameSize > 0 ? dataLength / frameSize : 0;
+    }
+
+    public long durationMs() {
+        return sampleRate > 0 ? frames() * 1000L / sampleRate : 0;
+    }
+
+    public boolean isPcm16() {
+        return (audioFormat == FORMAT_PCM || audioFormat == FORMAT_EXTENSIBLE) && bitsPerSample == 16;
+    }
+
+    public WavHeader withDataLength(long length) {
+        return new WavHeader(audioFormat, channels, sampleRate, bitsPerSample, dataOffset, length);
+    }
+
+    public static WavHeader read(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            return read(input);
+        }
+    }
+
+    // Walks the RIFF chunk list so LIST/fact chunks before "data" are skipped. A data size of 0 or
+    // 0xFFFFFFFF (written by streaming encoders before they finish) is clamped to the bytes present.
+    public static WavHeader read(RandomAccessFile input) throws IOException {
+        long fileLength = input.length();
+        byte[] buffer = new byte[16];
+        input.seek(0);
+        input.readFully(buffer, 0, 12);
+        ByteBuffer riff = ByteBuffer.wrap(buffer, 0, 12).order(ByteOrder.LITTLE_ENDIAN);
+        if (riff.getInt(0) != fourCc("RIFF") || riff.getInt(8) != fourCc("WAVE")) {
+            throw new IOException("Not a RIFF/WAVE file");
+        }
+        int audioFormat = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        int bitsPerSample = 0;
+        long position = 12;
+        for (int chunk = 0; chunk < MAX_CHUNKS && position + 8 <= fileLength; chunk++) {
+            input.seek(position);
+            input.readFully(buffer, 0, 8);
+            ByteBuffer header = ByteBuffer.wrap(buffer, 0, 8).order(ByteOrder.LITTLE_ENDIAN);
+            int id = header.getInt(0);
+            long size = header.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+            if (id == fourCc("fmt ")) {
+                if (size < 16) {
+                    throw new IOException("fmt chunk too small");
+                }
+                input.readFully(buffer, 0, 16);
+                ByteBuffer fmt = ByteBuffer.wrap(buffer, 0, 16).order(ByteOrder.LITTLE_ENDIAN);
+                audioFormat = fmt.getShort(0) & 0xFFFF;
+                channels = fmt.getShort(2) & 0xFFFF;
+                sampleRate = fmt.getInt(4);
+                bitsPerSample = fmt.getShort(14) & 0xFFFF;
+            } else if (id == fourCc("data")) {
+                if (audioFormat < 0) {
+                    throw new IOException("data chunk before fmt chunk");
+                }
+                long available = fileLength - body;
+                long length = size == 0 || size == 0xFFFFFFFFL || size > available ? available : size;
+                return new WavHeader(audioFormat, channels, sampleRate, bitsPerSample, body, length);
+            }
+            position = body + size + (size & 1);
+        }
+        throw new EOFException("No data chunk");
+    }
+
+    // Header of a WAV that arrives as a stream and cannot be walked like a file: only the canonical
+    // 44-byte layout is recognised. Returns null otherwise, e.g. for a zeroed placeholder header.
+    public static WavHeader parseCanonical(byte[] bytes) {
+        if (bytes.length < CANONICAL_SIZE) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes, 0, CANONICAL_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != fourCc("RIFF") || header.getInt(8) != fourCc("WAVE")
+                || header.getInt(12) != fourCc("fmt ") || header.getInt(36) != fourCc("data")) {
+            return null;
+        }
+        int channels = header.getShort(22) & 0xFFFF;
+        int sampleRate = header.getInt(24);
+        int bitsPerSample = header.getShort(34) & 0xFFFF;
+        if (channels <= 0 || sampleRate <= 0 || bitsPerSample <= 0) {
+            return null;
+        }
+        return new WavHeader(header.getShort(20) & 0xFFFF, channels, sampleRate, bitsPerSample, CANONICAL_SIZE,
+                header.getInt(40) & 0xFFFFFFFFL);
+    }
+
+    public byte[] toBytes() {
+        return canonical(audioFormat == FORMAT_EXTENSIBLE ? FORMAT_PCM : audioFormat, channels, sampleRate, bitsPerSample, dataLength);
+    }
+
+    // A plain 44-byte header; data lengths above 4 GiB are not representable and are clamped.
+    public static byte[] canonical(int audioFormat, int channels, int sampleRate, int bitsPerSample, long dataLength) {
+        long clamped = Math.min(dataLength, 0xFFFFFFFFL - 36);
+        int frameSize = channels * ((bitsPerSample + 7) / 8);
+        ByteBuffer out = ByteBuffer.allocate(CANONICAL_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(fourCc("RIFF"));
+        out.putInt((int) (36 + clamped));
+        out.putInt(fourCc("WAVE"));
+        out.putInt(fourCc("fmt "));
+        out.putInt(16);
+        out.putShort((short) audioFormat);
+        out.putShort((short) channels);
+        out.putInt(sampleRate);
+        out.putInt(sampleRate * frameSize);
+        out.putShort((short) frameSize);
+        out.putShort((short) bitsPerSample);
+        out.putInt(fourCc("data"));
+        out.putInt((int) clamped);
+        return out.array();
+    }
+
+    private static int fourCc(String tag) {
+        return (tag.charAt(0) & 0xFF)
+                | (tag.charAt(1) & 0xFF) << 8
+                | (tag.charAt(2) & 0xFF) << 16
+                | (tag.charAt(3) & 0xFF) << 24;
+    }
+}
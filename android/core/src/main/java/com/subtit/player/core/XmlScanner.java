@@ -0,0 +1,368 @@
+package com.subtit.player.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Streaming tokenizer for the XML found in EPUBs. It is deliberately lenient: HTML named entities are
+// decoded without a DTD, unknown entities pass through as written, and unbalanced tags are reported as
+// they appear rather than rejected. Element and attribute names are lower-cased with any namespace
+// prefix dropped, so <dc:title> arrives as "title".
+public final class XmlScanner implements Closeable {
+    public static final int END_DOCUMENT = 0;
+    public static final int START_TAG = 1;
+    public static final int END_TAG = 2;
+    public static final int TEXT = 3;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_TEXT_TOKEN = 4096;
+    private static final Map<String, String> ENTITIES = new LinkedHashMap<>();
+
+    static {
+        ENTITIES.put("amp", "&");
+        ENTITIES.put("lt", "<");
+        ENTITIES.put("gt", ">");
+        ENTITIES.put("quot", "\"");
+        ENTITIES.put("apos", "'");
+        ENTITIES.put("nbsp", "\u00a0");
+        ENTITIES.put("shy", "");
+        ENTITIES.put("ndash", "–");
+        ENTITIES.put("mdash", "—");
+        ENTITIES.put("hellip", "…");
+        ENTITIES.put("laquo", "«");
+        ENTITIES.put("raquo", "»");
+        ENTITIES.put("lsquo", "‘");
+        ENTITIES.put("rsquo", "’");
+        ENTITIES.put("ldquo", "“");
+        ENTITIES.put("rdquo", "”");
+        ENTITIES.put("bdquo", "„");
+        ENTITIES.put("copy", "©");
+        ENTITIES.put("reg", "®");
+        ENTITIES.put("trade", "™");
+        ENTITIES.put("middot", "·");
+        ENTITIES.put("bull", "•");
+        ENTITIES.put("deg", "°");
+        ENTITIES.put("times", "×");
+        ENTITIES.put("sect", "§");
+        ENTITIES.put("euro", "€");
+    }
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private final StringBuilder scratch = new StringBuilder();
+
+    private int event = -1;
+    private String name;
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+    private boolean selfClosing;
+    private boolean pendingEnd;
+    private String text;
+
+    public XmlScanner(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Advances to the next token. A self-closing tag is reported as START_TAG followed by END_TAG.
+    public int next() throws IOException {
+        if (pendingEnd) {
+            pendingEnd = false;
+            attributes.clear();
+            event = END_TAG;
+            return event;
+        }
+        while (true) {
+            int c = peek();
+            if (c < 0) {
+                event = END_DOCUMENT;
+                return event;
+            }
+            if (c != '<') {
+                text = readText();
+                event = TEXT;
+                return event;
+            }
+            position++;
+            int marker = peek();
+            if (marker == '!') {
+                position++;
+                if (startsWith("--")) {
+                    position += 2;
+                    skipPast("-->");
+                } else if (startsWith("[CDATA[")) {
+                    position += 7;
+                    text = readUntil("]]>");
+                    event = TEXT;
+                    return event;
+                } else {
+                    skipPast(">");
+                }
+                continue;
+            }
+            if (marker == '?') {
+                skipPast("?>");
+                continue;
+            }
+            if (marker == '/') {
+                position++;
+                name = localName(readName());
+                attributes.clear();
+                skipPast(">");
+                event = END_TAG;
+                return event;
+            }
+            if (marker < 0 || !isNameStart((char) marker)) {
+                // A stray '<' in text.
+                text = "<" + readText();
+                event = TEXT;
+                return event;
+            }
+            readStartTag();
+            event = START_TAG;
+            pendingEnd = selfClosing;
+            return event;
+        }
+    }
+
+    public int event() {
+        return event;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    public boolean isSelfClosing() {
+        return selfClosing;
+    }
+
+    public String attribute(String attributeName) {
+        return attributes.get(attributeName);
+    }
+
+    // Skips to the end tag matching the start tag just read.
+    public void skipElement() throws IOException {
+        if (event != START_TAG) {
+            return;
+        }
+        String skipped = name;
+        int depth = 1;
+        while (depth > 0) {
+            int token = next();
+            if (token == END_DOCUMENT) {
+                return;
+            }
+            if (token == START_TAG && skipped.equals(name)) {
+                depth++;
+            } else if (token == END_TAG && skipped.equals(name)) {
+                depth--;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readStartTag() throws IOException {
+        name = localName(readName());
+        attributes.clear();
+        selfClosing = false;
+        while (true) {
+            skipWhitespace();
+            int c = peek();
+            if (c < 0) {
+                return;
+            }
+            if (c == '>') {
+                position++;
+                return;
+            }
+            if (c == '/') {
+                position++;
+                if (peek() == '>') {
+                    position++;
+                    selfClosing = true;
+                    return;
+                }
+                continue;
+            }
+            String attributeName = localName(readName());
+            if (attributeName.isEmpty()) {
+                // Not a name character; drop it rather than loop on it.
+                position++;
+                continue;
+            }
+            skipWhitespace();
+            String value = "";
+            if (peek() == '=') {
+                position++;
+                skipWhitespace();
+                int quote = peek();
+                if (quote == '"' || quote == '\'') {
+                    position++;
+                    value = decode(readUntil(String.valueOf((char) quote)));
+                } else {
+                    value = decode(readName());
+                }
+            }
+            attributes.put(attributeName, value);
+        }
+    }
+
+    // Long runs are returned in pieces, cut at whitespace so an entity is never split.
+    private String readText() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            int c = peek();
+            if (c < 0 || c == '<' || (scratch.length() >= MAX_TEXT_TOKEN && Character.isWhitespace(c))) {
+                break;
+            }
+            scratch.append((char) c);
+            position++;
+        }
+        return decode(scratch.toString());
+    }
+
+    private String readName() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            int c = peek();
+            if (c < 0 || Character.isWhitespace(c) || c == '>' || c == '/' || c == '=' || c == '"' || c == '\'') {
+                break;
+            }
+            scratch.append((char) c);
+            position++;
+        }
+        return scratch.toString();
+    }
+
+    private String readUntil(String terminator) throws IOException {
+        StringBuilder result = new StringBuilder();
+        while (true) {
+            if (startsWith(terminator)) {
+                position += terminator.length();
+                return result.toString();
+            }
+            int c = peek();
+            if (c < 0) {
+                return result.toString();
+            }
+            result.append((char) c);
+            position++;
+        }
+    }
+
+    private void skipPast(String terminator) throws IOException {
+        while (!startsWith(terminator)) {
+            if (peek() < 0) {
+                return;
+            }
+            position++;
+        }
+        position += terminator.length();
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c = peek();
+        while (c >= 0 && Character.isWhitespace(c)) {
+            position++;
+            c = peek();
+        }
+    }
+
+    private boolean startsWith(String prefix) throws IOException {
+        if (!ensure(prefix.length())) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buffer[position + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int peek() throws IOException {
+        return ensure(1) ? buffer[position] : -1;
+    }
+
+    // Makes at least count characters available from position; false at end of input.
+    private boolean ensure(int count) throws IOException {
+        if (limit - position >= count) {
+            return true;
+        }
+        int remaining = limit - position;
+        System.arraycopy(buffer, position, buffer, 0, remaining);
+        position = 0;
+        limit = remaining;
+        while (limit < count) {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_' || c == ':';
+    }
+
+    private static String localName(String qualified) {
+        int colon = qualified.indexOf(':');
+        String local = colon >= 0 ? qualified.substring(colon + 1) : qualified;
+        return local.toLowerCase(Locale.ROOT);
+    }
+
+    static String decode(String raw) {
+        int amp = raw.indexOf('&');
+        if (amp < 0) {
+            return raw;
+        }
+        StringBuilder result = new StringBuilder(raw.length());
+        int start = 0;
+        while (amp >= 0) {
+            result.append(raw, start, amp);
+            int semicolon = raw.indexOf(';', amp);
+            String replacement = null;
+            if (semicolon > amp + 1 && semicolon - amp <= 12) {
+                replacement = entity(raw.substring(amp + 1, semicolon));
+            }
+            if (replacement != null) {
+                result.append(replacement);
+                start = semicolon + 1;
+            } else {
+                result.append('&');
+                start = amp + 1;
+            }
+            amp = raw.indexOf('&', start);
+        }
+        result.append(raw, start, raw.length());
+        return result.toString();
+    }
+
+    private static String entity(String reference) {
+        if (reference.startsWith("#")) {
+            try {
+                int codePoint = reference.length() > 1 && (reference.charAt(1) == 'x' || reference.charAt(1) == 'X')
+                        ? Integer.parseInt(reference.substring(2), 16)
+                        : Integer.parseInt(reference.substring(1));
+                return Character.isValidCodePoint(codePoint) ? new String(Character.toChars(codePoint)) : null;
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        return ENTITIES.get(reference);
+    }
+}
@@ -0,0 +1,151 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BridgeRequestQueueTest {
+    private final BridgeRequestQueue queue = new BridgeRequestQueue("BridgeTest", 8);
+    private final List<String> rejections = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        queue.shutdown();
+    }
+
+    private BridgeRequestQueue.RejectionHandler record() {
+        return (requestId, reason) -> rejections.add(requestId + ":" + reason);
+    }
+
+    @Test
+    public void runningRequestIsCutOffAtItsDeadline() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch next = new CountDownLatch(1);
+        long startedAt = System.nanoTime();
+        queue.submit("slow", 100, () -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+        }, record());
+        queue.submit("next", 1000, next::countDown, record());
+
+        assertTrue("the request behind the slow one never ran", next.await(2, TimeUnit.SECONDS));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        assertTrue("took " + elapsedMs + " ms", elapsedMs < 1000);
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of("slow:" + BridgeRequestQueue.REASON_TIMEOUT), rejections);
+        assertEquals(1, queue.timedOut());
+    }
+
+    @Test
+    public void requestExpiredInQueueNeverRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        boolean[] ran = new boolean[1];
+        queue.submit("blocker", 0, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+                // shutting down
+            }
+        }, record());
+        queue.submit("late", 50, () -> ran[0] = true, record());
+        queue.submit("marker", 0, done::countDown, record());
+        Thread.sleep(150);
+        release.countDown();
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertFalse(ran[0]);
+        assertEquals(List.of("late:" + BridgeRequestQueue.REASON_TIMEOUT), rejections);
+    }
+
+    @Test
+    public void requestWithinDeadlineCompletes() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        queue.submit("quick", 1000, done::countDown, record());
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 1000;
+        while (queue.inFlight() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, queue.completed());
+        assertTrue(rejections.isEmpty());
+    }
+
+    @Test
+    public void callIgnoringInterruptWedgesTheQueueInsteadOfRunningAnother() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch exited = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostAtOnce = new AtomicInteger();
+        Runnable tracked = () -> mostAtOnce.accumulateAndGet(running.incrementAndGet(), Math::max);
+        queue.submit("stuck", 100, () -> {
+            tracked.run();
+            // A binder call that does not notice the interrupt.
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                    // keep waiting
+                }
+            }
+            running.decrementAndGet();
+            exited.countDown();
+        }, record());
+        CountDownLatch ranNext = new CountDownLatch(1);
+        queue.submit("next", 1000, ranNext::countDown, record());
+        queue.submit("inline", 0, ranNext::countDown, record());
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (rejections.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of("stuck:" + BridgeRequestQueue.REASON_TIMEOUT,
+                "next:" + BridgeRequestQueue.REASON_WEDGED,
+                "inline:" + BridgeRequestQueue.REASON_WEDGED), rejections);
+        assertTrue(queue.isWedged());
+        assertEquals(1, ranNext.getCount());
+        assertEquals(2, queue.shed());
+
+        release.countDown();
+        assertTrue(exited.await(1, TimeUnit.SECONDS));
+        CountDownLatch after = new CountDownLatch(1);
+        queue.submit("after", 1000, () -> {
+            tracked.run();
+            running.decrementAndGet();
+            after.countDown();
+        }, record());
+        assertTrue("the queue did not recover once the call returned", after.await(2, TimeUnit.SECONDS));
+        assertFalse(queue.isWedged());
+        assertEquals(1, mostAtOnce.get());
+    }
+
+    @Test
+    public void failingCallIsReportedWithoutKillingTheQueue() throws Exception {
+        queue.submit("npe", 1000, () -> {
+            throw new NullPointerException("no path");
+        }, record());
+        queue.submit("inline", 0, () -> {
+            throw new UnsupportedOperationException();
+        }, record());
+        CountDownLatch next = new CountDownLatch(1);
+        queue.submit("next", 1000, next::countDown, record());
+
+        assertTrue("the queue thread died", next.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("npe:" + BridgeRequestQueue.REASON_FAILED + ": no path",
+                "inline:" + BridgeRequestQueue.REASON_FAILED + ": UnsupportedOperationException"), rejections);
+        assertEquals(2, queue.failed());
+    }
+}
@@ -0,0 +1,202 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EpubBookTest {
+    private static final String CHAPTER_ONE = "<h1 id=\"top\">Chapter&#160;One</h1>"
+            + "<p>Fish &amp; chips &mdash; caf&#233; &#x41;&#x42; &unknown; done.</p>"
+            + "<p>Line one<br/>line two</p>"
+            + "<script>skipped()</script>"
+            + "<div id=\"part2\"></div>"
+            + "<p>Second   part\n  text.</p>"
+            + "<p id=\"last\">End.</p>";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File epub3() throws IOException {
+        return new EpubFixture("OEBPS/content.opf")
+                .add("OEBPS/content.opf", "<?xml version=\"1.0\"?>"
+                        + "<package xmlns=\"http://www.idpf.org/2007/opf\" version=\"3.0\">"
+                        + "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\">"
+                        + "<dc:title>Tom &amp; Jerry</dc:title><dc:language>en</dc:language></metadata>"
+                        + "<manifest>"
+                        + "<item id=\"nav\" href=\"nav.xhtml\" properties=\"nav\" media-type=\"application/xhtml+xml\"/>"
+                        + "<item id=\"cover\" href=\"text/cover.xhtml\" media-type=\"application/xhtml+xml\"/>"
+                        + "<item id=\"one\" href=\"text/chapter%201.xhtml\" media-type=\"application/xhtml+xml\"/>"
+                        + "<item id=\"two\" href=\"text/two.xhtml\" media-type=\"application/xhtml+xml\"/>"
+                        + "</manifest><spine>"
+                        + "<itemref idref=\"cover\" linear=\"no\"/><itemref idref=\"one\"/>"
+                        + "<itemref idref=\"missing\"/><itemref idref=\"two\"/>"
+                        + "</spine></package>")
+                .add("OEBPS/nav.xhtml", EpubFixture.xhtml(
+                        "<nav epub:type=\"toc\"><ol>"
+                                + "<li><a href=\"text/chapter%201.xhtml\">One</a>"
+                                + "<ol><li><a href=\"text/chapter%201.xhtml#part2\">Part <i>two</i></a></li></ol></li>"
+                                + "<li><a href=\"text/two.xhtml\">Two</a></li>"
+                                + "</ol></nav>"
+                                + "<nav epub:type=\"landmarks\"><ol><li><a href=\"text/cover.xhtml\">Cover</a></li></ol></nav>"))
+                .add("OEBPS/text/cover.xhtml", EpubFixture.xhtml("<p>Cover</p>"))
+                .add("OEBPS/text/chapter 1.xhtml", EpubFixture.xhtml(CHAPTER_ONE))
+                .add("OEBPS/text/two.xhtml", EpubFixture.xhtml("<p>Two.</p>"))
+                .write(temp.newFile("book.epub"));
+    }
+
+    private static List<EpubBook.Block> blocks(EpubBook.TextStream stream) throws IOException {
+        List<EpubBook.Block> blocks = new ArrayList<>();
+        EpubBook.Block block;
+        while ((block = stream.next()) != null) {
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    @Test
+    public void readsMetadataAndSpineInOrder() throws IOException {
+        try (EpubBook book = EpubBook.open(epub3())) {
+            assertEquals("Tom & Jerry", book.title());
+            assertEquals("en", book.language());
+            // The itemref without a manifest entry is dropped.
+            assertEquals(3, book.chapters().size());
+
+            EpubBook.Chapter cover = book.chapters().get(0);
+            assertEquals("cover", cover.id);
+            assertEquals("OEBPS/text/cover.xhtml", cover.path);
+            assertFalse(cover.linear);
+            // Landmarks are not the table of contents.
+            assertNull(cover.title);
+            assertTrue(cover.sections.isEmpty());
+
+            EpubBook.Chapter two = book.chapters().get(2);
+            assertEquals(2, two.index);
+            assertTrue(two.linear);
+            assertEquals("Two", two.title);
+        }
+    }
+
+    @Test
+    public void navSectionsCarryAnchorsAndDepth() throws IOException {
+        try (EpubBook book = EpubBook.open(epub3())) {
+            EpubBook.Chapter one = book.chapters().get(1);
+            assertEquals("OEBPS/text/chapter 1.xhtml", one.path);
+            assertEquals("One", one.title);
+            assertEquals(2, one.sections.size());
+            assertNull(one.sections.get(0).anchor);
+            assertEquals(0, one.sections.get(0).depth);
+            assertEquals("Part two", one.sections.get(1).title);
+            assertEquals("part2", one.sections.get(1).anchor);
+            assertEquals(1, one.sections.get(1).depth);
+        }
+    }
+
+    @Test
+    public void ncxIsUsedWithoutNavDocument() throws IOException {
+        File file = new EpubFixture("content.opf")
+                .add("content.opf", "<package version=\"2.0\"><metadata><dc:title>Old</dc:title></metadata>"
+                        + "<manifest>"
+                        + "<item id=\"ncx\" href=\"toc.ncx\" media-type=\"application/x-dtbncx+xml\"/>"
+                        + "<item id=\"c1\" href=\"c1.html\" media-type=\"application/xhtml+xml\"/>"
+                        + "</manifest><spine toc=\"ncx\"><itemref idref=\"c1\"/></spine></package>")
+                .add("toc.ncx", "<ncx><navMap>"
+                        + "<navPoint id=\"p1\"><navLabel><text>First</text></navLabel><content src=\"c1.html\"/>"
+                        + "<navPoint id=\"p2\"><navLabel><text>Deep &amp; nested</text></navLabel>"
+                        + "<content src=\"c1.html#deep\"/></navPoint>"
+                        + "</navPoint></navMap></ncx>")
+                .add("c1.html", EpubFixture.xhtml("<p>Text</p>"))
+                .write(temp.newFile("old.epub"));
+
+        try (EpubBook book = EpubBook.open(file)) {
+            EpubBook.Chapter chapter = book.chapters().get(0);
+            assertEquals("First", chapter.title);
+            assertEquals(2, chapter.sections.size());
+            assertEquals("Deep & nested", chapter.sections.get(1).title);
+            assertEquals("deep", chapter.sections.get(1).anchor);
+            assertEquals(1, chapter.sections.get(1).depth);
+        }
+    }
+
+    @Test
+    public void chapterTextIsSplitIntoDecodedBlocks() throws IOException {
+        try (EpubBook book = EpubBook.open(epub3());
+             EpubBook.TextStream stream = book.openChapter(1)) {
+            List<EpubBook.Block> blocks = blocks(stream);
+            assertEquals(5, blocks.size());
+
+            assertEquals("Chapter One", blocks.get(0).text);
+            assertTrue(blocks.get(0).heading);
+            assertEquals("top", blocks.get(0).anchor);
+
+            // Unknown entities pass through as written.
+            assertEquals("Fish & chips — café AB &unknown; done.", blocks.get(1).text);
+            assertFalse(blocks.get(1).heading);
+            assertEquals("top", blocks.get(1).anchor);
+
+            assertEquals("Line one\nline two", blocks.get(2).text);
+            assertEquals("Second part text.", blocks.get(3).text);
+            assertEquals("part2", blocks.get(3).anchor);
+            assertEquals("End.", blocks.get(4).text);
+            for (int i = 0; i < blocks.size(); i++) {
+                assertEquals(i, blocks.get(i).index);
+                assertEquals(1, blocks.get(i).chapter);
+            }
+        }
+    }
+
+    @Test
+    public void skipToStopsAtTheAnchoredBlock() throws IOException {
+        try (EpubBook book = EpubBook.open(epub3())) {
+            try (EpubBook.TextStream stream = book.openChapter(1)) {
+                // An empty anchor element before the text it marks.
+                assertTrue(stream.skipTo("part2"));
+                assertEquals("Second part text.", stream.next().text);
+            }
+            try (EpubBook.TextStream stream = book.openChapter(1)) {
+                assertTrue(stream.skipTo("last"));
+                assertEquals("End.", stream.next().text);
+                assertNull(stream.next());
+            }
+            try (EpubBook.TextStream stream = book.openChapter(1)) {
+                assertFalse(stream.skipTo("nowhere"));
+                assertNull(stream.next());
+            }
+        }
+    }
+
+    @Test
+    public void longParagraphIsCutAtSentences() throws IOException {
+        StringBuilder paragraph = new StringBuilder();
+        while (paragraph.length() < EpubBook.MAX_BLOCK_CHARS * 2) {
+            paragraph.append("A short sentence here. ");
+        }
+        File file = EpubFixture.chapters("<p>" + paragraph + "</p>").write(temp.newFile("long.epub"));
+
+        try (EpubBook book = EpubBook.open(file);
+             EpubBook.TextStream stream = book.openChapter(0)) {
+            List<EpubBook.Block> blocks = blocks(stream);
+            assertTrue(blocks.size() >= 2);
+            for (EpubBook.Block block : blocks) {
+                assertTrue(block.text.length() <= EpubBook.MAX_BLOCK_CHARS);
+                assertTrue(block.text.endsWith("."));
+            }
+        }
+    }
+
+    @Test
+    public void resolvesRelativeHrefs() {
+        assertEquals("OEBPS/img/a b.png#x", EpubBook.resolve("OEBPS/text/", "../img/a%20b.png#x"));
+        assertEquals("root.xhtml", EpubBook.resolve("OEBPS/", "/root.xhtml"));
+        assertEquals("#only", EpubBook.resolve("OEBPS/", "#only"));
+    }
+}
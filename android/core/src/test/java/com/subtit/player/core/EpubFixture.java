@@ -0,0 +1,68 @@
+package com.subtit.player.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Builds small EPUB archives for the parser and narrator tests.
+final class EpubFixture {
+    private final Map<String, String> entries = new LinkedHashMap<>();
+
+    EpubFixture(String opfPath) {
+        entries.put("mimetype", "application/epub+zip");
+        entries.put("META-INF/container.xml", "<?xml version=\"1.0\"?>\n"
+                + "<container version=\"1.0\" xmlns=\"urn:oasis:names:tc:opendocument:xmlns:container\">"
+                + "<rootfiles><rootfile full-path=\"" + opfPath + "\" media-type=\"application/oebps-package+xml\"/>"
+                + "</rootfiles></container>");
+    }
+
+    EpubFixture add(String path, String content) {
+        entries.put(path, content);
+        return this;
+    }
+
+    File write(File file) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    static String xhtml(String body) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!DOCTYPE html>\n"
+                + "<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>t</title>"
+                + "<style>p { margin: 0 }</style></head><body>" + body + "</body></html>";
+    }
+
+    // One linear chapter per body, each listed in an EPUB 3 nav under "Chapter N".
+    static EpubFixture chapters(String... bodies) {
+        StringBuilder manifest = new StringBuilder(
+                "<item id=\"nav\" href=\"nav.xhtml\" properties=\"nav\" media-type=\"application/xhtml+xml\"/>");
+        StringBuilder spine = new StringBuilder();
+        StringBuilder nav = new StringBuilder();
+        for (int i = 0; i < bodies.length; i++) {
+            manifest.append("<item id=\"c").append(i).append("\" href=\"c").append(i)
+                    .append(".xhtml\" media-type=\"application/xhtml+xml\"/>");
+            spine.append("<itemref idref=\"c").append(i).append("\"/>");
+            nav.append("<li><a href=\"c").append(i).append(".xhtml\">Chapter ").append(i + 1).append("</a></li>");
+        }
+        EpubFixture fixture = new EpubFixture("content.opf")
+                .add("content.opf", "<package xmlns=\"http://www.idpf.org/2007/opf\" version=\"3.0\">"
+                        + "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:title>Fixture</dc:title>"
+                        + "</metadata><manifest>" + manifest + "</manifest><spine>" + spine + "</spine></package>")
+                .add("nav.xhtml", xhtml("<nav epub:type=\"toc\"><ol>" + nav + "</ol></nav>"));
+        for (int i = 0; i < bodies.length; i++) {
+            fixture.add("c" + i + ".xhtml", xhtml(bodies[i]));
+        }
+        return fixture;
+    }
+}
@@ -0,0 +1,144 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EpubNarratorTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final List<String> spoken = new ArrayList<>();
+    private final List<String> states = new ArrayList<>();
+    private final List<String> started = new ArrayList<>();
+    private int stops;
+    private EpubBook book;
+
+    // Records what would be queued in the engine; ids are u1, u2, ... in speaking order.
+    private final EpubNarrator.Speaker speaker = new EpubNarrator.Speaker() {
+        @Override
+        public String speak(String text, boolean flush) {
+            spoken.add((flush ? "flush:" : "") + text);
+            return "u" + spoken.size();
+        }
+
+        @Override
+        public void stop() {
+            stops++;
+        }
+    };
+
+    private final EpubNarrator.Listener listener = new EpubNarrator.Listener() {
+        @Override
+        public void onBlock(EpubBook.Block block, String utteranceId) {
+            started.add(utteranceId + "=" + block.text);
+        }
+
+        @Override
+        public void onState(String state, EpubBook.Block position, String message) {
+            states.add(message != null ? state + ":" + message : state);
+        }
+    };
+
+    @After
+    public void tearDown() throws IOException {
+        if (book != null) {
+            book.close();
+        }
+    }
+
+    // Runs everything inline, so each call has taken effect when it returns.
+    private EpubNarrator narrator(String... chapters) throws IOException {
+        book = EpubBook.open(EpubFixture.chapters(chapters).write(temp.newFile("book.epub")));
+        return new EpubNarrator(book, speaker, Runnable::run, listener);
+    }
+
+    @Test
+    public void keepsOnlyLookAheadBlocksQueued() throws IOException {
+        EpubNarrator narrator = narrator("<p>One.</p><p>Two.</p><p>Three.</p><p>Four.</p>");
+        narrator.play(0, null, 0, 2);
+        assertEquals(List.of("flush:One.", "Two."), spoken);
+        assertEquals(List.of(EpubNarrator.STATE_PLAYING), states);
+
+        narrator.onUtteranceStart("u1");
+        assertEquals(List.of("u1=One."), started);
+        assertEquals("One.", narrator.position().text);
+        narrator.onUtteranceDone("u1");
+        assertEquals(List.of("flush:One.", "Two.", "Three."), spoken);
+
+        // A done for a later utterance implies the ones before it are done too.
+        narrator.onUtteranceDone("u3");
+        assertEquals(List.of("flush:One.", "Two.", "Three.", "Four."), spoken);
+    }
+
+    @Test
+    public void rollsOverIntoTheNextChapterAndFinishes() throws IOException {
+        EpubNarrator narrator = narrator("<p>A1.</p><p>A2.</p>", "<p>B1.</p>");
+        narrator.play(0, null, 1, 3);
+        assertEquals(List.of("flush:A2.", "B1."), spoken);
+
+        narrator.onUtteranceDone("u1");
+        assertEquals(EpubNarrator.STATE_PLAYING, narrator.state());
+        narrator.onUtteranceStart("u2");
+        assertEquals(1, narrator.position().chapter);
+        narrator.onUtteranceDone("u2");
+        assertEquals(EpubNarrator.STATE_FINISHED, narrator.state());
+        assertEquals(List.of(EpubNarrator.STATE_PLAYING, EpubNarrator.STATE_FINISHED), states);
+    }
+
+    @Test
+    public void startsAtAnAnchor() throws IOException {
+        EpubNarrator narrator = narrator("<p>Skipped.</p><h2 id=\"s\">Section</h2><p>Body.</p>");
+        narrator.play(0, "s", 0, 1);
+        assertEquals(List.of("flush:Section"), spoken);
+
+        narrator.play(0, "missing", 0, 1);
+        assertEquals(EpubNarrator.STATE_ERROR, narrator.state());
+        assertTrue(states.get(states.size() - 1).contains("missing"));
+    }
+
+    @Test
+    public void stopSilencesTheSpeakerAndIgnoresLaterCallbacks() throws IOException {
+        EpubNarrator narrator = narrator("<p>One.</p><p>Two.</p><p>Three.</p>");
+        narrator.play(0, null, 0, 1);
+        narrator.stop();
+        assertEquals(1, stops);
+        assertEquals(EpubNarrator.STATE_STOPPED, narrator.state());
+
+        narrator.onUtteranceStart("u1");
+        narrator.onUtteranceDone("u1");
+        assertEquals(List.of("flush:One."), spoken);
+        assertTrue(started.isEmpty());
+        assertEquals(List.of(EpubNarrator.STATE_PLAYING, EpubNarrator.STATE_STOPPED), states);
+    }
+
+    @Test
+    public void lateCallbacksFromAPreviousRunDoNotStopTheNewOne() throws IOException {
+        EpubNarrator narrator = narrator("<p>One.</p><p>Two.</p><p>Three.</p>");
+        narrator.play(0, null, 0, 2);
+        narrator.play(0, null, 2, 2);
+        assertEquals(List.of("flush:One.", "Two.", "flush:Three."), spoken);
+
+        // The engine reports the flushed run's utterances after the restart.
+        narrator.onUtteranceStart("u1");
+        narrator.onUtteranceDone("u1");
+        narrator.onUtteranceError("u2");
+        assertEquals(EpubNarrator.STATE_PLAYING, narrator.state());
+
+        narrator.onUtteranceStart("u3");
+        assertEquals(List.of("u3=Three."), started);
+
+        // An id this narrator never issued means someone else flushed the engine.
+        narrator.onUtteranceStart("other");
+        assertEquals(EpubNarrator.STATE_STOPPED, narrator.state());
+        assertEquals(EpubNarrator.STATE_STOPPED + ":Interrupted by other speech", states.get(states.size() - 1));
+    }
+}
@@ -0,0 +1,52 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class LogRingBufferTest {
+    @Test
+    public void keepsTheNewestEntriesOldestFirst() {
+        LogRingBuffer buffer = new LogRingBuffer(3);
+        for (int i = 1; i <= 5; i++) {
+            buffer.add("m" + i);
+        }
+        assertEquals(List.of("m3", "m4", "m5"), buffer.snapshot());
+        assertEquals(3, buffer.size());
+        assertEquals(2, buffer.dropped());
+    }
+
+    @Test
+    public void trimToDropsOldestAndReportsCount() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        for (int i = 1; i <= 6; i++) {
+            buffer.add("m" + i);
+        }
+        assertEquals(3, buffer.trimTo(1));
+        assertEquals(List.of("m6"), buffer.snapshot());
+        assertEquals(0, buffer.trimTo(5));
+
+        buffer.add("m7");
+        assertEquals(List.of("m6", "m7"), buffer.snapshot());
+    }
+
+    @Test
+    public void clearEmptiesButKeepsCapacity() {
+        LogRingBuffer buffer = new LogRingBuffer(2);
+        buffer.add("a");
+        buffer.add("b");
+        buffer.clear();
+        assertTrue(buffer.snapshot().isEmpty());
+        buffer.add("c");
+        assertEquals(List.of("c"), buffer.snapshot());
+        assertEquals(2, buffer.capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroCapacity() {
+        new LogRingBuffer(0);
+    }
+}
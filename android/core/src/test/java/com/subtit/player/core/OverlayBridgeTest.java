@@ -0,0 +1,111 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class OverlayBridgeTest {
+    private final BridgeRequestQueue queue = new BridgeRequestQueue("OverlayBridgeTest", 8);
+
+    @After
+    public void tearDown() {
+        queue.shutdown();
+    }
+
+    private static final class FakePage implements OverlayBridge.Page {
+        final LinkedBlockingQueue<JSONObject> messages = new LinkedBlockingQueue<>();
+
+        @Override
+        public String id() {
+            return "page";
+        }
+
+        @Override
+        public boolean isDestroyed() {
+            return false;
+        }
+
+        @Override
+        public void evaluate(String script) {
+            String json = script.substring(OverlayBridge.DISPATCH_PREFIX.length(),
+                    script.length() - OverlayBridge.DISPATCH_SUFFIX.length());
+            messages.add(new JSONObject(json));
+        }
+
+        JSONObject next() throws InterruptedException {
+            JSONObject message = messages.poll(2, TimeUnit.SECONDS);
+            assertTrue("no reply from the bridge", message != null);
+            return message;
+        }
+    }
+
+    // "ok" answers, "crash" throws what a plugin bug would, "reject" fails the way calls are meant to.
+    private final OverlayBridge.Host<FakePage> host = new OverlayBridge.Host<FakePage>() {
+        @Override
+        public boolean supportsPlugin(String plugin) {
+            return "NativeTTS".equals(plugin);
+        }
+
+        @Override
+        public JSONObject invoke(FakePage page, String plugin, String method, JSONObject params) {
+            switch (method) {
+                case "crash":
+                    throw new NullPointerException("path is null");
+                case "reject":
+                    throw new IllegalStateException("Not ready");
+                default:
+                    return new JSONObject().put("method", method);
+            }
+        }
+
+        @Override
+        public void addListener(FakePage page, String plugin, String event, String listenerId) {
+        }
+
+        @Override
+        public void removeListener(FakePage page, String listenerId) {
+        }
+
+        @Override
+        public void debug(String message) {
+        }
+    };
+
+    @Test
+    public void crashingCallGetsAnErrorReply() throws Exception {
+        OverlayBridge<FakePage> bridge = new OverlayBridge<>(queue, host);
+        FakePage page = new FakePage();
+        bridge.handleMessage(page, "{\"type\":\"request\",\"id\":\"1\",\"plugin\":\"NativeTTS\",\"method\":\"crash\"}");
+        bridge.handleMessage(page, "{\"type\":\"request\",\"id\":\"2\",\"plugin\":\"NativeTTS\",\"method\":\"ok\"}");
+
+        JSONObject crashed = page.next();
+        assertEquals("1", crashed.getString("id"));
+        assertEquals("Internal error: path is null", crashed.getJSONObject("error").getString("message"));
+        JSONObject next = page.next();
+        assertEquals("2", next.getString("id"));
+        assertEquals("ok", next.getJSONObject("result").getString("method"));
+    }
+
+    @Test
+    public void crashingBatchEntryFailsOnlyThatEntry() throws Exception {
+        OverlayBridge<FakePage> bridge = new OverlayBridge<>(queue, host);
+        FakePage page = new FakePage();
+        bridge.handleMessage(page, "{\"type\":\"batch\",\"id\":\"b\",\"calls\":["
+                + "{\"plugin\":\"NativeTTS\",\"method\":\"ok\"},"
+                + "{\"plugin\":\"NativeTTS\",\"method\":\"crash\"},"
+                + "{\"plugin\":\"NativeTTS\",\"method\":\"reject\"}]}");
+
+        JSONArray results = page.next().getJSONObject("result").getJSONArray("results");
+        assertEquals("ok", results.getJSONObject(0).getJSONObject("result").getString("method"));
+        assertEquals("Internal error: path is null",
+                results.getJSONObject(1).getJSONObject("error").getString("message"));
+        assertEquals("Not ready", results.getJSONObject(2).getJSONObject("error").getString("message"));
+    }
+}
@@ -0,0 +1,100 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+public class PcmStreamTest {
+    private static final int RATE = 16000;
+
+    private static byte[] wav(int dataBytes) {
+        byte[] header = WavHeader.canonical(WavHeader.FORMAT_PCM, 1, RATE, 16, 0);
+        byte[] wav = new byte[header.length + dataBytes];
+        System.arraycopy(header, 0, wav, 0, header.length);
+        for (int i = header.length; i < wav.length; i++) {
+            wav[i] = (byte) i;
+        }
+        return wav;
+    }
+
+    private static int drain(PcmStream stream) throws Exception {
+        byte[] chunk = new byte[1000];
+        int total = 0;
+        int read;
+        while ((read = stream.read(chunk, 0, chunk.length, 10)) > 0) {
+            total += read;
+        }
+        return total;
+    }
+
+    @Test
+    public void endOfInputAloneDoesNotEndTheStream() throws Exception {
+        PcmStream stream = new PcmStream("s", 4096);
+        stream.pump(new ByteArrayInputStream(wav(2000)));
+        assertEquals(RATE, stream.awaitFormat(10).sampleRate);
+        assertEquals(2000, drain(stream));
+        // Drained, but the engine has not confirmed the utterance: wait rather than end.
+        assertEquals(0, stream.read(new byte[100], 0, 100, 10));
+        assertFalse(stream.isFinished());
+
+        stream.finish();
+        assertTrue(stream.isFinished());
+        assertEquals(-1, stream.read(new byte[100], 0, 100, 10));
+        assertEquals(2000, stream.bytesWritten());
+    }
+
+    @Test
+    public void failureAfterEndOfInputIsReported() throws Exception {
+        PcmStream stream = new PcmStream("s", 4096);
+        stream.pump(new ByteArrayInputStream(wav(2000)));
+        assertEquals(2000, drain(stream));
+
+        stream.fail("Synthesis stopped");
+        stream.finish();
+        assertFalse(stream.isFinished());
+        try {
+            stream.read(new byte[100], 0, 100, 10);
+            fail("a failed stream read as complete");
+        } catch (IOException expected) {
+            assertEquals("Synthesis stopped", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void finishBeforeEndOfInputWaitsForTheRest() throws Exception {
+        PcmStream stream = new PcmStream("s", 4096);
+        stream.setFormat(RATE, 1, 16);
+        stream.write(new byte[400], 0, 400);
+        stream.finish();
+        assertEquals(400, drain(stream));
+        assertEquals(0, stream.read(new byte[100], 0, 100, 10));
+
+        stream.write(new byte[200], 0, 200);
+        stream.endInput();
+        assertEquals(200, drain(stream));
+        assertEquals(-1, stream.read(new byte[100], 0, 100, 10));
+
+        // A complete stream keeps its data.
+        stream.fail("too late");
+        assertTrue(stream.isFinished());
+    }
+
+    @Test
+    public void capacityIsBounded() {
+        for (int capacity : new int[]{1023, PcmStream.MAX_CAPACITY_BYTES + 1}) {
+            try {
+                new PcmStream("s", capacity);
+                fail("accepted capacity " + capacity);
+            } catch (IllegalArgumentException expected) {
+                // rejected
+            }
+        }
+        assertEquals(PcmStream.MAX_CAPACITY_BYTES, new PcmStream("s", PcmStream.MAX_CAPACITY_BYTES).capacity());
+    }
+}
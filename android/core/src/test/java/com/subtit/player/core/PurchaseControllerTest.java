@@ -0,0 +1,473 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+// Drives every purchases plugin method against BillingSimulator, timing each call from invocation
+// to settlement and checking that no call is left holding its keep-alive.
+public class PurchaseControllerTest {
+    private static final long CONNECT_MS = 30;
+    private static final long QUERY_PRODUCTS_MS = 40;
+    private static final long LAUNCH_MS = 10;
+    private static final long USER_MS = 50;
+    private static final long QUERY_PURCHASES_MS = 20;
+    private static final long CONSUME_MS = 25;
+    private static final long ACKNOWLEDGE_MS = 25;
+    // Scheduling noise allowed on top of the simulated latency.
+    private static final long SLACK_MS = 400;
+
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private BillingSimulator.Config simulatorConfig;
+    private BillingSimulator simulator;
+    private PurchaseController controller;
+    private ScheduledExecutorService executor;
+    private ExecutorService ui;
+    private final List<FakeCall> calls = new CopyOnWriteArrayList<>();
+    private final List<String[]> events = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        simulatorConfig = new BillingSimulator.Config();
+        simulatorConfig.connectLatencyMs = CONNECT_MS;
+        simulatorConfig.queryProductsLatencyMs = QUERY_PRODUCTS_MS;
+        simulatorConfig.launchLatencyMs = LAUNCH_MS;
+        simulatorConfig.userLatencyMs = USER_MS;
+        simulatorConfig.queryPurchasesLatencyMs = QUERY_PURCHASES_MS;
+        simulatorConfig.consumeLatencyMs = CONSUME_MS;
+        simulatorConfig.acknowledgeLatencyMs = ACKNOWLEDGE_MS;
+        executor = Executors.newSingleThreadScheduledExecutor();
+        ui = Executors.newSingleThreadExecutor();
+    }
+
+    private void createController() {
+        simulator = new BillingSimulator(simulatorConfig);
+        PurchaseController.Config config = new PurchaseController.Config();
+        config.inAppProducts = Arrays.asList("id_pro", "id_d_1");
+        config.subsProducts = Collections.singletonList("premium_month_1");
+        config.consumableProducts = Collections.singletonList("id_d_1");
+        SecretKeySpec key = new SecretKeySpec(new byte[32], "HmacSHA256");
+        controller = new PurchaseController(simulator, config,
+                () -> new EntitlementStore(new java.io.File(temp.getRoot(), "entitlements.json"), key),
+                executor, ui, new PurchaseController.Listener() {
+                    @Override
+                    public void onEvent(String eventName, JSONObject data) {
+                        events.add(new String[]{eventName, data.toString()});
+                    }
+
+                    @Override
+                    public void onLog(String message) {
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (controller != null) {
+            controller.close();
+        }
+        ui.shutdown();
+        ui.awaitTermination(1, TimeUnit.SECONDS);
+        executor.shutdownNow();
+        if (simulator != null) {
+            simulator.shutdown();
+        }
+        for (FakeCall call : calls) {
+            call.assertNoLeak();
+        }
+    }
+
+    private FakeCall call(String name) {
+        FakeCall call = new FakeCall(name);
+        calls.add(call);
+        return call;
+    }
+
+    private void warmUp() throws InterruptedException {
+        controller.start();
+        FakeCall products = call("warm-up");
+        controller.getProducts(products, Collections.emptyList(), false);
+        products.await();
+        assertNotNull(products.result);
+    }
+
+    @Test
+    public void getProductsColdWaitsForConnectAndQuery() throws Exception {
+        createController();
+        FakeCall call = call("getProducts (cold)");
+        controller.getProducts(call, Collections.emptyList(), false);
+        long elapsed = call.await();
+
+        JSONArray products = call.result.getJSONArray("products");
+        assertEquals(3, products.length());
+        JSONObject subscription = products.getJSONObject(2);
+        assertEquals("premium_month_1", subscription.getString("productId"));
+        assertEquals("$1.99", subscription.getString("price"));
+        assertFalse(call.result.getBoolean("stale"));
+        assertBetween(elapsed, CONNECT_MS + QUERY_PRODUCTS_MS);
+        // INAPP and SUBS go out in parallel.
+        assertEquals(2, simulator.count(BillingSimulator.Operation.QUERY_PRODUCTS));
+    }
+
+    @Test
+    public void getProductsWarmAnswersWithoutBilling() throws Exception {
+        createController();
+        warmUp();
+        int queries = simulator.count(BillingSimulator.Operation.QUERY_PRODUCTS);
+        FakeCall call = call("getProducts (warm)");
+        controller.getProducts(call, Collections.singletonList("id_pro"), false);
+        long elapsed = call.await();
+
+        assertEquals(1, call.result.getJSONArray("products").length());
+        assertEquals(queries, simulator.count(BillingSimulator.Operation.QUERY_PRODUCTS));
+        assertFalse("warm catalogue should not need keep-alive", call.keepAliveUsed);
+        assertTrue(elapsed < 50);
+    }
+
+    @Test
+    public void concurrentCatalogueRefreshesShareQueries() throws Exception {
+        createController();
+        FakeCall first = call("getProducts (shared)");
+        FakeCall second = call("getProducts (shared)");
+        controller.getProducts(first, Collections.emptyList(), true);
+        controller.getProducts(second, Collections.emptyList(), true);
+        first.await();
+        second.await();
+        assertEquals(1, simulator.count(BillingSimulator.Operation.CONNECT));
+        assertEquals(2, simulator.count(BillingSimulator.Operation.QUERY_PRODUCTS));
+    }
+
+    @Test
+    public void buyNonConsumableColdAndWarm() throws Exception {
+        createController();
+        FakeCall cold = call("buyNonConsumable (cold)");
+        controller.buy(cold, "id_pro", BillingGateway.TYPE_INAPP, false);
+        long coldElapsed = cold.await();
+        assertNull(cold.error, cold.error);
+        assertBetween(coldElapsed, CONNECT_MS + QUERY_PRODUCTS_MS + LAUNCH_MS + USER_MS + ACKNOWLEDGE_MS);
+        assertTrue(simulator.ownedPurchases().get(0).acknowledged);
+
+        // A second non-consumable purchase from a warm catalogue skips the product query.
+        controller.start();
+        FakeCall products = call("warm-up");
+        controller.getProducts(products, Collections.emptyList(), false);
+        products.await();
+        int queries = simulator.count(BillingSimulator.Operation.QUERY_PRODUCTS);
+        FakeCall warm = call("buySubscription (warm)");
+        controller.buy(warm, "premium_month_1", BillingGateway.TYPE_SUBS, false);
+        long warmElapsed = warm.await();
+        assertNull(warm.error, warm.error);
+        assertEquals(queries, simulator.count(BillingSimulator.Operation.QUERY_PRODUCTS));
+        assertBetween(warmElapsed, LAUNCH_MS + USER_MS + ACKNOWLEDGE_MS);
+    }
+
+    @Test
+    public void buyConsumableConsumesAndCanRepeat() throws Exception {
+        createController();
+        warmUp();
+        for (int i = 0; i < 3; i++) {
+            FakeCall call = call("buyConsumable (warm)");
+            controller.buy(call, "id_d_1", BillingGateway.TYPE_INAPP, true);
+            long elapsed = call.await();
+            assertNull(call.error, call.error);
+            assertBetween(elapsed, LAUNCH_MS + USER_MS + CONSUME_MS);
+        }
+        assertTrue(simulator.ownedPurchases().isEmpty());
+        assertEquals(3, simulator.count(BillingSimulator.Operation.CONSUME));
+    }
+
+    @Test
+    public void queuedPurchasesRunOneAfterAnother() throws Exception {
+        createController();
+        warmUp();
+        FakeCall first = call("buy (queued 1)");
+        FakeCall second = call("buy (queued 2)");
+        controller.buy(first, "id_d_1", BillingGateway.TYPE_INAPP, true);
+        controller.buy(second, "id_pro", BillingGateway.TYPE_INAPP, false);
+        first.await();
+        second.await();
+        assertNull(first.error, first.error);
+        assertNull(second.error, second.error);
+        assertTrue(second.settledAt > first.settledAt);
+        assertFalse(controller.hasPendingPurchases());
+    }
+
+    @Test
+    public void userCancelRejectsAndReleasesQueue() throws Exception {
+        createController();
+        warmUp();
+        simulator.failNext(BillingSimulator.Operation.PURCHASE, BillingGateway.USER_CANCELED);
+        FakeCall cancelled = call("buy (user canceled)");
+        controller.buy(cancelled, "id_pro", BillingGateway.TYPE_INAPP, false);
+        cancelled.await();
+        assertNotNull(cancelled.error);
+
+        FakeCall next = call("buy (after cancel)");
+        controller.buy(next, "id_pro", BillingGateway.TYPE_INAPP, false);
+        next.await();
+        assertNull(next.error, next.error);
+    }
+
+    @Test
+    public void injectedErrorsRejectEachStep() throws Exception {
+        createController();
+        warmUp();
+        BillingSimulator.Operation[] steps = {
+                BillingSimulator.Operation.LAUNCH,
+                BillingSimulator.Operation.PURCHASE,
+                BillingSimulator.Operation.CONSUME,
+        };
+        for (BillingSimulator.Operation step : steps) {
+            simulator.failNext(step, BillingGateway.ERROR);
+            FakeCall call = call("buyConsumable (" + step + " error)");
+            controller.buy(call, "id_d_1", BillingGateway.TYPE_INAPP, true);
+            call.await();
+            assertNotNull(step + " should reject", call.error);
+        }
+        simulator.failNext(BillingSimulator.Operation.ACKNOWLEDGE, BillingGateway.ERROR);
+        FakeCall call = call("buyNonConsumable (ACKNOWLEDGE error)");
+        controller.buy(call, "id_pro", BillingGateway.TYPE_INAPP, false);
+        call.await();
+        assertNotNull(call.error);
+    }
+
+    @Test
+    public void disconnectMidFlowReconnectsForNextCall() throws Exception {
+        createController();
+        warmUp();
+        simulator.failNext(BillingSimulator.Operation.LAUNCH, BillingGateway.SERVICE_DISCONNECTED);
+        FakeCall failed = call("buy (disconnected)");
+        controller.buy(failed, "id_d_1", BillingGateway.TYPE_INAPP, true);
+        failed.await();
+        assertNotNull(failed.error);
+
+        FakeCall retried = call("buy (after reconnect)");
+        controller.buy(retried, "id_d_1", BillingGateway.TYPE_INAPP, true);
+        long elapsed = retried.await();
+        assertNull(retried.error, retried.error);
+        assertEquals(2, simulator.count(BillingSimulator.Operation.CONNECT));
+        assertBetween(elapsed, CONNECT_MS + LAUNCH_MS + USER_MS + CONSUME_MS);
+    }
+
+    @Test
+    public void retriableSetupFailureBacksOffThenSucceeds() throws Exception {
+        createController();
+        simulator.failNext(BillingSimulator.Operation.CONNECT, BillingConnection.CODE_SERVICE_UNAVAILABLE);
+        FakeCall call = call("getProducts (setup retry)");
+        controller.getProducts(call, Collections.emptyList(), false);
+        long elapsed = call.await();
+        assertNull(call.error, call.error);
+        assertEquals(2, simulator.count(BillingSimulator.Operation.CONNECT));
+        assertTrue("backoff should delay the retry, took " + elapsed, elapsed >= BillingConnection.backoffDelayMs(1));
+    }
+
+    @Test
+    public void billingUnavailableFailsFast() throws Exception {
+        createController();
+        simulator.failNext(BillingSimulator.Operation.CONNECT, BillingConnection.CODE_BILLING_UNAVAILABLE);
+        FakeCall call = call("buy (billing unavailable)");
+        controller.buy(call, "id_pro", BillingGateway.TYPE_INAPP, false);
+        long elapsed = call.await();
+        assertNotNull(call.error);
+        assertBetween(elapsed, CONNECT_MS);
+        assertFalse(controller.hasPendingPurchases());
+    }
+
+    @Test
+    public void closeRejectsQueuedPurchases() throws Exception {
+        createController();
+        warmUp();
+        simulatorConfig.userLatencyMs = 10_000;
+        FakeCall active = call("buy (closed while active)");
+        FakeCall queued = call("buy (closed while queued)");
+        controller.buy(active, "id_pro", BillingGateway.TYPE_INAPP, false);
+        controller.buy(queued, "id_d_1", BillingGateway.TYPE_INAPP, true);
+        controller.close();
+        active.await();
+        queued.await();
+        assertNotNull(active.error);
+        assertNotNull(queued.error);
+    }
+
+    @Test
+    public void getEntitlementsAnswersFromStoreAndReconciles() throws Exception {
+        createController();
+        simulator.grant("id_pro", false);
+        simulator.grant("id_d_1", false);
+        FakeCall call = call("getEntitlements (first run)");
+        controller.getEntitlements(call);
+        long elapsed = call.await();
+        assertEquals(0, call.result.getJSONArray("entitlements").length());
+        assertTrue(elapsed < 50);
+
+        awaitEvent(PurchaseController.EVENT_ENTITLEMENTS_CHANGED);
+        awaitEvent(PurchaseController.EVENT_PURCHASE_RECOVERED);
+        waitFor(() -> simulator.ownedPurchases().size() == 1 && simulator.ownedPurchases().get(0).acknowledged);
+
+        FakeCall after = call("getEntitlements (reconciled)");
+        controller.getEntitlements(after);
+        after.await();
+        assertTrue(after.result.getBoolean("premium"));
+        assertTrue(after.result.getBoolean("verified"));
+        assertEquals("id_pro", after.result.getJSONArray("entitlements").getJSONObject(0).getString("productId"));
+    }
+
+    @Test
+    public void pendingPurchaseIsNotPremium() throws Exception {
+        simulatorConfig.pendingPurchases = true;
+        createController();
+        warmUp();
+        FakeCall call = call("buyNonConsumable (pending)");
+        controller.buy(call, "id_pro", BillingGateway.TYPE_INAPP, false);
+        call.await();
+        controller.onResume();
+        awaitEvent(PurchaseController.EVENT_ENTITLEMENTS_CHANGED);
+        waitFor(() -> {
+            FakeCall check = new FakeCall("check");
+            controller.getEntitlements(check);
+            try {
+                check.await();
+                return check.result.getJSONArray("entitlements").length() > 0
+                        && !check.result.getBoolean("premium");
+            } catch (Exception e) {
+                return false;
+            }
+        });
+    }
+
+    @Test
+    public void randomDisconnectsNeverLeakCalls() throws Exception {
+        simulatorConfig.disconnectProbability = 0.2;
+        simulatorConfig.seed = 42;
+        createController();
+        controller.start();
+        for (int i = 0; i < 30; i++) {
+            FakeCall call;
+            switch (i % 4) {
+                case 0:
+                    call = call("soak getProducts");
+                    controller.getProducts(call, Collections.emptyList(), true);
+                    break;
+                case 1:
+                    call = call("soak buyConsumable");
+                    controller.buy(call, "id_d_1", BillingGateway.TYPE_INAPP, true);
+                    break;
+                case 2:
+                    call = call("soak buySubscription");
+                    controller.buy(call, "premium_month_1", BillingGateway.TYPE_SUBS, false);
+                    break;
+                default:
+                    call = call("soak getEntitlements");
+                    controller.getEntitlements(call);
+                    break;
+            }
+            call.await();
+        }
+        assertFalse(controller.hasPendingPurchases());
+    }
+
+    private void awaitEvent(String name) throws InterruptedException {
+        waitFor(() -> {
+            for (String[] event : events) {
+                if (event[0].equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (!condition.holds()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not reached");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void assertBetween(long elapsed, long simulated) {
+        assertTrue("took " + elapsed + " ms, simulated " + simulated, elapsed >= simulated - 5);
+        assertTrue("took " + elapsed + " ms, simulated " + simulated, elapsed <= simulated + SLACK_MS);
+    }
+
+    private static final class FakeCall implements PurchaseController.Call {
+        final String name;
+        final long startedAt = System.nanoTime();
+        final CountDownLatch settled = new CountDownLatch(1);
+        volatile boolean keepAlive = false;
+        volatile boolean keepAliveUsed = false;
+        volatile JSONObject result;
+        volatile String error;
+        volatile long settledAt;
+        private int settlements = 0;
+
+        FakeCall(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void setKeepAlive(boolean value) {
+            keepAlive = value;
+            keepAliveUsed |= value;
+        }
+
+        @Override
+        public synchronized void resolve(JSONObject data) {
+            result = data;
+            finish();
+        }
+
+        @Override
+        public synchronized void reject(String message) {
+            error = message;
+            finish();
+        }
+
+        private void finish() {
+            settlements++;
+            settledAt = System.nanoTime();
+            settled.countDown();
+        }
+
+        long await() throws InterruptedException {
+            assertTrue(name + " never settled", settled.await(5, TimeUnit.SECONDS));
+            return TimeUnit.NANOSECONDS.toMillis(settledAt - startedAt);
+        }
+
+        synchronized void assertNoLeak() {
+            assertEquals(name + " settled " + settlements + " times", 1, settlements);
+            assertFalse(name + " kept alive after settling", keepAlive);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchIndexTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File directory;
+    private SearchIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = new File(temp.getRoot(), "search");
+        index = new SearchIndex(directory);
+    }
+
+    @After
+    public void tearDown() {
+        index.close();
+    }
+
+    // Returns the size of the EPUB the book was indexed from.
+    private long add(String bookId, long modified, String... chapters) throws IOException {
+        File file = EpubFixture.chapters(chapters).write(temp.newFile());
+        try (EpubBook book = EpubBook.open(file)) {
+            index.addBook(bookId, book, file.length(), modified);
+        }
+        return file.length();
+    }
+
+    // bookId:chapter/block@offset+length for each hit.
+    private List<String> search(String query) {
+        List<String> result = new ArrayList<>();
+        for (SearchIndex.Hit hit : index.search(query, SearchIndex.DEFAULT_LIMIT).hits) {
+            result.add(hit.bookId + ":" + hit.chapter + "/" + hit.block + "@" + hit.offset + "+" + hit.length);
+        }
+        return result;
+    }
+
+    private long addFoxes() throws IOException {
+        return add("a", 1, "<p>The quick brown fox.</p><p>A lazy dog sleeps.</p>",
+                "<h1>Ёлка</h1><p>Quick thinking, quick fox!</p>");
+    }
+
+    @Test
+    public void matchesBlocksHoldingEveryWord() throws IOException {
+        addFoxes();
+        assertEquals(List.of("a:0/0@16+3", "a:1/1@22+3"), search("fox"));
+        // The hit points at the earliest query word in the block.
+        assertEquals(List.of("a:0/0@4+5", "a:1/1@0+5"), search("quick fox"));
+        assertEquals(List.of("a:0/0@10+5"), search("brown FOX"));
+        assertEquals(List.of(), search("lazy fox"));
+        assertEquals(List.of(), search("  ,. "));
+    }
+
+    @Test
+    public void lastWordMatchesAsPrefix() throws IOException {
+        addFoxes();
+        assertEquals(List.of("a:0/0@4+5", "a:1/1@0+5"), search("qu"));
+        assertEquals(List.of("a:0/0@4+5", "a:1/1@0+5"), search("quick f"));
+        // Only the last word is a prefix.
+        assertEquals(List.of(), search("qu fox"));
+    }
+
+    @Test
+    public void yoIsFoldedIntoYe() throws IOException {
+        addFoxes();
+        assertEquals(List.of("a:1/0@0+4"), search("елка"));
+        assertEquals(List.of("a:1/0@0+4"), search("ЁЛКА"));
+
+        List<String> terms = new ArrayList<>();
+        SearchIndex.tokenize("Ёж-ёлка, 42", (term, offset, length) -> terms.add(term + "@" + offset + "+" + length));
+        assertEquals(List.of("еж@0+2", "елка@3+4", "42@9+2"), terms);
+    }
+
+    @Test
+    public void limitCapsHitsButNotTotal() throws IOException {
+        addFoxes();
+        add("b", 1, "<p>Another fox.</p>");
+        SearchIndex.Result result = index.search("fox", 2);
+        assertEquals(3, result.total);
+        assertEquals(2, result.hits.size());
+        assertEquals(List.of("a:0/0@16+3", "a:1/1@22+3", "b:0/0@8+3"), search("fox"));
+    }
+
+    @Test
+    public void replacingABookSwapsItsSegment() throws IOException {
+        long size = addFoxes();
+        assertTrue(index.isCurrent("a", size, 1));
+        long replacement = add("a", 2, "<p>Only cats here.</p>");
+
+        assertEquals(List.of("a"), index.books());
+        assertFalse(index.isCurrent("a", size, 1));
+        assertTrue(index.isCurrent("a", replacement, 2));
+        assertEquals(List.of(), search("fox"));
+        assertEquals(List.of("a:0/0@5+4"), search("cats"));
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    public void removingABookDropsItsHitsAndFile() throws IOException {
+        addFoxes();
+        add("b", 1, "<p>Another fox.</p>");
+
+        assertTrue(index.removeBook("a"));
+        assertFalse(index.removeBook("a"));
+        assertEquals(List.of("b"), index.books());
+        assertEquals(List.of("b:0/0@8+3"), search("fox"));
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    public void reopensSegmentsAndDropsPartialWrites() throws IOException {
+        long size = add("a", 7, "<p>The quick brown fox.</p>");
+        index.close();
+        assertTrue(new File(directory, "leftover.idx.part").createNewFile());
+
+        index = new SearchIndex(directory);
+        assertEquals(List.of("a"), index.books());
+        assertTrue(index.isCurrent("a", size, 7));
+        assertEquals(List.of("a:0/0@16+3"), search("fox"));
+        assertEquals(1, directory.listFiles().length);
+    }
+}
@@ -0,0 +1,101 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchSegmentTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private SearchSegment write(SearchSegment.Builder builder) throws IOException {
+        File file = temp.newFile();
+        builder.write(file, "книга-1", 123, 456);
+        return SearchSegment.open(file);
+    }
+
+    private static List<String> postings(SearchSegment segment, String term, boolean prefix) {
+        List<String> result = new ArrayList<>();
+        segment.visit(term, prefix, (termLength, chapter, block, offset) ->
+                result.add(termLength + "@" + chapter + "/" + block + "/" + offset));
+        return result;
+    }
+
+    @Test
+    public void postingsRoundTripAcrossVarintSizes() throws IOException {
+        // Deltas of one, two and three varint bytes, and every field reset.
+        int[][] positions = {
+                {0, 0, 5}, {0, 0, 200}, {0, 0, 20000}, {0, 3, 1}, {0, 3, 1},
+                {2, 0, 0}, {2, 70000, 300000}, {129, 1, 2}};
+        SearchSegment.Builder builder = new SearchSegment.Builder();
+        List<String> expected = new ArrayList<>();
+        for (int[] position : positions) {
+            builder.add("alpha", position[0], position[1], position[2]);
+            expected.add("5@" + position[0] + "/" + position[1] + "/" + position[2]);
+        }
+        SearchSegment segment = write(builder);
+
+        assertEquals("книга-1", segment.bookId());
+        assertEquals(123, segment.sourceSize());
+        assertEquals(456, segment.sourceModified());
+        assertEquals(1, segment.termCount());
+        assertEquals(positions.length, segment.count("alpha", false));
+        assertEquals(expected, postings(segment, "alpha", false));
+    }
+
+    @Test
+    public void exactAndPrefixLookups() throws IOException {
+        SearchSegment.Builder builder = new SearchSegment.Builder();
+        builder.add("car", 0, 0, 0);
+        builder.add("car", 0, 4, 0);
+        builder.add("cart", 0, 1, 0);
+        builder.add("carbon", 1, 0, 7);
+        builder.add("cat", 0, 2, 0);
+        builder.add("дом", 0, 3, 2);
+        SearchSegment segment = write(builder);
+        assertEquals(5, segment.termCount());
+
+        assertEquals(2, segment.count("car", false));
+        assertEquals(4, segment.count("car", true));
+        assertEquals(0, segment.count("ca", false));
+        assertEquals(5, segment.count("ca", true));
+        assertEquals(0, segment.count("bus", true));
+        assertEquals(0, segment.count("zebra", true));
+
+        // Terms in UTF-8 byte order, postings in document order per term; lengths are in chars.
+        assertEquals(List.of("3@0/0/0", "3@0/4/0", "6@1/0/7", "4@0/1/0"), postings(segment, "car", true));
+        assertEquals(List.of("3@0/3/2"), postings(segment, "до", true));
+        assertEquals(List.of(), postings(segment, "до", false));
+    }
+
+    @Test
+    public void emptySegmentHasNoTerms() throws IOException {
+        SearchSegment segment = write(new SearchSegment.Builder());
+        assertEquals(0, segment.termCount());
+        assertEquals(0, segment.count("a", true));
+        assertEquals(List.of(), postings(segment, "a", true));
+    }
+
+    @Test
+    public void rejectsFilesThatAreNotSegments() throws IOException {
+        File file = temp.newFile();
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(new byte[64]);
+        }
+        try {
+            SearchSegment.open(file);
+            fail("opened a zero-filled file");
+        } catch (IOException expected) {
+            // not a segment
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SpeechControllerTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private SpeechController controller;
+
+    @After
+    public void tearDown() {
+        if (controller != null) {
+            controller.shutdown();
+        }
+    }
+
+    // Fast model: 1 ms init, 1 ms start latency, 1000 chars/s speaking.
+    private static FakeSpeechEngine.Config fastConfig() {
+        FakeSpeechEngine.Config config = new FakeSpeechEngine.Config();
+        config.initDelayMs = 1;
+        config.startLatencyMs = 1;
+        config.charsPerSecond = 1000;
+        config.synthesisCharsPerSecond = 10_000;
+        return config;
+    }
+
+    private RecordingListener start(FakeSpeechEngine.Config config) throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        controller = new SpeechController(FakeSpeechEngine.factory(config), listener);
+        controller.initialize(null);
+        assertTrue("engine did not initialize", listener.ready.await(2, TimeUnit.SECONDS));
+        assertTrue(controller.isReady());
+        return listener;
+    }
+
+    @Test
+    public void speakEmitsStartRangesAndDone() throws Exception {
+        RecordingListener listener = start(fastConfig());
+        String text = "one two three";
+        String id = controller.speak(text, null, null, null);
+
+        assertTrue(listener.awaitTerminal(2000));
+        assertEquals(List.of("start:" + id, "done:" + id), listener.states());
+        List<int[]> ranges = listener.ranges(id);
+        assertEquals(3, ranges.size());
+        assertEquals("three", text.substring(ranges.get(2)[0], ranges.get(2)[1]));
+    }
+
+    @Test
+    public void longTextIsOneUtteranceWithAbsoluteRanges() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.maxSpeechInputLength = 40;
+        config.charsPerSecond = 100_000;
+        RecordingListener listener = start(config);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            builder.append("word").append(i).append(i % 4 == 3 ? ". " : " ");
+        }
+        String text = builder.toString().trim();
+        String id = controller.speak(text, null, null, null);
+
+        assertTrue(listener.awaitTerminal(2000));
+        assertEquals(List.of("start:" + id, "done:" + id), listener.states());
+        List<int[]> ranges = listener.ranges(id);
+        assertEquals(30, ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            String word = text.substring(ranges.get(i)[0], ranges.get(i)[1]);
+            assertTrue(word, word.startsWith("word" + i));
+        }
+    }
+
+    @Test
+    public void queuedLongTextFollowsCurrentUtteranceAsOne() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.maxSpeechInputLength = 30;
+        config.charsPerSecond = 20_000;
+        RecordingListener listener = start(config);
+        String text = "The first sentence is here. Then comes the second one. And a third to close it.";
+        String first = controller.speak("short one", null, null, null);
+        String second = controller.speak(text, null, null, null, false);
+
+        List<String> expected = List.of("start:" + first, "done:" + first, "start:" + second, "done:" + second);
+        assertTrue(listener.awaitStates(expected.size(), 2000));
+        Thread.sleep(50);
+        assertEquals(expected, listener.states());
+        List<int[]> ranges = listener.ranges(second);
+        int[] last = ranges.get(ranges.size() - 1);
+        assertEquals("it.", text.substring(last[0], last[1]));
+    }
+
+    @Test
+    public void stopDuringChunkedTextReportsDoneOnce() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.maxSpeechInputLength = 20;
+        config.charsPerSecond = 10;
+        RecordingListener listener = start(config);
+        String id = controller.speak("A slow sentence. Another slow one. And the last of them.", null, null, null);
+        assertTrue(listener.started.await(2, TimeUnit.SECONDS));
+
+        assertTrue(controller.stop());
+        Thread.sleep(50);
+        // The chunks still queued behind the first are dropped without a start of their own.
+        assertEquals(List.of("start:" + id, "done:null"), listener.states());
+    }
+
+    @Test
+    public void errorMarkerEndsWithSingleError() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.maxSpeechInputLength = 20;
+        RecordingListener listener = start(config);
+        String id = controller.speak("first part of text [[fail]] and the rest of it", null, null, null);
+
+        assertTrue(listener.awaitTerminal(2000));
+        // Give the engine time to surface any stray chunk events.
+        Thread.sleep(50);
+        assertEquals("start:" + id, listener.states().get(0));
+        assertEquals(List.of("start:" + id, "error:" + id), listener.states());
+    }
+
+    @Test
+    public void synthesizeToFileWritesWavBeforeAwaitReturns() throws Exception {
+        RecordingListener listener = start(fastConfig());
+        File output = temp.newFile("out.wav");
+        controller.synthesizeToFile("hello from the fake engine", null, 1.5f, 1f, output);
+
+        assertTrue(controller.awaitSynthesis(output, 2000));
+        assertFalse(controller.hasPendingSyntheses());
+        WavHeader header = WavHeader.read(output);
+        assertNotNull(header);
+        assertTrue(header.isPcm16());
+        assertEquals(output.length() - header.dataOffset, header.dataLength);
+        assertTrue(header.durationMs() > 0);
+        assertTrue(listener.awaitTerminal(2000));
+    }
+
+    @Test
+    public void synthesizeToFileTrimsPaddingBeforeAwaitReturns() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.paddingMs = 300;
+        RecordingListener listener = start(config);
+        File padded = temp.newFile("padded.wav");
+        File trimmed = temp.newFile("trimmed.wav");
+        controller.synthesizeToFile("hello from the fake engine", null, null, null, padded);
+        String id = controller.synthesizeToFile("hello from the fake engine", null, null, null, trimmed, true);
+
+        assertTrue(controller.awaitSynthesis(padded, 2000));
+        assertTrue(controller.awaitSynthesis(trimmed, 2000));
+        WavHeader before = WavHeader.read(padded);
+        WavHeader after = WavHeader.read(trimmed);
+        assertTrue(after.isPcm16());
+        assertEquals(trimmed.length() - after.dataOffset, after.dataLength);
+        SilenceTrimmer.Result trim = listener.trim(id);
+        assertNotNull(trim);
+        assertEquals(before.frames(), trim.originalFrames);
+        assertEquals(trim.endFrame - trim.startFrame, after.frames());
+        // The fake's tones start at full padding; the margin is kept back.
+        long expected = 300 - SilenceTrimmer.DEFAULT_MARGIN_MS;
+        assertTrue("leading " + trim.leadingMs(), Math.abs(trim.leadingMs() - expected) <= 25);
+        // Each word is followed by a 50 ms gap, so the trailing cut also covers the last gap.
+        assertTrue("trailing " + trim.trailingMs(), Math.abs(trim.trailingMs() - expected - 50) <= 25);
+        assertTrue(before.durationMs() - after.durationMs() >= 2 * expected);
+    }
+
+    @Test
+    public void synthesizeToStreamMatchesFileOutputThroughSmallBuffer() throws Exception {
+        start(fastConfig());
+        String text = "streamed through a pipe into memory instead of the cache directory";
+        File output = temp.newFile("reference.wav");
+        controller.synthesizeToFile(text, null, null, null, output);
+        assertTrue(controller.awaitSynthesis(output, 2000));
+        WavHeader reference = WavHeader.read(output);
+
+        PcmStream stream = controller.synthesizeToStream(text, null, null, null, 4096);
+        WavHeader format = stream.awaitFormat(2000);
+        assertTrue(format.isPcm16());
+        assertEquals(reference.sampleRate, format.sampleRate);
+        byte[] chunk = new byte[1000];
+        long total = 0;
+        int read;
+        while ((read = stream.read(chunk, 0, chunk.length, 2000)) != -1) {
+            assertTrue("timed out after " + total + " bytes", read > 0);
+            assertEquals(0, read % format.frameSize());
+            assertTrue(stream.buffered() <= stream.capacity());
+            total += read;
+        }
+        assertTrue(stream.isFinished());
+        assertEquals(reference.dataLength, total);
+        assertEquals(total, stream.bytesWritten());
+    }
+
+    @Test
+    public void stopFailsUnfinishedStream() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.synthesisCharsPerSecond = 10;
+        start(config);
+        PcmStream stream = controller.synthesizeToStream("this stream never gets to finish", null, null, null,
+                PcmStream.DEFAULT_CAPACITY_BYTES);
+        stream.awaitFormat(2000);
+
+        controller.stop();
+        byte[] chunk = new byte[4096];
+        try {
+            while (stream.read(chunk, 0, chunk.length, 2000) >= 0) {
+                // drain what was produced before the stop
+            }
+            fail("a stopped stream must not end like a complete one");
+        } catch (IOException expected) {
+            // the consumer learns the audio is incomplete
+        }
+    }
+
+    @Test
+    public void streamFlushedByOtherSpeechFails() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.synthesisCharsPerSecond = 10;
+        start(config);
+        PcmStream stream = controller.synthesizeToStream("this stream is cut off by other speech", null, null, null,
+                PcmStream.DEFAULT_CAPACITY_BYTES);
+        stream.awaitFormat(2000);
+
+        // The engine closes its output early and reports onStop rather than onDone.
+        controller.speak("interrupting", null, null, null, true);
+        byte[] chunk = new byte[4096];
+        long deadline = System.currentTimeMillis() + 5000;
+        try {
+            while (stream.read(chunk, 0, chunk.length, 100) >= 0) {
+                assertTrue("stream neither failed nor ended", System.currentTimeMillis() < deadline);
+            }
+            fail("a flushed stream must not end like a complete one");
+        } catch (IOException expected) {
+            assertFalse(stream.isFinished());
+        }
+    }
+
+    @Test
+    public void shutdownReleasesSynthesisWaiters() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.synthesisCharsPerSecond = 1;
+        start(config);
+        File output = temp.newFile("slow.wav");
+        controller.synthesizeToFile("this takes a long time", null, null, null, output);
+        assertTrue(controller.hasPendingSyntheses());
+
+        controller.shutdown();
+        assertTrue(controller.awaitSynthesis(output, 100));
+        assertFalse(controller.hasPendingSyntheses());
+    }
+
+    @Test
+    public void stopReleasesWaitersOfFlushedSynthesis() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.synthesisCharsPerSecond = 1;
+        start(config);
+        File running = temp.newFile("running.wav");
+        File queued = temp.newFile("queued.wav");
+        controller.synthesizeToFile("this takes a long time", null, null, null, running, true);
+        controller.synthesizeToFile("and this never starts", null, null, null, queued);
+        assertTrue(controller.hasPendingSyntheses());
+
+        // The fake drops both without onDone or onError, as the platform engine does.
+        controller.stop();
+        assertTrue(controller.awaitSynthesis(running, 1000));
+        assertTrue(controller.awaitSynthesis(queued, 1000));
+        assertFalse(controller.hasPendingSyntheses());
+    }
+
+    @Test
+    public void stopReportsDoneOnce() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.charsPerSecond = 10;
+        RecordingListener listener = start(config);
+        String id = controller.speak("a slow sentence to interrupt", null, null, null);
+        assertTrue(listener.started.await(2, TimeUnit.SECONDS));
+
+        assertTrue(controller.stop());
+        Thread.sleep(50);
+        assertEquals(List.of("start:" + id, "done:null"), listener.states());
+    }
+
+    @Test
+    public void speakBeforeInitIsRejected() {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.initDelayMs = 10_000;
+        controller = new SpeechController(FakeSpeechEngine.factory(config), new RecordingListener());
+        controller.initialize(null);
+        try {
+            controller.speak("too early", null, null, null);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void failedInitIsReportedNotReady() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.initSucceeds = false;
+        RecordingListener listener = new RecordingListener();
+        controller = new SpeechController(FakeSpeechEngine.factory(config), listener);
+        controller.initialize(null);
+        assertTrue(listener.ready.await(2, TimeUnit.SECONDS));
+        assertFalse(listener.readySuccess);
+        assertFalse(controller.isReady());
+    }
+
+    @Test
+    public void reinitializeIgnoresCallbacksFromPreviousEngine() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.charsPerSecond = 10;
+        RecordingListener listener = start(config);
+        controller.speak("words from the first engine", null, null, null);
+        assertTrue(listener.started.await(2, TimeUnit.SECONDS));
+
+        controller.initialize(null);
+        Thread.sleep(100);
+        assertEquals(1, listener.states().size());
+        assertTrue(controller.isReady());
+    }
+
+    // Throughput and latency stay within the fake engine's model, so regressions in the controller
+    // (locking, per-event work) show up here without a device.
+    @Test
+    public void manyShortUtterancesKeepUpWithModel() throws Exception {
+        FakeSpeechEngine.Config config = fastConfig();
+        config.startLatencyMs = 0;
+        config.charsPerSecond = 1_000_000;
+        RecordingListener listener = start(config);
+        int count = 200;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            listener.reset();
+            controller.speak("utterance number " + i, null, null, null);
+            assertTrue("utterance " + i + " did not finish", listener.awaitTerminal(1000));
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        assertTrue("200 utterances took " + elapsedMs + " ms", elapsedMs < 5000);
+    }
+
+    private static final class RecordingListener implements SpeechController.Listener {
+        final CountDownLatch ready = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile boolean readySuccess;
+        private final List<String> states = new ArrayList<>();
+        private final List<Object[]> ranges = new ArrayList<>();
+        private final Map<String, SilenceTrimmer.Result> trims = new HashMap<>();
+        private CountDownLatch terminal = new CountDownLatch(1);
+
+        @Override
+        public void onReady(boolean success) {
+            readySuccess = success;
+            ready.countDown();
+        }
+
+        @Override
+        public synchronized void onState(String state, String utteranceId) {
+            states.add(state + ":" + utteranceId);
+            notifyAll();
+            if (SpeechController.STATE_START.equals(state)) {
+                started.countDown();
+            } else {
+                terminal.countDown();
+            }
+        }
+
+        @Override
+        public synchronized void onRange(String utteranceId, int start, int end) {
+            ranges.add(new Object[]{utteranceId, start, end});
+        }
+
+        @Override
+        public synchronized void onSynthesized(String utteranceId, String path, SilenceTrimmer.Result trim) {
+            if (trim != null) {
+                trims.put(utteranceId, trim);
+            }
+        }
+
+        @Override
+        public void onLog(String message) {
+        }
+
+        synchronized SilenceTrimmer.Result trim(String utteranceId) {
+            return trims.get(utteranceId);
+        }
+
+        synchronized void reset() {
+            states.clear();
+            ranges.clear();
+            terminal = new CountDownLatch(1);
+        }
+
+        boolean awaitTerminal(long timeoutMs) throws InterruptedException {
+            CountDownLatch latch;
+            synchronized (this) {
+                latch = terminal;
+            }
+            return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        boolean awaitStates(int count, long timeoutMs) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            synchronized (this) {
+                while (states.size() < count) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    wait(remaining);
+                }
+                return true;
+            }
+        }
+
+        synchronized List<String> states() {
+            return new ArrayList<>(states);
+        }
+
+        synchronized List<int[]> ranges(String utteranceId) {
+            List<int[]> result = new ArrayList<>();
+            for (Object[] range : ranges) {
+                if (utteranceId.equals(range[0])) {
+                    result.add(new int[]{(Integer) range[1], (Integer) range[2]});
+                }
+            }
+            return result;
+        }
+    }
+}
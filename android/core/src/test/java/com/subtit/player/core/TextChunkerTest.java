@@ -0,0 +1,85 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class TextChunkerTest {
+    private static void assertCovers(String text, List<TextChunker.Chunk> chunks, int maxLength) {
+        int previousEnd = 0;
+        for (TextChunker.Chunk chunk : chunks) {
+            assertTrue(chunk.length() > 0 && chunk.length() <= maxLength);
+            assertEquals(text.substring(chunk.start, chunk.end), chunk.text());
+            // Only whitespace is ever skipped between chunks.
+            assertEquals("", text.substring(previousEnd, chunk.start).trim());
+            previousEnd = chunk.end;
+        }
+        assertEquals("", text.substring(previousEnd).trim());
+    }
+
+    @Test
+    public void shortTextIsOneTrimmedChunk() {
+        List<TextChunker.Chunk> chunks = TextChunker.split("  Hello there.  ", 100);
+        assertEquals(1, chunks.size());
+        assertEquals("Hello there.", chunks.get(0).text());
+        assertEquals(2, chunks.get(0).start);
+    }
+
+    @Test
+    public void prefersSentenceThenClauseThenWordBreaks() {
+        String text = "One two. Three, four five";
+        List<TextChunker.Chunk> sentences = TextChunker.split(text, 20);
+        assertEquals("One two.", sentences.get(0).text());
+        assertCovers(text, sentences, 20);
+
+        List<TextChunker.Chunk> clauses = TextChunker.split("Three, four five six", 14);
+        assertEquals("Three,", clauses.get(0).text());
+
+        List<TextChunker.Chunk> words = TextChunker.split("alpha beta gamma delta", 12);
+        assertEquals("alpha beta", words.get(0).text());
+        assertCovers("alpha beta gamma delta", words, 12);
+    }
+
+    @Test
+    public void closingQuoteAfterTerminalPunctuationEndsSentence() {
+        List<TextChunker.Chunk> chunks = TextChunker.split("He said \"stop.\" Then, he left", 20);
+        assertEquals("He said \"stop.\"", chunks.get(0).text());
+    }
+
+    @Test
+    public void cjkSentencesSplitWithoutSpaces() {
+        String text = "今日は晴れです。明日は雨です。";
+        List<TextChunker.Chunk> chunks = TextChunker.split(text, 10);
+        assertEquals("今日は晴れです。", chunks.get(0).text());
+        assertCovers(text, chunks, 10);
+    }
+
+    @Test
+    public void longWordIsCutWithoutSplittingSurrogatePairs() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            builder.append("a😀");
+        }
+        String text = builder.toString();
+        List<TextChunker.Chunk> chunks = TextChunker.split(text, 4);
+        assertCovers(text, chunks, 4);
+        for (TextChunker.Chunk chunk : chunks) {
+            assertFalse(Character.isHighSurrogate(text.charAt(chunk.end - 1)));
+        }
+    }
+
+    @Test
+    public void emptyAndNullTextGiveNoChunks() {
+        assertTrue(TextChunker.split(null, 10).isEmpty());
+        assertTrue(TextChunker.split("   \n ", 10).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveMaxLength() {
+        TextChunker.split("text", 0);
+    }
+}
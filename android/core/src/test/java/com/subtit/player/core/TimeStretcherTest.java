@@ -0,0 +1,157 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class TimeStretcherTest {
+    private static final int RATE = 22050;
+    private static final int PITCH_HZ = 150;
+
+    // A voiced vowel: a few harmonics of a steady pitch under a slow amplitude swell.
+    private static short[] voiced(int frames, int channels) {
+        short[] samples = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            double t = (double) i / RATE;
+            double envelope = 0.6 + 0.4 * Math.sin(2 * Math.PI * 3 * t);
+            double value = 0;
+            for (int harmonic = 1; harmonic <= 4; harmonic++) {
+                value += Math.sin(2 * Math.PI * PITCH_HZ * harmonic * t) / harmonic;
+            }
+            short sample = (short) Math.round(6000 * envelope * value);
+            for (int c = 0; c < channels; c++) {
+                samples[i * channels + c] = sample;
+            }
+        }
+        return samples;
+    }
+
+    // Feeds samples in playback-sized writes, draining as it goes, then flushes.
+    private static short[] stretch(TimeStretcher stretcher, short[] samples, int chunkFrames) {
+        int channels = stretcher.channels();
+        int frames = samples.length / channels;
+        short[] out = new short[samples.length * 8 + 4096];
+        int written = 0;
+        for (int position = 0; position < frames; position += chunkFrames) {
+            stretcher.write(samples, position * channels, Math.min(chunkFrames, frames - position));
+            written += stretcher.read(out, written * channels, out.length / channels - written);
+        }
+        stretcher.flush();
+        written += stretcher.read(out, written * channels, out.length / channels - written);
+        assertEquals(0, stretcher.availableFrames());
+        return Arrays.copyOf(out, written * channels);
+    }
+
+    private static int upwardCrossings(short[] samples) {
+        int crossings = 0;
+        for (int i = 1; i < samples.length; i++) {
+            if (samples[i - 1] < 0 && samples[i] >= 0) {
+                crossings++;
+            }
+        }
+        return crossings;
+    }
+
+    private static void assertLength(int expected, int actual) {
+        assertTrue("expected about " + expected + " frames, got " + actual,
+                Math.abs(actual - expected) <= expected / 50 + 1);
+    }
+
+    @Test
+    public void normalSpeedIsBitExactPassthrough() {
+        short[] input = voiced(RATE, 2);
+        TimeStretcher stretcher = new TimeStretcher(RATE, 2);
+        assertArrayEquals(input, stretch(stretcher, input, 441));
+        assertEquals(RATE, stretcher.framesIn());
+        assertEquals(RATE, stretcher.framesOut());
+        assertEquals(0, stretcher.pendingInputFrames());
+    }
+
+    @Test
+    public void outputLengthFollowsSpeed() {
+        short[] input = voiced(2 * RATE, 1);
+        for (float speed : new float[]{0.5f, 2f, 4f, 1.5f, 0.75f}) {
+            TimeStretcher stretcher = new TimeStretcher(RATE, 1);
+            stretcher.setSpeed(speed);
+            short[] output = stretch(stretcher, input, 441);
+            assertLength(Math.round(input.length / speed), output.length);
+            assertEquals(output.length, stretcher.framesOut());
+        }
+    }
+
+    @Test
+    public void pitchIsKept() {
+        short[] input = voiced(2 * RATE, 1);
+        double inputRate = (double) upwardCrossings(input) / input.length;
+        for (float speed : new float[]{0.5f, 2f}) {
+            TimeStretcher stretcher = new TimeStretcher(RATE, 1);
+            stretcher.setSpeed(speed);
+            short[] output = stretch(stretcher, input, 1024);
+            double outputRate = (double) upwardCrossings(output) / output.length;
+            assertEquals("at " + speed + "x", inputRate, outputRate, inputRate * 0.1);
+        }
+    }
+
+    @Test
+    public void flushCutsTheTailToItsExpectedLength() {
+        // Shorter than one pitch search window, so all of it is produced by flush.
+        short[] input = voiced(300, 1);
+        for (float speed : new float[]{0.5f, 2f, 4f}) {
+            TimeStretcher stretcher = new TimeStretcher(RATE, 1);
+            stretcher.setSpeed(speed);
+            stretcher.write(input, 0, input.length);
+            assertEquals(0, stretcher.availableFrames());
+            assertEquals(input.length, stretcher.pendingInputFrames());
+            stretcher.flush();
+            assertEquals(Math.round(input.length / speed), stretcher.availableFrames());
+            assertEquals(0, stretcher.pendingInputFrames());
+        }
+        TimeStretcher stretcher = new TimeStretcher(RATE, 1);
+        stretcher.flush();
+        assertEquals(0, stretcher.availableFrames());
+    }
+
+    @Test
+    public void speedChangeMidStreamAppliesToTheRest() {
+        short[] input = voiced(2 * RATE, 1);
+        int half = RATE;
+        TimeStretcher stretcher = new TimeStretcher(RATE, 1);
+        short[] out = new short[4 * input.length];
+        stretcher.write(input, 0, half);
+        int written = stretcher.read(out, 0, out.length);
+        // Still at 1x, so the first half came straight through.
+        assertEquals(half, written);
+
+        stretcher.setSpeed(2f);
+        stretcher.write(input, half, input.length - half);
+        written += stretcher.read(out, written, out.length - written);
+        stretcher.flush();
+        written += stretcher.read(out, written, out.length - written);
+        assertLength(half + half / 2, written);
+
+        stretcher.setSpeed(0.5f);
+        stretcher.write(input, 0, half);
+        stretcher.flush();
+        assertLength(2 * half, stretcher.read(out, 0, out.length));
+    }
+
+    @Test
+    public void speedIsClamped() {
+        TimeStretcher stretcher = new TimeStretcher(RATE, 1);
+        stretcher.setSpeed(10f);
+        assertEquals(TimeStretcher.MAX_SPEED, stretcher.speed(), 0f);
+        stretcher.setSpeed(0f);
+        assertEquals(TimeStretcher.MIN_SPEED, stretcher.speed(), 0f);
+        try {
+            stretcher.setSpeed(Float.NaN);
+            fail("NaN speed accepted");
+        } catch (IllegalArgumentException expected) {
+            // rejected
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+public class WavHeaderTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File write(byte[]... parts) throws IOException {
+        File file = temp.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (byte[] part : parts) {
+                out.write(part);
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void canonicalHeaderRoundTrips() throws IOException {
+        byte[] data = new byte[22050 * 2 * 2];
+        File file = write(WavHeader.canonical(WavHeader.FORMAT_PCM, 2, 22050, 16, data.length), data);
+
+        WavHeader header = WavHeader.read(file);
+        assertTrue(header.isPcm16());
+        assertEquals(2, header.channels);
+        assertEquals(22050, header.sampleRate);
+        assertEquals(WavHeader.CANONICAL_SIZE, header.dataOffset);
+        assertEquals(data.length, header.dataLength);
+        assertEquals(4, header.frameSize());
+        assertEquals(22050, header.frames());
+        assertEquals(1000, header.durationMs());
+    }
+
+    @Test
+    public void skipsChunksBeforeData() throws IOException {
+        byte[] canonical = WavHeader.canonical(WavHeader.FORMAT_PCM, 1, 16000, 16, 8);
+        byte[] list = ByteBuffer.allocate(8 + 5 + 1).order(ByteOrder.LITTLE_ENDIAN)
+                .put("LIST".getBytes(StandardCharsets.US_ASCII)).putInt(5)
+                .put("info!".getBytes(StandardCharsets.US_ASCII)).array();
+        byte[] head = new byte[36];
+        System.arraycopy(canonical, 0, head, 0, 36);
+        byte[] tail = new byte[8];
+        System.arraycopy(canonical, 36, tail, 0, 8);
+        File file = write(head, list, tail, new byte[8]);
+
+        WavHeader header = WavHeader.read(file);
+        assertEquals(36 + list.length + 8, header.dataOffset);
+        assertEquals(8, header.dataLength);
+    }
+
+    @Test
+    public void unfinishedDataSizeIsClampedToTheFile() throws IOException {
+        File file = write(WavHeader.canonical(WavHeader.FORMAT_PCM, 1, 22050, 16, 0), new byte[1000]);
+        assertEquals(1000, WavHeader.read(file).dataLength);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsNonRiffFiles() throws IOException {
+        WavHeader.read(write(new byte[64]));
+    }
+
+    @Test
+    public void parseCanonicalAcceptsOnlyTheCanonicalLayout() {
+        WavHeader parsed = WavHeader.parseCanonical(WavHeader.canonical(WavHeader.FORMAT_PCM, 1, 24000, 16, 480));
+        assertEquals(24000, parsed.sampleRate);
+        assertEquals(480, parsed.dataLength);
+        assertNull(WavHeader.parseCanonical(new byte[WavHeader.CANONICAL_SIZE]));
+        assertNull(WavHeader.parseCanonical(new byte[10]));
+        assertFalse(WavHeader.parseCanonical(
+                WavHeader.canonical(WavHeader.FORMAT_IEEE_FLOAT, 1, 24000, 32, 0)).isPcm16());
+    }
+}
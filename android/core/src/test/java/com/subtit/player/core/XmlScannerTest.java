@@ -0,0 +1,65 @@
+package com.subtit.player.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class XmlScannerTest {
+    @Test
+    public void decodesNamedAndNumericEntities() {
+        assertEquals("a <b> & \"c\"", XmlScanner.decode("a &lt;b&gt; &amp; &quot;c&quot;"));
+        assertEquals("«é—😀»", XmlScanner.decode("&laquo;&#233;&#x2014;&#x1F600;&raquo;"));
+        // Unknown, unterminated and invalid references stay as written.
+        assertEquals("&bogus; & x &#xZZ; &#1114112;", XmlScanner.decode("&bogus; & x &#xZZ; &#1114112;"));
+    }
+
+    @Test
+    public void reportsTagsWithLocalLowerCaseNames() throws IOException {
+        XmlScanner scanner = new XmlScanner(new StringReader(
+                "<?xml version=\"1.0\"?><!-- note --><DC:Title Lang='en' id=a&amp;b>Hi</DC:Title><br/>"));
+        assertEquals(XmlScanner.START_TAG, scanner.next());
+        assertEquals("title", scanner.name());
+        assertEquals("en", scanner.attribute("lang"));
+        assertEquals("a&b", scanner.attribute("id"));
+        assertEquals(XmlScanner.TEXT, scanner.next());
+        assertEquals("Hi", scanner.text());
+        assertEquals(XmlScanner.END_TAG, scanner.next());
+        assertEquals("title", scanner.name());
+
+        assertEquals(XmlScanner.START_TAG, scanner.next());
+        assertTrue(scanner.isSelfClosing());
+        assertEquals(XmlScanner.END_TAG, scanner.next());
+        assertEquals("br", scanner.name());
+        assertEquals(XmlScanner.END_DOCUMENT, scanner.next());
+    }
+
+    @Test
+    public void cdataIsTextAndStrayBracketIsKept() throws IOException {
+        XmlScanner scanner = new XmlScanner(new StringReader("<p><![CDATA[x < y &amp;]]> 1 < 2</p>"));
+        scanner.next();
+        assertEquals(XmlScanner.TEXT, scanner.next());
+        assertEquals("x < y &amp;", scanner.text());
+        assertEquals(XmlScanner.TEXT, scanner.next());
+        assertEquals(" 1 ", scanner.text());
+        assertEquals(XmlScanner.TEXT, scanner.next());
+        assertEquals("< 2", scanner.text());
+        assertEquals(XmlScanner.END_TAG, scanner.next());
+    }
+
+    @Test
+    public void skipElementHandlesNesting() throws IOException {
+        XmlScanner scanner = new XmlScanner(new StringReader("<svg><svg><p>in</p></svg></svg><p>out</p>"));
+        scanner.next();
+        scanner.skipElement();
+        assertEquals(XmlScanner.START_TAG, scanner.next());
+        assertEquals("p", scanner.name());
+        scanner.next();
+        assertEquals("out", scanner.text());
+        assertNull(scanner.attribute("id"));
+    }
+}
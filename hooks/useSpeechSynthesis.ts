@@ -218,6 +218,39 @@ export const useSpeechSynthesis = (): SpeechSynthesisHook => {
     };
   }, [addLog]);
 
+  const applyNativeVoices = useCallback(
+    (nativeVoices: NativeVoice[] | undefined) => {
+      if (!nativeVoices || nativeVoices.length === 0) {
+        addLog('[NativeTTS] No voices reported, using default locale');
+        const fallbackLanguage = resolveLanguage(undefined);
+        applyVoiceList([
+          {
+            id: 'native-default',
+            name: 'System voice',
+            localeRaw: fallbackLanguage.localeRaw,
+            languageCode: fallbackLanguage.code,
+            languageLabel: fallbackLanguage.label,
+            provider: 'native',
+          },
+        ]);
+        nativeVoiceLoadState.current = 'loaded';
+        return;
+      }
+      const sortedVoices = [...nativeVoices].sort((a, b) => a.id.localeCompare(b.id));
+      const signature = sortedVoices.map((voice) => voice.id).join('|');
+      if (lastNativeVoiceSignatureRef.current === signature) {
+        addLog('[NativeTTS] Voice signature unchanged; skipping update');
+        return;
+      }
+      lastNativeVoiceSignatureRef.current = signature;
+      const mapped = sortedVoices.map((voice, index) => mapNativeVoice(voice, index));
+      applyVoiceList(mapped);
+      addLog(`[NativeTTS] Received ${nativeVoices.length} voices`);
+      nativeVoiceLoadState.current = 'loaded';
+    },
+    [addLog, applyVoiceList]
+  );
+
   const loadNativeVoices = useCallback(
     (retry = 0) => {
       if (!NativeTTS) {
@@ -236,33 +269,7 @@ export const useSpeechSynthesis = (): SpeechSynthesisHook => {
       NativeTTS.getVoices()
         .then(({ voices: nativeVoices }) => {
           addLog(`[NativeTTS] getVoices resolved. count=${nativeVoices?.length ?? 0}`);
-          if (!nativeVoices || nativeVoices.length === 0) {
-            addLog('[NativeTTS] No voices reported, using default locale');
-            const fallbackLanguage = resolveLanguage(undefined);
-            applyVoiceList([
-              {
-                id: 'native-default',
-                name: 'System voice',
-                localeRaw: fallbackLanguage.localeRaw,
-                languageCode: fallbackLanguage.code,
-                languageLabel: fallbackLanguage.label,
-                provider: 'native',
-              },
-            ]);
-            nativeVoiceLoadState.current = 'loaded';
-            return;
-          }
-          const sortedVoices = [...nativeVoices].sort((a, b) => a.id.localeCompare(b.id));
-          const signature = sortedVoices.map((voice) => voice.id).join('|');
-          if (lastNativeVoiceSignatureRef.current === signature) {
-            addLog('[NativeTTS] Voice signature unchanged; skipping update');
-            return;
-          }
-          lastNativeVoiceSignatureRef.current = signature;
-          const mapped = sortedVoices.map((voice, index) => mapNativeVoice(voice, index));
-          applyVoiceList(mapped);
-          addLog(`[NativeTTS] Received ${nativeVoices.length} voices`);
-          nativeVoiceLoadState.current = 'loaded';
+          applyNativeVoices(nativeVoices);
         })
         .catch((error) => {
           const message = error instanceof Error ? error.message : String(error);
@@ -280,7 +287,27 @@ export const useSpeechSynthesis = (): SpeechSynthesisHook => {
           nativeVoiceLoadState.current = 'idle';
         });
     },
-    [addLog, applyVoiceList]
+    [addLog, applyNativeVoices]
+  );
+
+  const applyNativeLanguages = useCallback(
+    (languages: string[], defaultLanguage: string) => {
+      const unique = Array.from(new Set(languages));
+      setAvailableLanguageCodes(unique);
+      recomputeLanguageOptions(voicesRef.current, unique);
+      if (selectedLanguageRef.current === 'all') {
+        const resolved = resolveLanguage(defaultLanguage);
+        if (resolved.code && resolved.code !== UNKNOWN_LANGUAGE) {
+          setSelectedLanguage((prev) => {
+            if (prev !== 'all') {
+              return prev;
+            }
+            return resolved.code;
+          });
+        }
+      }
+    },
+    [recomputeLanguageOptions]
   );
 
   const refreshAvailableLanguages = useCallback(() => {
@@ -289,26 +316,34 @@ export const useSpeechSynthesis = (): SpeechSynthesisHook => {
     }
     NativeTTS.getAvailableLanguages()
       .then(({ languages, defaultLanguage }) => {
-        const unique = Array.from(new Set(languages));
-        setAvailableLanguageCodes(unique);
-        recomputeLanguageOptions(voicesRef.current, unique);
-        if (selectedLanguageRef.current === 'all') {
-          const resolved = resolveLanguage(defaultLanguage);
-          if (resolved.code && resolved.code !== UNKNOWN_LANGUAGE) {
-            setSelectedLanguage((prev) => {
-              if (prev !== 'all') {
-                return prev;
-              }
-              return resolved.code;
-            });
-          }
-        }
+        applyNativeLanguages(languages, defaultLanguage);
       })
       .catch((error) => {
         console.warn('[NativeTTS] Unable to fetch languages', error);
         addLog(`[NativeTTS] Fetch languages failed: ${(error as Error).message}`);
       });
-  }, [addLog, recomputeLanguageOptions]);
+  }, [addLog, applyNativeLanguages]);
+
+  const applyNativeEngines = useCallback(
+    (nativeEngines: NativeEngine[] | undefined, currentEngine?: string | null) => {
+      const mapped = (nativeEngines || []).map((engine: NativeEngine) => ({
+        id: engine.id,
+        label: engine.label || engine.id,
+      }));
+      setEngines(mapped);
+      if (currentEngine) {
+        setSelectedEngineId(currentEngine);
+      } else if (mapped.length > 0) {
+        setSelectedEngineId(mapped[0].id);
+      }
+      addLog(
+        `[NativeTTS] getEngines result. current=${currentEngine ?? 'n/a'} engines=[${mapped
+          .map((engine) => engine.id)
+          .join(', ')}]`
+      );
+    },
+    [addLog]
+  );
 
   const loadNativeEngines = useCallback(() => {
     if (!NativeTTS) {
@@ -317,27 +352,40 @@ export const useSpeechSynthesis = (): SpeechSynthesisHook => {
     addLog('[NativeTTS] loadNativeEngines invoked');
     NativeTTS.getEngines()
       .then(({ engines: nativeEngines, currentEngine }) => {
-        const mapped = (nativeEngines || []).map((engine: NativeEngine) => ({
-          id: engine.id,
-          label: engine.label || engine.id,
-        }));
-        setEngines(mapped);
-        if (currentEngine) {
-          setSelectedEngineId(currentEngine);
-        } else if (mapped.length > 0) {
-          setSelectedEngineId(mapped[0].id);
-        }
-        addLog(
-          `[NativeTTS] getEngines result. current=${currentEngine ?? 'n/a'} engines=[${mapped
-            .map((engine) => engine.id)
-            .join(', ')}]`
-        );
+        applyNativeEngines(nativeEngines, currentEngine);
       })
       .catch((error) => {
         console.warn('[NativeTTS] Unable to fetch engines', error);
         addLog(`[NativeTTS] Fetch engines failed: ${(error as Error).message}`);
       });
-  }, [addLog]);
+  }, [addLog, applyNativeEngines]);
+
+  const loadNativeSnapshot = useCallback(async (): Promise<boolean> => {
+    if (!NativeTTS) {
+      return false;
+    }
+    try {
+      const snapshot = await NativeTTS.getSnapshot();
+      addLog(
+        `[NativeTTS] getSnapshot resolved. available=${snapshot.available} engines=${
+          snapshot.engines?.length ?? 0
+        } voices=${snapshot.voices?.length ?? 0}`
+      );
+      applyNativeEngines(snapshot.engines, snapshot.currentEngine);
+      applyNativeLanguages(snapshot.languages || [], snapshot.defaultLanguage);
+      if (nativeVoiceLoadState.current !== 'loaded') {
+        if (snapshot.available) {
+          applyNativeVoices(snapshot.voices);
+        } else {
+          loadNativeVoices();
+        }
+      }
+      return true;
+    } catch (error) {
+      addLog(`[NativeTTS] getSnapshot failed: ${(error as Error).message}`);
+      return false;
+    }
+  }, [addLog, applyNativeEngines, applyNativeLanguages, applyNativeVoices, loadNativeVoices]);
 
   useEffect(() => {
     let cancelled = false;
@@ -374,11 +422,16 @@ export const useSpeechSynthesis = (): SpeechSynthesisHook => {
         nativeInitializationRef.current = true;
         addLog('[NativeTTS] native init start');
         addLog('[Support] Requesting native engines from client');
-        loadNativeEngines();
-        refreshAvailableLanguages();
-        if (nativeVoiceLoadState.current !== 'loaded') {
-          loadNativeVoices();
-        }
+        void loadNativeSnapshot().then((loaded) => {
+          if (loaded || cancelled) {
+            return;
+          }
+          loadNativeEngines();
+          refreshAvailableLanguages();
+          if (nativeVoiceLoadState.current !== 'loaded') {
+            loadNativeVoices();
+          }
+        });
       } else {
         addLog('[NativeTTS] native init skipped (already initialized)');
       }
@@ -462,6 +515,7 @@ export const useSpeechSynthesis = (): SpeechSynthesisHook => {
     attachNativeListener,
     checkNativeAvailability,
     loadNativeEngines,
+    loadNativeSnapshot,
     loadNativeVoices,
     populateWebVoices,
     refreshAvailableLanguages,
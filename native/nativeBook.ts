@@ -0,0 +1,103 @@
+import { registerPlugin } from '@capacitor/core';
+
+export type NativeBookState = 'playing' | 'stopped' | 'finished' | 'error';
+
+export interface NativeBookSection {
+  title: string;
+  anchor?: string | null;
+  depth: number;
+}
+
+export interface NativeBookChapter {
+  index: number;
+  title?: string | null;
+  path: string;
+  linear: boolean;
+  sections: NativeBookSection[];
+}
+
+export interface NativeBookInfo {
+  title?: string | null;
+  language?: string | null;
+  chapters: NativeBookChapter[];
+}
+
+export interface NativeBookPlayOptions {
+  chapter?: number;
+  // Takes precedence over block when set.
+  anchor?: string;
+  block?: number;
+  voiceId?: string;
+  rate?: number;
+  pitch?: number;
+  // Blocks kept queued in the speech engine ahead of the one playing.
+  lookAhead?: number;
+}
+
+export interface NativeBookPosition {
+  state: NativeBookState;
+  chapter?: number;
+  block?: number;
+  anchor?: string | null;
+}
+
+export interface NativeBookProgressEvent {
+  chapter: number;
+  block: number;
+  anchor?: string | null;
+  heading: boolean;
+  text: string;
+  utteranceId: string;
+}
+
+export interface NativeBookStateEvent {
+  state: NativeBookState;
+  chapter?: number;
+  block?: number;
+  message?: string;
+}
+
+export interface NativeBookSearchHit {
+  bookId: string;
+  chapter: number;
+  block: number;
+  // Chars into the block text of the earliest matching word, and that word's length.
+  offset: number;
+  length: number;
+}
+
+export interface NativeBookSearchResult {
+  // Matching blocks across the library; hits is capped at the requested limit.
+  total: number;
+  hits: NativeBookSearchHit[];
+}
+
+export interface NativeBookPlugin {
+  // path is an absolute path, a file:// URI, or a path inside the bundled web assets (e.g. book/x.epub).
+  open(options: { path: string }): Promise<NativeBookInfo>;
+  play(options?: NativeBookPlayOptions): Promise<void>;
+  stop(): Promise<void>;
+  getPosition(): Promise<NativeBookPosition>;
+  close(): Promise<void>;
+  // bookId defaults to the file name. Books already indexed from an unchanged file are skipped unless force is set.
+  indexBook(options: { path: string; bookId?: string; force?: boolean }): Promise<{
+    bookId: string;
+    indexed: boolean;
+    terms?: number;
+    durationMs?: number;
+  }>;
+  // Matches blocks containing every word; the last word matches as a prefix.
+  search(options: { query: string; limit?: number }): Promise<NativeBookSearchResult>;
+  removeFromIndex(options: { bookId: string }): Promise<{ removed: boolean }>;
+  getIndexedBooks(): Promise<{ books: string[] }>;
+  addListener(
+    eventName: 'bookProgress',
+    listenerFunc: (event: NativeBookProgressEvent) => void
+  ): Promise<{ remove: () => void }>;
+  addListener(
+    eventName: 'bookState',
+    listenerFunc: (event: NativeBookStateEvent) => void
+  ): Promise<{ remove: () => void }>;
+}
+
+export const NativeBook = registerPlugin<NativeBookPlugin>('NativeBook');
@@ -10,10 +10,70 @@ export interface PurchaseResult {
   orderId?: string | null;
 }
 
+export interface PricingPhase {
+  price: string;
+  priceMicros: number;
+  currency: string;
+  // ISO 8601 period, e.g. P1M.
+  billingPeriod: string;
+  billingCycleCount: number;
+  recurrenceMode: number;
+}
+
+export interface SubscriptionOffer {
+  basePlanId: string;
+  offerId?: string | null;
+  offerToken: string;
+  pricingPhases: PricingPhase[];
+}
+
+export interface Product {
+  productId: string;
+  type: 'inapp' | 'subs';
+  title: string;
+  name: string;
+  description: string;
+  // For subscriptions, the recurring price of the first offer.
+  price?: string;
+  priceMicros?: number;
+  currency?: string;
+  offers?: SubscriptionOffer[];
+}
+
+export interface Entitlement {
+  productId: string;
+  type: 'inapp' | 'subs';
+  purchaseToken: string;
+  orderId?: string | null;
+  purchaseTime: number;
+  // Pending purchases are waiting on payment and do not unlock anything yet.
+  state: 'purchased' | 'pending';
+  acknowledged: boolean;
+  autoRenewing: boolean;
+}
+
+export interface EntitlementsResult {
+  entitlements: Entitlement[];
+  premium: boolean;
+  // Epoch ms of the last reconciliation with the store, 0 if none yet.
+  reconciledAt: number;
+  // False when the stored cache failed signature checks and was discarded.
+  verified: boolean;
+}
+
 export interface NativePurchasesPlugin {
+  // Answers from the on-device cache immediately; changes found by the background
+  // reconciliation arrive as entitlementsChanged.
+  getEntitlements(): Promise<EntitlementsResult>;
+  // Served from the prefetched catalogue when it is fresh; products missing from the store are omitted.
+  getProducts(options?: { productIds?: string[]; forceRefresh?: boolean }): Promise<{ products: Product[]; stale: boolean }>;
   buyNonConsumable(options: PurchaseOptions): Promise<PurchaseResult>;
   buyConsumable(options: PurchaseOptions): Promise<PurchaseResult>;
   buySubscription(options: PurchaseOptions): Promise<PurchaseResult>;
+  addListener(eventName: 'entitlementsChanged', listenerFunc: (event: EntitlementsResult) => void): Promise<{ remove: () => void }>;
+  // A consumable found unconsumed during reconciliation (e.g. after a crash mid-purchase) has been consumed and still needs granting.
+  // Retained natively until the first listener attaches.
+  addListener(eventName: 'purchaseRecovered', listenerFunc: (event: PurchaseResult) => void): Promise<{ remove: () => void }>;
 }
 
 export const NativePurchases = registerPlugin<NativePurchasesPlugin>('NativePurchases');
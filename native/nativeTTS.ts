@@ -15,28 +15,122 @@ export interface NativeEngine {
 
 export interface NativeTTSStateEvent {
   state: 'start' | 'done' | 'error';
+  // Absent when stop() ended speech.
+  utteranceId?: string;
+}
+
+export interface NativeTTSRangeEvent {
+  utteranceId: string;
+  // Character offsets into the text passed to speak or synthesizeToFile.
+  start: number;
+  end: number;
+}
+
+export interface NativeTTSSynthesisEvent {
+  utteranceId: string;
+  path: string;
+  // Present when synthesizeToFile was called with trimSilence; frames index the untrimmed file.
+  trim?: {
+    leadingMs: number;
+    trailingMs: number;
+    durationMs: number;
+    originalDurationMs: number;
+    startFrame: number;
+    endFrame: number;
+    sampleRate: number;
+  };
+}
+
+export interface NativeAudioStateEvent {
+  state: 'playing' | 'paused' | 'done' | 'stopped' | 'error';
+  // Position in the source file, independent of playback speed.
+  positionMs: number;
+  message?: string;
+}
+
+export interface NativeAudioProgressEvent {
+  positionMs: number;
+  // 0 while a streamed synthesis is still running.
+  durationMs: number;
+  speed: number;
 }
 
 export interface NativeLogEvent {
   message: string;
 }
 
+export interface NativeTTSSnapshot {
+  available: boolean;
+  engines: NativeEngine[];
+  currentEngine?: string | null;
+  languages: string[];
+  defaultLanguage: string;
+  voices: NativeVoice[];
+}
+
 export interface NativeTTSPlugin {
   isAvailable(): Promise<{ available: boolean }>;
   getEngines(): Promise<{ engines: NativeEngine[]; currentEngine?: string | null }>;
   selectEngine(options: { engineId: string }): Promise<{ engineId: string }>;
   getVoices(): Promise<{ voices: NativeVoice[] }>;
   getAvailableLanguages(): Promise<{ languages: string[]; defaultLanguage: string }>;
+  getSnapshot(): Promise<NativeTTSSnapshot>;
   speak(options: { text: string; voiceId?: string; rate?: number; pitch?: number }): Promise<{ success: boolean }>;
   stop(): Promise<void>;
   setPitch(options: { pitch: number }): Promise<void>;
   setSpeechRate(options: { rate: number }): Promise<void>;
-  synthesizeToFile(options: { text: string; voiceId?: string; rate?: number; pitch?: number }): Promise<{ uri: string; path: string }>;
+  // trimSilence cuts the engine's leading and trailing silence before the file counts as finished.
+  synthesizeToFile(options: {
+    text: string;
+    voiceId?: string;
+    rate?: number;
+    pitch?: number;
+    trimSilence?: boolean;
+  }): Promise<{
+    uri: string;
+    path: string;
+    utteranceId?: string;
+    trimSilence?: boolean;
+    // Only set when called from an overlay page; fetchable and playable from that page.
+    webUrl?: string;
+  }>;
+  // Plays a synthesizeToFile result time-stretched to speed (0.25-4) with the pitch kept; resolves once audio starts.
+  playAudio(options: { path: string; speed?: number; startMs?: number }): Promise<{
+    durationMs: number;
+    sampleRate: number;
+    channels: number;
+  }>;
+  // Synthesizes and plays through the same time-stretched player. On Android 11+ the audio is streamed
+  // from the engine through an in-memory buffer of bufferBytes (clamped to 16 KiB..1 MiB) and starts
+  // with the first samples (streamed: true); older versions fall back to a cache file played once complete.
+  playSynthesis(options: {
+    text: string;
+    voiceId?: string;
+    rate?: number;
+    pitch?: number;
+    speed?: number;
+    bufferBytes?: number;
+  }): Promise<{
+    utteranceId: string;
+    streamed: boolean;
+    path?: string;
+    sampleRate: number;
+    channels: number;
+  }>;
+  // Applies to the audio playing now, mid-utterance, without re-synthesis.
+  setPlaybackSpeed(options: { speed: number }): Promise<{ speed: number }>;
+  pauseAudio(): Promise<{ paused: boolean }>;
+  resumeAudio(): Promise<{ resumed: boolean }>;
+  stopAudio(): Promise<{ stopped: boolean; positionMs: number }>;
   shareAudio(options: { uri: string }): Promise<void>;
   openSettings(): Promise<void>;
   getLogs(): Promise<{ logs: string[] }>;
   clearLogs(): Promise<void>;
   addListener(eventName: 'ttsState', listenerFunc: (event: NativeTTSStateEvent) => void): Promise<{ remove: () => void }>;
+  addListener(eventName: 'ttsRange', listenerFunc: (event: NativeTTSRangeEvent) => void): Promise<{ remove: () => void }>;
+  addListener(eventName: 'ttsSynthesis', listenerFunc: (event: NativeTTSSynthesisEvent) => void): Promise<{ remove: () => void }>;
+  addListener(eventName: 'audioState', listenerFunc: (event: NativeAudioStateEvent) => void): Promise<{ remove: () => void }>;
+  addListener(eventName: 'audioProgress', listenerFunc: (event: NativeAudioProgressEvent) => void): Promise<{ remove: () => void }>;
   addListener(eventName: 'log', listenerFunc: (event: NativeLogEvent) => void): Promise<{ remove: () => void }>;
 }
 
@@ -9,10 +9,114 @@ export interface RateAppResult {
   reason?: string;
 }
 
+export interface MemoryActionMetric {
+  count: number;
+  amount: number;
+  lastAt: number;
+}
+
+export interface MemoryMetrics {
+  signals: Record<string, number>;
+  actions: Record<string, MemoryActionMetric>;
+  lastSignal?: string | null;
+  lastSeverity: number;
+  lastSignalAt: number;
+  heapUsedBytes: number;
+  heapMaxBytes: number;
+}
+
+export interface StartupPhase {
+  name: string;
+  startMs: number;
+  durationMs: number;
+  detail?: string;
+}
+
+export interface StartupTimeline {
+  origin: 'processStart' | 'classLoad';
+  phases: StartupPhase[];
+  marks: Record<string, number>;
+}
+
+export interface StallOwnerMetric {
+  count: number;
+  totalMs: number;
+  maxMs: number;
+}
+
+export interface MainThreadStall {
+  // Open watchdog section, or the app frame seen most often while stalled, e.g. "NativeUtilitiesPlugin.clearCache".
+  owner: string;
+  durationMs: number;
+  at: number;
+  stack: string[];
+}
+
+export interface StallMetrics {
+  running: boolean;
+  thresholdMs: number;
+  pings: number;
+  stalls: number;
+  totalStallMs: number;
+  maxStallMs: number;
+  // Stall counts keyed lt500, lt1000, lt2000, lt5000 and gte5000.
+  buckets: Record<string, number>;
+  owners: Record<string, StallOwnerMetric>;
+  recent: MainThreadStall[];
+}
+
+export type CacheCategory = 'ttsAudio' | 'webView' | 'httpCache' | 'logs' | 'other';
+
+export interface CacheCategoryUsage {
+  bytes: number;
+  files: number;
+  oldestModified: number;
+  quotaBytes: number;
+}
+
+export interface CacheUsage {
+  categories: Record<CacheCategory, CacheCategoryUsage>;
+  totalBytes: number;
+  durationMs: number;
+}
+
+export interface CacheClearResult {
+  bytesFreed: number;
+  filesDeleted: number;
+  failures: number;
+  categories: Partial<Record<CacheCategory, number>>;
+  durationMs?: number;
+}
+
+export interface CacheClearProgressEvent {
+  category: CacheCategory;
+  filesDeleted: number;
+  bytesFreed: number;
+  bytesTotal: number;
+}
+
 export interface NativeUtilitiesPlugin {
   rateApp(): Promise<RateAppResult>;
   shareApp(options: ShareOptions): Promise<void>;
-  clearCache(): Promise<void>;
+  // Without categories everything is cleared, including web storage and cookies.
+  clearCache(options?: { categories?: CacheCategory[] }): Promise<CacheClearResult>;
+  getCacheUsage(): Promise<CacheUsage>;
+  // Quotas are in bytes; 0 disables the quota for that category.
+  setCacheQuotas(options: { quotas: Partial<Record<CacheCategory, number>> }): Promise<{
+    quotas: Partial<Record<CacheCategory, number>>;
+  }>;
+  getMemoryMetrics(): Promise<MemoryMetrics>;
+  getStartupTimeline(): Promise<StartupTimeline>;
+  // reset clears the counters after this snapshot is taken.
+  getStallMetrics(options?: { thresholdMs?: number; reset?: boolean }): Promise<StallMetrics>;
+  addListener(
+    eventName: 'cacheClearProgress',
+    listenerFunc: (event: CacheClearProgressEvent) => void
+  ): Promise<{ remove: () => void }>;
+  addListener(
+    eventName: 'cacheQuotaEnforced',
+    listenerFunc: (event: CacheClearResult) => void
+  ): Promise<{ remove: () => void }>;
 }
 
 export const NativeUtilities = registerPlugin<NativeUtilitiesPlugin>('NativeUtilities');
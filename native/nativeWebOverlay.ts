@@ -4,22 +4,108 @@ import type { PluginListenerHandle } from '@capacitor/core';
 export interface NativeWebOverlayShowOptions {
   url: string;
   mode?: 'default' | 'minimal';
+  destination?: string;
+  reload?: boolean;
 }
 
 export interface NativeWebOverlayUrlChangeEvent {
   url: string;
 }
 
+export interface NativeWebOverlayRenderProcessGoneEvent {
+  destination: string;
+  crashed: boolean;
+  url?: string | null;
+}
+
+export interface NativeWebOverlayRenderRecoveredEvent {
+  destination: string;
+  url?: string | null;
+  downtimeMs: number;
+}
+
+export interface NativeWebOverlayPhaseSummary {
+  count: number;
+  p50: number;
+  p90: number;
+  p99: number;
+  max: number;
+}
+
+export interface NativeWebOverlayNavigationTiming {
+  id: number;
+  destination: string;
+  url: string;
+  loadUrl?: number;
+  commitVisible?: number;
+  firstPaint?: number;
+  pageFinished?: number;
+  runtimeReady?: number;
+}
+
+export interface NativeWebOverlayLoadTimings {
+  phases: Record<'loadUrl' | 'commitVisible' | 'firstPaint' | 'pageFinished' | 'runtimeReady', NativeWebOverlayPhaseSummary>;
+  history: NativeWebOverlayNavigationTiming[];
+  resumedShows: number;
+}
+
+export interface NativeWebOverlayMediaTime {
+  available: boolean;
+  position: number;
+  playing: boolean;
+  rate: number;
+  duration: number;
+  sampleAgeMs: number;
+  samplesReceived: number;
+  eventsReceived: number;
+}
+
+export interface NativeWebOverlayMediaStateEvent {
+  event: 'play' | 'pause' | 'seeked' | 'ratechange' | 'ended' | 'waiting';
+  position: number;
+  rate: number;
+}
+
+export interface NativeWebOverlayBridgeStats {
+  capacity: number;
+  queued: number;
+  inFlight: number;
+  submitted: number;
+  completed: number;
+  timedOut: number;
+  failed: number;
+  shed: number;
+  cancelled: number;
+  // A call abandoned at its deadline still holds the call thread; new requests are shed until it returns.
+  wedged: boolean;
+}
+
 export interface NativeWebOverlayPlugin {
   show(options: NativeWebOverlayShowOptions): Promise<void>;
   hide(): Promise<void>;
   goBack(): Promise<void>;
+  getLoadTimings(options?: { destination?: string; limit?: number }): Promise<NativeWebOverlayLoadTimings>;
+  clearLoadTimings(): Promise<void>;
+  getMediaTime(): Promise<NativeWebOverlayMediaTime>;
+  getBridgeStats(): Promise<NativeWebOverlayBridgeStats>;
   addListener(
     eventName: 'urlChange',
     listenerFunc: (event: NativeWebOverlayUrlChangeEvent) => void
   ): Promise<PluginListenerHandle>;
   addListener(eventName: 'showLogRequested', listenerFunc: () => void): Promise<PluginListenerHandle>;
   addListener(eventName: 'closed', listenerFunc: () => void): Promise<PluginListenerHandle>;
+  addListener(
+    eventName: 'renderProcessGone',
+    listenerFunc: (event: NativeWebOverlayRenderProcessGoneEvent) => void
+  ): Promise<PluginListenerHandle>;
+  addListener(
+    eventName: 'renderProcessRecovered',
+    listenerFunc: (event: NativeWebOverlayRenderRecoveredEvent) => void
+  ): Promise<PluginListenerHandle>;
+  addListener(
+    eventName: 'mediaState',
+    listenerFunc: (event: NativeWebOverlayMediaStateEvent) => void
+  ): Promise<PluginListenerHandle>;
   addListener(
     eventName: 'debug',
     listenerFunc: (event: { message: string }) => void